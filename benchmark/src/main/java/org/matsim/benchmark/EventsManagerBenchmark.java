@@ -0,0 +1,117 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.util.function.Supplier;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup.RingBufferWaitStrategy;
+import org.matsim.core.events.EventArray;
+import org.matsim.core.events.ParallelEventsManager;
+import org.matsim.core.events.RingBufferEventsManager;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Measures the event throughput of the events managers that run one thread per handler. Events are submitted
+ * one by one (as the QSim does) and in batches (as Hermes does).
+ * <p>
+ * Usage: EventsManagerBenchmark [numberOfHandlers] [numberOfEvents]
+ */
+public class EventsManagerBenchmark {
+
+	private static final int QUEUE_SIZE = 65536 * 2;
+	private static final int BATCH_SIZE = 32768;
+	private static final int REPETITIONS = 3;
+
+	public static void main(String[] args) {
+		int handlers = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors() / 2;
+		int numberOfEvents = args.length > 1 ? Integer.parseInt(args[1]) : 20_000_000;
+
+		LinkEnterEvent[] events = new LinkEnterEvent[numberOfEvents];
+		for (int i = 0; i < numberOfEvents; i++) {
+			events[i] = new LinkEnterEvent(i, Id.create(i % 1000, Vehicle.class), Id.create(i % 10000, Link.class));
+		}
+
+		System.out.println(String.format("%d handlers, %d events", handlers, numberOfEvents));
+		for (int r = 0; r < REPETITIONS; r++) {
+			run("ParallelEventsManager", () -> new ParallelEventsManager(false, QUEUE_SIZE), handlers, events);
+			run("RingBufferEventsManager (busySpin)", () -> new RingBufferEventsManager(false, QUEUE_SIZE, RingBufferWaitStrategy.busySpin), handlers, events);
+			run("RingBufferEventsManager (park)", () -> new RingBufferEventsManager(false, QUEUE_SIZE, RingBufferWaitStrategy.park), handlers, events);
+		}
+	}
+
+	private static void run(String name, Supplier<EventsManager> factory, int handlers, LinkEnterEvent[] events) {
+		long single = measure(factory.get(), handlers, events, false);
+		long batched = measure(factory.get(), handlers, events, true);
+		System.out.println(String.format("%-36s single: %6.2f M events/s   batched: %6.2f M events/s", name,
+				events.length / (double) single, events.length / (double) batched));
+	}
+
+	// returns the wall clock time in microseconds from the first submitted event until all handlers are done
+	private static long measure(EventsManager eventsManager, int handlers, LinkEnterEvent[] events, boolean batched) {
+		CountingHandler[] counters = new CountingHandler[handlers];
+		for (int i = 0; i < handlers; i++) {
+			counters[i] = new CountingHandler();
+			eventsManager.addHandler(counters[i]);
+		}
+		eventsManager.initProcessing();
+
+		long start = System.nanoTime();
+		if (batched) {
+			EventArray batch = new EventArray(BATCH_SIZE);
+			for (LinkEnterEvent event : events) {
+				batch.add(event);
+				if (batch.size() == BATCH_SIZE) {
+					eventsManager.processEvents(batch);
+					batch = new EventArray(BATCH_SIZE);
+				}
+			}
+			eventsManager.processEvents(batch);
+		} else {
+			for (LinkEnterEvent event : events) {
+				eventsManager.processEvent(event);
+			}
+		}
+		eventsManager.finishProcessing();
+		long duration = (System.nanoTime() - start) / 1000;
+
+		for (CountingHandler counter : counters) {
+			if (counter.count != events.length) {
+				throw new RuntimeException("handler received " + counter.count + " instead of " + events.length + " events");
+			}
+		}
+		return duration;
+	}
+
+	private static class CountingHandler implements LinkEnterEventHandler {
+		private long count = 0;
+		private long checksum = 0;
+
+		@Override
+		public void handleEvent(LinkEnterEvent event) {
+			this.count++;
+			this.checksum += event.getLinkId().index();
+		}
+	}
+}
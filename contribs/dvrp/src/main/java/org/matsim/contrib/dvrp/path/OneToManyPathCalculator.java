@@ -20,9 +20,7 @@
 
 package org.matsim.contrib.dvrp.path;
 
-import static java.util.stream.Collectors.toList;
-import static org.matsim.contrib.dvrp.path.LeastCostPathTreeStopCriteria.allEndNodesReached;
-import static org.matsim.contrib.dvrp.path.LeastCostPathTreeStopCriteria.withMaxTravelTime;
+import static org.matsim.contrib.dvrp.path.LeastCostPathTreeStopCriteria.maxTravelTime;
 import static org.matsim.contrib.dvrp.path.VrpPaths.FIRST_LINK_TT;
 import static org.matsim.core.router.util.LeastCostPathCalculator.Path;
 
@@ -40,6 +38,7 @@ import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Node;
 import org.matsim.contrib.dvrp.path.OneToManyPathSearch.PathData;
 import org.matsim.core.router.speedy.LeastCostPathTree;
+import org.matsim.core.router.speedy.SpeedyALTData;
 import org.matsim.core.utils.misc.OptionalTime;
 
 /**
@@ -48,14 +47,22 @@ import org.matsim.core.utils.misc.OptionalTime;
 class OneToManyPathCalculator {
 	private final IdMap<Node, Node> nodeMap;
 	private final LeastCostPathTree dijkstraTree;
+	@Nullable
+	private final SpeedyALTData altData;
 	private final boolean forwardSearch;
 	private final Link fromLink;
 	private final double startTime;
 
 	OneToManyPathCalculator(IdMap<Node, Node> nodeMap, LeastCostPathTree dijkstraTree, boolean forwardSearch,
 			Link fromLink, double startTime) {
+		this(nodeMap, dijkstraTree, null, forwardSearch, fromLink, startTime);
+	}
+
+	OneToManyPathCalculator(IdMap<Node, Node> nodeMap, LeastCostPathTree dijkstraTree,
+			@Nullable SpeedyALTData altData, boolean forwardSearch, Link fromLink, double startTime) {
 		this.nodeMap = nodeMap;
 		this.dijkstraTree = dijkstraTree;
+		this.altData = altData;
 		this.forwardSearch = forwardSearch;
 		this.fromLink = fromLink;
 		this.startTime = startTime;
@@ -66,18 +73,22 @@ class OneToManyPathCalculator {
 	}
 
 	void calculateDijkstraTree(Collection<Link> toLinks, double maxTravelTime) {
-		var toNodes = toLinks.stream().filter(link -> link != fromLink).map(this::getEndNode).collect(toList());
-		if (toNodes.size() == 0) {
+		int[] toNodes = toLinks.stream()
+				.filter(link -> link != fromLink)
+				.mapToInt(link -> getEndNode(link).getId().index())
+				.toArray();
+		if (toNodes.length == 0) {
 			return;
 		}
 
 		int fromNodeIdx = getStartNode(fromLink).getId().index();
-		var stopCriterion = withMaxTravelTime(allEndNodesReached(toNodes), maxTravelTime);
+		var stopCriterion = maxTravelTime < Double.POSITIVE_INFINITY ? maxTravelTime(maxTravelTime) : null;
 
 		if (forwardSearch) {
-			dijkstraTree.calculate(fromNodeIdx, startTime, null, null, stopCriterion);
+			dijkstraTree.calculateToTargets(fromNodeIdx, startTime, null, null, toNodes, altData, stopCriterion);
 		} else {
-			dijkstraTree.calculateBackwards(fromNodeIdx, startTime, null, null, stopCriterion);
+			dijkstraTree.calculateBackwardsToTargets(fromNodeIdx, startTime, null, null, toNodes, altData,
+					stopCriterion);
 		}
 	}
 
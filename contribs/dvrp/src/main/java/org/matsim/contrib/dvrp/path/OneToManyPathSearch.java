@@ -26,6 +26,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.function.Supplier;
 
+import javax.annotation.Nullable;
+
 import org.matsim.api.core.v01.IdMap;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Node;
@@ -35,14 +37,25 @@ import org.matsim.core.router.util.TravelTime;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Maps;
 
+import org.matsim.core.router.speedy.SpeedyALTData;
 import org.matsim.core.router.speedy.SpeedyGraph;
 import org.matsim.core.router.speedy.LeastCostPathTree;
 
 public class OneToManyPathSearch {
 	public static OneToManyPathSearch createSearch(SpeedyGraph graph, IdMap<Node, Node> nodeMap, TravelTime travelTime,
 			TravelDisutility travelDisutility, boolean lazyPathCreation) {
+		return createSearch(graph, nodeMap, travelTime, travelDisutility, lazyPathCreation, null);
+	}
+
+	/**
+	 * @param altData if provided, the searches are directed towards the target nodes using the landmarks, which keeps
+	 *                searches to a few nearby targets local. Must be created for the same graph and with a travel
+	 *                disutility whose minimum disutilities are lower bounds of <code>travelDisutility</code>.
+	 */
+	public static OneToManyPathSearch createSearch(SpeedyGraph graph, IdMap<Node, Node> nodeMap, TravelTime travelTime,
+			TravelDisutility travelDisutility, boolean lazyPathCreation, @Nullable SpeedyALTData altData) {
 		return new OneToManyPathSearch(nodeMap, new LeastCostPathTree(graph, travelTime, travelDisutility),
-				lazyPathCreation);
+				lazyPathCreation, altData);
 	}
 
 	public static class PathData {
@@ -87,11 +100,15 @@ public class OneToManyPathSearch {
 	private final IdMap<Node, Node> nodeMap;
 	private final LeastCostPathTree dijkstraTree;
 	private final boolean lazyPathCreation;
+	@Nullable
+	private final SpeedyALTData altData;
 
-	private OneToManyPathSearch(IdMap<Node, Node> nodeMap, LeastCostPathTree dijkstraTree, boolean lazyPathCreation) {
+	private OneToManyPathSearch(IdMap<Node, Node> nodeMap, LeastCostPathTree dijkstraTree, boolean lazyPathCreation,
+			@Nullable SpeedyALTData altData) {
 		this.nodeMap = nodeMap;
 		this.dijkstraTree = dijkstraTree;
 		this.lazyPathCreation = lazyPathCreation;
+		this.altData = altData;
 	}
 
 	public PathData[] calcPathDataArray(Link fromLink, List<Link> toLinks, double startTime, boolean forward) {
@@ -100,7 +117,7 @@ public class OneToManyPathSearch {
 
 	public PathData[] calcPathDataArray(Link fromLink, List<Link> toLinks, double startTime, boolean forward,
 			double maxTravelTime) {
-		OneToManyPathCalculator pathConstructor = new OneToManyPathCalculator(nodeMap, dijkstraTree, forward, fromLink,
+		OneToManyPathCalculator pathConstructor = new OneToManyPathCalculator(nodeMap, dijkstraTree, altData, forward, fromLink,
 				startTime);
 		pathConstructor.calculateDijkstraTree(toLinks, maxTravelTime);
 		return createPathDataArray(toLinks, pathConstructor);
@@ -113,7 +130,7 @@ public class OneToManyPathSearch {
 
 	public Map<Link, PathData> calcPathDataMap(Link fromLink, Collection<Link> toLinks, double startTime,
 			boolean forward, double maxTravelTime) {
-		OneToManyPathCalculator pathCalculator = new OneToManyPathCalculator(nodeMap, dijkstraTree, forward, fromLink,
+		OneToManyPathCalculator pathCalculator = new OneToManyPathCalculator(nodeMap, dijkstraTree, altData, forward, fromLink,
 				startTime);
 		pathCalculator.calculateDijkstraTree(toLinks, maxTravelTime);
 		return createPathDataMap(toLinks, pathCalculator);
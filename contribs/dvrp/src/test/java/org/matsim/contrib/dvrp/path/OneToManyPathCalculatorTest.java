@@ -181,6 +181,8 @@ public class OneToManyPathCalculatorTest {
 			pathCalculator.calculateDijkstraTree(List.of(linkAB));
 
 			verify(mockedTree, never()).calculate(anyInt(), anyDouble(), any(), any(), any());
+			verify(mockedTree, never()).calculateToTargets(anyInt(), anyDouble(), any(), any(), any(), any(), any());
+			verify(mockedTree, never()).calculateBackwardsToTargets(anyInt(), anyDouble(), any(), any(), any(), any(), any());
 		}
 	}
 
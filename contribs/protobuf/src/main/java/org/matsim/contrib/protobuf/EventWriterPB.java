@@ -14,6 +14,8 @@ import java.util.Map;
 
 /**
  * Event writer for protobuf format according to {@link org.matsim.core.utils.pb.Wireformat}
+ * <p>
+ * The files can be read with {@link EventsReaderPB}.
  */
 public class EventWriterPB implements EventWriter, BasicEventHandler {
 
@@ -78,6 +80,9 @@ public class EventWriterPB implements EventWriter, BasicEventHandler {
         batch.clearEvents();
     }
 
+    /**
+     * Converts an event into a protobuf message. Optional attributes that are <code>null</code> are left empty.
+     */
     public static ProtoEvents.Event convertEvent(Event event) {
 
         ProtoEvents.Event.Builder builder = ProtoEvents.Event.newBuilder()
@@ -94,13 +99,13 @@ public class EventWriterPB implements EventWriter, BasicEventHandler {
                     .setLinkId(convertId(((ActivityEndEvent) event).getLinkId()))
                     .setFacilityId(convertId(((ActivityEndEvent) event).getFacilityId()))
                     .setPersonId(convertId(((ActivityEndEvent) event).getPersonId()))
-                    .setActtype(((ActivityEndEvent) event).getActType());
+                    .setActtype(convertString(((ActivityEndEvent) event).getActType()));
         } else if (event instanceof ActivityStartEvent) {
             builder.getActivityStartBuilder()
                     .setLinkId(convertId(((ActivityStartEvent) event).getLinkId()))
                     .setFacilityId(convertId(((ActivityStartEvent) event).getFacilityId()))
                     .setPersonId(convertId(((ActivityStartEvent) event).getPersonId()))
-                    .setActtype(((ActivityStartEvent) event).getActType());
+                    .setActtype(convertString(((ActivityStartEvent) event).getActType()));
         } else if (event instanceof LinkEnterEvent) {
             builder.getLinkEnterBuilder()
                     .setLinkId(convertId(((LinkEnterEvent) event).getLinkId()))
@@ -112,13 +117,14 @@ public class EventWriterPB implements EventWriter, BasicEventHandler {
         } else if (event instanceof PersonArrivalEvent) {
             builder.getPersonalArrivalBuilder()
                     .setLinkId(convertId(((PersonArrivalEvent) event).getLinkId()))
-                    .setLegMode(((PersonArrivalEvent) event).getLegMode())
+                    .setLegMode(convertString(((PersonArrivalEvent) event).getLegMode()))
                     .setPersonId(convertId(((PersonArrivalEvent) event).getPersonId()));
         } else if (event instanceof PersonDepartureEvent) {
             builder.getPersonDepartureBuilder()
                     .setLinkId(convertId(((PersonDepartureEvent) event).getLinkId()))
-                    .setLegMode(((PersonDepartureEvent) event).getLegMode())
-                    .setPersonId(convertId(((PersonDepartureEvent) event).getPersonId()));
+                    .setLegMode(convertString(((PersonDepartureEvent) event).getLegMode()))
+                    .setPersonId(convertId(((PersonDepartureEvent) event).getPersonId()))
+                    .setRoutingMode(convertString(((PersonDepartureEvent) event).getRoutingMode()));
         } else if (event instanceof PersonEntersVehicleEvent) {
             builder.getPersonEntersVehicleBuilder()
                     .setVehicleId(convertId(((PersonEntersVehicleEvent) event).getVehicleId()))
@@ -131,13 +137,14 @@ public class EventWriterPB implements EventWriter, BasicEventHandler {
             builder.getPersonMoneyBuilder()
                     .setPersonId(convertId(((PersonMoneyEvent) event).getPersonId()))
                     .setAmount(((PersonMoneyEvent) event).getAmount())
-                    .setPurpose(((PersonMoneyEvent) event).getPurpose())
-                    .setTransactionPartner(((PersonMoneyEvent) event).getTransactionPartner());
+                    .setPurpose(convertString(((PersonMoneyEvent) event).getPurpose()))
+                    .setTransactionPartner(convertString(((PersonMoneyEvent) event).getTransactionPartner()))
+                    .setReference(convertString(((PersonMoneyEvent) event).getReference()));
         } else if (event instanceof PersonStuckEvent) {
             builder.getPersonStuckBuilder()
                     .setLinkId(convertId(((PersonStuckEvent) event).getLinkId()))
                     .setPersonId(convertId(((PersonStuckEvent) event).getPersonId()))
-                    .setLegMode(((PersonStuckEvent) event).getLegMode());
+                    .setLegMode(convertString(((PersonStuckEvent) event).getLegMode()));
         } else if (event instanceof TransitDriverStartsEvent) {
             builder.getTransitDriverStartsBuilder()
                     .setDriverId(convertId(((TransitDriverStartsEvent) event).getDriverId()))
@@ -154,25 +161,28 @@ public class EventWriterPB implements EventWriter, BasicEventHandler {
                     .setDriverId(convertId(((VehicleEntersTrafficEvent) event).getPersonId()))
                     .setLinkId(convertId(((VehicleEntersTrafficEvent) event).getLinkId()))
                     .setVehicleId(convertId(((VehicleEntersTrafficEvent) event).getVehicleId()))
-                    .setNetworkMode(((VehicleEntersTrafficEvent) event).getNetworkMode())
+                    .setNetworkMode(convertString(((VehicleEntersTrafficEvent) event).getNetworkMode()))
                     .setRelativePositionOnLink(((VehicleEntersTrafficEvent) event).getRelativePositionOnLink());
         } else if (event instanceof VehicleLeavesTrafficEvent) {
             builder.getVehicleLeavesTrafficBuilder()
                     .setDriverId(convertId(((VehicleLeavesTrafficEvent) event).getPersonId()))
                     .setLinkId(convertId(((VehicleLeavesTrafficEvent) event).getLinkId()))
                     .setVehicleId(convertId(((VehicleLeavesTrafficEvent) event).getVehicleId()))
-                    .setNetworkMode(((VehicleLeavesTrafficEvent) event).getNetworkMode())
+                    .setNetworkMode(convertString(((VehicleLeavesTrafficEvent) event).getNetworkMode()))
                     .setRelativePositionOnLink(((VehicleLeavesTrafficEvent) event).getRelativePositionOnLink());
         } else {
-            Map<String, String> attrs = event.getAttributes();
-            // Checking references is safe here because they are constant
-            attrs.keySet().removeIf(key -> key == Event.ATTRIBUTE_X || key == Event.ATTRIBUTE_Y ||
-                    key == Event.ATTRIBUTE_TIME || key == Event.ATTRIBUTE_TYPE);
-
-            // covers generic and all unknown events
-            builder.getGenericBuilder()
-                    .setType(event.getEventType())
-                    .putAllAttrs(attrs);
+            // covers generic and all unknown events, x and y are part of the coords if the event is a location
+            boolean hasCoord = builder.hasCoords();
+            ProtoEvents.GenericEvent.Builder generic = builder.getGenericBuilder()
+                    .setType(event.getEventType());
+            for (Map.Entry<String, String> e : event.getAttributes().entrySet()) {
+                String key = e.getKey();
+                if (key.equals(Event.ATTRIBUTE_TIME) || key.equals(Event.ATTRIBUTE_TYPE)
+                        || (hasCoord && (key.equals(Event.ATTRIBUTE_X) || key.equals(Event.ATTRIBUTE_Y)))) {
+                    continue;
+                }
+                generic.putAttrs(key, convertString(e.getValue()));
+            }
         }
 
         return builder.build();
@@ -194,4 +204,11 @@ public class EventWriterPB implements EventWriter, BasicEventHandler {
         return ProtoId.newBuilder().setId(id.toString()).build();
     }
 
+    /**
+     * Protobuf does not support <code>null</code> strings, they are written as empty string, which is the default.
+     */
+    private static String convertString(String value) {
+        return value == null ? "" : value;
+    }
+
 }
@@ -0,0 +1,191 @@
+package org.matsim.contrib.protobuf;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.*;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.pb.*;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.vehicles.Vehicle;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads events files written by {@link EventWriterPB} and passes them as regular MATSim events to an
+ * {@link EventsManager}. The file is streamed batch by batch, so only one batch is kept in memory at a time.
+ * <p>
+ * Protobuf does not distinguish between absent and empty values. Empty optional ids and strings, e.g. the facility
+ * of an activity or the purpose of a money event, are read as <code>null</code>.
+ */
+public final class EventsReaderPB {
+
+    private final EventsManager events;
+
+    private final Map<String, MatsimEventsReader.CustomEventMapper> customEventMappers = new HashMap<>();
+
+    public EventsReaderPB(EventsManager events) {
+        this.events = events;
+    }
+
+    public void addCustomEventMapper(String eventType, MatsimEventsReader.CustomEventMapper cem) {
+        this.customEventMappers.put(eventType, cem);
+    }
+
+    public void parse(String filename) {
+        parse(IOUtils.getInputStream(IOUtils.getFileUrl(filename)));
+    }
+
+    public void parse(InputStream stream) {
+        try (InputStream in = new BufferedInputStream(stream, 1 << 16)) {
+
+            PBFileHeader header = PBFileHeader.parseDelimitedFrom(in);
+            if (header == null || header.getContentType() != ContentType.EVENTS)
+                throw new IllegalArgumentException("The stream does not contain protobuf events.");
+
+            if (header.getVersion() > PBVersion.EVENTS)
+                throw new IllegalArgumentException("Unsupported version of protobuf events: " + header.getVersion());
+
+            ProtoEvents.EventBatch batch;
+            while ((batch = ProtoEvents.EventBatch.parseDelimitedFrom(in)) != null) {
+                for (ProtoEvents.Event event : batch.getEventsList()) {
+                    events.processEvent(convertPBEvent(event));
+                }
+            }
+
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Converts a protobuf event back into a MATSim event, including custom event mappers for generic events.
+     */
+    private Event convertPBEvent(ProtoEvents.Event event) {
+        if (event.getTypeCase() == ProtoEvents.Event.TypeCase.GENERIC) {
+            GenericEvent generic = convertGenericEvent(event);
+            MatsimEventsReader.CustomEventMapper cem = customEventMappers.get(generic.getEventType());
+            return cem != null ? cem.apply(generic) : generic;
+        }
+        return convertEvent(event);
+    }
+
+    /**
+     * Converts a protobuf event back into a MATSim event. Events that were written as generic events are returned
+     * as {@link GenericEvent}.
+     */
+    public static Event convertEvent(ProtoEvents.Event event) {
+
+        double time = event.getTime();
+        Coord coord = event.hasCoords() ? new Coord(event.getCoords().getX(), event.getCoords().getY()) : null;
+
+        switch (event.getTypeCase()) {
+            case ACTIVITYEND: {
+                ProtoEvents.ActivityEndEvent e = event.getActivityEnd();
+                return new ActivityEndEvent(time, convertId(e.getPersonId(), Person.class), convertId(e.getLinkId(), Link.class),
+                        convertOptionalId(e.getFacilityId(), ActivityFacility.class), e.getActtype().intern(), coord);
+            }
+            case ACTIVITYSTART: {
+                ProtoEvents.ActivityStartEvent e = event.getActivityStart();
+                return new ActivityStartEvent(time, convertId(e.getPersonId(), Person.class), convertId(e.getLinkId(), Link.class),
+                        convertOptionalId(e.getFacilityId(), ActivityFacility.class), e.getActtype().intern(), coord);
+            }
+            case LINKENTER: {
+                ProtoEvents.LinkEnterEvent e = event.getLinkEnter();
+                return new LinkEnterEvent(time, convertId(e.getVehicleId(), Vehicle.class), convertId(e.getLinkId(), Link.class));
+            }
+            case LINKLEAVE: {
+                ProtoEvents.LinkLeaveEvent e = event.getLinkLeave();
+                return new LinkLeaveEvent(time, convertId(e.getVehicleId(), Vehicle.class), convertId(e.getLinkId(), Link.class));
+            }
+            case PERSONALARRIVAL: {
+                ProtoEvents.PersonArrivalEvent e = event.getPersonalArrival();
+                return new PersonArrivalEvent(time, convertId(e.getPersonId(), Person.class), convertId(e.getLinkId(), Link.class),
+                        convertOptionalString(e.getLegMode()));
+            }
+            case PERSONDEPARTURE: {
+                ProtoEvents.PersonDepartureEvent e = event.getPersonDeparture();
+                return new PersonDepartureEvent(time, convertId(e.getPersonId(), Person.class), convertId(e.getLinkId(), Link.class),
+                        convertOptionalString(e.getLegMode()), convertOptionalString(e.getRoutingMode()));
+            }
+            case PERSONENTERSVEHICLE: {
+                ProtoEvents.PersonEntersVehicleEvent e = event.getPersonEntersVehicle();
+                return new PersonEntersVehicleEvent(time, convertId(e.getPersonId(), Person.class), convertId(e.getVehicleId(), Vehicle.class));
+            }
+            case PERSONLEAVESVEHICLE: {
+                ProtoEvents.PersonLeavesVehicleEvent e = event.getPersonLeavesVehicle();
+                return new PersonLeavesVehicleEvent(time, convertId(e.getPersonId(), Person.class), convertId(e.getVehicleId(), Vehicle.class));
+            }
+            case PERSONMONEY: {
+                ProtoEvents.PersonMoneyEvent e = event.getPersonMoney();
+                return new PersonMoneyEvent(time, convertId(e.getPersonId(), Person.class), e.getAmount(),
+                        convertOptionalString(e.getPurpose()), convertOptionalString(e.getTransactionPartner()),
+                        convertOptionalString(e.getReference()));
+            }
+            case PERSONSTUCK: {
+                ProtoEvents.PersonStuckEvent e = event.getPersonStuck();
+                return new PersonStuckEvent(time, convertId(e.getPersonId(), Person.class), convertOptionalId(e.getLinkId(), Link.class),
+                        convertOptionalString(e.getLegMode()));
+            }
+            case TRANSITDRIVERSTARTS: {
+                ProtoEvents.TransitDriverStartsEvent e = event.getTransitDriverStarts();
+                return new TransitDriverStartsEvent(time, convertId(e.getDriverId(), Person.class), convertId(e.getVehicleId(), Vehicle.class),
+                        convertId(e.getTransitLineId(), TransitLine.class), convertId(e.getTransitRouteId(), TransitRoute.class),
+                        convertId(e.getDepartureId(), Departure.class));
+            }
+            case VEHICLEABORTS: {
+                ProtoEvents.VehicleAbortsEvent e = event.getVehicleAborts();
+                return new VehicleAbortsEvent(time, convertId(e.getVehicleId(), Vehicle.class), convertOptionalId(e.getLinkId(), Link.class));
+            }
+            case VEHICLEENTERSTRAFFIC: {
+                ProtoEvents.VehicleEntersTrafficEvent e = event.getVehicleEntersTraffic();
+                return new VehicleEntersTrafficEvent(time, convertId(e.getDriverId(), Person.class), convertId(e.getLinkId(), Link.class),
+                        convertOptionalId(e.getVehicleId(), Vehicle.class), convertOptionalString(e.getNetworkMode()), e.getRelativePositionOnLink());
+            }
+            case VEHICLELEAVESTRAFFIC: {
+                ProtoEvents.VehicleLeavesTrafficEvent e = event.getVehicleLeavesTraffic();
+                return new VehicleLeavesTrafficEvent(time, convertId(e.getDriverId(), Person.class), convertId(e.getLinkId(), Link.class),
+                        convertOptionalId(e.getVehicleId(), Vehicle.class), convertOptionalString(e.getNetworkMode()), e.getRelativePositionOnLink());
+            }
+            case GENERIC:
+                return convertGenericEvent(event);
+            default:
+                throw new IllegalArgumentException("Unknown event type: " + event.getTypeCase());
+        }
+    }
+
+    private static GenericEvent convertGenericEvent(ProtoEvents.Event event) {
+        ProtoEvents.GenericEvent e = event.getGeneric();
+        GenericEvent generic = new GenericEvent(e.getType(), event.getTime());
+        generic.getAttributes().putAll(e.getAttrsMap());
+        if (event.hasCoords()) {
+            generic.getAttributes().put(Event.ATTRIBUTE_X, Double.toString(event.getCoords().getX()));
+            generic.getAttributes().put(Event.ATTRIBUTE_Y, Double.toString(event.getCoords().getY()));
+        }
+        return generic;
+    }
+
+    private static <T> Id<T> convertId(ProtoId id, Class<T> type) {
+        return Id.create(id.getId(), type);
+    }
+
+    private static <T> Id<T> convertOptionalId(ProtoId id, Class<T> type) {
+        return id.getId().isEmpty() ? null : Id.create(id.getId(), type);
+    }
+
+    private static String convertOptionalString(String value) {
+        return value.isEmpty() ? null : value.intern();
+    }
+
+}
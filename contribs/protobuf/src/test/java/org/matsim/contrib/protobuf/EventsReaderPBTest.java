@@ -0,0 +1,175 @@
+package org.matsim.contrib.protobuf;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.*;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.groups.ControlerConfigGroup;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.testcases.utils.EventsCollector;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EventsReaderPBTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static List<Event> createEvents() {
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            events.add(new ActivityEndEvent(i, Id.createPersonId(i), Id.createLinkId(i % 7), null, "home", new Coord(i, -i)));
+            events.add(new PersonDepartureEvent(i, Id.createPersonId(i), Id.createLinkId(i % 7), "car", "car"));
+            events.add(new VehicleEntersTrafficEvent(i + 1, Id.createPersonId(i), Id.createLinkId(i % 7), Id.createVehicleId(i), "car", 1.0));
+            events.add(new LinkLeaveEvent(i + 2.5, Id.createVehicleId(i), Id.createLinkId(i % 7)));
+            events.add(new PersonMoneyEvent(i + 3, Id.createPersonId(i), -1.5 * (i + 1), "toll", null, null));
+            events.add(new PersonStuckEvent(i + 4, Id.createPersonId(i), null, null));
+            GenericEvent generic = new GenericEvent("custom", i + 5);
+            generic.getAttributes().put("value", String.valueOf(i));
+            events.add(generic);
+        }
+        return events;
+    }
+
+    private static byte[] write(List<Event> events) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        EventWriterPB writer = new EventWriterPB(out);
+        events.forEach(writer::handleEvent);
+        writer.closeFile();
+        return out.toByteArray();
+    }
+
+    @Test
+    public void roundTrip() {
+
+        List<Event> events = createEvents();
+        byte[] data = write(events);
+
+        EventsManager manager = EventsUtils.createEventsManager();
+        EventsCollector collector = new EventsCollector();
+        manager.addHandler(collector);
+        manager.initProcessing();
+        new EventsReaderPB(manager).parse(new ByteArrayInputStream(data));
+        manager.finishProcessing();
+
+        assertThat(collector.getEvents()).hasSameSizeAs(events);
+        for (int i = 0; i < events.size(); i++) {
+            assertThat(collector.getEvents().get(i))
+                    .isInstanceOf(events.get(i).getClass())
+                    .extracting(Event::getAttributes)
+                    .isEqualTo(events.get(i).getAttributes());
+        }
+    }
+
+    @Test
+    public void matsimEventsReader() {
+
+        List<Event> events = createEvents();
+        byte[] data = write(events);
+
+        EventsManager manager = EventsUtils.createEventsManager();
+        EventsCollector collector = new EventsCollector();
+        manager.addHandler(collector);
+        manager.initProcessing();
+        MatsimEventsReader reader = new MatsimEventsReader(manager);
+        reader.addCustomEventMapper("custom", e -> new PersonArrivalEvent(e.getTime(),
+                Id.createPersonId(e.getAttributes().get("value")), Id.createLinkId(0), "walk"));
+        reader.readStream(new ByteArrayInputStream(data), ControlerConfigGroup.EventsFileFormat.pb);
+        manager.finishProcessing();
+
+        assertThat(collector.getEvents()).hasSameSizeAs(events);
+        assertThat(collector.getEvents().get(6)).isInstanceOf(PersonArrivalEvent.class);
+    }
+
+    @Test
+    public void readCompressedUrl() throws IOException {
+
+        List<Event> events = createEvents();
+        File file = tmp.newFile("events.pb.gz");
+        try (OutputStream out = IOUtils.getOutputStream(file.toURI().toURL(), false)) {
+            out.write(write(events));
+        }
+
+        EventsManager manager = EventsUtils.createEventsManager();
+        EventsCollector collector = new EventsCollector();
+        manager.addHandler(collector);
+        manager.initProcessing();
+        new MatsimEventsReader(manager).readURL(file.toURI().toURL());
+        manager.finishProcessing();
+
+        assertThat(collector.getEvents()).hasSameSizeAs(events);
+    }
+
+    /**
+     * Writes one event of every type of the wire format, with and without optional attributes, and reads them back.
+     */
+    @Test
+    public void roundTripAllEventTypes() {
+
+        GenericEvent generic = new GenericEvent("custom", 30);
+        generic.getAttributes().put("value", "1.5");
+        generic.getAttributes().put("empty", null);
+
+        List<Event> events = List.of(
+                new ActivityEndEvent(10, Id.createPersonId(1), Id.createLinkId(2), Id.create(3, ActivityFacility.class), "work", new Coord(1.5, 2.5)),
+                new ActivityEndEvent(10, Id.createPersonId(1), Id.createLinkId(2), null, "work", null),
+                new ActivityStartEvent(11, Id.createPersonId(1), Id.createLinkId(2), Id.create(3, ActivityFacility.class), "home", new Coord(1.5, 2.5)),
+                new LinkEnterEvent(12, Id.createVehicleId(1), Id.createLinkId(2)),
+                new LinkLeaveEvent(13, Id.createVehicleId(1), Id.createLinkId(2)),
+                new PersonArrivalEvent(14, Id.createPersonId(1), Id.createLinkId(2), "car"),
+                new PersonDepartureEvent(15, Id.createPersonId(1), Id.createLinkId(2), "walk", "car"),
+                new PersonDepartureEvent(15, Id.createPersonId(1), Id.createLinkId(2), "walk", null),
+                new PersonEntersVehicleEvent(16, Id.createPersonId(1), Id.createVehicleId(1)),
+                new PersonLeavesVehicleEvent(17, Id.createPersonId(1), Id.createVehicleId(1)),
+                new PersonMoneyEvent(18, Id.createPersonId(1), 3.0, "toll", "agency", "ref"),
+                new PersonMoneyEvent(18, Id.createPersonId(1), -3.0, "fare", null, null),
+                new PersonStuckEvent(19, Id.createPersonId(1), Id.createLinkId(2), "car"),
+                new PersonStuckEvent(19, Id.createPersonId(1), null, null),
+                new TransitDriverStartsEvent(20, Id.createPersonId("driver"), Id.createVehicleId("bus"),
+                        Id.create("line", TransitLine.class), Id.create("route", TransitRoute.class), Id.create("dep", Departure.class)),
+                new VehicleAbortsEvent(21, Id.createVehicleId(1), Id.createLinkId(2)),
+                new VehicleEntersTrafficEvent(22, Id.createPersonId(1), Id.createLinkId(2), Id.createVehicleId(1), "car", 1.0),
+                new VehicleLeavesTrafficEvent(23, Id.createPersonId(1), Id.createLinkId(2), Id.createVehicleId(1), "car", 0.5),
+                generic
+        );
+
+        EventsManager manager = EventsUtils.createEventsManager();
+        EventsCollector collector = new EventsCollector();
+        manager.addHandler(collector);
+        manager.initProcessing();
+        new EventsReaderPB(manager).parse(new ByteArrayInputStream(write(events)));
+        manager.finishProcessing();
+
+        assertThat(collector.getEvents()).hasSameSizeAs(events);
+        for (int i = 0; i < events.size() - 1; i++) {
+            assertThat(collector.getEvents().get(i))
+                    .isInstanceOf(events.get(i).getClass())
+                    .extracting(Event::getAttributes)
+                    .isEqualTo(events.get(i).getAttributes());
+        }
+        // protobuf has no null strings, so the empty attribute is read back as empty string
+        Map<String, String> expected = new HashMap<>(generic.getAttributes());
+        expected.put("empty", "");
+        assertThat(collector.getEvents().get(events.size() - 1).getAttributes()).isEqualTo(expected);
+    }
+
+}
@@ -455,7 +455,7 @@ public class CalculateSkimMatrices {
 
         log.info("calc PT matrices for " + Time.writeTime(startTime) + " - " + Time.writeTime(endTime));
         PTSkimMatrices.PtIndicators<String> matrices = PTSkimMatrices.calculateSkimMatrices(
-                raptorData, this.coordsPerZone, startTime, endTime, 120, raptorParameters, this.numberOfThreads, trainDetector);
+                raptorData, this.coordsPerZone, startTime, endTime, raptorParameters, this.numberOfThreads, trainDetector);
         return matrices;
 
     }
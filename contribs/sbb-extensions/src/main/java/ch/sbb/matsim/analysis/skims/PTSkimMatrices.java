@@ -43,7 +43,7 @@ import java.util.function.BiPredicate;
  * combination. - average the n x n adaption times and store this value as the zone-to-zone adaption time.
  * <p>
  * A basic implementation for calculating the travel times between m zones would result in m^2 * n^2 pt route calculations, which could take a very long time. The actual algorithm makes use of
- * LeastCostPathTrees, reducing the computational effort down to the calculation of m*n LeastCostPathTrees. In addition, it supports running the calculation in parallel to reduce the time required to
+ * range queries that calculate the Pareto profiles of all departures in the time window at once, reducing the computational effort down to m*n such queries. In addition, it supports running the calculation in parallel to reduce the time required to
  * compute one matrix.
  * <p>
  * If no connection can be found between two zones (can happen when there is no transit stop in a zone), the corresponding matrix cells contain the value "0" for the perceived frequency, and
@@ -56,8 +56,35 @@ public class PTSkimMatrices {
     private PTSkimMatrices() {
     }
 
+    /**
+     * Calculates the skim matrices with one least cost tree every <code>stepSize_seconds</code>, as before range queries were
+     * used.
+     *
+     * @deprecated use {@link #calculateSkimMatrices(SwissRailRaptorData, Map, double, double, RaptorParameters, int, BiPredicate)},
+     * which considers all departures in the time window without a step size.
+     */
+    @Deprecated
     public static <T> PTSkimMatrices.PtIndicators<T> calculateSkimMatrices(SwissRailRaptorData raptorData, Map<T, Coord[]> coordsPerZone, double minDepartureTime, double maxDepartureTime,
             double stepSize_seconds, RaptorParameters parameters, int numberOfThreads, BiPredicate<TransitLine, TransitRoute> trainDetector) {
+        if (stepSize_seconds <= 0) {
+            throw new IllegalArgumentException("stepSize_seconds must be positive, but is " + stepSize_seconds);
+        }
+        return calcSkimMatrices(raptorData, coordsPerZone, minDepartureTime, maxDepartureTime, stepSize_seconds, parameters, numberOfThreads, trainDetector);
+    }
+
+    /**
+     * Calculates the skim matrices for all departures between <code>minDepartureTime</code> and <code>maxDepartureTime</code>.
+     */
+    public static <T> PTSkimMatrices.PtIndicators<T> calculateSkimMatrices(SwissRailRaptorData raptorData, Map<T, Coord[]> coordsPerZone, double minDepartureTime, double maxDepartureTime,
+            RaptorParameters parameters, int numberOfThreads, BiPredicate<TransitLine, TransitRoute> trainDetector) {
+        return calcSkimMatrices(raptorData, coordsPerZone, minDepartureTime, maxDepartureTime, 0, parameters, numberOfThreads, trainDetector);
+    }
+
+    /**
+     * Uses one range query per origin point if <code>stepSize_seconds</code> is 0, otherwise one least cost tree per time step.
+     */
+    private static <T> PTSkimMatrices.PtIndicators<T> calcSkimMatrices(SwissRailRaptorData raptorData, Map<T, Coord[]> coordsPerZone, double minDepartureTime, double maxDepartureTime,
+            double stepSize_seconds, RaptorParameters parameters, int numberOfThreads, BiPredicate<TransitLine, TransitRoute> trainDetector) {
         // prepare calculation
         Set<T> zoneIds = coordsPerZone.keySet();
         PtIndicators<T> pti = new PtIndicators<>(zoneIds);
@@ -184,26 +211,42 @@ public class PTSkimMatrices {
                 accessTimes.put(stop.getId(), accessTime);
             }
 
-            List<Map<Id<TransitStopFacility>, TravelInfo>> trees = new ArrayList<>();
-
             double timeWindow = this.maxDepartureTime - this.minDepartureTime;
-            double endTime = this.maxDepartureTime + timeWindow;
-            for (double time = this.minDepartureTime - timeWindow; time < endTime; time += this.stepSize) {
-                Map<Id<TransitStopFacility>, TravelInfo> tree = this.raptor.calcTree(fromStops, time, this.parameters, null);
-                trees.add(tree);
+            Map<Id<TransitStopFacility>, List<TravelInfo>> profiles;
+            if (this.stepSize > 0) {
+                profiles = calcTrees(fromStops, this.minDepartureTime - timeWindow, this.maxDepartureTime + timeWindow);
+            } else {
+                // one range query covers all departures in the time window, instead of one tree per time step
+                profiles = this.raptor.calcProfiles(fromStops, this.minDepartureTime - timeWindow, this.maxDepartureTime + timeWindow, this.parameters, null);
             }
 
             for (T toZoneId : this.destinationZones) {
                 Coord[] toCoords = this.coordsPerZone.get(toZoneId);
                 if (toCoords != null) {
                     for (Coord toCoord : toCoords) {
-                        calcForOD(fromZoneId, toZoneId, toCoord, accessTimes, trees);
+                        calcForOD(fromZoneId, toZoneId, toCoord, accessTimes, profiles);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Collects the results of one least cost tree per time step, in the same form as the profiles of a range query.
+         */
+        private Map<Id<TransitStopFacility>, List<TravelInfo>> calcTrees(Collection<TransitStopFacility> fromStops, double startTime, double endTime) {
+            Map<Id<TransitStopFacility>, List<TravelInfo>> infos = new HashMap<>();
+            for (double time = startTime; time < endTime; time += this.stepSize) {
+                Map<Id<TransitStopFacility>, TravelInfo> tree = this.raptor.calcTree(fromStops, time, this.parameters, null);
+                for (Map.Entry<Id<TransitStopFacility>, TravelInfo> e : tree.entrySet()) {
+                    if (!e.getValue().isWalkOnly()) {
+                        infos.computeIfAbsent(e.getKey(), k -> new ArrayList<>()).add(e.getValue());
                     }
                 }
             }
+            return infos;
         }
 
-        private void calcForOD(T fromZoneId, T toZoneId, Coord toCoord, Map<Id<TransitStopFacility>, Double> accessTimes, List<Map<Id<TransitStopFacility>, TravelInfo>> trees) {
+        private void calcForOD(T fromZoneId, T toZoneId, Coord toCoord, Map<Id<TransitStopFacility>, Double> accessTimes, Map<Id<TransitStopFacility>, List<TravelInfo>> profiles) {
             double walkSpeed = this.parameters.getBeelineWalkSpeed();
 
             Collection<TransitStopFacility> toStops = findStopCandidates(toCoord, this.raptor, this.parameters);
@@ -214,7 +257,7 @@ public class PTSkimMatrices {
                 egressTimes.put(stop.getId(), egressTime);
             }
 
-            List<ODConnection> connections = buildODConnections(trees, accessTimes, egressTimes);
+            List<ODConnection> connections = buildODConnections(profiles, accessTimes, egressTimes);
             if (connections.isEmpty()) {
                 return;
             }
@@ -289,16 +332,16 @@ public class PTSkimMatrices {
             this.pti.dataCountMatrix.add(fromZoneId, toZoneId, 1);
         }
 
-        private List<ODConnection> buildODConnections(List<Map<Id<TransitStopFacility>, TravelInfo>> trees, Map<Id<TransitStopFacility>, Double> accessTimes,
+        private List<ODConnection> buildODConnections(Map<Id<TransitStopFacility>, List<TravelInfo>> profiles, Map<Id<TransitStopFacility>, Double> accessTimes,
                 Map<Id<TransitStopFacility>, Double> egressTimes) {
             List<ODConnection> connections = new ArrayList<>();
 
-            for (Map<Id<TransitStopFacility>, TravelInfo> tree : trees) {
-                for (Map.Entry<Id<TransitStopFacility>, Double> egressEntry : egressTimes.entrySet()) {
-                    Id<TransitStopFacility> egressStopId = egressEntry.getKey();
-                    Double egressTime = egressEntry.getValue();
-                    TravelInfo info = tree.get(egressStopId);
-                    if (info != null && !info.isWalkOnly()) {
+            for (Map.Entry<Id<TransitStopFacility>, Double> egressEntry : egressTimes.entrySet()) {
+                Id<TransitStopFacility> egressStopId = egressEntry.getKey();
+                Double egressTime = egressEntry.getValue();
+                List<TravelInfo> profile = profiles.get(egressStopId);
+                if (profile != null) {
+                    for (TravelInfo info : profile) {
                         Double accessTime = accessTimes.get(info.departureStop);
                         ODConnection connection = new ODConnection(info.ptDepartureTime, info.ptTravelTime, accessTime, egressTime, info.transferCount, info);
                         connections.add(connection);
@@ -0,0 +1,139 @@
+package ch.sbb.matsim.analysis.skims;
+
+import ch.sbb.matsim.routing.pt.raptor.RaptorParameters;
+import ch.sbb.matsim.routing.pt.raptor.RaptorUtils;
+import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorData;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+public class PTSkimMatricesTest {
+
+    /**
+     * The skims calculated with range queries must be the same as with one tree per minute, as long as all departures
+     * are on full minutes. Stop A is connected to stop C by a direct line, and by a feeder line to stop B with a
+     * connecting line to C. The direct line and the feeder line depart at the same time, and both connections arrive
+     * at the same time, so the transfer counts only match if the connection without transfer is preferred.
+     */
+    @Test
+    public void testRangeQueriesMatchTrees() {
+        Config config = ConfigUtils.createConfig();
+        Scenario scenario = ScenarioUtils.createScenario(config);
+        createSchedule(scenario);
+
+        SwissRailRaptorData raptorData = SwissRailRaptorData.create(scenario.getTransitSchedule(), null, RaptorUtils.createStaticConfig(config), scenario.getNetwork(), null);
+        RaptorParameters parameters = RaptorUtils.createParameters(config);
+
+        Map<String, Coord[]> coordsPerZone = new LinkedHashMap<>();
+        coordsPerZone.put("A", new Coord[] {new Coord(0, 100), new Coord(-50, -50)});
+        coordsPerZone.put("B", new Coord[] {new Coord(5000, 100)});
+        coordsPerZone.put("C", new Coord[] {new Coord(10000, 100), new Coord(10050, -50)});
+
+        double minDepTime = Time.parseTime("08:00:00");
+        double maxDepTime = Time.parseTime("09:00:00");
+        PTSkimMatrices.PtIndicators<String> profiles = PTSkimMatrices.calculateSkimMatrices(raptorData, coordsPerZone, minDepTime, maxDepTime, parameters, 2, (line, route) -> false);
+        @SuppressWarnings("deprecation")
+        PTSkimMatrices.PtIndicators<String> trees = PTSkimMatrices.calculateSkimMatrices(raptorData, coordsPerZone, minDepTime, maxDepTime, 60, parameters, 2, (line, route) -> false);
+
+        Assert.assertTrue("no connection from A to C", profiles.dataCountMatrix.get("A", "C") > 0);
+        Assert.assertTrue("the connection with transfer must be part of the skims", profiles.transferCountMatrix.get("A", "C") > 0);
+        Assert.assertTrue("the connection without transfer must be part of the skims", profiles.transferCountMatrix.get("A", "C") < 1);
+
+        for (String fromZone : coordsPerZone.keySet()) {
+            for (String toZone : coordsPerZone.keySet()) {
+                String od = fromZone + "-" + toZone;
+                Assert.assertEquals(od, trees.dataCountMatrix.get(fromZone, toZone), profiles.dataCountMatrix.get(fromZone, toZone), 0.0);
+                Assert.assertEquals(od, trees.adaptionTimeMatrix.get(fromZone, toZone), profiles.adaptionTimeMatrix.get(fromZone, toZone), 1e-2);
+                Assert.assertEquals(od, trees.frequencyMatrix.get(fromZone, toZone), profiles.frequencyMatrix.get(fromZone, toZone), 1e-4);
+                Assert.assertEquals(od, trees.travelTimeMatrix.get(fromZone, toZone), profiles.travelTimeMatrix.get(fromZone, toZone), 1e-2);
+                Assert.assertEquals(od, trees.accessTimeMatrix.get(fromZone, toZone), profiles.accessTimeMatrix.get(fromZone, toZone), 1e-2);
+                Assert.assertEquals(od, trees.egressTimeMatrix.get(fromZone, toZone), profiles.egressTimeMatrix.get(fromZone, toZone), 1e-2);
+                Assert.assertEquals(od, trees.transferCountMatrix.get(fromZone, toZone), profiles.transferCountMatrix.get(fromZone, toZone), 1e-4);
+                Assert.assertEquals(od, trees.distanceMatrix.get(fromZone, toZone), profiles.distanceMatrix.get(fromZone, toZone), 1e-2);
+            }
+        }
+    }
+
+    private static void createSchedule(Scenario scenario) {
+        Network network = scenario.getNetwork();
+        NetworkFactory nf = network.getFactory();
+        Node node0 = nf.createNode(Id.create("0", Node.class), new Coord(-100, 0));
+        Node nodeA = nf.createNode(Id.create("A", Node.class), new Coord(0, 0));
+        Node nodeB = nf.createNode(Id.create("B", Node.class), new Coord(5000, 0));
+        Node nodeC = nf.createNode(Id.create("C", Node.class), new Coord(10000, 0));
+        network.addNode(node0);
+        network.addNode(nodeA);
+        network.addNode(nodeB);
+        network.addNode(nodeC);
+        Link link0A = createLink(network, "0A", node0, nodeA);
+        Link linkAB = createLink(network, "AB", nodeA, nodeB);
+        Link linkBC = createLink(network, "BC", nodeB, nodeC);
+
+        TransitSchedule schedule = scenario.getTransitSchedule();
+        TransitScheduleFactory f = schedule.getFactory();
+        TransitStopFacility stopA = f.createTransitStopFacility(Id.create("A", TransitStopFacility.class), new Coord(0, 0), false);
+        TransitStopFacility stopB = f.createTransitStopFacility(Id.create("B", TransitStopFacility.class), new Coord(5000, 0), false);
+        TransitStopFacility stopC = f.createTransitStopFacility(Id.create("C", TransitStopFacility.class), new Coord(10000, 0), false);
+        stopA.setLinkId(link0A.getId());
+        stopB.setLinkId(linkAB.getId());
+        stopC.setLinkId(linkBC.getId());
+        schedule.addStopFacility(stopA);
+        schedule.addStopFacility(stopB);
+        schedule.addStopFacility(stopC);
+
+        // the feeder and the connecting line: A 08:00 - B 08:05, B 08:07 - C 08:20, every 10 minutes
+        createLine(schedule, "feeder", RouteUtils.createLinkNetworkRouteImpl(link0A.getId(), linkAB.getId()),
+                List.of(f.createTransitRouteStop(stopA, 0, 0), f.createTransitRouteStop(stopB, 300, 300)), Time.parseTime("06:00:00"), 600);
+        createLine(schedule, "connector", RouteUtils.createLinkNetworkRouteImpl(linkAB.getId(), linkBC.getId()),
+                List.of(f.createTransitRouteStop(stopB, 0, 0), f.createTransitRouteStop(stopC, 780, 780)), Time.parseTime("06:07:00"), 600);
+        // the direct line: A 08:00 - C 08:20, every 20 minutes
+        createLine(schedule, "direct", RouteUtils.createLinkNetworkRouteImpl(link0A.getId(), Collections.singletonList(linkAB.getId()), linkBC.getId()),
+                List.of(f.createTransitRouteStop(stopA, 0, 0), f.createTransitRouteStop(stopC, 1200, 1200)), Time.parseTime("06:00:00"), 1200);
+    }
+
+    private static Link createLink(Network network, String id, Node fromNode, Node toNode) {
+        Link link = network.getFactory().createLink(Id.create(id, Link.class), fromNode, toNode);
+        link.setLength(CoordUtils.calcEuclideanDistance(fromNode.getCoord(), toNode.getCoord()));
+        link.setFreespeed(20);
+        link.setCapacity(1000);
+        network.addLink(link);
+        return link;
+    }
+
+    private static void createLine(TransitSchedule schedule, String id, NetworkRoute networkRoute, List<TransitRouteStop> stops, double firstDeparture, double headway) {
+        TransitScheduleFactory f = schedule.getFactory();
+        TransitLine line = f.createTransitLine(Id.create(id, TransitLine.class));
+        TransitRoute route = f.createTransitRoute(Id.create(id, TransitRoute.class), networkRoute, new ArrayList<>(stops), "train");
+        int i = 0;
+        for (double time = firstDeparture; time < Time.parseTime("11:00:00"); time += headway) {
+            route.addDeparture(f.createDeparture(Id.create(id + "_" + i++, Departure.class), time));
+        }
+        line.addRoute(route);
+        schedule.addTransitLine(line);
+    }
+}
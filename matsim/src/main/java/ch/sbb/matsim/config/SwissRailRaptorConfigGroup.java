@@ -44,6 +44,8 @@ public class SwissRailRaptorConfigGroup extends ReflectiveConfigGroup {
 
     private static final String PARAM_TRANSFER_WALK_MARGIN = "transferWalkMargin";
     private static final String PARAM_TRANSFER_WALK_MARGIN_DESC = "time deducted from transfer walk leg during transfers between pt legs in order to avoid missing a vehicle by a few seconds due to delays.";
+    private static final String PARAM_DATA_CACHE_FILE = "dataCacheFile";
+    private static final String PARAM_DATA_CACHE_FILE_DESC = "If set, the prepared routing data is stored in this file and loaded from it in later runs with the same schedule and settings, to save the preparation time at startup. The loaded data needs as much memory as without this file.";
 
     private boolean useRangeQuery = false;
     private boolean useIntermodality = false;
@@ -56,6 +58,7 @@ public class SwissRailRaptorConfigGroup extends ReflectiveConfigGroup {
     private double transferPenaltyMaxCost = Double.POSITIVE_INFINITY;
     private double transferPenaltyHourlyCost = 0;
     private double transferWalkMargin = 5;
+    private String dataCacheFile = null;
 
     private ScoringParameters scoringParameters = ScoringParameters.Default;
 
@@ -117,6 +120,16 @@ public class SwissRailRaptorConfigGroup extends ReflectiveConfigGroup {
         this.transferWalkMargin = transferWalkMargin;
     }
 
+    @StringGetter(PARAM_DATA_CACHE_FILE)
+    public String getDataCacheFile() {
+        return this.dataCacheFile;
+    }
+
+    @StringSetter(PARAM_DATA_CACHE_FILE)
+    public void setDataCacheFile(String dataCacheFile) {
+        this.dataCacheFile = dataCacheFile;
+    }
+
     @StringGetter(PARAM_USE_MODE_MAPPING)
     public boolean isUseModeMappingForPassengers() {
         return this.useModeMapping;
@@ -611,6 +624,7 @@ public class SwissRailRaptorConfigGroup extends ReflectiveConfigGroup {
         comments.put(PARAM_INTERMODAL_ACCESS_EGRESS_MODE_SELECTION, PARAM_INTERMODAL_ACCESS_EGRESS_MODE_SELECTION_DESC);
         comments.put(PARAM_USE_CAPACITY_CONSTRAINTS, PARAM_USE_CAPACITY_CONSTRAINTS_DESC);
         comments.put(PARAM_TRANSFER_WALK_MARGIN, PARAM_TRANSFER_WALK_MARGIN_DESC);
+        comments.put(PARAM_DATA_CACHE_FILE, PARAM_DATA_CACHE_FILE_DESC);
         return comments;
     }
 
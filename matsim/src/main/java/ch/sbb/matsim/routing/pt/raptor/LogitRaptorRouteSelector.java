@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) Schweizerische Bundesbahnen SBB, 2018.
+ */
+
+package ch.sbb.matsim.routing.pt.raptor;
+
+import org.matsim.core.gbl.MatsimRandom;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Implementation of {@link RaptorRouteSelector} that draws a route from a choice set, e.g. the
+ * Pareto-optimal routes from {@link SwissRailRaptor#calcParetoRoutes}, according to a multinomial
+ * logit model:
+ * <pre>
+ *     P(route) = exp(-scale * totalCosts(route)) / sum(exp(-scale * totalCosts))
+ * </pre>
+ *
+ * A large scale makes the selection behave like {@link LeastCostRaptorRouteSelector}, a scale of 0
+ * picks every route with the same probability.
+ */
+public class LogitRaptorRouteSelector implements RaptorRouteSelector {
+
+    private final double scale;
+    private final Random random = MatsimRandom.getLocalInstance();
+
+    public LogitRaptorRouteSelector() {
+        this(1.0);
+    }
+
+    public LogitRaptorRouteSelector(double scale) {
+        this.scale = scale;
+    }
+
+    @Override
+    public RaptorRoute selectOne(List<RaptorRoute> routes, double desiredDepartureTime) {
+        if (routes == null || routes.isEmpty()) {
+            return null;
+        }
+        double minCost = Double.POSITIVE_INFINITY;
+        for (RaptorRoute route : routes) {
+            minCost = Math.min(minCost, route.getTotalCosts());
+        }
+        // subtract the minimal cost to avoid numerical problems with large costs
+        double[] weights = new double[routes.size()];
+        double sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = Math.exp(-this.scale * (routes.get(i).getTotalCosts() - minCost));
+            sum += weights[i];
+        }
+        double r = this.random.nextDouble() * sum;
+        for (int i = 0; i < weights.length; i++) {
+            r -= weights[i];
+            if (r < 0) {
+                return routes.get(i);
+            }
+        }
+        return routes.get(routes.size() - 1);
+    }
+}
@@ -43,6 +43,9 @@ public class SwissRailRaptor implements TransitRouter {
     private final RaptorParametersForPerson parametersForPerson;
     private final RaptorRouteSelector defaultRouteSelector;
     private final RaptorStopFinder stopFinder;
+    private final RaptorInVehicleCostCalculator inVehicleCostCalculator;
+    private final RaptorTransferCostCalculator transferCostCalculator;
+    private SwissRailRaptorMcCore mcRaptor = null; // only created when needed
 
     private boolean treeWarningShown = false;
 
@@ -57,6 +60,8 @@ public class SwissRailRaptor implements TransitRouter {
         this.parametersForPerson = parametersForPerson;
         this.defaultRouteSelector = routeSelector;
         this.stopFinder = stopFinder;
+        this.inVehicleCostCalculator = inVehicleCostCalculator;
+        this.transferCostCalculator = transferCostCalculator;
     }
 
     @Override
@@ -218,6 +223,35 @@ public class SwissRailRaptor implements TransitRouter {
         return foundRoutes;
     }
 
+    /**
+     * Calculates a set of routes that are Pareto-optimal with respect to arrival time, number of transfers and cost in a
+     * single multi-criteria search, see {@link SwissRailRaptorMcCore}. Routes without any pt leg are not included.
+     */
+    public List<RaptorRoute> calcParetoRoutes(Facility fromFacility, Facility toFacility, double departureTime, Person person, Attributes routingAttributes, int maxTransfers, int maxBagSize) {
+        RaptorParameters parameters = this.parametersForPerson.getRaptorParameters(person);
+        List<InitialStop> accessStops = findAccessStops(fromFacility, toFacility, person, departureTime, routingAttributes, parameters);
+        List<InitialStop> egressStops = findEgressStops(fromFacility, toFacility, person, departureTime, routingAttributes, parameters);
+
+        if (this.mcRaptor == null) {
+            this.mcRaptor = new SwissRailRaptorMcCore(this.data, this.inVehicleCostCalculator, this.transferCostCalculator);
+        }
+        List<RaptorRoute> foundRoutes = this.mcRaptor.calcParetoRoutes(departureTime, fromFacility, toFacility, accessStops, egressStops, parameters, person, maxTransfers, maxBagSize);
+        foundRoutes.removeIf(route -> route.parts.size() == 0 || hasNoPtLeg(route.parts));
+        return foundRoutes;
+    }
+
+    /**
+     * Calculates a route using the multi-criteria search, with the given selector choosing one of the Pareto-optimal routes.
+     */
+    public List<? extends PlanElement> calcParetoRoute(Facility fromFacility, Facility toFacility, double departureTime, Person person, Attributes routingAttributes, int maxTransfers, int maxBagSize, RaptorRouteSelector selector) {
+        List<RaptorRoute> foundRoutes = calcParetoRoutes(fromFacility, toFacility, departureTime, person, routingAttributes, maxTransfers, maxBagSize);
+        RaptorRoute foundRoute = selector.selectOne(foundRoutes, departureTime);
+        if (foundRoute == null) {
+            return null;
+        }
+        return RaptorUtils.convertRouteToLegs(foundRoute, this.data.config.getTransferWalkMargin());
+    }
+
     public Map<Id<TransitStopFacility>, SwissRailRaptorCore.TravelInfo> calcTree(TransitStopFacility fromStop, double departureTime, RaptorParameters parameters, Person person) {
         return this.calcTree(Collections.singletonList(fromStop), departureTime, parameters, person);
     }
@@ -240,6 +274,25 @@ public class SwissRailRaptor implements TransitRouter {
         return this.calcLeastCostTree(accessStops, departureTime, parameters, person);
     }
 
+    /**
+     * Calculates the Pareto profiles of all departures from the given stops between <code>earliestDepartureTime</code>
+     * and <code>latestDepartureTime</code> to all reachable stops, using a single range query instead of a tree
+     * per departure time. See {@link SwissRailRaptorCore#calcLeastCostProfiles(double, double, Collection, RaptorParameters, Person)}.
+     */
+    public Map<Id<TransitStopFacility>, List<SwissRailRaptorCore.TravelInfo>> calcProfiles(Collection<TransitStopFacility> fromStops, double earliestDepartureTime, double latestDepartureTime, RaptorParameters parameters, Person person) {
+        List<InitialStop> accessStops = new ArrayList<>();
+        for (TransitStopFacility stop : fromStops) {
+            accessStops.add(new InitialStop(stop, 0, 0, 0, null));
+        }
+        return this.raptor.calcLeastCostProfiles(earliestDepartureTime, latestDepartureTime, accessStops, parameters, person);
+    }
+
+    public Map<Id<TransitStopFacility>, List<SwissRailRaptorCore.TravelInfo>> calcProfiles(Facility fromFacility, double earliestDepartureTime, double latestDepartureTime, Person person, Attributes routingAttributes) {
+        RaptorParameters parameters = this.parametersForPerson.getRaptorParameters(person);
+        List<InitialStop> accessStops = findAccessStops(fromFacility, fromFacility, person, earliestDepartureTime, routingAttributes, parameters);
+        return this.raptor.calcLeastCostProfiles(earliestDepartureTime, latestDepartureTime, accessStops, parameters, person);
+    }
+
     private Map<Id<TransitStopFacility>, SwissRailRaptorCore.TravelInfo> calcLeastCostTree(Collection<InitialStop> accessStops, double departureTime, RaptorParameters parameters, Person person) {
         return this.raptor.calcLeastCostTree(departureTime, accessStops, parameters, person);
     }
@@ -534,6 +534,146 @@ public class SwissRailRaptorCore {
         return result;
     }
 
+    /**
+     * Calculates the Pareto profiles from the start stops to all other stops for all departures within the given time window
+     * (range RAPTOR). The departures at the start stops are processed from the latest to the earliest one, re-using the
+     * labels of later departures, so each departure only has to improve on what was already found for later departures.
+     * As in {@link #calcRoutes(double, double, double, Facility, Facility, List, List, RaptorParameters, Person)}, a cost
+     * offset corresponding to the additional waiting time compared to the earliest departure time is added to make the cost
+     * behave like time.
+     *
+     * For each stop, the returned list contains the non-dominated connections ordered by departure time, i.e. no other
+     * connection leaves the origin at the same time or later, arrives at the same time or earlier and has at most as many
+     * transfers. Connections with the same departure time are ordered by the number of transfers. Connections without any
+     * pt leg are not included.
+     */
+    public Map<Id<TransitStopFacility>, List<TravelInfo>> calcLeastCostProfiles(double earliestDepTime, double latestDepTime, Collection<InitialStop> startStops, RaptorParameters parameters, Person person) {
+        reset();
+
+        double marginalUtilityOfWaitingPt_utl_s = parameters.getMarginalUtilityOfWaitingPt_utl_s();
+
+        List<DepartureAtRouteStop> departures = new ArrayList<>();
+        for (InitialStop accessStop : startStops) {
+            double earliestTimeAtStop = earliestDepTime + accessStop.accessTime;
+            double latestTimeAtStop = latestDepTime + accessStop.accessTime;
+            int[] routeStopIndices = this.data.routeStopsPerStopFacility.get(accessStop.stop);
+            if (routeStopIndices != null) {
+                for (int routeStopIndex : routeStopIndices) {
+                    RRouteStop routeStop = this.data.routeStops[routeStopIndex];
+                    RRoute route = this.data.routes[routeStop.transitRouteIndex];
+                    if (routeStopIndex == route.indexFirstRouteStop + route.countRouteStops - 1) {
+                        // this is the last stop of a route
+                        continue;
+                    }
+                    int depOffset = routeStop.departureOffset;
+                    for (int depIndex = route.indexFirstDeparture; depIndex < route.indexFirstDeparture + route.countDepartures; depIndex++) {
+                        int depTimeAtStop = this.data.departures[depIndex] + depOffset;
+                        if (depTimeAtStop >= earliestTimeAtStop && depTimeAtStop <= latestTimeAtStop) {
+                            double costOffset = (depTimeAtStop - earliestTimeAtStop) * marginalUtilityOfWaitingPt_utl_s;
+                            departures.add(new DepartureAtRouteStop(routeStop, routeStopIndex, depIndex, depTimeAtStop, costOffset, accessStop));
+                        }
+                    }
+                }
+            }
+        }
+        departures.sort((d1, d2) -> {
+            // sort the departures by cost, like in calcRoutes
+            double c1 = d1.costOffset + d1.accessStop.accessCost;
+            double c2 = d2.costOffset + d2.accessStop.accessCost;
+            int cmp = Double.compare(c1, c2);
+            if (cmp == 0) {
+                cmp = Integer.compare(d1.departureIndex, d2.departureIndex);
+            }
+            return -cmp; // negate, we want to order from biggest to smallest
+        });
+
+        Map<Integer, List<TravelInfo>> profiles = new HashMap<>();
+        BitSet updatedStops = new BitSet(this.data.countStops);
+        for (DepartureAtRouteStop depAtRouteStop : departures) {
+            this.improvedRouteStopIndices.clear();
+            updatedStops.clear();
+            { // initialization for this departure time
+                int arrivalTime = depAtRouteStop.depTime;
+                double arrivalCost = depAtRouteStop.accessStop.accessCost + depAtRouteStop.costOffset;
+                RRouteStop toRouteStop = depAtRouteStop.routeStop;
+                int routeStopIndex = depAtRouteStop.routeStopIndex;
+                if (arrivalCost > this.leastArrivalCostAtRouteStop[routeStopIndex]) {
+                    continue; // a later departure already reaches this route stop at lower cost
+                }
+                PathElement pe = new PathElement(null, toRouteStop, depAtRouteStop.depTime, depAtRouteStop.depTime, arrivalTime, arrivalCost, 0, depAtRouteStop.accessStop.distance, 0, true, null, depAtRouteStop.accessStop);
+                this.arrivalPathPerRouteStop[routeStopIndex] = pe;
+                this.leastArrivalCostAtRouteStop[routeStopIndex] = arrivalCost;
+                if (arrivalCost <= this.leastArrivalCostAtStop[toRouteStop.stopFacilityIndex]) {
+                    this.arrivalPathPerStop[toRouteStop.stopFacilityIndex] = pe;
+                    this.leastArrivalCostAtStop[toRouteStop.stopFacilityIndex] = arrivalCost;
+                }
+                this.improvedRouteStopIndices.set(routeStopIndex);
+            }
+
+            // the main loop, labels are kept from the previously handled (later) departures
+            while (true) {
+                exploreRoutes(parameters, person);
+                updatedStops.or(this.improvedStops);
+
+                if (this.improvedStops.isEmpty()) {
+                    break;
+                }
+
+                handleTransfers(true, parameters);
+                updatedStops.or(this.tmpImprovedStops);
+
+                if (this.improvedRouteStopIndices.isEmpty()) {
+                    break;
+                }
+            }
+
+            // add the improved arrivals to the profiles
+            for (int stopIndex = updatedStops.nextSetBit(0); stopIndex >= 0; stopIndex = updatedStops.nextSetBit(stopIndex + 1)) {
+                PathElement destination = this.arrivalPathPerStop[stopIndex];
+                TravelInfo ti = getTravelInfo(destination, parameters);
+                if (!ti.isWalkOnly()) {
+                    addToProfile(profiles.computeIfAbsent(stopIndex, k -> new ArrayList<>()), ti);
+                }
+            }
+        }
+
+        Map<Id<TransitStopFacility>, List<TravelInfo>> result = new HashMap<>();
+        for (Map.Entry<TransitStopFacility, Integer> e : this.data.stopFacilityIndices.entrySet()) {
+            List<TravelInfo> profile = profiles.get(e.getValue());
+            if (profile != null) {
+                profile.sort((ti1, ti2) -> {
+                    int cmp = Double.compare(getProfileDepartureTime(ti1), getProfileDepartureTime(ti2));
+                    if (cmp == 0) {
+                        cmp = Integer.compare(ti1.transferCount, ti2.transferCount);
+                    }
+                    return cmp;
+                });
+                result.put(e.getKey().getId(), profile);
+            }
+        }
+        return result;
+    }
+
+    private static double getProfileDepartureTime(TravelInfo ti) {
+        return ti.ptDepartureTime - ti.waitingTime - ti.accessTime;
+    }
+
+    /**
+     * Adds the connection to the profile unless it is dominated by an existing one, and removes all existing connections
+     * dominated by the new one. A connection dominates another one if it departs at the same time or later, arrives at the
+     * same time or earlier, and does not need more transfers.
+     */
+    private static void addToProfile(List<TravelInfo> profile, TravelInfo ti) {
+        double depTime = getProfileDepartureTime(ti);
+        for (TravelInfo other : profile) {
+            if (getProfileDepartureTime(other) >= depTime && other.ptArrivalTime <= ti.ptArrivalTime && other.transferCount <= ti.transferCount) {
+                return;
+            }
+        }
+        profile.removeIf(other -> getProfileDepartureTime(other) <= depTime && other.ptArrivalTime >= ti.ptArrivalTime && other.transferCount >= ti.transferCount);
+        profile.add(ti);
+    }
+
     private TravelInfo getTravelInfo(PathElement destination, RaptorParameters parameters) {
         PathElement firstStage = destination;
         PathElement secondStage = null;
@@ -967,7 +1107,7 @@ public class SwissRailRaptorCore {
         }
     }
 
-    private static class RouteSegmentIteratorImpl implements RouteSegmentIterator {
+    static class RouteSegmentIteratorImpl implements RouteSegmentIterator {
 
         SwissRailRaptorData data;
         private int boardingTime;
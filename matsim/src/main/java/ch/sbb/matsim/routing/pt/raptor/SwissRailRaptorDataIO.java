@@ -0,0 +1,302 @@
+/*
+ * Copyright (C) Schweizerische Bundesbahnen SBB, 2018.
+ */
+
+package ch.sbb.matsim.routing.pt.raptor;
+
+import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorData.RRoute;
+import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorData.RRouteStop;
+import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorData.RTransfer;
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.utils.collections.QuadTree;
+import org.matsim.pt.transitSchedule.TransitScheduleUtils;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.MinimalTransferTimes;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vehicles.Vehicles;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A startup cache for the prepared {@link SwissRailRaptorData}: stores the data in a binary file, so later runs with the
+ * same schedule and settings do not have to calculate the transfers between route stops and the distances along the
+ * routes again. It only saves this preparation time.
+ *
+ * The file only contains indices, times and distances. Lines, routes, stops, departures and vehicles are looked up again in
+ * the schedule when the file is loaded. All data is copied from the file into the usual objects and arrays, so the loaded
+ * data needs as much memory as created data, and every process using the file has its own copy of it.
+ *
+ * The file is only used if it was created for the same schedule and {@link RaptorStaticConfig}. The network is only used to
+ * calculate the distances along the routes, which are stored in the file. So the file does not detect changes of link lengths.
+ */
+public final class SwissRailRaptorDataIO {
+
+    private static final Logger log = Logger.getLogger(SwissRailRaptorDataIO.class);
+
+    private static final int MAGIC = 0x53525244; // "SRRD"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 5 * 4;
+    private static final int ROUTE_INTS = 6;
+    private static final int ROUTE_STOP_INTS = 3;
+    private static final int TRANSFER_INTS = 4;
+
+    private SwissRailRaptorDataIO() {
+    }
+
+    /**
+     * Loads the data from the file if it exists and was created for the same schedule and settings. Otherwise, the data is
+     * created and written to the file.
+     */
+    public static SwissRailRaptorData loadOrCreate(File file, TransitSchedule schedule, @Nullable Vehicles transitVehicles, RaptorStaticConfig staticConfig, Network network, OccupancyData occupancyData) {
+        if (file.exists()) {
+            SwissRailRaptorData data = read(file, schedule, transitVehicles, staticConfig, occupancyData);
+            if (data != null) {
+                return data;
+            }
+            log.info("SwissRailRaptor data in " + file + " does not match the schedule or settings, creating it again.");
+        }
+        SwissRailRaptorData data = SwissRailRaptorData.create(schedule, transitVehicles, staticConfig, network, occupancyData);
+        write(data, schedule, file);
+        return data;
+    }
+
+    public static void write(SwissRailRaptorData data, TransitSchedule schedule, File file) {
+        Map<TransitLine, Integer> lineIndices = new IdentityHashMap<>();
+        Map<TransitRoute, Integer> routeIndicesInLine = new IdentityHashMap<>();
+        int lineIndex = 0;
+        for (TransitLine line : schedule.getTransitLines().values()) {
+            lineIndices.put(line, lineIndex++);
+            int routeIndex = 0;
+            for (TransitRoute route : line.getRoutes().values()) {
+                routeIndicesInLine.put(route, routeIndex++);
+            }
+        }
+
+        long size = HEADER_BYTES
+                + 4L * ROUTE_INTS * data.routes.length
+                + (4L * ROUTE_STOP_INTS + 8) * data.routeStops.length
+                + 4L * data.departures.length
+                + 4L * TRANSFER_INTS * data.transfers.length;
+
+        // write to a temporary file first, so other processes never see a partially written file
+        Path tmpFile = null;
+        try {
+            Path directory = file.toPath().toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            tmpFile = Files.createTempFile(directory, file.getName(), ".tmp");
+            try (FileChannel channel = FileChannel.open(tmpFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                buffer.putInt(MAGIC);
+                buffer.putInt(VERSION);
+                buffer.putLong(fingerprint(schedule, data.config));
+                buffer.putInt(data.routes.length);
+                buffer.putInt(data.routeStops.length);
+                buffer.putInt(data.departures.length);
+                buffer.putInt(data.transfers.length);
+                buffer.putInt(data.countStops);
+                for (RRoute route : data.routes) {
+                    RRouteStop firstRouteStop = data.routeStops[route.indexFirstRouteStop];
+                    buffer.putInt(lineIndices.get(firstRouteStop.line));
+                    buffer.putInt(routeIndicesInLine.get(firstRouteStop.route));
+                    buffer.putInt(route.indexFirstRouteStop);
+                    buffer.putInt(route.countRouteStops);
+                    buffer.putInt(route.indexFirstDeparture);
+                    buffer.putInt(route.countDepartures);
+                }
+                for (RRouteStop routeStop : data.routeStops) {
+                    buffer.putInt(routeStop.stopFacilityIndex);
+                    buffer.putInt(routeStop.indexFirstTransfer);
+                    buffer.putInt(routeStop.countTransfers);
+                }
+                for (RRouteStop routeStop : data.routeStops) {
+                    buffer.putDouble(routeStop.distanceAlongRoute);
+                }
+                for (int departure : data.departures) {
+                    buffer.putInt(departure);
+                }
+                for (RTransfer transfer : data.transfers) {
+                    buffer.putInt(transfer.fromRouteStop);
+                    buffer.putInt(transfer.toRouteStop);
+                    buffer.putInt(transfer.transferTime);
+                    buffer.putInt(transfer.transferDistance);
+                }
+                buffer.force();
+            }
+            try {
+                Files.move(tmpFile, file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmpFile, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            log.info("SwissRailRaptor data written to " + file);
+        } catch (IOException e) {
+            log.warn("could not write SwissRailRaptor data to " + file, e);
+            if (tmpFile != null) {
+                try {
+                    Files.deleteIfExists(tmpFile);
+                } catch (IOException ignored) {
+                    // nothing more we can do
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the data stored in the file, or <code>null</code> if the file was created for a different schedule or settings,
+     * or cannot be read.
+     */
+    public static SwissRailRaptorData read(File file, TransitSchedule schedule, @Nullable Vehicles transitVehicles, RaptorStaticConfig staticConfig, OccupancyData occupancyData) {
+        long startMillis = System.currentTimeMillis();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                return null;
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getLong() != fingerprint(schedule, staticConfig)) {
+                return null;
+            }
+            int countRoutes = buffer.getInt();
+            int countRouteStops = buffer.getInt();
+            int countDepartures = buffer.getInt();
+            int countTransfers = buffer.getInt();
+            int countStops = buffer.getInt();
+
+            List<TransitLine> lines = new ArrayList<>(schedule.getTransitLines().values());
+            Map<Id<Vehicle>, Vehicle> vehicles = transitVehicles == null ? Collections.emptyMap() : transitVehicles.getVehicles();
+            boolean useModeMapping = staticConfig.isUseModeMappingForPassengers();
+
+            RRoute[] routes = new RRoute[countRoutes];
+            TransitLine[] linePerRoute = new TransitLine[countRoutes];
+            TransitRoute[] transitRoutes = new TransitRoute[countRoutes];
+            for (int i = 0; i < countRoutes; i++) {
+                TransitLine line = lines.get(buffer.getInt());
+                TransitRoute route = new ArrayList<>(line.getRoutes().values()).get(buffer.getInt());
+                routes[i] = new RRoute(buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt());
+                linePerRoute[i] = line;
+                transitRoutes[i] = route;
+            }
+
+            int routeStopsPos = buffer.position();
+            int distancesPos = routeStopsPos + 4 * ROUTE_STOP_INTS * countRouteStops;
+            RRouteStop[] routeStops = new RRouteStop[countRouteStops];
+            Map<TransitStopFacility, Integer> stopFacilityIndices = new HashMap<>((int) (countStops * 1.5));
+            Map<TransitStopFacility, List<Integer>> routeStopIndicesPerStop = new HashMap<>((int) (countStops * 1.5));
+            for (int routeIndex = 0; routeIndex < countRoutes; routeIndex++) {
+                RRoute rroute = routes[routeIndex];
+                TransitRoute route = transitRoutes[routeIndex];
+                String mode = useModeMapping ? staticConfig.getPassengerMode(route.getTransportMode()) : TransportMode.pt;
+                List<TransitRouteStop> stops = route.getStops();
+                for (int i = 0; i < rroute.countRouteStops; i++) {
+                    int routeStopIndex = rroute.indexFirstRouteStop + i;
+                    int pos = routeStopsPos + 4 * ROUTE_STOP_INTS * routeStopIndex;
+                    int stopFacilityIndex = buffer.getInt(pos);
+                    double distanceAlongRoute = buffer.getDouble(distancesPos + 8 * routeStopIndex);
+                    TransitRouteStop routeStop = stops.get(i);
+                    RRouteStop rRouteStop = new RRouteStop(routeStopIndex, routeStop, linePerRoute[routeIndex], route, mode, routeIndex, stopFacilityIndex, distanceAlongRoute);
+                    rRouteStop.indexFirstTransfer = buffer.getInt(pos + 4);
+                    rRouteStop.countTransfers = buffer.getInt(pos + 8);
+                    routeStops[routeStopIndex] = rRouteStop;
+                    stopFacilityIndices.put(routeStop.getStopFacility(), stopFacilityIndex);
+                    routeStopIndicesPerStop.computeIfAbsent(routeStop.getStopFacility(), stop -> new ArrayList<>()).add(routeStopIndex);
+                }
+            }
+            buffer.position(distancesPos + 8 * countRouteStops);
+
+            int[] departures = new int[countDepartures];
+            buffer.asIntBuffer().get(departures);
+            buffer.position(buffer.position() + 4 * countDepartures);
+            @SuppressWarnings("unchecked")
+            Id<Departure>[] departureIds = new Id[countDepartures];
+            Vehicle[] departureVehicles = new Vehicle[countDepartures];
+            for (int routeIndex = 0; routeIndex < countRoutes; routeIndex++) {
+                int index = routes[routeIndex].indexFirstDeparture;
+                for (Departure dep : transitRoutes[routeIndex].getDepartures().values()) {
+                    departureVehicles[index] = vehicles.get(dep.getVehicleId());
+                    departureIds[index] = dep.getId();
+                    index++;
+                }
+            }
+
+            RTransfer[] transfers = new RTransfer[countTransfers];
+            for (int i = 0; i < countTransfers; i++) {
+                transfers[i] = new RTransfer(buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt());
+            }
+
+            Map<TransitStopFacility, int[]> routeStopsPerStopFacility = new HashMap<>((int) (countStops * 1.5));
+            for (Map.Entry<TransitStopFacility, List<Integer>> e : routeStopIndicesPerStop.entrySet()) {
+                routeStopsPerStopFacility.put(e.getKey(), e.getValue().stream().mapToInt(Integer::intValue).toArray());
+            }
+            QuadTree<TransitStopFacility> stopsQT = TransitScheduleUtils.createQuadTreeOfTransitStopFacilities(routeStopsPerStopFacility.keySet());
+
+            SwissRailRaptorData data = new SwissRailRaptorData(staticConfig, countStops, routes, departures, departureVehicles, departureIds, routeStops, transfers, stopFacilityIndices, routeStopsPerStopFacility, stopsQT, occupancyData);
+            log.info("SwissRailRaptor data loaded from " + file + ". Took " + (System.currentTimeMillis() - startMillis) / 1000 + " seconds.");
+            return data;
+        } catch (IOException | BufferUnderflowException | IndexOutOfBoundsException e) {
+            // e.g. a truncated file
+            log.warn("could not read SwissRailRaptor data from " + file + ": " + e);
+            return null;
+        }
+    }
+
+    private static long fingerprint(TransitSchedule schedule, RaptorStaticConfig config) {
+        long hash = 31L * Double.hashCode(config.getBeelineWalkConnectionDistance());
+        hash = hash * 31 + Double.hashCode(config.getBeelineWalkSpeed());
+        hash = hash * 31 + Double.hashCode(config.getBeelineWalkDistanceFactor());
+        hash = hash * 31 + Double.hashCode(config.getMinimalTransferTime());
+        hash = hash * 31 + config.getOptimization().ordinal();
+        hash = hash * 31 + Boolean.hashCode(config.isUseModeMappingForPassengers());
+        for (TransitStopFacility stop : schedule.getFacilities().values()) {
+            hash = hash * 31 + stop.getId().toString().hashCode();
+            hash = hash * 31 + Double.hashCode(stop.getCoord().getX());
+            hash = hash * 31 + Double.hashCode(stop.getCoord().getY());
+        }
+        for (TransitLine line : schedule.getTransitLines().values()) {
+            hash = hash * 31 + line.getId().toString().hashCode();
+            for (TransitRoute route : line.getRoutes().values()) {
+                hash = hash * 31 + route.getId().toString().hashCode();
+                hash = hash * 31 + route.getTransportMode().hashCode();
+                for (TransitRouteStop routeStop : route.getStops()) {
+                    hash = hash * 31 + routeStop.getStopFacility().getId().toString().hashCode();
+                    hash = hash * 31 + Double.hashCode(routeStop.getArrivalOffset().orElse(-1));
+                    hash = hash * 31 + Double.hashCode(routeStop.getDepartureOffset().orElse(-1));
+                }
+                for (Departure dep : route.getDepartures().values()) {
+                    hash = hash * 31 + dep.getId().toString().hashCode();
+                    hash = hash * 31 + Double.hashCode(dep.getDepartureTime());
+                }
+            }
+        }
+        MinimalTransferTimes.MinimalTransferTimesIterator iter = schedule.getMinimalTransferTimes().iterator();
+        while (iter.hasNext()) {
+            iter.next();
+            hash = hash * 31 + iter.getFromStopId().toString().hashCode();
+            hash = hash * 31 + iter.getToStopId().toString().hashCode();
+            hash = hash * 31 + Double.hashCode(iter.getSeconds());
+        }
+        return hash;
+    }
+}
@@ -4,10 +4,12 @@
 
 package ch.sbb.matsim.routing.pt.raptor;
 
+import ch.sbb.matsim.config.SwissRailRaptorConfigGroup;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
 import org.matsim.pt.router.TransitScheduleChangedEventHandler;
 import org.matsim.pt.transitSchedule.api.TransitSchedule;
 import org.matsim.vehicles.Vehicles;
@@ -15,6 +17,7 @@ import org.matsim.vehicles.Vehicles;
 import javax.inject.Inject;
 import javax.inject.Provider;
 import javax.inject.Singleton;
+import java.io.File;
 
 /**
  * @author mrieser / SBB
@@ -34,6 +37,7 @@ public class SwissRailRaptorFactory implements Provider<SwissRailRaptor> {
     private final RaptorTransferCostCalculator transferCostCalculator;
 
     private final Network network;
+    private final String dataCacheFile;
 
     @Inject
     public SwissRailRaptorFactory(final Scenario scenario, final Config config,
@@ -46,6 +50,7 @@ public class SwissRailRaptorFactory implements Provider<SwissRailRaptor> {
         this.transitVehicles = scenario.getTransitVehicles();
         this.raptorConfig = RaptorUtils.createStaticConfig(config);
         this.network = scenario.getNetwork();
+        this.dataCacheFile = ConfigUtils.addOrGetModule(config, SwissRailRaptorConfigGroup.class).getDataCacheFile();
         this.raptorParametersForPerson = raptorParametersForPerson;
         this.routeSelector = routeSelector;
         this.stopFinderProvider = stopFinderProvider;
@@ -77,7 +82,12 @@ public class SwissRailRaptorFactory implements Provider<SwissRailRaptor> {
             // prevent doing the work twice.
             return this.data;
         }
-        this.data = SwissRailRaptorData.create(this.schedule, this.transitVehicles, this.raptorConfig, this.network, this.occupancyData);
+        if (this.dataCacheFile != null) {
+            // only saves the preparation time, the data is still loaded into memory
+            this.data = SwissRailRaptorDataIO.loadOrCreate(new File(this.dataCacheFile), this.schedule, this.transitVehicles, this.raptorConfig, this.network, this.occupancyData);
+        } else {
+            this.data = SwissRailRaptorData.create(this.schedule, this.transitVehicles, this.raptorConfig, this.network, this.occupancyData);
+        }
         return this.data;
     }
 
@@ -0,0 +1,426 @@
+/*
+ * Copyright (C) Schweizerische Bundesbahnen SBB, 2018.
+ */
+
+package ch.sbb.matsim.routing.pt.raptor;
+
+import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorCore.RouteSegmentIteratorImpl;
+import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorData.CachingTransferProvider;
+import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorData.RRoute;
+import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorData.RRouteStop;
+import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorData.RTransfer;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.facilities.Facility;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.vehicles.Vehicle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A multi-criteria variant of the RAPTOR algorithm (McRAPTOR, see Delling et al, Round-Based Public Transit Routing).
+ * Instead of a single label with the least generalized cost, each route stop keeps a bag of labels that are Pareto-optimal
+ * with respect to arrival time, number of transfers and generalized cost. One query thus returns a whole set of
+ * reasonable routes, e.g. for route choice set generation, instead of calling the single-criterion router with many
+ * different {@link RaptorParameters}.
+ *
+ * The number of labels per bag is bounded: if a bag grows beyond <code>maxBagSize</code>, the label with the highest cost is
+ * dropped. With small bags, the result might thus miss some Pareto-optimal routes, but the run time stays bounded even for
+ * large schedules.
+ *
+ * This class is <b>NOT</b> thread-safe due to the use of internal state during the route calculation.
+ */
+public class SwissRailRaptorMcCore {
+
+    private final SwissRailRaptorData data;
+    private final RaptorInVehicleCostCalculator inVehicleCostCalculator;
+    private final RaptorTransferCostCalculator transferCostCalculator;
+    private final RouteSegmentIteratorImpl routeSegmentIterator;
+    private final boolean useCapacityConstraints;
+
+    private final List<McLabel>[] arrivalBags; // labels arriving with a pt vehicle at the route stop
+    private final List<McLabel>[] boardingBags; // labels that can board at the route stop (access or transfer)
+    private final BitSet markedRouteStops;
+    private final BitSet arrivedRouteStops;
+    private final InitialStop[] egressPerRouteStop;
+    private final List<McLabel> destinationBag = new ArrayList<>();
+
+    private final static int TIME_UNDEFINED = Integer.MIN_VALUE;
+
+    @SuppressWarnings("unchecked")
+    SwissRailRaptorMcCore(SwissRailRaptorData data, RaptorInVehicleCostCalculator inVehicleCostCalculator, RaptorTransferCostCalculator transferCostCalculator) {
+        this.data = data;
+        this.inVehicleCostCalculator = inVehicleCostCalculator;
+        this.transferCostCalculator = transferCostCalculator;
+        this.routeSegmentIterator = new RouteSegmentIteratorImpl(data);
+        this.useCapacityConstraints = data.config.isUseCapacityConstraints();
+        this.arrivalBags = new List[data.countRouteStops];
+        this.boardingBags = new List[data.countRouteStops];
+        this.markedRouteStops = new BitSet(data.countRouteStops);
+        this.arrivedRouteStops = new BitSet(data.countRouteStops);
+        this.egressPerRouteStop = new InitialStop[data.countRouteStops];
+    }
+
+    private void reset() {
+        Arrays.fill(this.arrivalBags, null);
+        Arrays.fill(this.boardingBags, null);
+        Arrays.fill(this.egressPerRouteStop, null);
+        this.markedRouteStops.clear();
+        this.arrivedRouteStops.clear();
+        this.destinationBag.clear();
+    }
+
+    /**
+     * @return the Pareto-optimal routes with respect to arrival time, number of transfers and cost, ordered by cost.
+     */
+    public List<RaptorRoute> calcParetoRoutes(double depTime, Facility fromFacility, Facility toFacility, List<InitialStop> accessStops, List<InitialStop> egressStops,
+            RaptorParameters parameters, Person person, int maxTransfers, int maxBagSize) {
+        reset();
+
+        Map<TransitStopFacility, InitialStop> destinationStops = new HashMap<>();
+        for (InitialStop egressStop : egressStops) {
+            InitialStop alternative = destinationStops.get(egressStop.stop);
+            if (alternative == null || egressStop.accessCost < alternative.accessCost) {
+                destinationStops.put(egressStop.stop, egressStop);
+            }
+        }
+        for (InitialStop egressStop : destinationStops.values()) {
+            int[] routeStopIndices = this.data.routeStopsPerStopFacility.get(egressStop.stop);
+            if (routeStopIndices != null) {
+                for (int routeStopIndex : routeStopIndices) {
+                    this.egressPerRouteStop[routeStopIndex] = egressStop;
+                }
+            }
+        }
+
+        for (InitialStop accessStop : accessStops) {
+            int[] routeStopIndices = this.data.routeStopsPerStopFacility.get(accessStop.stop);
+            if (routeStopIndices != null) {
+                int arrivalTime = (int) (depTime + accessStop.accessTime);
+                for (int routeStopIndex : routeStopIndices) {
+                    RRouteStop toRouteStop = this.data.routeStops[routeStopIndex];
+                    McLabel label = new McLabel(null, toRouteStop, TIME_UNDEFINED, TIME_UNDEFINED, arrivalTime, accessStop.accessCost, 0, accessStop.distance, 0, true, null, accessStop, 0);
+                    if (addToBag(this.boardingBags, routeStopIndex, label, maxBagSize)) {
+                        this.markedRouteStops.set(routeStopIndex);
+                    }
+                }
+            }
+        }
+
+        for (int round = 1; round <= maxTransfers + 1; round++) {
+            scanRoutes(round, parameters, person, maxBagSize);
+            if (this.arrivedRouteStops.isEmpty()) {
+                break;
+            }
+            handleTransfers(round, parameters, maxBagSize);
+            if (this.markedRouteStops.isEmpty()) {
+                break;
+            }
+        }
+
+        List<McLabel> destinations = new ArrayList<>(this.destinationBag);
+        destinations.sort(Comparator.comparingDouble(McLabel::getTotalCost).thenComparingInt(l -> l.arrivalTime));
+        List<RaptorRoute> routes = new ArrayList<>(destinations.size());
+        for (McLabel destination : destinations) {
+            RaptorRoute route = createRaptorRoute(fromFacility, toFacility, destination, depTime);
+            if (route.getTotalCosts() < Double.POSITIVE_INFINITY) {
+                routes.add(route);
+            }
+        }
+        return routes;
+    }
+
+    private void scanRoutes(int round, RaptorParameters parameters, Person person, int maxBagSize) {
+        BitSet boardingRouteStops = (BitSet) this.markedRouteStops.clone();
+        this.markedRouteStops.clear();
+        this.arrivedRouteStops.clear();
+
+        CachingTransferProvider transferProvider = this.data.new CachingTransferProvider();
+        double marginalUtilityOfWaitingPt_utl_s = parameters.getMarginalUtilityOfWaitingPt_utl_s();
+
+        int routeIndex = -1;
+        for (int firstRouteStopIndex = boardingRouteStops.nextSetBit(0); firstRouteStopIndex >= 0; firstRouteStopIndex = boardingRouteStops.nextSetBit(firstRouteStopIndex + 1)) {
+            RRouteStop firstRouteStop = this.data.routeStops[firstRouteStopIndex];
+            if (firstRouteStop.transitRouteIndex == routeIndex) {
+                continue; // we've handled this route already
+            }
+            routeIndex = firstRouteStop.transitRouteIndex;
+            RRoute route = this.data.routes[routeIndex];
+            int lastRouteStopIndex = route.indexFirstRouteStop + route.countRouteStops - 1;
+
+            List<RouteLabel> routeBag = new ArrayList<>();
+            for (int routeStopIndex = firstRouteStopIndex; routeStopIndex <= lastRouteStopIndex; routeStopIndex++) {
+                RRouteStop routeStop = this.data.routeStops[routeStopIndex];
+
+                // first, travel along with the vehicles we're already on
+                for (RouteLabel rl : routeBag) {
+                    McLabel boarding = rl.boardingLabel;
+                    this.routeSegmentIterator.reset(rl.departureIndex, rl.boardingTime, rl.boardingRouteStopIndex, routeStopIndex);
+                    int arrivalTime = this.data.departures[rl.departureIndex] + routeStop.arrivalOffset;
+                    int inVehicleTime = arrivalTime - rl.boardingTime;
+                    double marginalUtilityOfTravelTime_utl_s = parameters.getMarginalUtilityOfTravelTime_utl_s(boarding.toRouteStop.mode);
+                    double inVehicleCost = this.inVehicleCostCalculator.getInVehicleCost(inVehicleTime, marginalUtilityOfTravelTime_utl_s, person, rl.vehicle, parameters, this.routeSegmentIterator);
+                    double arrivalTravelCost = rl.travelCostWhenBoarding + inVehicleCost;
+                    double arrivalTransferCost = 0;
+                    if (boarding.firstDepartureTime != TIME_UNDEFINED) {
+                        transferProvider.reset(boarding.transfer);
+                        arrivalTransferCost = boarding.transferCost + this.transferCostCalculator.calcTransferCost(transferProvider, parameters, arrivalTime - rl.firstDepartureTime, boarding.transferCount, boarding.transferCost, boarding.arrivalTime);
+                    }
+                    rl.currentArrivalTime = arrivalTime;
+                    rl.currentCost = arrivalTravelCost + arrivalTransferCost;
+                    double distance = routeStop.distanceAlongRoute - boarding.toRouteStop.distanceAlongRoute;
+                    McLabel label = new McLabel(boarding, routeStop, rl.firstDepartureTime, rl.boardingTime, arrivalTime, arrivalTravelCost, arrivalTransferCost, distance, boarding.transferCount, false, null, null, round);
+                    if (addToBag(this.arrivalBags, routeStopIndex, label, maxBagSize)) {
+                        this.arrivedRouteStops.set(routeStopIndex);
+                        checkDestination(routeStopIndex, label, maxBagSize);
+                    }
+                }
+
+                // then, board vehicles with the labels that reached this route stop in the previous round
+                List<McLabel> boardingBag = this.boardingBags[routeStopIndex];
+                if (boardingBag == null || routeStopIndex == lastRouteStopIndex) {
+                    continue;
+                }
+                for (McLabel boarding : boardingBag) {
+                    if (boarding.round != round - 1) {
+                        continue;
+                    }
+                    int departureIndex = findNextDepartureIndex(route, routeStop, boarding.arrivalTime);
+                    if (departureIndex < 0) {
+                        continue;
+                    }
+                    int departureTime = this.data.departures[departureIndex];
+                    int boardingTime = Math.max(boarding.arrivalTime, departureTime + routeStop.arrivalOffset);
+                    double waitingCost = -marginalUtilityOfWaitingPt_utl_s * (boardingTime - boarding.arrivalTime);
+                    int firstDepartureTime = (boarding.firstDepartureTime == TIME_UNDEFINED) ? boardingTime : boarding.firstDepartureTime;
+                    RouteLabel rl = new RouteLabel(boarding, departureIndex, this.data.departureVehicles[departureIndex], routeStopIndex, boardingTime, firstDepartureTime, boarding.travelCost + waitingCost);
+                    rl.currentArrivalTime = departureTime + routeStop.arrivalOffset;
+                    rl.currentCost = rl.travelCostWhenBoarding + boarding.transferCost;
+                    addToRouteBag(routeBag, rl);
+                }
+            }
+        }
+    }
+
+    private void handleTransfers(int round, RaptorParameters parameters, int maxBagSize) {
+        CachingTransferProvider transferProvider = this.data.new CachingTransferProvider();
+        double margUtilityTransitWalk = parameters.getMarginalUtilityOfTravelTime_utl_s(TransportMode.walk);
+
+        for (int routeStopIndex = this.arrivedRouteStops.nextSetBit(0); routeStopIndex >= 0; routeStopIndex = this.arrivedRouteStops.nextSetBit(routeStopIndex + 1)) {
+            RRouteStop fromRouteStop = this.data.routeStops[routeStopIndex];
+            int firstTransferIndex = fromRouteStop.indexFirstTransfer;
+            int lastTransferIndex = firstTransferIndex + fromRouteStop.countTransfers;
+            for (McLabel fromLabel : new ArrayList<>(this.arrivalBags[routeStopIndex])) {
+                if (fromLabel.round != round) {
+                    continue;
+                }
+                for (int transferIndex = firstTransferIndex; transferIndex < lastTransferIndex; transferIndex++) {
+                    RTransfer transfer = this.data.transfers[transferIndex];
+                    transferProvider.reset(transfer);
+                    int newArrivalTime = fromLabel.arrivalTime + transfer.transferTime;
+                    double newTravelCost = fromLabel.travelCost - transfer.transferTime * margUtilityTransitWalk;
+                    double newTransferCost = fromLabel.transferCost + this.transferCostCalculator.calcTransferCost(transferProvider, parameters, newArrivalTime - fromLabel.firstDepartureTime, fromLabel.transferCount + 1, fromLabel.transferCost, fromLabel.arrivalTime);
+                    RRouteStop toRouteStop = this.data.routeStops[transfer.toRouteStop];
+                    McLabel label = new McLabel(fromLabel, toRouteStop, fromLabel.firstDepartureTime, TIME_UNDEFINED, newArrivalTime, newTravelCost, newTransferCost, transfer.transferDistance, fromLabel.transferCount + 1, true, transfer, null, round);
+                    if (addToBag(this.boardingBags, transfer.toRouteStop, label, maxBagSize)) {
+                        this.markedRouteStops.set(transfer.toRouteStop);
+                        checkDestination(transfer.toRouteStop, label, maxBagSize);
+                    }
+                }
+            }
+        }
+    }
+
+    private void checkDestination(int routeStopIndex, McLabel label, int maxBagSize) {
+        InitialStop egressStop = this.egressPerRouteStop[routeStopIndex];
+        if (egressStop != null) {
+            int arrivalTime = (int) (label.arrivalTime + egressStop.accessTime);
+            // a transfer right before the egress is merged with the egress walk in the route, do not count it as such
+            int transferCount = label.isTransfer ? label.transferCount - 1 : label.transferCount;
+            McLabel destination = new McLabel(label, null, label.firstDepartureTime, TIME_UNDEFINED, arrivalTime, label.travelCost + egressStop.accessCost, label.transferCost, egressStop.distance, transferCount, true, null, egressStop, label.round);
+            addToBag(this.destinationBag, destination, maxBagSize);
+        }
+    }
+
+    private boolean addToBag(List<McLabel>[] bags, int routeStopIndex, McLabel label, int maxBagSize) {
+        if (isDominated(this.destinationBag, label)) {
+            return false; // target pruning: we already know a better way to the destination
+        }
+        List<McLabel> bag = bags[routeStopIndex];
+        if (bag == null) {
+            bag = new ArrayList<>(4);
+            bags[routeStopIndex] = bag;
+        }
+        return addToBag(bag, label, maxBagSize);
+    }
+
+    private static boolean addToBag(List<McLabel> bag, McLabel label, int maxBagSize) {
+        if (isDominated(bag, label)) {
+            return false;
+        }
+        bag.removeIf(other -> dominates(label, other));
+        bag.add(label);
+        if (bag.size() > maxBagSize) {
+            McLabel mostExpensive = label;
+            for (McLabel other : bag) {
+                if (other.getTotalCost() > mostExpensive.getTotalCost()) {
+                    mostExpensive = other;
+                }
+            }
+            bag.remove(mostExpensive);
+            return mostExpensive != label;
+        }
+        return true;
+    }
+
+    private static boolean isDominated(List<McLabel> bag, McLabel label) {
+        for (McLabel other : bag) {
+            if (dominates(other, label)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean dominates(McLabel a, McLabel b) {
+        return a.arrivalTime <= b.arrivalTime && a.transferCount <= b.transferCount && a.getTotalCost() <= b.getTotalCost();
+    }
+
+    /**
+     * Labels in the route bag are compared at the current route stop: being on an earlier vehicle, with fewer transfers and
+     * at lower cost is better.
+     */
+    private static void addToRouteBag(List<RouteLabel> routeBag, RouteLabel rl) {
+        for (RouteLabel other : routeBag) {
+            if (other.currentArrivalTime <= rl.currentArrivalTime && other.boardingLabel.transferCount <= rl.boardingLabel.transferCount && other.currentCost <= rl.currentCost) {
+                return;
+            }
+        }
+        routeBag.removeIf(other -> rl.currentArrivalTime <= other.currentArrivalTime && rl.boardingLabel.transferCount <= other.boardingLabel.transferCount && rl.currentCost <= other.currentCost);
+        routeBag.add(rl);
+    }
+
+    private int findNextDepartureIndex(RRoute route, RRouteStop routeStop, int time) {
+        if (this.useCapacityConstraints) {
+            return this.data.occupancyData.getNextAvailableDeparture(this.data, routeStop, time);
+        }
+        int depTimeAtRouteStart = time - routeStop.departureOffset;
+        int fromIndex = route.indexFirstDeparture;
+        int toIndex = fromIndex + route.countDepartures;
+        int pos = Arrays.binarySearch(this.data.departures, fromIndex, toIndex, depTimeAtRouteStart);
+        if (pos < 0) {
+            // binarySearch returns (-(insertion point) - 1) if the element was not found
+            pos = -(pos + 1);
+        }
+        if (pos >= toIndex) {
+            // there is no later departure time
+            return -1;
+        }
+        return pos;
+    }
+
+    private static RaptorRoute createRaptorRoute(Facility fromFacility, Facility toFacility, McLabel destination, double departureTime) {
+        LinkedList<McLabel> labels = new LinkedList<>();
+        McLabel label = destination;
+        while (label != null) {
+            labels.addFirst(label);
+            label = label.comingFrom;
+        }
+        if (labels.size() == 2 && labels.get(0).isTransfer && labels.get(1).isTransfer) {
+            // it's only access and egress, no real pt trip
+            return new RaptorRoute(fromFacility, toFacility, Double.POSITIVE_INFINITY);
+        }
+
+        RaptorRoute raptorRoute = new RaptorRoute(fromFacility, toFacility, destination.getTotalCost());
+        double time = departureTime;
+        TransitStopFacility fromStop = null;
+        int count = labels.size();
+        int i = -1;
+        for (McLabel l : labels) {
+            i++;
+            TransitStopFacility toStop = l.toRouteStop == null ? null : l.toRouteStop.routeStop.getStopFacility();
+            double travelTime = l.arrivalTime - time;
+            if (l.initialStop != null && l.initialStop.planElements != null) {
+                raptorRoute.addPlanElements(time, travelTime, l.initialStop.planElements);
+            } else if (l.isTransfer) {
+                McLabel next = i + 1 < count ? labels.get(i + 1) : null;
+                if (i == count - 2 && next != null && (next.initialStop == null || next.initialStop.planElements == null)) {
+                    // the second last element is a transfer, skip it so it gets merged into the egress walk
+                    continue;
+                }
+                raptorRoute.addNonPt(fromStop, toStop, time, travelTime, l.distance, TransportMode.walk);
+            } else {
+                raptorRoute.addPt(fromStop, toStop, l.toRouteStop.line, l.toRouteStop.route, l.toRouteStop.mode, time, l.boardingTime, l.arrivalTime, l.distance);
+            }
+            time = l.arrivalTime;
+            fromStop = toStop;
+        }
+        return raptorRoute;
+    }
+
+    private static final class McLabel {
+        final McLabel comingFrom;
+        final RRouteStop toRouteStop;
+        final int firstDepartureTime; // the departure time at the start stop
+        final int boardingTime;
+        final int arrivalTime;
+        final double travelCost;
+        final double transferCost;
+        final double distance;
+        final int transferCount;
+        final boolean isTransfer;
+        final RTransfer transfer;
+        final InitialStop initialStop;
+        final int round;
+
+        McLabel(McLabel comingFrom, RRouteStop toRouteStop, int firstDepartureTime, int boardingTime, int arrivalTime, double travelCost, double transferCost,
+                double distance, int transferCount, boolean isTransfer, RTransfer transfer, InitialStop initialStop, int round) {
+            this.comingFrom = comingFrom;
+            this.toRouteStop = toRouteStop;
+            this.firstDepartureTime = firstDepartureTime;
+            this.boardingTime = boardingTime;
+            this.arrivalTime = arrivalTime;
+            this.travelCost = travelCost;
+            this.transferCost = transferCost;
+            this.distance = distance;
+            this.transferCount = transferCount;
+            this.isTransfer = isTransfer;
+            this.transfer = transfer;
+            this.initialStop = initialStop;
+            this.round = round;
+        }
+
+        double getTotalCost() {
+            return this.travelCost + this.transferCost;
+        }
+    }
+
+    private static final class RouteLabel {
+        final McLabel boardingLabel;
+        final int departureIndex;
+        final Vehicle vehicle;
+        final int boardingRouteStopIndex;
+        final int boardingTime;
+        final int firstDepartureTime;
+        final double travelCostWhenBoarding;
+        int currentArrivalTime;
+        double currentCost;
+
+        RouteLabel(McLabel boardingLabel, int departureIndex, Vehicle vehicle, int boardingRouteStopIndex, int boardingTime, int firstDepartureTime, double travelCostWhenBoarding) {
+            this.boardingLabel = boardingLabel;
+            this.departureIndex = departureIndex;
+            this.vehicle = vehicle;
+            this.boardingRouteStopIndex = boardingRouteStopIndex;
+            this.boardingTime = boardingTime;
+            this.firstDepartureTime = firstDepartureTime;
+            this.travelCostWhenBoarding = travelCostWhenBoarding;
+        }
+    }
+}
@@ -30,9 +30,12 @@ import org.matsim.api.core.v01.events.handler.VehicleEntersTrafficEventHandler;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.handler.MergeableEventHandler;
+import org.matsim.core.events.handler.NonRetainingEventHandler;
 import org.matsim.vehicles.Vehicle;
 
 import javax.inject.Inject;
+import java.lang.reflect.Constructor;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
@@ -40,10 +43,15 @@ import java.util.TreeSet;
 
 /**
  * Counts the number of vehicles leaving a link, aggregated into time bins of a specified size.
+ * <p>
+ * When replaying events with {@link org.matsim.core.events.ParallelEventsReplay}, partition the events
+ * {@link org.matsim.core.events.ParallelEventsReplay#byPerson() by person} if modes are observed, as the mode of a
+ * vehicle is only known from the event where it enters traffic.
  *
  * @author mrieser
  */
-public class VolumesAnalyzer implements LinkLeaveEventHandler, VehicleEntersTrafficEventHandler {
+public class VolumesAnalyzer implements LinkLeaveEventHandler, VehicleEntersTrafficEventHandler, MergeableEventHandler<VolumesAnalyzer>,
+		NonRetainingEventHandler {
 
 	private final static Logger log = Logger.getLogger(VolumesAnalyzer.class);
 	private final int timeBinSize;
@@ -238,6 +246,62 @@ public class VolumesAnalyzer implements LinkLeaveEventHandler, VehicleEntersTraf
 		return this.links.keySet();
 	}
 
+	/**
+	 * Creates an instance of the same class through its constructor <code>(int, int, Network, boolean)</code>, so
+	 * subclasses keep their behaviour in every partition. Subclasses without such a constructor, or with settings of
+	 * their own, must override this method to be replayed in parallel.
+	 */
+	@Override
+	public VolumesAnalyzer newInstance() {
+		Constructor<? extends VolumesAnalyzer> constructor;
+		try {
+			constructor = getClass().getDeclaredConstructor(int.class, int.class, Network.class, boolean.class);
+		} catch (NoSuchMethodException e) {
+			throw new UnsupportedOperationException(getClass().getName()
+					+ " must have a constructor (int, int, Network, boolean) or override newInstance() to be replayed in parallel.", e);
+		}
+		try {
+			constructor.setAccessible(true);
+			return constructor.newInstance(this.timeBinSize, this.maxTime, null, this.observeModes);
+		} catch (ReflectiveOperationException e) {
+			throw new RuntimeException("could not create a new instance of " + getClass().getName(), e);
+		}
+	}
+
+	@Override
+	public void merge(VolumesAnalyzer other) {
+		if (other.timeBinSize != this.timeBinSize || other.maxTime != this.maxTime || other.observeModes != this.observeModes) {
+			throw new IllegalArgumentException("cannot merge volumes with different settings");
+		}
+		for (Map.Entry<Id<Link>, int[]> e : other.links.entrySet()) {
+			int[] volumes = this.links.get(e.getKey());
+			if (volumes == null) {
+				this.links.put(e.getKey(), e.getValue().clone());
+			} else {
+				add(volumes, e.getValue());
+			}
+		}
+		if (this.observeModes) {
+			for (Map.Entry<Id<Link>, Map<String, int[]>> e : other.linksPerMode.entrySet()) {
+				Map<String, int[]> modeVolumes = this.linksPerMode.computeIfAbsent(e.getKey(), k -> new HashMap<>());
+				for (Map.Entry<String, int[]> m : e.getValue().entrySet()) {
+					int[] volumes = modeVolumes.get(m.getKey());
+					if (volumes == null) {
+						modeVolumes.put(m.getKey(), m.getValue().clone());
+					} else {
+						add(volumes, m.getValue());
+					}
+				}
+			}
+		}
+	}
+
+	private static void add(int[] volumes, int[] otherVolumes) {
+		for (int i = 0; i < volumes.length; i++) {
+			volumes[i] += otherVolumes[i];
+		}
+	}
+
 	@Override
 	public void reset(final int iteration) {
 		this.links.clear();
@@ -33,8 +33,8 @@ public class LinkEnterEvent extends Event implements HasLinkId {
 	public static final String ATTRIBUTE_VEHICLE = "vehicle";
 	public static final String ATTRIBUTE_LINK = "link";
 	
-	private final Id<Link> linkId;
-	private final Id<Vehicle> vehicleId;
+	private Id<Link> linkId;
+	private Id<Vehicle> vehicleId;
 
 	final static String missingVehicleIdMessage = "vehicleId=null in LinkEnter/LeaveEvent; this would cause problems downstream thus we are not accepting it";
 
@@ -69,11 +69,28 @@ public class LinkEnterEvent extends Event implements HasLinkId {
 		return vehicleId;
 	}
 
+	/**
+	 * Only for instances that are reused by the mobsim, see {@link org.matsim.core.events.ReusableEvent}.
+	 */
+	protected void setVehicleId(final Id<Vehicle> vehicleId) {
+		if ( vehicleId==null ) {
+			throw new RuntimeException( missingVehicleIdMessage ) ;
+		}
+		this.vehicleId = vehicleId;
+	}
+
+	/**
+	 * Only for instances that are reused by the mobsim, see {@link org.matsim.core.events.ReusableEvent}.
+	 */
+	protected void setLinkId(final Id<Link> linkId) {
+		this.linkId = linkId;
+	}
+
 	@Override
 	public Map<String, String> getAttributes() {
 		Map<String, String> attr = super.getAttributes();
-		attr.put(ATTRIBUTE_VEHICLE, this.vehicleId.toString());
-		attr.put(ATTRIBUTE_LINK, this.linkId.toString());
+		attr.put(ATTRIBUTE_VEHICLE, getVehicleId().toString());
+		attr.put(ATTRIBUTE_LINK, getLinkId().toString());
 		return attr;
 	}
 }
@@ -33,8 +33,8 @@ public class LinkLeaveEvent extends Event implements HasLinkId {
 	public static final String ATTRIBUTE_LINK = "link";
 	public static final String ATTRIBUTE_VEHICLE = "vehicle";
 	
-	private final Id<Link> linkId;
-	private final Id<Vehicle> vehicleId;
+	private Id<Link> linkId;
+	private Id<Vehicle> vehicleId;
 
 	final static String missingDriverIdMessage = "driver (or person) ID does no longer exist in LinkEnter/LeaveEvent; use vehicle ID instead. "
 			+ "See Vehicle2DriverEventHandler for an approach to reconstruct the driver ID and/or EventsConverterXML to convert your old event file.";
@@ -70,12 +70,29 @@ public class LinkLeaveEvent extends Event implements HasLinkId {
 	public Id<Vehicle> getVehicleId() {
 		return vehicleId;
 	}
+
+	/**
+	 * Only for instances that are reused by the mobsim, see {@link org.matsim.core.events.ReusableEvent}.
+	 */
+	protected void setVehicleId(final Id<Vehicle> vehicleId) {
+		if ( vehicleId==null ) {
+			throw new RuntimeException( LinkEnterEvent.missingVehicleIdMessage ) ;
+		}
+		this.vehicleId = vehicleId;
+	}
+
+	/**
+	 * Only for instances that are reused by the mobsim, see {@link org.matsim.core.events.ReusableEvent}.
+	 */
+	protected void setLinkId(final Id<Link> linkId) {
+		this.linkId = linkId;
+	}
 	
 	@Override
 	public Map<String, String> getAttributes() {
 		Map<String, String> attr = super.getAttributes();
-		attr.put(ATTRIBUTE_VEHICLE, this.vehicleId.toString());
-		attr.put(ATTRIBUTE_LINK, this.linkId.toString());
+		attr.put(ATTRIBUTE_VEHICLE, getVehicleId().toString());
+		attr.put(ATTRIBUTE_LINK, getLinkId().toString());
 		return attr;
 	}
 }
\ No newline at end of file
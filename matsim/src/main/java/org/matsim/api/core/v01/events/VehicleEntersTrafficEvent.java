@@ -35,11 +35,11 @@ public class VehicleEntersTrafficEvent extends Event implements HasPersonId, Has
 	public static final String ATTRIBUTE_NETWORKMODE = "networkMode";
 	public static final String ATTRIBUTE_POSITION = "relativePosition";
 
-	private final Id<Person> driverId;
-	private final Id<Link> linkId;
-	private final Id<Vehicle> vehicleId;
-	private final String networkMode;
-	private final double relativePositionOnLink;
+	private Id<Person> driverId;
+	private Id<Link> linkId;
+	private Id<Vehicle> vehicleId;
+	private String networkMode;
+	private double relativePositionOnLink;
 
 	
 	public VehicleEntersTrafficEvent(final double time, final Id<Person> driverId, final Id<Link> linkId, Id<Vehicle> vehicleId, String networkMode, double relativePositionOnLink) {
@@ -77,6 +77,18 @@ public class VehicleEntersTrafficEvent extends Event implements HasPersonId, Has
 	public double getRelativePositionOnLink() {
 		return relativePositionOnLink;
 	}
+
+	/**
+	 * Only for instances that are reused by the mobsim, see {@link org.matsim.core.events.ReusableEvent}.
+	 */
+	protected void set(final Id<Person> driverId, final Id<Link> linkId, final Id<Vehicle> vehicleId, final String networkMode,
+			final double relativePositionOnLink) {
+		this.driverId = driverId;
+		this.linkId = linkId;
+		this.vehicleId = vehicleId;
+		this.networkMode = networkMode;
+		this.relativePositionOnLink = relativePositionOnLink;
+	}
 	
 	@Override
 	public Map<String, String> getAttributes() {
@@ -86,10 +98,11 @@ public class VehicleEntersTrafficEvent extends Event implements HasPersonId, Has
 //		if (this.vehicleId != null) {
 //			attr.put(ATTRIBUTE_VEHICLE, this.vehicleId.toString());
 //		}
-		if (this.networkMode != null) {
+		String networkMode = getNetworkMode();
+		if (networkMode != null) {
 			attr.put(ATTRIBUTE_NETWORKMODE, networkMode);
 		}
-		attr.put(ATTRIBUTE_POSITION, Double.toString(this.relativePositionOnLink));
+		attr.put(ATTRIBUTE_POSITION, Double.toString(getRelativePositionOnLink()));
 		return attr;
 	}
 }
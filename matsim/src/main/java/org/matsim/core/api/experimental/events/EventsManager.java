@@ -58,6 +58,16 @@ public interface EventsManager {
 	 * of an EventsManager can then ensure that all events of the sim step have been processed.
 	 */
 	public void afterSimStep(double time);
+
+	/**
+	 * @return <code>true</code> if all events of a sim step are completely processed when {@link #afterSimStep(double)}
+	 * returns. Only then a mobsim may reuse event instances in the next sim step, see
+	 * {@link org.matsim.core.events.ReusableEvent}.
+	 */
+	default boolean isSynchronizedOnSimSteps() {
+		return false;
+	}
+
 	
 	/**
 	 * Called after the last event is sent for processing. The method must only return when all
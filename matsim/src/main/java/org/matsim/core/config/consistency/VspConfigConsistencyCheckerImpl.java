@@ -388,6 +388,8 @@ public final class VspConfigConsistencyCheckerImpl implements ConfigConsistencyC
 				System.out.flush();
 				break;
 			case SpeedyALT:
+			case SpeedyCH:
+			case SpeedyCRP:
 				break;
 		}
 		return problem;
@@ -33,9 +33,9 @@ import java.util.*;
 public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private static final Logger log = Logger.getLogger( ControlerConfigGroup.class );
 
-	public enum RoutingAlgorithmType {Dijkstra, AStarLandmarks, FastDijkstra, FastAStarLandmarks, SpeedyALT}
+	public enum RoutingAlgorithmType {Dijkstra, AStarLandmarks, FastDijkstra, FastAStarLandmarks, SpeedyALT, SpeedyCH, SpeedyCRP}
 
-	public enum EventsFileFormat {xml, pb, json}
+	public enum EventsFileFormat {xml, pb, json, binary}
 
 	public enum CompressionType {
 		none(""),
@@ -56,12 +56,14 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private static final String FIRST_ITERATION = "firstIteration";
 	private static final String LAST_ITERATION = "lastIteration";
 	private static final String ROUTINGALGORITHM_TYPE = "routingAlgorithmType";
+	private static final String ROUTING_CACHE_DIRECTORY = "routingCacheDirectory";
 	private static final String RUNID = "runId";
 	private static final String LINKTOLINK_ROUTING_ENABLED = "enableLinkToLinkRouting";
 	/*package*/ static final String EVENTS_FILE_FORMAT = "eventsFileFormat";
 	private static final String SNAPSHOT_FORMAT = "snapshotFormat";
 	private static final String WRITE_EVENTS_INTERVAL = "writeEventsInterval";
 	private static final String WRITE_PLANS_INTERVAL = "writePlansInterval";
+	private static final String WRITE_PLANS_IN_BACKGROUND = "writePlansInBackground";
 	private static final String WRITE_TRIPS_INTERVAL = "writeTripsInterval";
 	private static final String OVERWRITE_FILE = "overwriteFiles";
 	private static final String CREATE_GRAPHS = "createGraphs";
@@ -78,6 +80,7 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private int firstIteration = 0;
 	private int lastIteration = 1000;
 	private RoutingAlgorithmType routingAlgorithmType = RoutingAlgorithmType.AStarLandmarks;
+	private String routingCacheDirectory = null;
 
 	private boolean linkToLinkRoutingEnabled = false;
 
@@ -87,6 +90,7 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 
 	private int writeEventsInterval= 50;
 	private int writePlansInterval= 50;
+	private boolean writePlansInBackground = false;
 	private int writeTripsInterval = 50;
 	private String mobsim = MobsimType.qsim.toString();
 	private int writeSnapshotsInterval = 1;
@@ -103,6 +107,10 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	public final Map<String, String> getComments() {
 		Map<String,String> map = super.getComments();
 		map.put(ROUTINGALGORITHM_TYPE, "The type of routing (least cost path) algorithm used, may have the values: " + Arrays.toString(RoutingAlgorithmType.values()));
+		map.put(ROUTING_CACHE_DIRECTORY, "Default=null. Directory in which the SpeedyALT and SpeedyCRP routers store their preprocessed data, " +
+				"so later runs on the same network can re-use it. The files are named after a fingerprint of the network and settings, " +
+				"so the directory can be shared by different networks, modes and runs, also at the same time. Should not be inside the output directory, " +
+				"as that is deleted at the start of a run. If not set, nothing is stored.");
 		map.put(RUNID, "An identifier for the current run which is used as prefix for output files and mentioned in output xml files etc.");
 		map.put(EVENTS_FILE_FORMAT, "Default="+EventsFileFormat.xml+"; Specifies the file format for writing events. Currently supported: " + Arrays.toString(EventsFileFormat.values()) + IOUtils.NATIVE_NEWLINE+ "\t\t" +
 				"Multiple values can be specified separated by commas (',').");
@@ -112,6 +120,9 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
                 "to a file. `0' disables trips writing completely.");
 		map.put(WRITE_PLANS_INTERVAL, "iterationNumber % writePlansInterval == 0 defines (hopefully) in which iterations plans are " +
                 "written to a file. `0' disables plans writing completely.  Some plans in early iterations are always written");
+		map.put(WRITE_PLANS_IN_BACKGROUND, "Default=false. If enabled, a copy of the plans of an iteration is written by a background thread while the mobsim runs. " +
+				"The next plans dump waits for the previous one, so there is at most one copy in memory. At the end of the run, the output plans and events " +
+				"are written by a background thread while the other output files are written.");
 		map.put(LINKTOLINK_ROUTING_ENABLED, "Default=false. If enabled, the router takes travel times needed for turning moves into account."
 		        + " Cannot be used if the (Fast)AStarLandmarks routing or TravelTimeCalculator.separateModes is enabled.");
 		map.put(FIRST_ITERATION, "Default=0. First Iteration of a simulation.");
@@ -131,7 +142,8 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 				"Depending on the chosen mobsim, you'll have to add additional config modules to configure the corresponding mobsim." + IOUtils.NATIVE_NEWLINE + "\t\t" +
 				"For 'qsim', add a module 'qsim' to the config.");
 		
-		map.put(SNAPSHOT_FORMAT, "Comma-separated list of visualizer output file formats. `transims', `googleearth', and `otfvis'.");
+		map.put(SNAPSHOT_FORMAT, "Comma-separated list of visualizer output file formats. `transims', `googleearth', `otfvis', `positionevents', and `positionframes'. " +
+				"`positionframes' writes compact binary vehicle positions directly from the QNetsimEngine every qsim.snapshotperiod seconds.");
 		map.put(WRITE_SNAPSHOTS_INTERVAL, "iterationNumber % " + WRITE_SNAPSHOTS_INTERVAL + " == 0 defines in which iterations snapshots are written " +
 				"to a file. `0' disables snapshots writing completely");
 		map.put(DUMP_DATA_AT_END, "true if at the end of a run, plans, network, config etc should be dumped to a file");
@@ -264,7 +276,7 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 		this.eventsFileFormats = Collections.unmodifiableSet(EnumSet.copyOf(eventsFileFormats));
 	}
 	// ---
-	public enum SnapshotFormat { transims, googleearth, otfvis, positionevents }
+	public enum SnapshotFormat { transims, googleearth, otfvis, positionevents, positionframes }
 	private Set<SnapshotFormat> snapshotFormat = Collections.emptySet();
 
 	@StringSetter( SNAPSHOT_FORMAT )
@@ -331,6 +343,26 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	public void setWritePlansInterval(final int writePlansInterval) {
 		this.writePlansInterval = writePlansInterval;
 	}
+
+	@StringGetter( ROUTING_CACHE_DIRECTORY )
+	public String getRoutingCacheDirectory() {
+		return this.routingCacheDirectory;
+	}
+
+	@StringSetter( ROUTING_CACHE_DIRECTORY )
+	public void setRoutingCacheDirectory(final String routingCacheDirectory) {
+		this.routingCacheDirectory = routingCacheDirectory;
+	}
+
+	@StringGetter( WRITE_PLANS_IN_BACKGROUND )
+	public boolean getWritePlansInBackground() {
+		return this.writePlansInBackground;
+	}
+
+	@StringSetter( WRITE_PLANS_IN_BACKGROUND )
+	public void setWritePlansInBackground(final boolean writePlansInBackground) {
+		this.writePlansInBackground = writePlansInBackground;
+	}
 	
 	@StringGetter( WRITE_SNAPSHOTS_INTERVAL )
 	public int getWriteSnapshotsInterval() {
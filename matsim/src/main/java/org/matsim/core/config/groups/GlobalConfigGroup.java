@@ -38,6 +38,7 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 	@Override public Map<String, String> getComments() {
 		Map<String,String> map = super.getComments();
 		map.put(NUMBER_OF_THREADS, NUMBER_OF_THREADS_CMT ) ;
+		map.put(PLAN_SCHEDULING, PLAN_SCHEDULING_CMT ) ;
 		return map ;
 	}
 
@@ -93,6 +94,28 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 		this.numberOfThreads = numberOfThreads;
 	}
 	// ---
+	public enum PlanScheduling { roundRobin, dynamic }
+	private PlanScheduling planScheduling = PlanScheduling.roundRobin;
+	private static final String PLAN_SCHEDULING = "planScheduling";
+	private static final String PLAN_SCHEDULING_CMT = "How multi-threaded replanning modules distribute the plans to their threads.  "
+			+ "roundRobin: each thread gets the same number of plans in advance. "
+			+ "dynamic: idle threads take the next unhandled plan, and random numbers are seeded per person instead of per thread, "
+			+ "so results are reproducible but differ from roundRobin.";
+	/**
+	 * @return {@link #PLAN_SCHEDULING_CMT}
+	 */
+	@StringGetter( PLAN_SCHEDULING )
+	public PlanScheduling getPlanScheduling() {
+		return this.planScheduling;
+	}
+	/**
+	 * @param planScheduling -- {@link #PLAN_SCHEDULING_CMT}
+	 */
+	@StringSetter( PLAN_SCHEDULING )
+	public void setPlanScheduling(final PlanScheduling planScheduling) {
+		this.planScheduling = planScheduling;
+	}
+	// ---
 	private String coordinateSystem = "Atlantis" ;
 	// see https://matsim.atlassian.net/browse/MATSIM-898
 	private static final String COORDINATE_SYSTEM = "coordinateSystem";
@@ -20,6 +20,7 @@
 
 package org.matsim.core.config.groups;
 
+import java.util.Arrays;
 import java.util.Map;
 
 import org.matsim.core.config.ReflectiveConfigGroup;
@@ -49,6 +50,18 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 	private final static String EVENTS_QUEUE_SIZE_COMMENT = "Size of the events Queue. Increase for very large scenarios";
 	private int eventsQueueSize = 65536 * 2 ;
 
+	private final static String USE_RING_BUFFER = "useRingBuffer";
+	private final static String USE_RING_BUFFER_COMMENT = "If enabled together with " + ONE_THREAD_PER_HANDLER + ", events are passed to the handler threads through a "
+			+ "pre-allocated lock-free ring buffer of size " + EVENTS_QUEUE_SIZE + " instead of blocking queues.";
+	private Boolean useRingBuffer = false;
+
+	public enum RingBufferWaitStrategy {busySpin, park}
+
+	private final static String RING_BUFFER_WAIT_STRATEGY = "ringBufferWaitStrategy";
+	private final static String RING_BUFFER_WAIT_STRATEGY_COMMENT = "How threads wait on the ring buffer. " + RingBufferWaitStrategy.busySpin
+			+ " gives the lowest latency but keeps one core per handler busy, " + RingBufferWaitStrategy.park + " spins shortly and then parks the thread.";
+	private RingBufferWaitStrategy ringBufferWaitStrategy = RingBufferWaitStrategy.park;
+
 
 
 	private boolean locked = false;
@@ -67,6 +80,8 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 		comments.put(ONE_THREAD_PER_HANDLER, "If enabled, each event handler is assigned to its own thread. Note that enabling this feature disabled the " + NUMBER_OF_THREADS + " option! "
 				+ "This feature is still experimental!");
 		comments.put(EVENTS_QUEUE_SIZE,EVENTS_QUEUE_SIZE_COMMENT);
+		comments.put(USE_RING_BUFFER, USE_RING_BUFFER_COMMENT);
+		comments.put(RING_BUFFER_WAIT_STRATEGY, RING_BUFFER_WAIT_STRATEGY_COMMENT + " Possible values: " + Arrays.toString(RingBufferWaitStrategy.values()));
 		return comments;
 	}
 
@@ -144,6 +159,30 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 		}
 	}
 	
+	@StringGetter( USE_RING_BUFFER )
+	public Boolean getUseRingBuffer() {
+		return this.useRingBuffer;
+	}
+
+	@StringSetter( USE_RING_BUFFER )
+	public void setUseRingBuffer(Boolean useRingBuffer) {
+		if ( !this.locked ) {
+			this.useRingBuffer = useRingBuffer;
+		} else {
+			throw new RuntimeException("it is too late in the control flow to modify this parameter");
+		}
+	}
+
+	@StringGetter( RING_BUFFER_WAIT_STRATEGY )
+	public RingBufferWaitStrategy getRingBufferWaitStrategy() {
+		return this.ringBufferWaitStrategy;
+	}
+
+	@StringSetter( RING_BUFFER_WAIT_STRATEGY )
+	public void setRingBufferWaitStrategy(RingBufferWaitStrategy ringBufferWaitStrategy) {
+		this.ringBufferWaitStrategy = ringBufferWaitStrategy;
+	}
+
 	public void makeLocked() {
 		this.locked = true;
 	}
@@ -79,6 +79,24 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 	private static final String RANDOMNESS = "routingRandomness" ;
 	private double routingRandomness = 3. ;
 	// ---
+	private static final String BATCHED_ROUTING_TIME_BIN_SIZE = "batchedRoutingTimeBinSize" ;
+	private static final String BATCHED_ROUTING_TIME_BIN_SIZE_CMT = "If larger than 0, the trips of all plans handled by one replanning thread are routed together, "
+			+ "and network trips of the same mode starting at the same node within the same time bin of this size (in seconds) "
+			+ "are answered by a single least-cost-path tree.  Only used with accessEgressType=none and routingRandomness=0, "
+			+ "as with randomness the travel disutility differs per person.  "
+			+ "The routes are approximations if travel times change within a bin.  Default is 0, i.e. every trip is routed on its own." ;
+	private double batchedRoutingTimeBinSize = 0. ;
+	// ---
+	private static final String ROUTE_CACHE_SIZE = "routeCacheSize" ;
+	private static final String ROUTE_CACHE_SIZE_CMT = "If larger than 0, network routes are cached by mode, start node, end node and departure time bin "
+			+ "(of the travelTimeCalculator), and re-used in later iterations.  This is the maximum number of cached routes.  "
+			+ "Only used with routingRandomness=0, as with randomness the travel disutility differs per person.  Default is 0, i.e. no caching." ;
+	private int routeCacheSize = 0 ;
+	private static final String ROUTE_CACHE_INVALIDATION_THRESHOLD = "routeCacheInvalidationThreshold" ;
+	private static final String ROUTE_CACHE_INVALIDATION_THRESHOLD_CMT = "A cached route is calculated again once the summed absolute change "
+			+ "of the travel times on its links exceeds this fraction of its travel time." ;
+	private double routeCacheInvalidationThreshold = 0.05 ;
+	// ---
 	private static final String CLEAR_MODE_ROUTING_PARAMS = "clearDefaultTeleportedModeParams";
 	private static final String CLEAR_MODE_ROUTING_PARAMS_CMT = "Some typical teleportation routing params are set by default, such as for walk and bike.  " +
 																		"Setting this switch to \"true\" will clear them.  Note that this will also clear " +
@@ -467,6 +485,12 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 			this.setClearingDefaultModeRoutingParams( Boolean.parseBoolean( value ) );
 		} else if (RANDOMNESS.equals( key ) ) {
 			this.setRoutingRandomness( Double.parseDouble( value ) );
+		} else if (BATCHED_ROUTING_TIME_BIN_SIZE.equals( key ) ) {
+			this.setBatchedRoutingTimeBinSize( Double.parseDouble( value ) );
+		} else if (ROUTE_CACHE_SIZE.equals( key ) ) {
+			this.setRouteCacheSize( Integer.parseInt( value ) );
+		} else if (ROUTE_CACHE_INVALIDATION_THRESHOLD.equals( key ) ) {
+			this.setRouteCacheInvalidationThreshold( Double.parseDouble( value ) );
 		}
 		else if (ACCESSEGRESSTYPE.equals( key ) ) {
 			this.setAccessEgressType(AccessEgressType.valueOf(value));
@@ -482,6 +506,9 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 		map.put( NETWORK_MODES, CollectionUtils.arrayToString(this.networkModes.toArray( new String[0] ) ) );
 		map.put(  CLEAR_MODE_ROUTING_PARAMS, Boolean.toString( this.clearingDefaultModeRoutingParams ) ) ;
 		map.put(  RANDOMNESS, Double.toString( this.routingRandomness ) ) ;
+		map.put(  BATCHED_ROUTING_TIME_BIN_SIZE, Double.toString( this.batchedRoutingTimeBinSize ) ) ;
+		map.put(  ROUTE_CACHE_SIZE, Integer.toString( this.routeCacheSize ) ) ;
+		map.put(  ROUTE_CACHE_INVALIDATION_THRESHOLD, Double.toString( this.routeCacheInvalidationThreshold ) ) ;
 		map.put(  ACCESSEGRESSTYPE, getAccessEgressType().toString()) ;
 		return map;
 	}
@@ -498,6 +525,9 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 	          		+ "Technically the width parameter of a log-normal distribution. 3.0 seems to be a good value. " ) ;
 		map.put( CLEAR_MODE_ROUTING_PARAMS, CLEAR_MODE_ROUTING_PARAMS_CMT ) ;
 		map.put(ACCESSEGRESSTYPE, ACCESSEGRESSTYPE_CMT);
+		map.put(BATCHED_ROUTING_TIME_BIN_SIZE, BATCHED_ROUTING_TIME_BIN_SIZE_CMT);
+		map.put(ROUTE_CACHE_SIZE, ROUTE_CACHE_SIZE_CMT);
+		map.put(ROUTE_CACHE_INVALIDATION_THRESHOLD, ROUTE_CACHE_INVALIDATION_THRESHOLD_CMT);
 		return map;
 	}
 
@@ -601,6 +631,36 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 		this.routingRandomness = routingRandomness;
 	}
 
+	@StringGetter(BATCHED_ROUTING_TIME_BIN_SIZE)
+	public double getBatchedRoutingTimeBinSize() {
+		return batchedRoutingTimeBinSize;
+	}
+	@StringSetter(BATCHED_ROUTING_TIME_BIN_SIZE)
+	public void setBatchedRoutingTimeBinSize(double batchedRoutingTimeBinSize) {
+		testForLocked() ;
+		this.batchedRoutingTimeBinSize = batchedRoutingTimeBinSize;
+	}
+
+	@StringGetter(ROUTE_CACHE_SIZE)
+	public int getRouteCacheSize() {
+		return routeCacheSize;
+	}
+	@StringSetter(ROUTE_CACHE_SIZE)
+	public void setRouteCacheSize(int routeCacheSize) {
+		testForLocked() ;
+		this.routeCacheSize = routeCacheSize;
+	}
+
+	@StringGetter(ROUTE_CACHE_INVALIDATION_THRESHOLD)
+	public double getRouteCacheInvalidationThreshold() {
+		return routeCacheInvalidationThreshold;
+	}
+	@StringSetter(ROUTE_CACHE_INVALIDATION_THRESHOLD)
+	public void setRouteCacheInvalidationThreshold(double routeCacheInvalidationThreshold) {
+		testForLocked() ;
+		this.routeCacheInvalidationThreshold = routeCacheInvalidationThreshold;
+	}
+
 	@Override protected void checkConsistency(Config config) {
 		super.checkConsistency(config);
 		Set<String> modesRoutedAsTeleportation = this.getModeRoutingParams().keySet();
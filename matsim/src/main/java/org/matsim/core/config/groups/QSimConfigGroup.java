@@ -224,6 +224,9 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		map.put(SEEP_MODE, "If link dynamics is set as " + LinkDynamics.SeepageQ + ", set a seep mode. Default is bike.");
 		map.put(IS_SEEP_MODE_STORAGE_FREE, "If link dynamics is set as " + LinkDynamics.SeepageQ + ", set to true if seep mode do not consumes any space on the link. Default is false.");
 		map.put(IS_RESTRICTING_SEEPAGE, "If link dynamics is set as " + LinkDynamics.SeepageQ + ", set to false if all seep modes should perform seepage. Default is true (better option).");
+		map.put(USING_POOLED_LINK_EVENTS, "If true, the network engine reuses the instances of link enter, link leave and vehicle enters traffic "
+				+ "events from one time step to the next instead of creating new ones. Event handlers not implementing NonRetainingEventHandler "
+				+ "get copies. Only effective if the events manager is synchronized on sim steps. Default is false.");
 		map.put(FILTER_SNAPSHOTS, "If set to " + FilterSnapshots.withLinkAttributes + " snapshots will only be generated for links which include " + SnapshotWritersModule.GENERATE_SNAPSHOT_FOR_LINK_KEY + " as attribute key. Default is no filtering.");
 //		map.put(CREATING_VEHICLES_FOR_ALL_NETWORK_MODES, "If set to true, creates a vehicle for each person corresponding to every network mode. However, " +
 //				"this will be overridden if vehicle source is "+ VehiclesSource.fromVehiclesData+".");
@@ -631,6 +634,17 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		this.isRestrictingSeepage = isRestrictingSeepage;
 	}
 	// ---
+	private static final String USING_POOLED_LINK_EVENTS = "usingPooledLinkEvents";
+	private boolean usingPooledLinkEvents = false;
+	@StringGetter(USING_POOLED_LINK_EVENTS)
+	public boolean isUsingPooledLinkEvents() {
+		return usingPooledLinkEvents;
+	}
+	@StringSetter(USING_POOLED_LINK_EVENTS)
+	public void setUsingPooledLinkEvents(boolean usingPooledLinkEvents) {
+		this.usingPooledLinkEvents = usingPooledLinkEvents;
+	}
+	// ---
 	private boolean usingTravelTimeCheckInTeleportation = false ;
 	public boolean isUsingTravelTimeCheckInTeleportation() {
 		// yyyyyy this should better become a threshold number!  kai, aug'16
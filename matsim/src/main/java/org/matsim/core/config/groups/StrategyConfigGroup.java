@@ -277,6 +277,9 @@ public final class StrategyConfigGroup extends ConfigGroup {
 		Map<String,String> map = super.getComments();
 		map.put(ReflectiveDelegate.ITERATION_FRACTION_TO_DISABLE_INNOVATION, "fraction of iterations where innovative strategies are switched off.  Something like 0.8 should be good.  E.g. if you run from iteration 400 to iteration 500, innovation is switched off at iteration 480" ) ;
 		map.put(ReflectiveDelegate.MAX_AGENT_PLAN_MEMORY_SIZE, "maximum number of plans per agent.  ``0'' means ``infinity''.  Currently (2010), ``5'' is a good number");
+		map.put(ReflectiveDelegate.COMPACT_UNSELECTED_PLANS, "if true, the activities, legs and routes of the unselected plans are stored in a compact binary form after replanning, "
+				+ "and decoded again when they are accessed.  Reduces the memory needed for large values of " + ReflectiveDelegate.MAX_AGENT_PLAN_MEMORY_SIZE + ".  "
+				+ "Decoding creates new activity, leg and route objects, so modules must not keep references to them across iterations.  Default is false.");
 
 		StringBuilder strb = new StringBuilder() ;
 		for ( DefaultPlansRemover name : DefaultPlansRemover.values() ) {
@@ -355,6 +358,14 @@ public final class StrategyConfigGroup extends ConfigGroup {
 		return delegate.getMaxAgentPlanMemorySize();
 	}
 
+	public void setCompactUnselectedPlans(boolean compactUnselectedPlans) {
+		delegate.setCompactUnselectedPlans(compactUnselectedPlans);
+	}
+
+	public boolean isCompactUnselectedPlans() {
+		return delegate.isCompactUnselectedPlans();
+	}
+
 	public void setExternalExeConfigTemplate(String externalExeConfigTemplate) {
 		delegate.setExternalExeConfigTemplate(externalExeConfigTemplate);
 	}
@@ -411,6 +422,7 @@ public final class StrategyConfigGroup extends ConfigGroup {
 
 	private static class ReflectiveDelegate extends ReflectiveConfigGroup {
 		 static final String MAX_AGENT_PLAN_MEMORY_SIZE = "maxAgentPlanMemorySize";
+		 static final String COMPACT_UNSELECTED_PLANS = "compactUnselectedPlans";
 		 static final String EXTERNAL_EXE_CONFIG_TEMPLATE = "ExternalExeConfigTemplate";
 		 static final String EXTERNAL_EXE_TMP_FILE_ROOT_DIR = "ExternalExeTmpFileRootDir";
 		 static final String EXTERNAL_EXE_TIME_OUT = "ExternalExeTimeOut";
@@ -418,6 +430,7 @@ public final class StrategyConfigGroup extends ConfigGroup {
 		 static final String PLAN_SELECTOR_FOR_REMOVAL = "planSelectorForRemoval" ;
 
 		private int maxAgentPlanMemorySize = 5;
+		private boolean compactUnselectedPlans = false;
 		private String externalExeConfigTemplate = null;
 		private String externalExeTmpFileRootDir = null;
 		private long externalExeTimeOut = 3600;
@@ -443,6 +456,16 @@ public final class StrategyConfigGroup extends ConfigGroup {
 			return this.maxAgentPlanMemorySize;
 		}
 
+		@StringSetter( COMPACT_UNSELECTED_PLANS )
+		public void setCompactUnselectedPlans(final boolean compactUnselectedPlans) {
+			this.compactUnselectedPlans = compactUnselectedPlans;
+		}
+
+		@StringGetter( COMPACT_UNSELECTED_PLANS )
+		public boolean isCompactUnselectedPlans() {
+			return this.compactUnselectedPlans;
+		}
+
 		@StringSetter( EXTERNAL_EXE_CONFIG_TEMPLATE )
 		public void setExternalExeConfigTemplate(final String externalExeConfigTemplate) {
 			this.externalExeConfigTemplate = externalExeConfigTemplate;
@@ -35,6 +35,10 @@ import java.util.Set;
  *
  * An attempt at making analysis modules reusable by emulating parts of the ControlerListener
  * protocol while reading an events file.
+ * <p>
+ * Events are replayed on a single thread. Handlers implementing
+ * {@link org.matsim.core.events.handler.MergeableEventHandler} can also be replayed on several threads with
+ * {@link org.matsim.core.events.ParallelEventsReplay}.
  *
  * @author michaz
  */
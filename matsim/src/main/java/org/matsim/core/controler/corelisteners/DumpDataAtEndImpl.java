@@ -61,8 +61,14 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @Singleton
 final class DumpDataAtEndImpl implements DumpDataAtEnd, ShutdownListener {
@@ -119,32 +125,66 @@ final class DumpDataAtEndImpl implements DumpDataAtEnd, ShutdownListener {
 		if ( event.isUnexpected() ) {
 			return ;
 		}
-		dumpPlans();
-		dumpNetwork();
-		dumpConfig();
-		dumpFacilities();
-		dumpNetworkChangeEvents();
-
-		dumpTransitSchedule();
-		dumpTransitVehicles();
-		dumpVehicles();
-		dumpHouseholds();
-		dumpLanes();
-		dumpCounts();
-
-		if (!event.isUnexpected() && this.vspConfig.isWritingOutputEvents() && (this.controlerConfigGroup.getWriteEventsInterval()!=0)) {
-			dumpOutputEvents(event.getIteration());
+		// the output plans and events are usually by far the largest files, so write them in parallel to the other files if allowed
+		final boolean writeEvents = this.vspConfig.isWritingOutputEvents() && (this.controlerConfigGroup.getWriteEventsInterval()!=0);
+		ExecutorService executor = null;
+		List<Future<?>> backgroundDumps = new ArrayList<>();
+		if ( this.controlerConfigGroup.getWritePlansInBackground() ) {
+			executor = Executors.newSingleThreadExecutor(r -> {
+				Thread thread = new Thread(r, "DumpDataAtEnd");
+				thread.setDaemon(true);
+				return thread;
+			});
+			backgroundDumps.add(executor.submit(this::dumpPlans));
+			if ( writeEvents ) {
+				backgroundDumps.add(executor.submit(() -> dumpOutputEvents(event.getIteration())));
+			}
 		}
-		dumpOutputTrips(event.getIteration());
-        dumpOutputLegs(event.getIteration());
-		dumpExperiencedPlans(event.getIteration()) ;
+		try {
+			if ( executor == null ) {
+				dumpPlans();
+			}
+			dumpNetwork();
+			dumpConfig();
+			dumpFacilities();
+			dumpNetworkChangeEvents();
+
+			dumpTransitSchedule();
+			dumpTransitVehicles();
+			dumpVehicles();
+			dumpHouseholds();
+			dumpLanes();
+			dumpCounts();
+
+			if ( executor == null && writeEvents ) {
+				dumpOutputEvents(event.getIteration());
+			}
+			dumpOutputTrips(event.getIteration());
+			dumpOutputLegs(event.getIteration());
+			dumpExperiencedPlans(event.getIteration()) ;
 
+			for ( Future<?> dump : backgroundDumps ) {
+				try {
+					dump.get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new RuntimeException(e);
+				} catch (ExecutionException e) {
+					throw new RuntimeException("Exception while dumping output data.", e.getCause());
+				}
+			}
+		} finally {
+			if ( executor != null ) {
+				executor.shutdown();
+			}
+		}
 	}
 
 	private void dumpOutputEvents(int iteration) {
 		for (ControlerConfigGroup.EventsFileFormat format : this.controlerConfigGroup.getEventsFileFormats()) {
 			try {
 				Controler.DefaultFiles file;
+				ControlerConfigGroup.CompressionType compression = this.controlerConfigGroup.getCompressionType();
 				switch (format) {
 					case xml:
 						file = Controler.DefaultFiles.events;
@@ -155,12 +195,16 @@ final class DumpDataAtEndImpl implements DumpDataAtEnd, ShutdownListener {
 					case json:
 						file = Controler.DefaultFiles.eventsJson;
 						break;
+					case binary:
+						file = Controler.DefaultFiles.eventsBinary;
+						compression = ControlerConfigGroup.CompressionType.none;
+						break;
 					default:
 						continue;
 				}
 
-				File toFile = new File(this.controlerIO.getOutputFilename(file));
-				File fromFile = new File(this.controlerIO.getIterationFilename(iteration, file));
+				File toFile = new File(this.controlerIO.getOutputFilename(file, compression));
+				File fromFile = new File(this.controlerIO.getIterationFilename(iteration, file, compression));
 				try {
 					Files.copy(fromFile.toPath(), toFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
 				} catch (IOException e) {
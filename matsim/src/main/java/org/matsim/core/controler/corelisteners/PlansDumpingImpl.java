@@ -20,9 +20,16 @@
 
 package org.matsim.core.controler.corelisteners;
 
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import org.apache.log4j.Logger;
 import org.matsim.analysis.IterationStopWatch;
 import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.api.core.v01.population.PopulationWriter;
 import org.matsim.core.config.Config;
@@ -30,7 +37,11 @@ import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.controler.Controler;
 import org.matsim.core.controler.OutputDirectoryHierarchy;
 import org.matsim.core.controler.events.BeforeMobsimEvent;
+import org.matsim.core.controler.events.ShutdownEvent;
 import org.matsim.core.controler.listener.BeforeMobsimListener;
+import org.matsim.core.controler.listener.ShutdownListener;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.utils.objectattributes.attributable.AttributesUtils;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
@@ -43,11 +54,16 @@ import org.matsim.core.utils.geometry.transformations.TransformationFactory;
  * ({@link ControlerConfigGroup#getWritePlansInterval()} as well as in the first
  * iteration, just in case someone might check that the replanning worked
  * correctly in the first iteration.
+ * <p>
+ * If {@link ControlerConfigGroup#getWritePlansInBackground()} is set, a copy of the population is taken
+ * before the mobsim, and the file is written by a background thread while the mobsim runs. The copy
+ * contains its own plan elements and routes, as the mobsim and within-day replanning may modify them.
+ * A new dump waits for the previous one, so there is at most one copy in memory.
  *
  * @author mrieser
  */
 @Singleton
-final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener {
+final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener, ShutdownListener {
 
 	static final private Logger log = Logger.getLogger(PlansDumpingImpl.class);
 
@@ -60,10 +76,15 @@ final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener {
 
 	private int writeMoreUntilIteration;
 
+	private final boolean writeInBackground;
+	private ExecutorService executor = null;
+	private Future<?> pendingDump = null;
+
 	@Inject
 	PlansDumpingImpl(ControlerConfigGroup config) {
 		this.writePlansInterval = config.getWritePlansInterval();
 		this.writeMoreUntilIteration = config.getWritePlansUntilIteration() ;
+		this.writeInBackground = config.getWritePlansInBackground();
 	}
 
 	@Override
@@ -77,8 +98,16 @@ final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener {
 			final String inputCRS = config.plans().getInputCRS();
 			final String internalCRS = config.global().getCoordinateSystem();
 
+			if ( writeInBackground && pendingDump != null ) {
+				stopwatch.beginOperation("wait for plans dump");
+				awaitPendingDump();
+				stopwatch.endOperation("wait for plans dump");
+			}
+
+			final PopulationWriter writer;
+			final Population populationToWrite = writeInBackground ? createSnapshot(population) : population;
 			if ( inputCRS == null ) {
-				new PopulationWriter(population, network).write(controlerIO.getIterationFilename(event.getIteration(), Controler.DefaultFiles.population));
+				writer = new PopulationWriter(populationToWrite, network);
 			}
 			else {
 				log.info( "re-projecting population from "+internalCRS+" back to "+inputCRS+" for export" );
@@ -88,11 +117,81 @@ final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener {
 								internalCRS,
 								inputCRS );
 
-				new PopulationWriter(transformation, population, network).write(controlerIO.getIterationFilename(event.getIteration(), Controler.DefaultFiles.population));
+				writer = new PopulationWriter(transformation, populationToWrite, network);
+			}
+			final String filename = controlerIO.getIterationFilename(event.getIteration(), Controler.DefaultFiles.population);
+			if ( writeInBackground ) {
+				if ( executor == null ) {
+					executor = Executors.newSingleThreadExecutor(r -> {
+						Thread thread = new Thread(r, "PlansDumping");
+						thread.setDaemon(true);
+						return thread;
+					});
+				}
+				pendingDump = executor.submit(() -> {
+					writer.write(filename);
+					log.info("finished background plans dump of iteration " + event.getIteration() + ".");
+				});
+				stopwatch.endOperation("dump all plans");
+				return;
 			}
+			writer.write(filename);
 			log.info("finished plans dump.");
 			stopwatch.endOperation("dump all plans");
 		}
 	}
 
+	@Override
+	public void notifyShutdown(final ShutdownEvent event) {
+		try {
+			awaitPendingDump();
+		} finally {
+			if ( executor != null ) {
+				executor.shutdown();
+				executor = null;
+			}
+		}
+	}
+
+	private void awaitPendingDump() {
+		if ( pendingDump == null ) {
+			return;
+		}
+		try {
+			pendingDump.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Exception while dumping plans.", e.getCause());
+		} finally {
+			pendingDump = null;
+		}
+	}
+
+	/**
+	 * Copies the persons and plans with their scores, types, attributes and plan elements including the
+	 * routes. This is cheap compared to writing the population, and makes the snapshot independent of the
+	 * mobsim, which e.g. sets the vehicle ids of the routes, and of the scoring and replanning.
+	 */
+	private Population createSnapshot(Population population) {
+		Population snapshot = PopulationUtils.createPopulation(config.plans(), network);
+		snapshot.setName(population.getName());
+		AttributesUtils.copyAttributesFromTo(population, snapshot);
+		for (Person person : population.getPersons().values()) {
+			Person personCopy = snapshot.getFactory().createPerson(person.getId());
+			AttributesUtils.copyAttributesFromTo(person, personCopy);
+			for (Plan plan : person.getPlans()) {
+				Plan planCopy = snapshot.getFactory().createPlan();
+				PopulationUtils.copyFromTo(plan, planCopy);
+				personCopy.addPlan(planCopy);
+				if (plan == person.getSelectedPlan()) {
+					personCopy.setSelectedPlan(planCopy);
+				}
+			}
+			snapshot.addPerson(personCopy);
+		}
+		return snapshot;
+	}
+
 }
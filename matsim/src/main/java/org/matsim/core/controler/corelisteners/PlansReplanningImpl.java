@@ -20,9 +20,13 @@
 
 package org.matsim.core.controler.corelisteners;
 
+import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.config.groups.StrategyConfigGroup;
 import org.matsim.core.controler.events.ReplanningEvent;
 import org.matsim.core.controler.listener.ReplanningListener;
+import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.replanning.ReplanningContext;
 import org.matsim.core.replanning.StrategyManager;
 
@@ -42,20 +46,32 @@ import javax.inject.Provider;
 @Singleton
 final class PlansReplanningImpl implements PlansReplanning, ReplanningListener {
 
+	private static final Logger log = Logger.getLogger(PlansReplanningImpl.class);
+
 	private final Provider<ReplanningContext> replanningContextProvider;
 	private Population population;
 	private StrategyManager strategyManager;
+	private final boolean compactUnselectedPlans;
+	private final int numberOfThreads;
 	
 	@Inject
-	PlansReplanningImpl(StrategyManager strategyManager, Population pop, Provider<ReplanningContext> replanningContextProvider) {
+	PlansReplanningImpl(StrategyManager strategyManager, Population pop, Provider<ReplanningContext> replanningContextProvider,
+			StrategyConfigGroup strategyConfig, GlobalConfigGroup globalConfig) {
 		this.population = pop;
 		this.strategyManager = strategyManager;
 		this.replanningContextProvider = replanningContextProvider;
+		this.compactUnselectedPlans = strategyConfig.isCompactUnselectedPlans();
+		this.numberOfThreads = globalConfig.getNumberOfThreads();
 	}
 
 	@Override
 	public void notifyReplanning(final ReplanningEvent event) {
 		strategyManager.run(population, event.getIteration(), replanningContextProvider.get());
+		if (compactUnselectedPlans) {
+			// plans that were selected or modified by the replanning were decoded, they are compacted again once they are no longer selected
+			int count = PopulationUtils.compactUnselectedPlans(population, numberOfThreads);
+			log.info(count + " unselected plans are stored in compact form.");
+		}
 	}
 
 }
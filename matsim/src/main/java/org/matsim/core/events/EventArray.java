@@ -38,6 +38,15 @@ public class EventArray {
 		return array[index];
 	}
 
+	/**
+	 * Drops the reference to the event at the given index, without changing the size. The event must not be
+	 * accessed through this array afterwards.
+	 */
+	public void release(int index) {
+		assert index < size;
+		array[index] = null;
+	}
+
 	public void clear() {
 		for (int i = 0; i < size; i++) {
 			array[i] = null;
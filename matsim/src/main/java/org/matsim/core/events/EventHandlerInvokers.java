@@ -0,0 +1,115 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.events.handler.EventHandler;
+
+/**
+ * Creates the objects that call a <code>handleEvent</code> method of an {@link EventHandler}.
+ * <p>
+ * For every combination of handler class and handler method, a small class is generated through the
+ * {@link LambdaMetafactory} that casts the event and calls the method of the concrete handler class directly. Each
+ * of these classes thus contains exactly one call site which only ever sees one receiver type, so the JIT can inline
+ * the handler. This works for any handler interface, including the ones defined in contribs. Only if no class can be
+ * generated, e.g. because the module system denies access, the method is called by reflection.
+ * <p>
+ * The generated objects are cached per handler class, so adding further instances of the same handler class is cheap.
+ * The cache belongs to an events manager and not to the handler classes, so it does not keep handler classes and
+ * their class loaders alive longer than the events manager.
+ */
+final class EventHandlerInvokers {
+
+	private static final Logger log = Logger.getLogger(EventHandlerInvokers.class);
+
+	private static final MethodType INVOKER_TYPE = MethodType.methodType(BiConsumer.class);
+	private static final MethodType ACCEPT_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+	private final Map<Class<?>, Map<Method, BiConsumer<EventHandler, Event>>> cache = new ConcurrentHashMap<>();
+
+	/**
+	 * @param handlerClass the concrete class of the handler
+	 * @param method the <code>handleEvent</code> method of a handler interface implemented by <code>handlerClass</code>
+	 * @return an object that calls <code>method</code> on a handler of type <code>handlerClass</code>. Exceptions of the
+	 * handler are passed through unchanged.
+	 */
+	BiConsumer<EventHandler, Event> get(final Class<?> handlerClass, final Method method) {
+		return this.cache.computeIfAbsent(handlerClass, c -> new ConcurrentHashMap<>(4))
+				.computeIfAbsent(method, m -> create(handlerClass, m));
+	}
+
+	/**
+	 * Same as {@link #get(Class, Method)}, but without caching.
+	 */
+	static BiConsumer<EventHandler, Event> create(final Class<?> handlerClass, final Method method) {
+		Class<?> eventClass = method.getParameterTypes()[0];
+		MethodType handleEventType = MethodType.methodType(void.class, eventClass);
+		// prefer the concrete class as receiver, so the generated call site is monomorphic
+		for (Class<?> receiver : new Class<?>[] { handlerClass, method.getDeclaringClass() }) {
+			try {
+				MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(receiver, MethodHandles.lookup());
+				MethodHandle target = lookup.findVirtual(receiver, method.getName(), handleEventType);
+				CallSite site = LambdaMetafactory.metafactory(lookup, "accept", INVOKER_TYPE, ACCEPT_TYPE, target,
+						MethodType.methodType(void.class, receiver, eventClass));
+				@SuppressWarnings("unchecked")
+				BiConsumer<EventHandler, Event> invoker = (BiConsumer<EventHandler, Event>) site.getTarget().invoke();
+				return invoker;
+			} catch (Throwable e) {
+				log.debug("could not generate event handler call for " + receiver.getName() + "." + method.getName() + "(" + eventClass.getName() + ")", e);
+			}
+		}
+		log.warn("calling " + handlerClass.getName() + "." + method.getName() + "(" + eventClass.getName() + ") by reflection, this is slow.");
+		return new ReflectiveInvoker(method);
+	}
+
+	private static final class ReflectiveInvoker implements BiConsumer<EventHandler, Event> {
+		private final Method method;
+
+		ReflectiveInvoker(final Method method) {
+			this.method = method;
+		}
+
+		@Override
+		public void accept(final EventHandler handler, final Event event) {
+			try {
+				this.method.invoke(handler, event);
+			} catch (IllegalAccessException e) {
+				throw new RuntimeException(e);
+			} catch (InvocationTargetException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+				if (cause instanceof Error) throw (Error) cause;
+				throw new RuntimeException(cause);
+			}
+		}
+	}
+}
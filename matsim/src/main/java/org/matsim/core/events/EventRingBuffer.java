@@ -0,0 +1,163 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup.RingBufferWaitStrategy;
+
+/**
+ * Pre-allocated, lock-free ring buffer that passes events from any number of producers to a fixed number of
+ * consumers. Every consumer sees every event, in the order of the claimed sequence numbers.
+ * <p>
+ * Producers claim slots by incrementing a shared counter and mark each slot as published with the round in which
+ * it was written. They only wait if the slowest consumer is a full buffer behind. Consumers track the last
+ * sequence they processed. The last consumer to take an event from a slot clears the slot, so the buffer does not keep
+ * processed events alive.
+ */
+final class EventRingBuffer {
+
+	// number of longs between two consumer sequences, avoids false sharing of cache lines
+	private static final int PADDING = 16;
+	private static final int SPIN_TRIES = 100;
+	private static final long PARK_NANOS = 1000;
+
+	private final Event[] slots;
+	private final int mask;
+	private final int shift;
+	// round (sequence >>> shift) in which a slot was published last
+	private final AtomicIntegerArray published;
+	// number of consumers which did not take the event from a slot yet
+	private final AtomicIntegerArray pending;
+	private final AtomicLong claimed = new AtomicLong(-1);
+	// last sequence processed per consumer
+	private final AtomicLongArray consumed;
+	private final int consumers;
+	private final RingBufferWaitStrategy waitStrategy;
+	private volatile long cachedMinConsumed = -1;
+
+	EventRingBuffer(int minimalSize, int consumers, RingBufferWaitStrategy waitStrategy) {
+		int size = Integer.highestOneBit(Math.max(2, minimalSize - 1)) << 1;
+		this.slots = new Event[size];
+		this.mask = size - 1;
+		this.shift = Integer.numberOfTrailingZeros(size);
+		this.published = new AtomicIntegerArray(size);
+		for (int i = 0; i < size; i++) {
+			this.published.set(i, -1);
+		}
+		this.pending = new AtomicIntegerArray(size);
+		this.consumers = consumers;
+		this.consumed = new AtomicLongArray(Math.max(1, consumers) * PADDING);
+		for (int i = 0; i < consumers; i++) {
+			this.consumed.set(i * PADDING, -1);
+		}
+		this.waitStrategy = waitStrategy;
+	}
+
+	int capacity() {
+		return this.slots.length;
+	}
+
+	/**
+	 * Claims the next {@code n} slots and returns the highest claimed sequence. Blocks until all of them are free.
+	 */
+	long claim(int n) {
+		long highest = this.claimed.addAndGet(n);
+		long wrapPoint = highest - this.slots.length;
+		if (wrapPoint > this.cachedMinConsumed) {
+			long min;
+			int counter = 0;
+			while (wrapPoint > (min = minConsumed())) {
+				idle(counter++);
+			}
+			this.cachedMinConsumed = min;
+		}
+		return highest;
+	}
+
+	void publish(long sequence, Event event) {
+		int index = (int) sequence & this.mask;
+		if (this.consumers > 0) {
+			// nobody would ever take the event from the slot otherwise
+			this.slots[index] = event;
+			this.pending.lazySet(index, this.consumers);
+		}
+		this.published.lazySet(index, (int) (sequence >>> this.shift));
+	}
+
+	boolean isPublished(long sequence) {
+		return this.published.get((int) sequence & this.mask) == (int) (sequence >>> this.shift);
+	}
+
+	/**
+	 * Must only be called for published sequences.
+	 */
+	Event get(long sequence) {
+		return this.slots[(int) sequence & this.mask];
+	}
+
+	/**
+	 * Returns the event of a published sequence, and clears the slot if all consumers have taken the event. Must be
+	 * called once per consumer and sequence, before the consumer marks the sequence as consumed.
+	 */
+	Event take(long sequence) {
+		int index = (int) sequence & this.mask;
+		Event event = this.slots[index];
+		if (this.pending.decrementAndGet(index) == 0) {
+			this.slots[index] = null;
+		}
+		return event;
+	}
+
+	void markConsumed(int consumer, long sequence) {
+		this.consumed.lazySet(consumer * PADDING, sequence);
+	}
+
+	/**
+	 * Blocks until every consumer has processed all sequences claimed so far.
+	 */
+	void awaitConsumed() {
+		long target = this.claimed.get();
+		int counter = 0;
+		while (minConsumed() < target) {
+			idle(counter++);
+		}
+	}
+
+	void idle(int counter) {
+		if (this.waitStrategy == RingBufferWaitStrategy.busySpin || counter < SPIN_TRIES) {
+			Thread.onSpinWait();
+		} else {
+			LockSupport.parkNanos(PARK_NANOS);
+		}
+	}
+
+	private long minConsumed() {
+		long min = Long.MAX_VALUE;
+		for (int i = 0; i < this.consumers; i++) {
+			min = Math.min(min, this.consumed.get(i * PADDING));
+		}
+		return min;
+	}
+}
@@ -35,7 +35,11 @@ public final class EventsManagerModule extends AbstractModule {
 	@Override
 	public void install() {
 		if (BooleanUtils.isTrue(getConfig().parallelEventHandling().getOneThreadPerHandler())) {
-			bindEventsManager().to(ParallelEventsManager.class).in(Singleton.class);
+			if (BooleanUtils.isTrue(getConfig().parallelEventHandling().getUseRingBuffer())) {
+				bindEventsManager().to(RingBufferEventsManager.class).in(Singleton.class);
+			} else {
+				bindEventsManager().to(ParallelEventsManager.class).in(Singleton.class);
+			}
 		} else if (getConfig().parallelEventHandling().getNumberOfThreads() != null) {
 			if (BooleanUtils.isTrue(getConfig().parallelEventHandling().getSynchronizeOnSimSteps())) {
 				bindEventsManager().to(SimStepParallelEventsManagerImpl.class).in(Singleton.class);
@@ -0,0 +1,319 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.MatsimEventsReader.CustomEventMapper;
+import org.matsim.core.events.algorithms.EventWriterBinary;
+import org.matsim.core.events.handler.EventHandler;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.xml.sax.helpers.AttributesImpl;
+
+import com.github.luben.zstd.Zstd;
+
+/**
+ * Reads events written by {@link EventWriterBinary}.
+ * <p>
+ * The file is read sequentially, but the blocks are decompressed and decoded into events by several threads. The
+ * events are passed to the {@link EventsManager} in the calling thread and in the order they were written. The
+ * events are created the same way as by {@link EventsReaderXMLv1}, so the same event classes are produced as when
+ * reading an xml file. Custom event mappers are called from the decoding threads and thus must be thread-safe.
+ */
+public final class EventsReaderBinary {
+
+	private final static Logger log = Logger.getLogger(EventsReaderBinary.class);
+
+	private final EventsManager events;
+	private final Map<String, CustomEventMapper> customEventMappers = new HashMap<>();
+	private int numberOfThreads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+
+	public EventsReaderBinary(final EventsManager events) {
+		this.events = events;
+	}
+
+	public void addCustomEventMapper(String eventType, CustomEventMapper cem) {
+		this.customEventMappers.put(eventType, cem);
+	}
+
+	public void setNumberOfThreads(int numberOfThreads) {
+		this.numberOfThreads = numberOfThreads;
+	}
+
+	/**
+	 * @return <code>true</code> if the file starts like a file written by {@link EventWriterBinary}.
+	 */
+	public static boolean isBinaryEventsFile(final String filename) {
+		try (DataInputStream in = new DataInputStream(IOUtils.getInputStream(IOUtils.getFileUrl(filename)))) {
+			return in.readLong() == EventWriterBinary.MAGIC;
+		} catch (IOException | UncheckedIOException e) {
+			return false;
+		}
+	}
+
+	public void parse(final String filename) throws UncheckedIOException {
+		log.info("starting to read binary events from " + filename);
+		parse(IOUtils.getInputStream(IOUtils.getFileUrl(filename)));
+	}
+
+	public void parse(final URL url) throws UncheckedIOException {
+		log.info("starting to read binary events from url " + url);
+		parse(IOUtils.getInputStream(url));
+	}
+
+	public void parse(final InputStream stream) throws UncheckedIOException {
+		ExecutorService executor = Executors.newFixedThreadPool(this.numberOfThreads, r -> {
+			Thread thread = new Thread(r, "EventsReaderBinary");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 1 << 16))) {
+			if (in.readLong() != EventWriterBinary.MAGIC) {
+				throw new IllegalArgumentException("not a binary events file");
+			}
+			int version = in.readInt();
+			if (version != EventWriterBinary.VERSION) {
+				throw new IllegalArgumentException("unsupported version of binary events file: " + version);
+			}
+
+			// both arrays are only appended to, so a task can safely use the array it got even if the arrays grow later
+			String[] dictionary = new String[1024];
+			int dictionarySize = 0;
+			String[][] shapes = new String[16][];
+			int shapesSize = 0;
+
+			Deque<Future<EventArray>> pending = new ArrayDeque<>();
+			int count;
+			while ((count = in.readInt()) > 0) {
+				ByteReader header = new ByteReader(readCompressed(in));
+				int newStrings = (int) header.readVarLong();
+				if (dictionarySize + newStrings > dictionary.length) {
+					dictionary = Arrays.copyOf(dictionary, Math.max(dictionary.length * 2, dictionarySize + newStrings));
+				}
+				for (int i = 0; i < newStrings; i++) {
+					dictionary[dictionarySize++] = header.readString();
+				}
+				int newShapes = (int) header.readVarLong();
+				if (shapesSize + newShapes > shapes.length) {
+					shapes = Arrays.copyOf(shapes, Math.max(shapes.length * 2, shapesSize + newShapes));
+				}
+				for (int i = 0; i < newShapes; i++) {
+					String[] shape = new String[(int) header.readVarLong()];
+					for (int j = 0; j < shape.length; j++) {
+						shape[j] = dictionary[(int) header.readVarLong()];
+					}
+					shapes[shapesSize++] = shape;
+				}
+
+				byte[] body = readCompressed(in);
+				final int n = count;
+				final String[] blockDictionary = dictionary;
+				final String[][] blockShapes = shapes;
+				pending.add(executor.submit(() -> decodeBlock(body, n, blockDictionary, blockShapes)));
+				if (pending.size() > 2 * this.numberOfThreads) {
+					this.events.processEvents(pending.poll().get());
+				}
+			}
+			while (!pending.isEmpty()) {
+				this.events.processEvents(pending.poll().get());
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("problem decoding binary events", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static byte[] readCompressed(DataInputStream in) throws IOException {
+		int rawSize = in.readInt();
+		byte[] compressed = new byte[in.readInt()];
+		in.readFully(compressed);
+		return Zstd.decompress(compressed, rawSize);
+	}
+
+	private EventArray decodeBlock(byte[] body, int count, String[] dictionary, String[][] shapes) {
+		ByteReader in = new ByteReader(body);
+
+		int[] shapeOfEvent = new int[count];
+		int[] eventsPerShape = new int[shapes.length];
+		for (int i = 0; i < count; i++) {
+			int shape = (int) in.readVarLong();
+			shapeOfEvent[i] = shape;
+			eventsPerShape[shape]++;
+		}
+
+		double[] times = new double[count];
+		long time = 0;
+		for (int i = 0; i < count; i++) {
+			long tag = in.readVarLong();
+			if (tag == EventWriterBinary.TIME_RAW) {
+				times[i] = in.readDouble();
+			} else {
+				long zigzag = tag >>> 1;
+				time += (zigzag >>> 1) ^ -(zigzag & 1);
+				times[i] = time;
+			}
+		}
+
+		// columns[shape][attribute][n-th event of this shape]
+		String[][][] columns = new String[shapes.length][][];
+		while (in.hasRemaining()) {
+			int shape = (int) in.readVarLong();
+			String[][] shapeColumns = new String[shapes[shape].length - 1][eventsPerShape[shape]];
+			for (String[] column : shapeColumns) {
+				for (int i = 0; i < column.length; i++) {
+					long tag = in.readVarLong();
+					if (tag == EventWriterBinary.TAG_NULL) {
+						column[i] = null;
+					} else if (tag == EventWriterBinary.TAG_DOUBLE) {
+						column[i] = Double.toString(in.readDouble());
+					} else if (tag == EventWriterBinary.TAG_LONG) {
+						long zigzag = in.readVarLong();
+						column[i] = Long.toString((zigzag >>> 1) ^ -(zigzag & 1));
+					} else {
+						column[i] = dictionary[(int) (tag - EventWriterBinary.TAG_STRING)];
+					}
+				}
+			}
+			columns[shape] = shapeColumns;
+		}
+
+		EventArray array = new EventArray(count);
+		EventsReaderXMLv1 converter = new EventsReaderXMLv1(new CollectingEventsManager(array));
+		this.customEventMappers.forEach(converter::addCustomEventMapper);
+		AttributesImpl atts = new AttributesImpl();
+		int[] next = new int[shapes.length];
+		for (int i = 0; i < count; i++) {
+			int shape = shapeOfEvent[i];
+			String[] names = shapes[shape];
+			String[][] shapeColumns = columns[shape];
+			int index = next[shape]++;
+			atts.clear();
+			atts.addAttribute("", Event.ATTRIBUTE_TIME, Event.ATTRIBUTE_TIME, "CDATA", Double.toString(times[i]));
+			atts.addAttribute("", Event.ATTRIBUTE_TYPE, Event.ATTRIBUTE_TYPE, "CDATA", names[0]);
+			for (int a = 0; a < shapeColumns.length; a++) {
+				atts.addAttribute("", names[a + 1], names[a + 1], "CDATA", shapeColumns[a][index]);
+			}
+			converter.startTag(EventsReaderXMLv1.EVENT, atts, null);
+		}
+		return array;
+	}
+
+	private static final class ByteReader {
+		private final byte[] bytes;
+		private int position = 0;
+
+		ByteReader(byte[] bytes) {
+			this.bytes = bytes;
+		}
+
+		boolean hasRemaining() {
+			return this.position < this.bytes.length;
+		}
+
+		long readVarLong() {
+			long value = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = this.bytes[this.position++];
+				value |= (long) (b & 0x7F) << shift;
+				shift += 7;
+			} while (b < 0);
+			return value;
+		}
+
+		double readDouble() {
+			long bits = 0;
+			for (int i = 0; i < 8; i++) {
+				bits |= (long) (this.bytes[this.position++] & 0xFF) << (8 * i);
+			}
+			return Double.longBitsToDouble(bits);
+		}
+
+		String readString() {
+			int length = (int) readVarLong();
+			String s = new String(this.bytes, this.position, length, StandardCharsets.UTF_8);
+			this.position += length;
+			return s;
+		}
+	}
+
+	private static final class CollectingEventsManager implements EventsManager {
+		private final EventArray events;
+
+		CollectingEventsManager(EventArray events) {
+			this.events = events;
+		}
+
+		@Override
+		public void processEvent(Event event) {
+			this.events.add(event);
+		}
+
+		@Override
+		public void addHandler(EventHandler handler) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void removeHandler(EventHandler handler) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void resetHandlers(int iteration) {
+		}
+
+		@Override
+		public void initProcessing() {
+		}
+
+		@Override
+		public void afterSimStep(double time) {
+		}
+
+		@Override
+		public void finishProcessing() {
+		}
+	}
+}
@@ -0,0 +1,36 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import org.matsim.core.api.experimental.events.EventsManager;
+
+/**
+ * An {@link EventsManager} that processes events asynchronously and can wait for the events submitted so far.
+ * Lets a producer that submits events in large batches, e.g. with {@link #processEvents(EventArray)}, limit the
+ * number of batches held in memory.
+ */
+public interface FlushableEventsManager extends EventsManager {
+
+	/**
+	 * Blocks until all events submitted so far are completely processed.
+	 */
+	void flush();
+
+}
@@ -21,6 +21,7 @@
 package org.matsim.core.events;
 
 import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
 import java.net.URL;
 import java.util.LinkedHashMap;
 import java.util.Locale;
@@ -33,6 +34,7 @@ import org.matsim.api.core.v01.events.GenericEvent;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.api.internal.MatsimReader;
 import org.matsim.core.config.groups.ControlerConfigGroup;
+import org.matsim.core.utils.io.IOUtils;
 import org.matsim.core.utils.io.MatsimXmlParser;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
@@ -81,8 +83,14 @@ public final class MatsimEventsReader implements MatsimReader {
 			EventsReaderJson reader = new EventsReaderJson(this.events);
 			customEventMappers.forEach(reader::addCustomEventMapper);
 			reader.parse(filename);
+		} else if (isPbFile(lcFilename)) {
+			readPb(IOUtils.getInputStream(IOUtils.getFileUrl(filename)));
+		} else if (lcFilename.endsWith(".bin")) {
+			newBinaryReader().parse(filename);
 		} else if (lcFilename.endsWith(".txt") || lcFilename.endsWith(".txt.gz")) {
 			throw new RuntimeException("text events are no longer supported. Please use MATSim 0.6.1 or earlier to read text events.");
+		} else if (EventsReaderBinary.isBinaryEventsFile(filename)) {
+			newBinaryReader().parse(filename);
 		} else {
 			throw new IllegalArgumentException("Cannot recognize the format of the events-file " + filename);
 		}
@@ -99,13 +107,16 @@ public final class MatsimEventsReader implements MatsimReader {
 				new XmlEventsReader(this.events, this.customEventMappers).parse(stream);
 				break;
 			case pb:
-				throw new UnsupportedOperationException(
-						"PB (Protobuf) is currently not supported to read from a stream");
+				readPb(stream);
+				break;
 			case json:
 				EventsReaderJson reader = new EventsReaderJson(this.events);
 				customEventMappers.forEach(reader::addCustomEventMapper);
 				reader.parse(stream);
 				break;
+			case binary:
+				newBinaryReader().parse(stream);
+				break;
 		}
 	}
 
@@ -117,9 +128,48 @@ public final class MatsimEventsReader implements MatsimReader {
 			EventsReaderJson reader = new EventsReaderJson(this.events);
 			customEventMappers.forEach(reader::addCustomEventMapper);
 			reader.parse(url);
+		} else if (isPbFile(url.getFile().toLowerCase(Locale.ROOT))) {
+			readPb(IOUtils.getInputStream(url));
+		} else if (url.getFile().endsWith(".bin")) {
+			newBinaryReader().parse(url);
+		}
+	}
+
+	private static boolean isPbFile(final String lcFilename) {
+		return lcFilename.endsWith(".pb") || lcFilename.endsWith(".pb.gz") || lcFilename.endsWith(".pb.zst") || lcFilename.endsWith(".pb.lz4");
+	}
+
+	private void readPb(final InputStream stream) {
+		// The pb dependency is optional at the moment so we search the reader first
+		Object reader;
+		Class<?> readerClass;
+		try {
+			readerClass = Class.forName("org.matsim.contrib.protobuf.EventsReaderPB");
+			reader = readerClass.getConstructor(EventsManager.class).newInstance(this.events);
+			for (Map.Entry<String, CustomEventMapper> e : this.customEventMappers.entrySet()) {
+				readerClass.getMethod("addCustomEventMapper", String.class, CustomEventMapper.class).invoke(reader, e.getKey(), e.getValue());
+			}
+		} catch (ReflectiveOperationException e) {
+			throw new RuntimeException("Error using the PB reader. Please make sure protobuf contrib is on the classpath.", e);
+		}
+		try {
+			readerClass.getMethod("parse", InputStream.class).invoke(reader, stream);
+		} catch (InvocationTargetException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		} catch (ReflectiveOperationException e) {
+			throw new RuntimeException("Error using the PB reader.", e);
 		}
 	}
 
+	private EventsReaderBinary newBinaryReader() {
+		EventsReaderBinary reader = new EventsReaderBinary(this.events);
+		customEventMappers.forEach(reader::addCustomEventMapper);
+		return reader;
+	}
+
 	private static class XmlEventsReader extends MatsimXmlParser {
 
 		final EventsManager events;
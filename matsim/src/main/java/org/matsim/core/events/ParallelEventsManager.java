@@ -37,7 +37,7 @@ import org.matsim.core.events.handler.EventHandler;
 /**
  * @author cdobler
  */
-public final class ParallelEventsManager implements EventsManager {
+public final class ParallelEventsManager implements FlushableEventsManager {
 
 	private final static Logger log = Logger.getLogger(ParallelEventsManager.class);
 
@@ -241,6 +241,7 @@ public final class ParallelEventsManager implements EventsManager {
 
 	}
 
+	@Override
 	public void flush() {
 		try {
 			this.distributor.flush();
@@ -0,0 +1,352 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.events;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.HasLinkId;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.TransitDriverStartsEvent;
+import org.matsim.api.core.v01.events.VehicleAbortsEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
+import org.matsim.core.api.experimental.events.VehicleDepartsAtFacilityEvent;
+import org.matsim.core.api.internal.HasPersonId;
+import org.matsim.core.events.MatsimEventsReader.CustomEventMapper;
+import org.matsim.core.events.handler.EventHandler;
+import org.matsim.core.events.handler.MergeableEventHandler;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Replays an events file on several threads. The file is read once, and every event is passed to one of several
+ * partitions, as decided by an {@link EventsPartitioner}. Each partition runs on its own thread and has its own
+ * instance of every handler, created with {@link MergeableEventHandler#newInstance()}. When the whole file is read,
+ * the results of all partitions are merged into the handlers that were added to this class.
+ * <p>
+ * This only gives the same results as a sequential replay if a handler does not need events of other partitions. Use
+ * {@link #byPerson()} for handlers that collect data per agent or per vehicle, and {@link #byLink()} for handlers that
+ * collect data per link from link events alone. Within a partition, events are handled in the order of the file.
+ * <p>
+ * Example:
+ * <pre>
+ * VolumesAnalyzer volumes = new VolumesAnalyzer(3600, 30 * 3600, network);
+ * ParallelEventsReplay replay = new ParallelEventsReplay(4, ParallelEventsReplay.byPerson());
+ * replay.addHandler(volumes);
+ * replay.readFile("output_events.xml.gz");
+ * </pre>
+ */
+public final class ParallelEventsReplay {
+
+	private final static Logger log = Logger.getLogger(ParallelEventsReplay.class);
+
+	private static final int BATCH_SIZE = 4096;
+	private static final int QUEUE_SIZE = 8;
+
+	/**
+	 * Decides which partition handles an event. The method is called for all events in the order of the file and from
+	 * a single thread, so implementations may keep state, but a new instance is needed for each replay.
+	 */
+	public interface EventsPartitioner {
+		/** Passes the event to all partitions. */
+		int ALL = -1;
+
+		/**
+		 * @return the index of the partition in <code>[0, numberOfPartitions)</code> or {@link #ALL}.
+		 */
+		int getPartition(Event event, int numberOfPartitions);
+	}
+
+	private final int numberOfThreads;
+	private final EventsPartitioner partitioner;
+	private final List<MergeableEventHandler<?>> handlers = new ArrayList<>();
+	private final Map<String, CustomEventMapper> customEventMappers = new HashMap<>();
+
+	public ParallelEventsReplay(int numberOfThreads, EventsPartitioner partitioner) {
+		if (numberOfThreads < 1) {
+			throw new IllegalArgumentException("numberOfThreads must be at least 1, but is " + numberOfThreads);
+		}
+		this.numberOfThreads = numberOfThreads;
+		this.partitioner = partitioner;
+	}
+
+	public void addHandler(MergeableEventHandler<?> handler) {
+		this.handlers.add(handler);
+	}
+
+	public void addCustomEventMapper(String eventType, CustomEventMapper cem) {
+		this.customEventMappers.put(eventType, cem);
+	}
+
+	/**
+	 * Reads the events file and, after all events are handled, merges the results into the added handlers.
+	 */
+	public void readFile(String filename) {
+		log.info("replaying events from " + filename + " on " + this.numberOfThreads + " threads");
+
+		Partition[] partitions = new Partition[this.numberOfThreads];
+		for (int p = 0; p < partitions.length; p++) {
+			EventsManagerImpl events = new EventsManagerImpl();
+			List<EventHandler> partitionHandlers = new ArrayList<>();
+			for (MergeableEventHandler<?> handler : this.handlers) {
+				EventHandler partitionHandler = p == 0 ? handler : handler.newInstance();
+				events.addHandler(partitionHandler);
+				partitionHandlers.add(partitionHandler);
+			}
+			partitions[p] = new Partition(events, partitionHandlers);
+		}
+
+		Thread[] threads = new Thread[partitions.length];
+		for (int p = 0; p < partitions.length; p++) {
+			threads[p] = new Thread(partitions[p], "ParallelEventsReplay-" + p);
+			threads[p].setDaemon(true);
+			threads[p].start();
+		}
+
+		try {
+			MatsimEventsReader reader = new MatsimEventsReader(new SplittingEventsManager(this.partitioner, partitions));
+			this.customEventMappers.forEach(reader::addCustomEventMapper);
+			reader.readFile(filename);
+			for (Partition partition : partitions) {
+				partition.flush();
+				partition.put(Partition.END);
+			}
+			for (Thread thread : threads) {
+				thread.join();
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} finally {
+			for (Thread thread : threads) {
+				if (thread.isAlive()) {
+					thread.interrupt();
+				}
+			}
+		}
+
+		for (Partition partition : partitions) {
+			if (partition.error != null) {
+				throw new RuntimeException("problem replaying events in parallel", partition.error);
+			}
+		}
+
+		for (int h = 0; h < this.handlers.size(); h++) {
+			for (int p = 1; p < partitions.length; p++) {
+				merge(this.handlers.get(h), partitions[p].handlers.get(h));
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T extends MergeableEventHandler<T>> void merge(MergeableEventHandler<?> target, EventHandler other) {
+		((T) target).merge((T) other);
+	}
+
+	/**
+	 * Keeps all events of an agent in the same partition. Events of a vehicle go to the partition of the person that
+	 * drives it, or that entered it first if no driver is known yet, so per-vehicle state, e.g. the mode of a vehicle in
+	 * {@link org.matsim.analysis.VolumesAnalyzer}, stays consistent. Passengers do not see the link events of the
+	 * vehicle they are in. Events that belong neither to a person nor to a vehicle are passed to all partitions.
+	 */
+	public static EventsPartitioner byPerson() {
+		return new PersonPartitioner();
+	}
+
+	/**
+	 * Passes events with a link to the partition of the link, all other events to all partitions.
+	 */
+	public static EventsPartitioner byLink() {
+		return (event, numberOfPartitions) -> event instanceof HasLinkId && ((HasLinkId) event).getLinkId() != null
+				? partitionOf(((HasLinkId) event).getLinkId(), numberOfPartitions) : EventsPartitioner.ALL;
+	}
+
+	static int partitionOf(Id<?> id, int numberOfPartitions) {
+		// ids are numbered in order of creation, spread them so that related ids do not end up in the same partition
+		return (int) (((id.index() * 0x9E3779B97F4A7C15L) >>> 32) % numberOfPartitions);
+	}
+
+	private static final class PersonPartitioner implements EventsPartitioner {
+		private final Map<Id<Vehicle>, Integer> vehiclePartitions = new HashMap<>();
+
+		@Override
+		public int getPartition(Event event, int numberOfPartitions) {
+			if (event instanceof VehicleEntersTrafficEvent) {
+				VehicleEntersTrafficEvent e = (VehicleEntersTrafficEvent) event;
+				return assignVehicle(e.getVehicleId(), e.getPersonId(), numberOfPartitions);
+			}
+			if (event instanceof TransitDriverStartsEvent) {
+				TransitDriverStartsEvent e = (TransitDriverStartsEvent) event;
+				return assignVehicle(e.getVehicleId(), e.getDriverId(), numberOfPartitions);
+			}
+			if (event instanceof PersonEntersVehicleEvent) {
+				PersonEntersVehicleEvent e = (PersonEntersVehicleEvent) event;
+				int partition = partitionOf(e.getPersonId(), numberOfPartitions);
+				this.vehiclePartitions.putIfAbsent(e.getVehicleId(), partition);
+				return partition;
+			}
+			if (event instanceof HasPersonId && ((HasPersonId) event).getPersonId() != null) {
+				return partitionOf(((HasPersonId) event).getPersonId(), numberOfPartitions);
+			}
+			Id<Vehicle> vehicleId = getVehicleId(event);
+			if (vehicleId != null) {
+				Integer partition = this.vehiclePartitions.get(vehicleId);
+				return partition != null ? partition : partitionOf(vehicleId, numberOfPartitions);
+			}
+			return ALL;
+		}
+
+		private int assignVehicle(Id<Vehicle> vehicleId, Id<Person> driverId, int numberOfPartitions) {
+			int partition = partitionOf(driverId, numberOfPartitions);
+			if (vehicleId != null) {
+				this.vehiclePartitions.put(vehicleId, partition);
+			}
+			return partition;
+		}
+
+		private static Id<Vehicle> getVehicleId(Event event) {
+			if (event instanceof LinkEnterEvent) return ((LinkEnterEvent) event).getVehicleId();
+			if (event instanceof LinkLeaveEvent) return ((LinkLeaveEvent) event).getVehicleId();
+			if (event instanceof VehicleAbortsEvent) return ((VehicleAbortsEvent) event).getVehicleId();
+			if (event instanceof VehicleArrivesAtFacilityEvent) return ((VehicleArrivesAtFacilityEvent) event).getVehicleId();
+			if (event instanceof VehicleDepartsAtFacilityEvent) return ((VehicleDepartsAtFacilityEvent) event).getVehicleId();
+			return null;
+		}
+	}
+
+	private static final class Partition implements Runnable {
+		static final EventArray END = new EventArray(0);
+
+		private final EventsManagerImpl events;
+		private final List<EventHandler> handlers;
+		private final BlockingQueue<EventArray> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+		private EventArray batch = new EventArray(BATCH_SIZE);
+		private volatile Throwable error = null;
+
+		Partition(EventsManagerImpl events, List<EventHandler> handlers) {
+			this.events = events;
+			this.handlers = handlers;
+		}
+
+		void add(Event event) throws InterruptedException {
+			this.batch.add(event);
+			if (this.batch.size() == BATCH_SIZE) {
+				flush();
+			}
+		}
+
+		void flush() throws InterruptedException {
+			if (this.batch.size() > 0) {
+				put(this.batch);
+				this.batch = new EventArray(BATCH_SIZE);
+			}
+		}
+
+		void put(EventArray events) throws InterruptedException {
+			this.queue.put(events);
+		}
+
+		@Override
+		public void run() {
+			this.events.initProcessing();
+			try {
+				EventArray events;
+				while ((events = this.queue.take()) != END) {
+					// keep taking batches after an error so the reading thread does not block
+					if (this.error == null) {
+						try {
+							this.events.processEvents(events);
+						} catch (Throwable t) {
+							this.error = t;
+						}
+					}
+				}
+				if (this.error == null) {
+					this.events.finishProcessing();
+				}
+			} catch (InterruptedException e) {
+				this.error = e;
+			}
+		}
+	}
+
+	private static final class SplittingEventsManager implements EventsManager {
+		private final EventsPartitioner partitioner;
+		private final Partition[] partitions;
+
+		SplittingEventsManager(EventsPartitioner partitioner, Partition[] partitions) {
+			this.partitioner = partitioner;
+			this.partitions = partitions;
+		}
+
+		@Override
+		public void processEvent(Event event) {
+			int partition = this.partitioner.getPartition(event, this.partitions.length);
+			try {
+				if (partition == EventsPartitioner.ALL) {
+					for (Partition p : this.partitions) {
+						p.add(event);
+					}
+				} else {
+					this.partitions[partition].add(event);
+				}
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		@Override
+		public void addHandler(EventHandler handler) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void removeHandler(EventHandler handler) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void resetHandlers(int iteration) {
+		}
+
+		@Override
+		public void initProcessing() {
+		}
+
+		@Override
+		public void afterSimStep(double time) {
+		}
+
+		@Override
+		public void finishProcessing() {
+		}
+	}
+}
@@ -0,0 +1,38 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.events;
+
+import org.matsim.api.core.v01.events.Event;
+
+/**
+ * An event instance that its creator reuses for another event once all events of the current sim step are processed.
+ * Mobsims only create such events if {@link org.matsim.core.api.experimental.events.EventsManager#isSynchronizedOnSimSteps()}
+ * is <code>true</code>. The events manager passes the instance itself only to
+ * {@link org.matsim.core.events.handler.NonRetainingEventHandler}s; all other handlers get a {@link #copy()}.
+ */
+public interface ReusableEvent {
+
+	/**
+	 * @return an event of the regular, immutable event class with the current values of this event.
+	 */
+	Event copy();
+
+}
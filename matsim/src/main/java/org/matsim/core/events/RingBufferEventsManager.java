@@ -0,0 +1,219 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.inject.Inject;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup.RingBufferWaitStrategy;
+import org.matsim.core.events.handler.EventHandler;
+
+/**
+ * Alternative to {@link ParallelEventsManager} that runs every handler on its own thread, but passes the events
+ * through one pre-allocated {@link EventRingBuffer} instead of a distributor thread and per-handler blocking
+ * queues. Producers write directly into the buffer, and all handler threads read from it. There are no locks
+ * and no hand-over between threads besides the buffer itself.
+ */
+public final class RingBufferEventsManager implements FlushableEventsManager {
+
+	private final static Logger log = Logger.getLogger(RingBufferEventsManager.class);
+
+	// number of events a consumer processes before it reports its progress to the producers
+	private static final int CONSUMER_BATCH_SIZE = 256;
+
+	private final List<EventHandler> eventsHandlers = new ArrayList<>();
+	private final boolean syncOnTimeSteps;
+	private final int bufferSize;
+	private final RingBufferWaitStrategy waitStrategy;
+	private final List<EventsManager> eventsManagers = new ArrayList<>();
+	private final List<Consumer> consumers = new ArrayList<>();
+	private EventRingBuffer ringBuffer;
+	private volatile Throwable exception = null;
+	private int iteration = 0;
+	private boolean init = false;
+
+	@Inject
+	RingBufferEventsManager(Config config) {
+		this(config.parallelEventHandling().getSynchronizeOnSimSteps() != null ? config.parallelEventHandling().getSynchronizeOnSimSteps() : true,
+				config.parallelEventHandling().getEventsQueueSize(), config.parallelEventHandling().getRingBufferWaitStrategy());
+	}
+
+	public RingBufferEventsManager(final boolean syncOnTimeSteps, final int bufferSize, final RingBufferWaitStrategy waitStrategy) {
+		this.syncOnTimeSteps = syncOnTimeSteps;
+		this.bufferSize = bufferSize;
+		this.waitStrategy = waitStrategy;
+	}
+
+	@Override
+	public void processEvent(final Event event) {
+		if (!init) throw new IllegalStateException(".initProcessing() has to be called before processing events!");
+
+		long sequence = this.ringBuffer.claim(1);
+		this.ringBuffer.publish(sequence, event);
+	}
+
+	@Override
+	public void processEvents(final EventArray events) {
+		if (!init) throw new IllegalStateException(".initProcessing() has to be called before processing events!");
+
+		int offset = 0;
+		while (offset < events.size()) {
+			int n = Math.min(events.size() - offset, this.ringBuffer.capacity());
+			long first = this.ringBuffer.claim(n) - n + 1;
+			for (int i = 0; i < n; i++) {
+				this.ringBuffer.publish(first + i, events.get(offset + i));
+			}
+			offset += n;
+		}
+	}
+
+	@Override
+	public void addHandler(final EventHandler handler) {
+		if (init)
+			throw new IllegalStateException("Handlers can not be added after .initProcessing() was called!");
+
+		// this will be used the next time we start an iteration
+		this.eventsHandlers.add(handler);
+	}
+
+	@Override
+	public void removeHandler(final EventHandler handler) {
+		// this will be used the next time we start an iteration
+		this.eventsHandlers.remove(handler);
+	}
+
+	@Override
+	public void resetHandlers(int iteration) {
+		for (EventsManager eventsManager : this.eventsManagers) {
+			eventsManager.resetHandlers(iteration);
+		}
+	}
+
+	@Override
+	public void initProcessing() {
+		this.exception = null;
+		this.eventsManagers.clear();
+		this.consumers.clear();
+		this.ringBuffer = new EventRingBuffer(this.bufferSize, this.eventsHandlers.size(), this.waitStrategy);
+		for (int i = 0; i < this.eventsHandlers.size(); i++) {
+			SingleHandlerEventsManager eventsManager = new SingleHandlerEventsManager(this.eventsHandlers.get(i));
+			eventsManager.initProcessing();
+			this.eventsManagers.add(eventsManager);
+			Consumer consumer = new Consumer(i, eventsManager);
+			consumer.setDaemon(true);
+			consumer.setName("RingBufferEventsManager: " + eventsManager.getEventHandlerClassName());
+			this.consumers.add(consumer);
+		}
+		resetHandlers(this.iteration);
+		for (Consumer consumer : this.consumers) {
+			consumer.start();
+		}
+		this.init = true;
+	}
+
+	@Override
+	public void afterSimStep(double time) {
+		if (this.syncOnTimeSteps) {
+			flush();
+		}
+		checkException();
+	}
+
+	@Override
+	public synchronized void finishProcessing() {
+		flush();
+		try {
+			for (Consumer consumer : this.consumers) {
+				consumer.running = false;
+				consumer.join();
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException("Exception while waiting on join...", e);
+		}
+		for (EventsManager eventsManager : this.eventsManagers) {
+			eventsManager.finishProcessing();
+		}
+		this.init = false;
+		checkException();
+		this.iteration += 1;
+	}
+
+	/**
+	 * Blocks until all events submitted so far are processed by all handlers.
+	 */
+	@Override
+	public void flush() {
+		if (this.ringBuffer != null) {
+			this.ringBuffer.awaitConsumed();
+		}
+	}
+
+	private void checkException() {
+		if (this.exception != null) {
+			throw new RuntimeException("Exception while processing events. Cannot guarantee that all events have been fully processed.", this.exception);
+		}
+	}
+
+	private class Consumer extends Thread {
+
+		private final int index;
+		private final EventsManager eventsManager;
+		private volatile boolean running = true;
+
+		Consumer(int index, EventsManager eventsManager) {
+			this.index = index;
+			this.eventsManager = eventsManager;
+		}
+
+		@Override
+		public void run() {
+			EventRingBuffer buffer = ringBuffer;
+			long next = 0;
+			int idle = 0;
+			try {
+				while (true) {
+					if (buffer.isPublished(next)) {
+						long end = next + CONSUMER_BATCH_SIZE;
+						do {
+							this.eventsManager.processEvent(buffer.take(next));
+							next++;
+						} while (next < end && buffer.isPublished(next));
+						buffer.markConsumed(this.index, next - 1);
+						idle = 0;
+					} else if (!this.running) {
+						return;
+					} else {
+						buffer.idle(idle++);
+					}
+				}
+			} catch (Throwable e) {
+				log.error("Thread " + getName() + " died with exception while handling events.", e);
+				exception = e;
+				// do not block the producers any longer
+				buffer.markConsumed(this.index, Long.MAX_VALUE);
+			}
+		}
+	}
+}
@@ -235,6 +235,11 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 		}
     }
 
+	@Override
+	public boolean isSynchronizedOnSimSteps() {
+		return true;
+	}
+
 	private static class ProcessEventsRunnable implements Runnable {
 
 		private final EventsManager eventsManager;
@@ -20,12 +20,12 @@
 
 package org.matsim.core.events;
 
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.BiConsumer;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.events.ActivityEndEvent;
@@ -85,7 +85,7 @@ public final class SingleHandlerEventsManager implements EventsManager {
 	/*
 	 * This cannot be just a map<Class, Method> since we need to differentiate between
 	 * a) Class is handled the first time, therefore we have to check whether the Handler can handle it (no HandlerInfo object)
-	 * b) Class cannot be handled (HandlerInfo with empty Method field)
+	 * b) Class cannot be handled (HandlerInfo with empty invoker field)
 	 */
 	private final Map<Class<?>, HandlerInfo> methodToHandle = new HashMap<Class<?>, HandlerInfo>();
 
@@ -159,9 +159,9 @@ public final class SingleHandlerEventsManager implements EventsManager {
 	}
 	
 	static private class HandlerInfo {
-		protected final Method method;
-		protected HandlerInfo(final Method method) {
-			this.method = method;
+		protected final BiConsumer<EventHandler, Event> invoker;
+		protected HandlerInfo(final BiConsumer<EventHandler, Event> invoker) {
+			this.invoker = invoker;
 		}
 	}
 
@@ -227,50 +227,42 @@ public final class SingleHandlerEventsManager implements EventsManager {
 	
 	private void computeEvent(final Event event) {
 		if (callHandlerFast(event)) return;
-		try {
-			Method method = this.getHandlersForClass(event.getClass());
-			if (method != null) method.invoke(this.eventHandler, event);
-		} catch(InvocationTargetException e) {
-			throw new RuntimeException("problem invoking EventHandler " + this.eventHandler.getClass().getCanonicalName() + " for event-class " + event.getClass().getCanonicalName(), e.getTargetException());
-		}
-		catch (IllegalArgumentException | IllegalAccessException e) {
-			throw new RuntimeException("problem invoking EventHandler " + this.eventHandler.getClass().getCanonicalName() + " for event-class " + event.getClass().getCanonicalName(), e);
-		}
+		BiConsumer<EventHandler, Event> invoker = this.getHandlersForClass(event.getClass());
+		if (invoker != null) invoker.accept(this.eventHandler, event);
 	}
 	
-	private Method getHandlersForClass(final Class<?> eventClass) {
+	private BiConsumer<EventHandler, Event> getHandlersForClass(final Class<?> eventClass) {
 		Class<?> klass = eventClass;
 		
 		HandlerInfo info = this.methodToHandle.get(eventClass);
-		if (info != null) return info.method;
+		if (info != null) return info.invoker;
 
-		Method method = null;
+		BiConsumer<EventHandler, Event> invoker = null;
 		
 		// first search in class-hierarchy
 		while (klass != Object.class) {
 			info = this.methodToHandle.get(klass);
 			if (info != null) {
-				method = info.method;
+				invoker = info.invoker;
 				break;
 			}
 			klass = klass.getSuperclass();
 		}
 		
 		// second search in implemented interfaces if no method was found yet
-		if (method == null) {
+		if (invoker == null) {
 			for (Class<?> intfc : ClassUtils.getAllInterfaces(eventClass )) {
 				info = this.methodToHandle.get(intfc);
 				if (info != null) {
-					method = info.method;
+					invoker = info.invoker;
 					break;
 				}
 			}			
 		}
 
-		info = new HandlerInfo(method);
-		this.methodToHandle.put(eventClass, new HandlerInfo(info.method));
+		this.methodToHandle.put(eventClass, new HandlerInfo(invoker));
 		
-		return method;
+		return invoker;
 	}
 	
 	private void addHandlerInterfaces(final Class<?> handlerClass) {
@@ -282,7 +274,7 @@ public final class SingleHandlerEventsManager implements EventsManager {
 					Class<?> eventClass = params[0];
 					log.info("    > " + eventClass.getName());
 					if (!this.methodToHandle.containsKey(eventClass)) {
-						HandlerInfo info = new HandlerInfo(method);
+						HandlerInfo info = new HandlerInfo(EventHandlerInvokers.create(this.eventHandler.getClass(), method));
 						this.methodToHandle.put(eventClass, info);
 					}
 				}
@@ -75,6 +75,11 @@ class SynchronizedEventsManagerImpl implements EventsManager {
 		delegate.afterSimStep(time);
 	}
 
+	@Override
+	public boolean isSynchronizedOnSimSteps() {
+		return delegate.isSynchronizedOnSimSteps();
+	}
+
 	@Override
 	public void finishProcessing() {
 		delegate.finishProcessing();
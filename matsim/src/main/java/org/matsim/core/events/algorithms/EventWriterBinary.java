@@ -0,0 +1,371 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.events.handler.NonRetainingEventHandler;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+
+import com.github.luben.zstd.Zstd;
+
+/**
+ * Writes events in a compact binary format that is much faster to write and to read than xml.
+ * <p>
+ * The file starts with {@link #MAGIC} and {@link #VERSION}, followed by blocks of up to <code>blockSize</code>
+ * events. Each block consists of five ints (number of events, raw and compressed size of the header, raw and
+ * compressed size of the body) and the zstd-compressed header and body. A block with 0 events ends the file.
+ * <ul>
+ * <li>Strings, mostly ids, event types and modes, are stored once in a dictionary and referenced by their index.
+ * Numeric values, including integer ids, are stored inline instead, so distinct counts or ids do not grow the
+ * dictionary.
+ * The header of a block contains the dictionary entries and event shapes that were added in that block.</li>
+ * <li>A shape is an event type together with the ordered names of its attributes. Events of the same type with
+ * different (optional) attributes have different shapes.</li>
+ * <li>The body contains the shape of every event, then the times of all events, delta-encoded within the block, then
+ * for every shape present in the block one column per attribute with the values of all events of that shape.</li>
+ * </ul>
+ * Integers are written as variable-length longs. Blocks only depend on the dictionary, not on each other, so they
+ * can be decoded in parallel, see {@link org.matsim.core.events.EventsReaderBinary}.
+ * <p>
+ * The events are written in the thread calling {@link #handleEvent(Event)}, the file is not compressed any further.
+ */
+public final class EventWriterBinary implements EventWriter, BasicEventHandler, NonRetainingEventHandler {
+
+	/** "MATSIMEV" */
+	public static final long MAGIC = 0x4d415453494d4556L;
+	public static final int VERSION = 1;
+
+	/**
+	 * value tags within an attribute column; integers are followed by their zigzag-encoded value, doubles by their raw
+	 * bits, and string values are stored as <code>TAG_STRING + dictionary index</code>
+	 */
+	public static final int TAG_NULL = 0;
+	public static final int TAG_DOUBLE = 1;
+	public static final int TAG_LONG = 2;
+	public static final int TAG_STRING = 3;
+
+	/** time tag for times that are not a whole number of seconds; otherwise <code>zigzag(delta) &lt;&lt; 1</code> is written */
+	public static final int TIME_RAW = 1;
+
+	public static final int DEFAULT_BLOCK_SIZE = 1 << 16;
+
+	private static final int COMPRESSION_LEVEL = 3;
+
+	private final DataOutputStream out;
+	private final int blockSize;
+
+	private final Map<String, Integer> dictionary = new HashMap<>();
+	private final List<String> newStrings = new ArrayList<>();
+	private final Map<List<String>, Integer> shapeIndex = new HashMap<>();
+	private final List<Shape> shapes = new ArrayList<>();
+	private final List<Shape> newShapes = new ArrayList<>();
+	private final List<String> shapeKey = new ArrayList<>();
+
+	private final ByteColumn shapeColumn = new ByteColumn();
+	private final ByteColumn timeColumn = new ByteColumn();
+	private long lastTime = 0;
+	private int eventsInBlock = 0;
+
+	public EventWriterBinary(final String filename) {
+		this(IOUtils.getOutputStream(IOUtils.getFileUrl(filename), false), DEFAULT_BLOCK_SIZE);
+	}
+
+	public EventWriterBinary(final OutputStream stream) {
+		this(stream, DEFAULT_BLOCK_SIZE);
+	}
+
+	public EventWriterBinary(final OutputStream stream, final int blockSize) {
+		this.out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+		this.blockSize = blockSize;
+		try {
+			this.out.writeLong(MAGIC);
+			this.out.writeInt(VERSION);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void handleEvent(final Event event) {
+		Map<String, String> attributes = event.getAttributes();
+		this.shapeKey.clear();
+		this.shapeKey.add(event.getEventType());
+		for (String key : attributes.keySet()) {
+			if (!isTimeOrType(key)) {
+				this.shapeKey.add(key);
+			}
+		}
+		Integer index = this.shapeIndex.get(this.shapeKey);
+		if (index == null) {
+			index = addShape();
+		}
+		Shape shape = this.shapes.get(index);
+
+		this.shapeColumn.writeVarLong(index);
+		writeTime(event.getTime());
+		shape.count++;
+		int column = 0;
+		for (Map.Entry<String, String> e : attributes.entrySet()) {
+			if (!isTimeOrType(e.getKey())) {
+				writeValue(shape.columns[column++], e.getValue());
+			}
+		}
+
+		this.eventsInBlock++;
+		if (this.eventsInBlock == this.blockSize) {
+			writeBlock();
+		}
+	}
+
+	@Override
+	public void closeFile() {
+		if (this.eventsInBlock > 0) {
+			writeBlock();
+		}
+		try {
+			this.out.writeInt(0);
+			this.out.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void reset(final int iteration) {
+	}
+
+	private static boolean isTimeOrType(String key) {
+		return Event.ATTRIBUTE_TIME.equals(key) || Event.ATTRIBUTE_TYPE.equals(key);
+	}
+
+	private int addShape() {
+		int index = this.shapes.size();
+		List<String> key = new ArrayList<>(this.shapeKey);
+		int[] strings = new int[key.size()];
+		for (int i = 0; i < strings.length; i++) {
+			strings[i] = stringIndex(key.get(i));
+		}
+		Shape shape = new Shape(strings);
+		this.shapeIndex.put(key, index);
+		this.shapes.add(shape);
+		this.newShapes.add(shape);
+		return index;
+	}
+
+	private int stringIndex(String s) {
+		Integer index = this.dictionary.get(s);
+		if (index == null) {
+			index = this.dictionary.size();
+			this.dictionary.put(s, index);
+			this.newStrings.add(s);
+		}
+		return index;
+	}
+
+	private void writeTime(double time) {
+		if (time == Math.rint(time) && Math.abs(time) < 1e15) {
+			long t = (long) time;
+			long delta = t - this.lastTime;
+			this.lastTime = t;
+			this.timeColumn.writeVarLong(((delta << 1) ^ (delta >> 63)) << 1);
+		} else {
+			this.timeColumn.writeVarLong(TIME_RAW);
+			this.timeColumn.writeDouble(time);
+		}
+	}
+
+	private void writeValue(ByteColumn column, String value) {
+		if (value == null) {
+			column.writeVarLong(TAG_NULL);
+			return;
+		}
+		if (isCanonicalLong(value)) {
+			long l = Long.parseLong(value);
+			column.writeVarLong(TAG_LONG);
+			column.writeVarLong((l << 1) ^ (l >> 63));
+			return;
+		}
+		double d = parseCanonicalDouble(value);
+		if (!Double.isNaN(d)) {
+			column.writeVarLong(TAG_DOUBLE);
+			column.writeDouble(d);
+			return;
+		}
+		column.writeVarLong(TAG_STRING + stringIndex(value));
+	}
+
+	/**
+	 * @return <code>true</code> if <code>Long.toString</code> returns exactly <code>s</code> for its value, i.e. there
+	 * is no sign, leading zero or overflow that would be lost.
+	 */
+	private static boolean isCanonicalLong(String s) {
+		int start = s.startsWith("-") ? 1 : 0;
+		int length = s.length() - start;
+		if (length == 0 || length > 18 || (s.charAt(start) == '0' && (length > 1 || start == 1))) {
+			return false;
+		}
+		for (int i = start; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c < '0' || c > '9') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the value of <code>s</code> if <code>Double.toString</code> returns exactly <code>s</code> for it,
+	 * otherwise <code>NaN</code>. Such values can be stored as double without changing their text.
+	 */
+	private static double parseCanonicalDouble(String s) {
+		if (s.isEmpty() || s.indexOf('.') < 0) {
+			return Double.NaN;
+		}
+		char c = s.charAt(0);
+		if (c != '-' && (c < '0' || c > '9')) {
+			return Double.NaN;
+		}
+		try {
+			double d = Double.parseDouble(s);
+			return Double.toString(d).equals(s) ? d : Double.NaN;
+		} catch (NumberFormatException e) {
+			return Double.NaN;
+		}
+	}
+
+	private void writeBlock() {
+		ByteColumn header = new ByteColumn();
+		header.writeVarLong(this.newStrings.size());
+		for (String s : this.newStrings) {
+			byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+			header.writeVarLong(bytes.length);
+			header.write(bytes, bytes.length);
+		}
+		header.writeVarLong(this.newShapes.size());
+		for (Shape shape : this.newShapes) {
+			header.writeVarLong(shape.strings.length);
+			for (int s : shape.strings) {
+				header.writeVarLong(s);
+			}
+		}
+
+		ByteColumn body = new ByteColumn();
+		body.write(this.shapeColumn.bytes, this.shapeColumn.size);
+		body.write(this.timeColumn.bytes, this.timeColumn.size);
+		for (int i = 0; i < this.shapes.size(); i++) {
+			Shape shape = this.shapes.get(i);
+			if (shape.count > 0) {
+				body.writeVarLong(i);
+				for (ByteColumn column : shape.columns) {
+					body.write(column.bytes, column.size);
+					column.size = 0;
+				}
+				shape.count = 0;
+			}
+		}
+
+		try {
+			this.out.writeInt(this.eventsInBlock);
+			writeCompressed(header);
+			writeCompressed(body);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		this.newStrings.clear();
+		this.newShapes.clear();
+		this.shapeColumn.size = 0;
+		this.timeColumn.size = 0;
+		this.lastTime = 0;
+		this.eventsInBlock = 0;
+	}
+
+	private void writeCompressed(ByteColumn column) throws IOException {
+		byte[] compressed = new byte[(int) Zstd.compressBound(column.size)];
+		int length = (int) Zstd.compressByteArray(compressed, 0, compressed.length, column.bytes, 0, column.size, COMPRESSION_LEVEL);
+		if (Zstd.isError(length)) {
+			throw new IOException("could not compress events block: " + Zstd.getErrorName(length));
+		}
+		this.out.writeInt(column.size);
+		this.out.writeInt(length);
+		this.out.write(compressed, 0, length);
+	}
+
+	private static final class Shape {
+		private final int[] strings;
+		private final ByteColumn[] columns;
+		private int count = 0;
+
+		Shape(int[] strings) {
+			this.strings = strings;
+			this.columns = new ByteColumn[strings.length - 1];
+			for (int i = 0; i < this.columns.length; i++) {
+				this.columns[i] = new ByteColumn();
+			}
+		}
+	}
+
+	private static final class ByteColumn {
+		private byte[] bytes = new byte[256];
+		private int size = 0;
+
+		void writeVarLong(long value) {
+			ensureCapacity(10);
+			while ((value & ~0x7FL) != 0) {
+				this.bytes[this.size++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			this.bytes[this.size++] = (byte) value;
+		}
+
+		void writeDouble(double value) {
+			ensureCapacity(8);
+			long bits = Double.doubleToRawLongBits(value);
+			for (int i = 0; i < 8; i++) {
+				this.bytes[this.size++] = (byte) (bits >>> (8 * i));
+			}
+		}
+
+		void write(byte[] src, int length) {
+			ensureCapacity(length);
+			System.arraycopy(src, 0, this.bytes, this.size, length);
+			this.size += length;
+		}
+
+		private void ensureCapacity(int additional) {
+			if (this.size + additional > this.bytes.length) {
+				this.bytes = Arrays.copyOf(this.bytes, Math.max(this.bytes.length * 2, this.size + additional));
+			}
+		}
+	}
+}
@@ -22,6 +22,7 @@ package org.matsim.core.events.algorithms;
 
 import org.matsim.api.core.v01.events.Event;
 import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.events.handler.NonRetainingEventHandler;
 import org.matsim.core.utils.io.IOUtils;
 import org.matsim.core.utils.io.UncheckedIOException;
 
@@ -32,7 +33,7 @@ import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
-public class EventWriterXML implements EventWriter, BasicEventHandler {
+public class EventWriterXML implements EventWriter, BasicEventHandler, NonRetainingEventHandler {
 	private final BufferedWriter out;
 
 	public EventWriterXML(final String outfilename) {
@@ -0,0 +1,41 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.events.handler;
+
+/**
+ * An event handler whose results can be computed by several instances, each handling only a part of the events, and
+ * be combined afterwards. Used by {@link org.matsim.core.events.ParallelEventsReplay}.
+ *
+ * @param <T> the type of the handler itself
+ */
+public interface MergeableEventHandler<T extends MergeableEventHandler<T>> extends EventHandler {
+
+	/**
+	 * @return a new handler with the same settings as this one, but without any collected data.
+	 */
+	T newInstance();
+
+	/**
+	 * Adds the results of <code>other</code>, which handled a different part of the same events, to this handler.
+	 */
+	void merge(T other);
+
+}
@@ -0,0 +1,30 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.events.handler;
+
+/**
+ * Marks an event handler that does not keep references to the events it handles after <code>handleEvent</code>
+ * returns, neither directly nor by passing them on, e.g. to another thread. Such handlers may be passed event
+ * instances that are reused afterwards (see {@link org.matsim.core.events.ReusableEvent}), which avoids creating a
+ * copy of every event for them.
+ */
+public interface NonRetainingEventHandler extends EventHandler {
+}
@@ -20,6 +20,8 @@
 
 package org.matsim.core.gbl;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 
 import org.apache.log4j.Logger;
@@ -54,6 +56,9 @@ public abstract class MatsimRandom {
 	private static long lastUsedSeed = DEFAULT_RANDOM_SEED;
 	private static int internalCounter = 0;
 
+	/** collects the local instances created by a thread, see {@link #startRecordingLocalInstances()} */
+	private static final ThreadLocal<List<Random>> recordedLocalInstances = new ThreadLocal<>();
+
 	/** the global random number generator */
 	private static final Random random = new Random(DEFAULT_RANDOM_SEED);
 //	private static final Random random = new InstrumentedRandom(DEFAULT_RANDOM_SEED);
@@ -86,9 +91,43 @@ public abstract class MatsimRandom {
 		internalCounter++;
 		Random r = new Random(lastUsedSeed + internalCounter*23l);
 		prepareRNG(r);
+		List<Random> recorded = recordedLocalInstances.get();
+		if (recorded != null) {
+			recorded.add(r);
+		}
 		return r;
 	}
 
+	/**
+	 * Starts recording the local instances created by the current thread, until
+	 * {@link #stopRecordingLocalInstances()} is called. This allows to re-seed the random number generators
+	 * of an object, without having access to them.
+	 */
+	public static void startRecordingLocalInstances() {
+		recordedLocalInstances.set(new ArrayList<>());
+	}
+
+	/**
+	 * @return the local instances created by the current thread since {@link #startRecordingLocalInstances()}.
+	 */
+	public static List<Random> stopRecordingLocalInstances() {
+		List<Random> recorded = recordedLocalInstances.get();
+		recordedLocalInstances.remove();
+		return recorded == null ? new ArrayList<>() : recorded;
+	}
+
+	/**
+	 * Re-seeds a local instance, such that it returns the same random numbers for the same key, independent
+	 * of what it was used for before.
+	 *
+	 * @param rng the random number generator to re-seed.
+	 * @param key for example derived from a person id and the iteration.
+	 */
+	public static void reseedLocalInstance(final Random rng, final long key) {
+		rng.setSeed(lastUsedSeed + key*23l);
+		prepareRNG(rng);
+	}
+
 	/**
 	 * Draw some random numbers to better initialize the pseudo-random number generator.
 	 *
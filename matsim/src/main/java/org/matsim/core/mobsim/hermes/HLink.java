@@ -220,25 +220,28 @@ class HLink {
         return this.length;
     }
 
-    public boolean flow(int timestep, float requestedFlow) {
-    	if (timestep  >= nextFreeFlowSlot) {
-			// if requestedFlow<flowCapacityPerS, more than one vehicle can pass per timestep
-			if (lastUpdate == timestep){
-				if (flowLeftInTimestep >= 0) {
-					flowLeftInTimestep-=requestedFlow;
-					nextFreeFlowSlot = timestep + (int) Math.floor( requestedFlow / flowCapacityPerS);
-					return true;
-				} else return false;
-			} else {
-				flowLeftInTimestep=flowLeftInTimestep+flowCapacityPerS-requestedFlow;
-				lastUpdate = timestep;
-				nextFreeFlowSlot = timestep + (int) Math.floor( requestedFlow / flowCapacityPerS);
-				return true;
-			}
+    /**
+     * @return <code>true</code> if a vehicle may leave the link in this timestep. Does not use up any flow capacity,
+     * see {@link #consumeFlow(int, float)}.
+     */
+    public boolean canFlow(int timestep) {
+        return timestep >= nextFreeFlowSlot && (lastUpdate != timestep || flowLeftInTimestep >= 0);
+    }
 
-    	} else {
-    		return false;
-    	}
+    /**
+     * Uses up the flow capacity of a vehicle that left the link. Must only be called if {@link #canFlow(int)} returned
+     * <code>true</code> in the same timestep, and only once the vehicle actually left the link, so a vehicle that cannot
+     * enter its next link does not use up flow capacity.
+     */
+    public void consumeFlow(int timestep, float requestedFlow) {
+        // if requestedFlow<flowCapacityPerS, more than one vehicle can pass per timestep
+        if (lastUpdate == timestep) {
+            flowLeftInTimestep -= requestedFlow;
+        } else {
+            flowLeftInTimestep = flowLeftInTimestep + flowCapacityPerS - requestedFlow;
+            lastUpdate = timestep;
+        }
+        nextFreeFlowSlot = timestep + (int) Math.floor(requestedFlow / flowCapacityPerS);
     }
 
     public int velocity() {
@@ -23,33 +23,44 @@ import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.events.PersonStuckEvent;
 import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.events.Event;
 import org.matsim.core.api.experimental.events.EventsManager;
-import org.matsim.core.events.ParallelEventsManager;
+import org.matsim.core.events.EventArray;
+import org.matsim.core.events.FlushableEventsManager;
 import org.matsim.core.mobsim.framework.Mobsim;
 
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
 final class Hermes implements Mobsim {
 
 	final private static Logger log = Logger.getLogger(Hermes.class);
-	private Realm realm;
+	private Realm[] realms;
 	private Agent[] agents;
 	private ScenarioImporter si;
 	private final Scenario scenario;
 	private final EventsManager eventsManager;
+	private final int eventsFlushInterval;
+	private final boolean boundedEventsBuffer;
 
 	public Hermes(Scenario scenario, EventsManager eventsManager) {
 		this.scenario = scenario;
 		this.eventsManager = eventsManager;
+		this.eventsFlushInterval = scenario.getConfig().hermes().getEventsFlushInterval();
+		this.boundedEventsBuffer = scenario.getConfig().hermes().isBoundedEventsBuffer();
 	}
 
 	private void importScenario() throws Exception {
 		si = ScenarioImporter.instance(scenario, eventsManager);
 		si.generate();
-		this.realm = si.realm;
+		this.realms = si.realms;
 		this.agents = si.hermes_agents;
 	}
 
 	private void processEvents() {
-        eventsManager.processEvents(realm.getSortedEvents());
+		eventsManager.processEvents(mergeSortedEvents(realms));
 
 		for (Agent agent : agents) {
 			if (agent != null && !agent.finished() && !agent.isTransitVehicle()) {
@@ -61,6 +72,124 @@ final class Hermes implements Mobsim {
 		}
 	}
 
+	private void runRealm(Realm realm) {
+		while (realm.time() != HermesConfigGroup.SIM_STEPS) {
+			realm.processTimestep();
+			flushEvents(realm.time());
+			realm.advanceTime();
+		}
+	}
+
+	/**
+	 * Passes the events of all realms up to the current tick to the events manager if the flush interval is reached.
+	 * With a bounded events buffer, this first waits until the events manager has processed the previous batch.
+	 */
+	private void flushEvents(int secs) {
+		if (!HermesConfigGroup.CONCURRENT_EVENT_PROCESSING || eventsFlushInterval <= 0 || secs % eventsFlushInterval != 0) {
+			return;
+		}
+		EventArray events = mergeSortedEvents(realms);
+		if (events.size() > 0) {
+			if (boundedEventsBuffer && eventsManager instanceof FlushableEventsManager) {
+				((FlushableEventsManager) eventsManager).flush();
+			}
+			eventsManager.processEvents(events);
+		}
+	}
+
+	/**
+	 * Runs every realm on its own thread. All realms advance in lock step: in each tick, the realms first process
+	 * their own agents and links. Then, as long as there are agents waiting at a realm boundary, the realms execute
+	 * the agents handed over to them by other realms (in realm order) and release the links of the agents that
+	 * were accepted elsewhere.
+	 */
+	private void runRealms() throws Exception {
+		AtomicBoolean exchanging = new AtomicBoolean();
+		CyclicBarrier exchangeBarrier = new CyclicBarrier(realms.length);
+		CyclicBarrier tickBarrier = new CyclicBarrier(realms.length, () -> {
+			boolean pending = false;
+			for (Realm realm : realms) {
+				pending |= realm.hasOutgoingHandoffs();
+			}
+			exchanging.set(pending);
+			if (!pending) {
+				flushEvents(realms[0].time());
+			}
+		});
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		Thread[] threads = new Thread[realms.length];
+		for (int i = 0; i < realms.length; i++) {
+			Realm realm = realms[i];
+			threads[i] = new Thread(() -> {
+				try {
+					while (realm.time() != HermesConfigGroup.SIM_STEPS) {
+						realm.processTimestep();
+						tickBarrier.await();
+						while (exchanging.get()) {
+							realm.processIncomingHandoffs();
+							exchangeBarrier.await();
+							realm.completeOutgoingHandoffs();
+							tickBarrier.await();
+						}
+						realm.advanceTime();
+					}
+				} catch (BrokenBarrierException e) {
+					// another realm failed, its exception is reported below
+				} catch (Throwable t) {
+					failure.compareAndSet(null, t);
+					exchangeBarrier.reset();
+					tickBarrier.reset();
+				}
+			}, "HermesRealm-" + i);
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		if (failure.get() != null) {
+			throw new RuntimeException("Hermes realm failed", failure.get());
+		}
+	}
+
+	/**
+	 * Merges the time-sorted events of all realms into one array. Events with the same time are ordered by
+	 * {@link Realm#eventKey(int, int)}, so the result does not depend on the number of realms.
+	 */
+	private static EventArray mergeSortedEvents(Realm[] realms) {
+		if (realms.length == 1) {
+			return realms[0].takeSortedEvents();
+		}
+		EventArray[] sources = new EventArray[realms.length];
+		long[][] keys = new long[realms.length][];
+		int[] positions = new int[realms.length];
+		int size = 0;
+		for (int i = 0; i < realms.length; i++) {
+			keys[i] = realms[i].getSortedKeys();
+			sources[i] = realms[i].takeSortedEvents();
+			size += sources[i].size();
+		}
+		EventArray merged = new EventArray(Math.max(32, size));
+		for (int n = 0; n < size; n++) {
+			int next = -1;
+			double nextTime = Double.POSITIVE_INFINITY;
+			long nextKey = Long.MAX_VALUE;
+			for (int i = 0; i < sources.length; i++) {
+				if (positions[i] < sources[i].size()) {
+					double time = sources[i].get(positions[i]).getTime();
+					long key = keys[i][positions[i]];
+					if (time < nextTime || (time == nextTime && key < nextKey)) {
+						next = i;
+						nextTime = time;
+						nextKey = key;
+					}
+				}
+			}
+			Event event = sources[next].get(positions[next]++);
+			merged.add(event);
+		}
+		return merged;
+	}
+
 	@Override
 	public void run() {
 		long time;
@@ -72,9 +201,13 @@ final class Hermes implements Mobsim {
 			eventsManager.initProcessing();
 
 			time = System.currentTimeMillis();
-			realm.run();
+			if (realms.length == 1) {
+				runRealm(realms[0]);
+			} else {
+				runRealms();
+			}
 			log.info(String.format(
-					"Hermes took %d ms", System.currentTimeMillis() - time));
+					"Hermes took %d ms (%d realms)", System.currentTimeMillis() - time, realms.length));
 
 			time = System.currentTimeMillis();
 			processEvents();
@@ -21,6 +21,7 @@ package org.matsim.core.mobsim.hermes;
 import java.util.Map;
 import java.util.Set;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
 import org.matsim.api.core.v01.TransportMode;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ReflectiveConfigGroup;
@@ -61,6 +62,19 @@ public final class HermesConfigGroup extends ReflectiveConfigGroup {
 
     private static final String DETPTDESC = "treats PT as deterministic. PT vehicles will run with a steady speed. Should be used with separate network layers for PT and other network modes.";
     private boolean deterministicPt = false;
+
+    private static final String EVENTS_FLUSH_INTERVAL = "eventsFlushInterval";
+    private static final String EVENTS_FLUSH_INTERVAL_DESC = "Interval in simulated seconds after which the events generated so far are passed to the events manager, "
+            + "so event handling overlaps with the simulation. Set to 0 to pass all events after the simulation has ended. Default: 3600";
+    private static final String BOUNDED_EVENTS_BUFFER = "boundedEventsBuffer";
+    private static final String BOUNDED_EVENTS_BUFFER_DESC = "If true, the simulation waits at each events flush until the events manager has processed the "
+            + "previous batch. At most two batches of events are then held in memory at any time. Only has an effect if the events manager "
+            + "is a FlushableEventsManager, e.g. ParallelEventsManager and RingBufferEventsManager.";
+
+    private static final String NUMBER_OF_REALMS = "numberOfRealms";
+    private static final String NUMBER_OF_REALMS_DESC = "Number of spatial partitions of the network. Each partition (realm) is simulated on its own thread and "
+            + "agents are exchanged at partition boundaries once per time step. Results are deterministic for a given number of realms. "
+            + "Default: 1 (single-threaded)";
     public static final boolean DEBUG_REALMS = false;
     public static final boolean DEBUG_EVENTS = false;
     public static final boolean CONCURRENT_EVENT_PROCESSING = true;
@@ -74,6 +88,14 @@ public final class HermesConfigGroup extends ReflectiveConfigGroup {
     @Positive
     private int stuckTime = 10;
 
+    @Positive
+    private int numberOfRealms = 1;
+
+    @PositiveOrZero
+    private int eventsFlushInterval = 3600;
+
+    private boolean boundedEventsBuffer = false;
+
     public Set<String> getMainModes() {
         return mainModes;
     }
@@ -120,6 +142,36 @@ public final class HermesConfigGroup extends ReflectiveConfigGroup {
         this.stuckTime = stuckTime;
     }
 
+    @StringGetter(NUMBER_OF_REALMS)
+    public int getNumberOfRealms() {
+        return numberOfRealms;
+    }
+
+    @StringSetter(NUMBER_OF_REALMS)
+    public void setNumberOfRealms(int numberOfRealms) {
+        this.numberOfRealms = numberOfRealms;
+    }
+
+    @StringGetter(EVENTS_FLUSH_INTERVAL)
+    public int getEventsFlushInterval() {
+        return eventsFlushInterval;
+    }
+
+    @StringSetter(EVENTS_FLUSH_INTERVAL)
+    public void setEventsFlushInterval(int eventsFlushInterval) {
+        this.eventsFlushInterval = eventsFlushInterval;
+    }
+
+    @StringGetter(BOUNDED_EVENTS_BUFFER)
+    public boolean isBoundedEventsBuffer() {
+        return boundedEventsBuffer;
+    }
+
+    @StringSetter(BOUNDED_EVENTS_BUFFER)
+    public void setBoundedEventsBuffer(boolean boundedEventsBuffer) {
+        this.boundedEventsBuffer = boundedEventsBuffer;
+    }
+
     @StringSetter(FLOW_CAPACITY_FACTOR)
     public void setFlowCapacityFactor(double flowCapacityFactor) {
         this.flowCapacityFactor = flowCapacityFactor;
@@ -156,6 +208,9 @@ public final class HermesConfigGroup extends ReflectiveConfigGroup {
         comments.put(END_TIME, "Simulation End Time");
         comments.put(STUCKTIMEPARAM, STUCKTIMEPARAMDESC);
         comments.put(DETPT, DETPTDESC);
+        comments.put(NUMBER_OF_REALMS, NUMBER_OF_REALMS_DESC);
+        comments.put(EVENTS_FLUSH_INTERVAL, EVENTS_FLUSH_INTERVAL_DESC);
+        comments.put(BOUNDED_EVENTS_BUFFER, BOUNDED_EVENTS_BUFFER_DESC);
         return comments;
     }
 
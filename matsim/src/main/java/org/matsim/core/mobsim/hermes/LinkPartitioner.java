@@ -0,0 +1,78 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.core.mobsim.hermes;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+
+import org.matsim.api.core.v01.network.Link;
+
+/**
+ * Splits the links of a network into spatially compact partitions (realms) by recursive coordinate bisection
+ * of the link centers. Every partition receives (almost) the same number of links. The result only depends on
+ * the network, so a given number of partitions always leads to the same assignment.
+ */
+final class LinkPartitioner {
+
+	private LinkPartitioner() {
+	}
+
+	/**
+	 * @return an array indexed by link id index that holds the partition of each link.
+	 */
+	static int[] partition(Collection<? extends Link> links, int numberOfLinkIds, int partitions) {
+		int[] partitionOfLink = new int[numberOfLinkIds];
+		Link[] sorted = links.toArray(new Link[0]);
+		Arrays.sort(sorted, Comparator.comparingInt(l -> l.getId().index()));
+		bisect(sorted, 0, sorted.length, 0, partitions, partitionOfLink);
+		return partitionOfLink;
+	}
+
+	private static void bisect(Link[] links, int from, int to, int firstPartition, int partitions, int[] partitionOfLink) {
+		if (partitions == 1 || to - from <= 1) {
+			for (int i = from; i < to; i++) {
+				partitionOfLink[links[i].getId().index()] = firstPartition;
+			}
+			return;
+		}
+		double minX = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (int i = from; i < to; i++) {
+			double x = links[i].getCoord().getX();
+			double y = links[i].getCoord().getY();
+			minX = Math.min(minX, x);
+			maxX = Math.max(maxX, x);
+			minY = Math.min(minY, y);
+			maxY = Math.max(maxY, y);
+		}
+		// split along the axis with the larger extent, ties are broken by link index to stay deterministic
+		Comparator<Link> axis = (maxX - minX) >= (maxY - minY) ?
+				Comparator.comparingDouble(l -> l.getCoord().getX()) :
+				Comparator.comparingDouble(l -> l.getCoord().getY());
+		Arrays.sort(links, from, to, axis.thenComparingInt(l -> l.getId().index()));
+
+		int leftPartitions = partitions / 2;
+		int middle = from + (int) ((long) (to - from) * leftPartitions / partitions);
+		bisect(links, from, middle, firstPartition, leftPartitions, partitionOfLink);
+		bisect(links, middle, to, firstPartition + leftPartitions, partitions - leftPartitions, partitionOfLink);
+	}
+}
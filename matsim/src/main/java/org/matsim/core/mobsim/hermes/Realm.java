@@ -37,9 +37,22 @@ import org.matsim.vehicles.Vehicle;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
 
 class Realm {
 	private final ScenarioImporter si;
+    // Index of this realm. Realms only touch the links and stops that belong to them.
+    private final int realmId;
+    // All realms that are simulated in parallel (including this one).
+    private Realm[] realms;
+    // Realm of each link, indexed by link id. Null if there is a single realm.
+    private final int[] realm_of_link;
+    // Realm of each stop, indexed by stop id. Null if there is a single realm.
+    private final int[] realm_of_stop;
+    // Agents handed over to other realms in the current tick, indexed by destination realm.
+    private final Handoffs[] outgoing;
     // Global array of links.
     // Note: the id of the link is its index in the array.
     private final HLink[] links;
@@ -57,14 +70,49 @@ class Realm {
     private final int[] line_of_route;
     // queue of sorted events by time
     private EventArray sorted_events;
+    // order of each event in sorted_events among the events with the same time, see eventKey
+    private long[] sorted_keys;
     // MATSim event manager.
     private final EventsManager eventsManager;
     // Current timestamp
     private int secs;
     Logger log = Logger.getLogger(Realm.class);
 
+    // Agents that have to continue their plan in another realm. The destination realm decides whether the agent
+    // can proceed; for agents leaving a link, the source realm pops them from the link afterwards.
+    static final class Handoffs {
+        private final ArrayList<Agent> agents = new ArrayList<>();
+        // Link the agent is leaving, or null if the agent is not on a link.
+        private final ArrayList<HLink> sourceLinks = new ArrayList<>();
+        private final BitSet accepted = new BitSet();
+
+        void add(Agent agent, HLink sourceLink) {
+            agents.add(agent);
+            sourceLinks.add(sourceLink);
+        }
+
+        void clear() {
+            agents.clear();
+            sourceLinks.clear();
+            accepted.clear();
+        }
+    }
+
     public Realm(ScenarioImporter scenario, EventsManager eventsManager) throws Exception {
+        this(scenario, eventsManager, 0, 1, null, null);
+    }
+
+    public Realm(ScenarioImporter scenario, EventsManager eventsManager, int realmId, int numberOfRealms,
+                 int[] realm_of_link, int[] realm_of_stop) throws Exception {
     	this.si = scenario;
+        this.realmId = realmId;
+        this.realms = new Realm[] { this };
+        this.realm_of_link = realm_of_link;
+        this.realm_of_stop = realm_of_stop;
+        this.outgoing = new Handoffs[numberOfRealms];
+        for (int i = 0; i < numberOfRealms; i++) {
+            this.outgoing[i] = new Handoffs();
+        }
         this.links = scenario.hermes_links;
         // The plus one is necessary because we peek into the next slot on each tick.
         this.delayedLinksByWakeupTime = new ArrayList<>();
@@ -73,6 +121,7 @@ class Realm {
         this.route_stops_by_route_no = scenario.route_stops_by_route_no;
         this.line_of_route = scenario.line_of_route;
         this.sorted_events = new EventArray();
+        this.sorted_keys = new long[32];
         this.eventsManager = eventsManager;
 
 	// the last position is to store events that will not happen...
@@ -207,9 +256,10 @@ class Realm {
         for (Agent out : agent.egress(stopid)) {
             add_delayed_agent(out, secs + 1);
             // consume access, activate egress
-            advanceAgentandSetEventTime(out);
-            // set driver in agent's event
+            advanceAgent(out);
+            // set driver in agent's event, before the event is passed on
             setEventVehicle(out, Agent.getPlanEvent(out.currPlan()), agent.id);
+            setEventTime(out, Agent.getPlanEvent(out.currPlan()), secs, false);
         }
 
         // True is returned as the agent is already in the delayed list.
@@ -232,9 +282,10 @@ class Realm {
                         if (agent.access(egressStop, in)) {
                             removed.add(in);
                             // consume wait in stop, activate access
-                            advanceAgentandSetEventTime(in);
-                            // set driver in agent's event
+                            advanceAgent(in);
+                            // set driver in agent's event, before the event is passed on
                             setEventVehicle(in, Agent.getPlanEvent(in.currPlan()), agent.id);
+                            setEventTime(in, Agent.getPlanEvent(in.currPlan()), secs, false);
                         } else {
                             // agent could not enter, likely the vehicle is full
                             break;
@@ -252,6 +303,29 @@ class Realm {
         return false;
     }
 
+    // Returns the realm that has to execute the next plan element of the agent.
+    private int realmOf(Agent agent) {
+        if (realm_of_link == null) {
+            return realmId;
+        }
+        long planentry = agent.plan.get(agent.planIndex + 1);
+        switch (Agent.getPlanHeader(planentry)) {
+            case Agent.LinkType:        return realm_of_link[Agent.getLinkPlanEntry(planentry)];
+            case Agent.WaitType:
+            case Agent.StopArriveType:
+            case Agent.StopDelayType:
+            case Agent.StopDepartType:  return realm_of_stop[Agent.getStopPlanEntry(planentry)];
+            default:                    return realmId;
+        }
+    }
+
+    private void handOver(int destination, Agent agent, HLink sourceLink) {
+        if (HermesConfigGroup.DEBUG_REALMS) {
+            log(secs, String.format("agent %d handed over to realm %d", agent.id, destination));
+        }
+        outgoing[destination].add(agent, sourceLink);
+    }
+
     protected boolean processAgent(Agent agent, int currLinkId) {
         // Peek the next plan element and try to execute it.
         long planentry = agent.plan.get(agent.planIndex + 1);
@@ -278,6 +352,12 @@ class Realm {
         // if finished, install times on last event.
         if (finished) {
             setEventTime(agent, agent.events().size() - 1, secs, true);
+        } else {
+            int destination = realmOf(agent);
+            if (destination != realmId) {
+                handOver(destination, agent, null);
+                return 0;
+            }
         }
         // -1 is used in the processAgent because the agent is not in a link currently.
         if (!finished && !processAgent(agent, -1)) {
@@ -290,14 +370,23 @@ class Realm {
     protected int processLinks(HLink link) {
         int routed = 0;
         Agent agent = link.queue().peek();
-        while (agent.linkFinishTime <= secs && link.flow(secs, agent.getFlowCapacityPCUE())) {
+        while (agent.linkFinishTime <= secs && link.canFlow(secs)) {
             boolean finished = agent.finished();
             // if finished, install times on last event.
             if (finished) {
                 setEventTime(agent, agent.events().size() - 1, secs, true);
+            } else {
+                int destination = realmOf(agent);
+                if (destination != realmId) {
+                    // the link stays blocked until the destination realm has decided on the agent, the flow
+                    // capacity is only used up once the agent was accepted
+                    handOver(destination, agent, link);
+                    return routed;
+                }
             }
             if (finished || processAgent(agent, link.id())) {
                 float storageCapacityPCE = agent.getStorageCapacityPCUE();
+                link.consumeFlow(secs, agent.getFlowCapacityPCUE());
                 link.pop(storageCapacityPCE);
                 routed += 1;
                 if ((agent = link.queue().peek()) == null) {
@@ -315,48 +404,104 @@ class Realm {
         return routed;
     }
 
-    public void run() throws Exception {
+    // Processes all agents and links of this realm that are due in the current tick.
+    void processTimestep() {
     	int routed = 0;
         Agent agent = null;
         HLink link = null;
 
-        while (secs != HermesConfigGroup.SIM_STEPS) {
-            if (secs % 3600 == 0) {
-                log.info("Hermes running at " + Time.writeTime(secs));
+        if (secs % 3600 == 0 && realmId == 0) {
+            log.info("Hermes running at " + Time.writeTime(secs));
+        }
+        while ((agent = delayedAgentsByWakeupTime.get(secs).poll()) != null) {
+            if (HermesConfigGroup.DEBUG_REALMS) {
+                log(secs, String.format("Processing agent %d", agent.id));
             }
-            while ((agent = delayedAgentsByWakeupTime.get(secs).poll()) != null) {
-                if (HermesConfigGroup.DEBUG_REALMS) {
-                    log(secs, String.format("Processing agent %d", agent.id));
-                }
-                routed += processAgentActivities(agent);
+            routed += processAgentActivities(agent);
 
+        }
+        delayedAgentsByWakeupTime.set(secs, null);
+        if (si.isDeterministicPt() && realmId == 0) {
+            List<Event> ptEvents = si.getDeterministicPtEvents().get(secs);
+            for (int i = 0; i < ptEvents.size(); i++) {
+                addEvent(ptEvents.get(i), Long.MIN_VALUE + i);
             }
-            delayedAgentsByWakeupTime.set(secs, null);
-            if (si.isDeterministicPt()) {
-                for (Event e : si.getDeterministicPtEvents().get(secs)) {
-                    sorted_events.add(e);
-                }
-                si.getDeterministicPtEvents().get(secs).clear();
+            si.getDeterministicPtEvents().get(secs).clear();
+        }
+
+        while ((link = delayedLinksByWakeupTime.get(secs).poll()) != null) {
+            if (HermesConfigGroup.DEBUG_REALMS) {
+                log(secs, String.format("Processing link %d", link.id()));
             }
+            routed += processLinks(link);
+        }
+        delayedLinksByWakeupTime.set(secs, null);
+        if (HermesConfigGroup.DEBUG_REALMS && routed > 0) {
+            log(secs, String.format("Processed %d agents", routed));
+        }
+    }
 
-            while ((link = delayedLinksByWakeupTime.get(secs).poll()) != null) {
-                if (HermesConfigGroup.DEBUG_REALMS) {
-                    log(secs, String.format("Processing link %d", link.id()));
+    // Executes the next plan element of all agents that other realms handed over to this realm in the current tick.
+    // Must only be called once all realms have finished processTimestep.
+    void processIncomingHandoffs() {
+        for (Realm source : realms) {
+            Handoffs handoffs = source.outgoing[realmId];
+            for (int i = 0; i < handoffs.agents.size(); i++) {
+                Agent agent = handoffs.agents.get(i);
+                HLink sourceLink = handoffs.sourceLinks.get(i);
+                if (sourceLink == null) {
+                    processAgentActivities(agent);
+                } else if (processAgent(agent, sourceLink.id())) {
+                    handoffs.accepted.set(i);
                 }
-                routed += processLinks(link);
-            }
-            delayedLinksByWakeupTime.set(secs, null);
-            if (HermesConfigGroup.DEBUG_REALMS && routed > 0) {
-                log(secs, String.format("Processed %d agents", routed));
             }
-            if (HermesConfigGroup.CONCURRENT_EVENT_PROCESSING && secs % 3600 == 0 && sorted_events.size() > 0) {
-                eventsManager.processEvents(sorted_events);
-                sorted_events = new EventArray();
+        }
+    }
+
+    // Releases the links of agents that were accepted by other realms and continues processing them in the current
+    // tick; this may lead to new hand overs. Blocked links are re-scheduled for the next tick.
+    // Must only be called once all realms have finished processIncomingHandoffs.
+    void completeOutgoingHandoffs() {
+        ArrayList<HLink> released = new ArrayList<>();
+        for (Handoffs handoffs : outgoing) {
+            for (int i = 0; i < handoffs.agents.size(); i++) {
+                HLink link = handoffs.sourceLinks.get(i);
+                if (link == null) {
+                    continue;
+                }
+                Agent agent = handoffs.agents.get(i);
+                if (handoffs.accepted.get(i)) {
+                    link.consumeFlow(secs, agent.getFlowCapacityPCUE());
+                    link.pop(agent.getStorageCapacityPCUE());
+                    if (link.queue().peek() != null) {
+                        released.add(link);
+                    }
+                } else {
+                    add_delayed_link(link, Math.max(agent.linkFinishTime, secs + 1));
+                }
             }
+            handoffs.clear();
+        }
+        for (HLink link : released) {
+            processLinks(link);
+        }
+    }
 
-            routed = 0;
-            secs += 1;
+    boolean hasOutgoingHandoffs() {
+        for (Handoffs handoffs : outgoing) {
+            if (!handoffs.agents.isEmpty()) {
+                return true;
+            }
         }
+        return false;
+    }
+
+    void advanceTime() {
+        secs += 1;
+    }
+
+    int time() {
+        return secs;
     }
 
     public void setEventTime(Agent agent, int eventid, int time, boolean lastevent) {
@@ -368,7 +513,9 @@ class Realm {
             	agentevents.get(agent.eventsIndex).setTime(time);
                 if (HermesConfigGroup.DEBUG_REALMS)
                     log(secs, String.format("agent %d setEventTime (eventsIndex=%d) %s", agent.id, agent.eventsIndex, agentevents.get(agent.eventsIndex).toString()));
-                sorted_events.add(agentevents.get(agent.eventsIndex));
+                addEvent(agentevents.get(agent.eventsIndex), eventKey(agent.id, agent.eventsIndex));
+                // the agent does not need the event any more, so it can be collected once it was passed on
+                agentevents.release(agent.eventsIndex);
             }
 
             // Fix delay for PT events.
@@ -403,7 +550,95 @@ class Realm {
         }
     }
 
+    void setRealms(Realm[] realms) { this.realms = realms; }
     ArrayList<ArrayDeque<HLink>> delayedLinks() { return this.delayedLinksByWakeupTime; }
     ArrayList<ArrayDeque<Agent>> delayedAgents() { return this.delayedAgentsByWakeupTime; }
     EventArray getSortedEvents() { return this.sorted_events; }
+
+    /**
+     * Events with the same time are ordered by agent and, per agent, by the order of the agent's events. Unlike the
+     * order in which the events are emitted, this does not depend on the order in which agents and links are
+     * processed, and so not on the partitioning into realms. Deterministic pt events come first.
+     */
+    static long eventKey(int agentId, int eventIndex) {
+        return ((long) agentId << 32) | eventIndex;
+    }
+
+    private void addEvent(Event event, long key) {
+        int index = sorted_events.size();
+        if (index == sorted_keys.length) {
+            sorted_keys = Arrays.copyOf(sorted_keys, index + index / 2);
+        }
+        sorted_keys[index] = key;
+        sorted_events.add(event);
+    }
+
+    /**
+     * @return the keys of the events returned by the next call to {@link #takeSortedEvents()}.
+     */
+    long[] getSortedKeys() { return this.sorted_keys; }
+
+    /**
+     * @return the events since the last call, ordered by time and {@link #eventKey(int, int)}.
+     */
+    EventArray takeSortedEvents() {
+        EventArray events = this.sorted_events;
+        sortWithinTimesteps(events.array(), this.sorted_keys, events.size());
+        this.sorted_events = new EventArray();
+        this.sorted_keys = new long[32];
+        return events;
+    }
+
+    // The events are emitted in time order, so only the runs of events with the same time need to be sorted.
+    private static void sortWithinTimesteps(Event[] events, long[] keys, int size) {
+        Event[] tmpEvents = null;
+        long[] tmpKeys = null;
+        int from = 0;
+        while (from < size) {
+            double time = events[from].getTime();
+            int to = from + 1;
+            boolean sorted = true;
+            while (to < size && events[to].getTime() == time) {
+                sorted &= keys[to - 1] < keys[to];
+                to++;
+            }
+            if (!sorted) {
+                if (tmpEvents == null || tmpEvents.length < to - from) {
+                    tmpEvents = new Event[to - from];
+                    tmpKeys = new long[to - from];
+                }
+                mergeSort(events, keys, from, to, tmpEvents, tmpKeys);
+            }
+            from = to;
+        }
+    }
+
+    private static void mergeSort(Event[] events, long[] keys, int from, int to, Event[] tmpEvents, long[] tmpKeys) {
+        if (to - from < 2) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(events, keys, from, middle, tmpEvents, tmpKeys);
+        mergeSort(events, keys, middle, to, tmpEvents, tmpKeys);
+        if (keys[middle - 1] < keys[middle]) {
+            return;
+        }
+        int n = middle - from;
+        System.arraycopy(events, from, tmpEvents, 0, n);
+        System.arraycopy(keys, from, tmpKeys, 0, n);
+        int i = 0;
+        int j = middle;
+        int k = from;
+        while (i < n && j < to) {
+            if (tmpKeys[i] < keys[j]) {
+                events[k] = tmpEvents[i];
+                keys[k++] = tmpKeys[i++];
+            } else {
+                events[k] = events[j];
+                keys[k++] = keys[j++];
+            }
+        }
+        System.arraycopy(tmpEvents, i, events, k, n - i);
+        System.arraycopy(tmpKeys, i, keys, k, n - i);
+    }
 }
@@ -115,7 +115,8 @@ class ScenarioImporter {
 	// Note: in order to make MATSim Agent ids, some positions in the array might be null.
 	protected Agent[] hermes_agents;
 
-	protected Realm realm;
+	// Realms that simulate the network partitions, see HermesConfigGroup#getNumberOfRealms().
+	protected Realm[] realms;
 	private final boolean deterministicPt;
 	// Agents waiting in pt stations. Should be used as follows:
 	// agent_stops.get(curr station id).get(line id) -> queue of agents
@@ -309,7 +310,26 @@ class ScenarioImporter {
 	}
 
 	private void generateRealms() throws Exception {
-		realm = new Realm(this, eventsManager);
+		int numberOfRealms = Math.max(1, scenario.getConfig().hermes().getNumberOfRealms());
+		int[] realm_of_link = null;
+		int[] realm_of_stop = null;
+		if (numberOfRealms > 1) {
+			realm_of_link = LinkPartitioner.partition(scenario.getNetwork().getLinks().values(), hermes_links.length, numberOfRealms);
+			realm_of_stop = new int[Id.getNumberOfIds(TransitStopFacility.class)];
+			for (TransitStopFacility stop : scenario.getTransitSchedule().getFacilities().values()) {
+				Id<Link> linkId = stop.getLinkId();
+				if (linkId != null && linkId.index() < realm_of_link.length) {
+					realm_of_stop[stop.getId().index()] = realm_of_link[linkId.index()];
+				}
+			}
+		}
+		realms = new Realm[numberOfRealms];
+		for (int i = 0; i < numberOfRealms; i++) {
+			realms[i] = new Realm(this, eventsManager, i, numberOfRealms, realm_of_link, realm_of_stop);
+		}
+		for (Realm realm : realms) {
+			realm.setRealms(realms);
+		}
 
 		// Put agents in their initial location (link or activity center)
 		for (Agent agent : hermes_agents) {
@@ -331,7 +351,12 @@ class ScenarioImporter {
 				case Agent.SleepForType:
 				case Agent.SleepUntilType:
 					int sleep = Agent.getSleepPlanEntry(planentry);
-					realm.delayedAgents().get(Math.min(sleep, scenario.getConfig().hermes().getEndTime() + 1)).add(agent);
+					// sleeping agents start in the realm of their first link to avoid an early hand over
+					int realm = 0;
+					if (realm_of_link != null && agent.plan.size() > 1 && Agent.getPlanHeader(agent.plan.get(1)) == Agent.LinkType) {
+						realm = realm_of_link[Agent.getLinkPlanEntry(agent.plan.get(1))];
+					}
+					realms[realm].delayedAgents().get(Math.min(sleep, scenario.getConfig().hermes().getEndTime() + 1)).add(agent);
 					break;
 				default:
 					Logger.getLogger(getClass()).error(String.format("ERROR -> unknown plan element type %d", type));
@@ -342,7 +367,8 @@ class ScenarioImporter {
 			if (link != null) {
 				int nextwakeup = link.nexttime();
 				if (nextwakeup > 0) {
-					realm.delayedLinks().get(nextwakeup).add(link);
+					int realm = realm_of_link == null ? 0 : realm_of_link[link.id()];
+					realms[realm].delayedLinks().get(nextwakeup).add(link);
 				}
 			}
 		}
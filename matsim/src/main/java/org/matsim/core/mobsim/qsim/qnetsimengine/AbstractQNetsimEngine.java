@@ -25,6 +25,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import com.google.inject.Inject;
+
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
@@ -48,6 +50,8 @@ import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
 import org.matsim.core.mobsim.qsim.interfaces.NetsimNetwork;
 import org.matsim.core.utils.misc.Time;
 import org.matsim.vehicles.Vehicle;
+import org.matsim.vis.snapshotwriters.PositionFramesWriter;
+import org.matsim.vis.snapshotwriters.PositionFramesWriterFactory;
 import org.matsim.vis.snapshotwriters.SnapshotLinkWidthCalculator;
 
 /**
@@ -88,6 +92,9 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 	protected final QNetwork network;
 
 	private double infoTime = 0;
+	private PositionFramesWriterFactory positionFramesWriterFactory = null;
+	private PositionFramesWriter positionFramesWriter = null;
+	private double positionFrameTime = 0;
 	private List<A> engines;
 	private InternalInterface internalInterface = null;
 	
@@ -153,6 +160,15 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 		}
 	}
 
+	/**
+	 * If set, the runners write the positions of all vehicles every <code>qsim.snapshotperiod</code> seconds (or
+	 * every second if no period is set) to the writer created by the factory.
+	 */
+	@Inject(optional = true)
+	public final void setPositionFramesWriterFactory(PositionFramesWriterFactory positionFramesWriterFactory) {
+		this.positionFramesWriterFactory = positionFramesWriterFactory;
+	}
+
 	@Override
 	public final void onPrepareSim() {
 		this.infoTime = 
@@ -165,6 +181,11 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 		this.engines = initQSimEngineRunners();
 		assignNetElementActivators();
 		initMultiThreading();
+
+		if (this.positionFramesWriterFactory != null) {
+			this.positionFramesWriter = this.positionFramesWriterFactory.createWriter();
+			this.positionFrameTime = internalInterface.getMobsim().getSimTimer().getSimStartTime();
+		}
 	}
 	
 	/** 
@@ -186,6 +207,11 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 
 		finishMultiThreading();
 
+		if (this.positionFramesWriter != null) {
+			this.positionFramesWriter.finish();
+			this.positionFramesWriter = null;
+		}
+
 		/* Reset vehicles on ALL links. We cannot iterate only over the active links
 		 * (this.simLinksArray), because there may be links that have vehicles only
 		 * in the buffer (such links are *not* active, as the buffer gets emptied
@@ -222,7 +248,20 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 	 */
 	@Override
 	public final void doSimStep(final double time) {
+		PositionFramesWriter.Frame frame = null;
+		if (this.positionFramesWriter != null && time >= this.positionFrameTime) {
+			this.positionFrameTime += Math.max(1.0, this.qsim.getScenario().getConfig().qsim().getSnapshotPeriod());
+			frame = this.positionFramesWriter.beginFrame(time, this.engines.size());
+			for (int i = 0; i < this.engines.size(); i++) {
+				this.engines.get(i).setPositionFramePart(frame.getPart(i));
+			}
+		}
+
 		run(time);
+
+		if (frame != null) {
+			this.positionFramesWriter.endFrame(frame);
+		}
 		
 		this.printSimLog(time);
 	}
@@ -404,6 +443,7 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 
 				// removing qsim as "person in the middle".  not fully sure if this is the same in the parallel impl.  kai, oct'10
 				qLink.setNetElementActivationRegistry(this.engines.get(i));
+				this.engines.get(i).addAssignedLink(qLink);
 
 				/*
 				 * If the QLink contains agents that end their activity in the first time
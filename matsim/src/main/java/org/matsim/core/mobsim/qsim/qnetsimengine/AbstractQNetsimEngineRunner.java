@@ -20,6 +20,7 @@
 
 package org.matsim.core.mobsim.qsim.qnetsimengine;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -28,6 +29,8 @@ import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.matsim.core.mobsim.qsim.QSim;
+import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
+import org.matsim.vis.snapshotwriters.PositionFramesWriter;
 
 /**
  * These are the "threads" of the {@link QNetsimEngineWithThreadpool}. The "run()" method is implicitly called by starting the thread.
@@ -70,6 +73,13 @@ abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry
 	private boolean lockNodes = false;
 	private boolean lockLinks = false;
 
+	/*
+	 * All links whose in-node is handled by this runner, active or not. Only used to collect
+	 * position frames, since vehicles may also wait in the buffer of inactive links.
+	 */
+	private final List<AbstractQLink> assignedLinks = new ArrayList<>();
+	private PositionFramesWriter.Part positionFramePart = null;
+
 	/*package*/ long[] runTimes;
 	private long startTime = 0;
 	{	
@@ -81,6 +91,18 @@ abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry
 		time = t;
 	}
 
+	/*package*/ final void addAssignedLink(final AbstractQLink link) {
+		this.assignedLinks.add(link);
+	}
+
+	/**
+	 * Sets the part of a position frame to be filled after the links were moved in the current time step, or
+	 * <code>null</code> if no frame is due.
+	 */
+	/*package*/ final void setPositionFramePart(final PositionFramesWriter.Part part) {
+		this.positionFramePart = part;
+	}
+
 	public abstract void afterSim() ;
 
 	protected void moveNodes() {
@@ -111,6 +133,34 @@ abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry
 		lockLinks = false;
 	}
 
+	/*
+	 * The offset is estimated from the free flow travel time of the vehicle, i.e. vehicles in a jam are
+	 * drawn at their free flow position. Vehicles which could have left the link already are at its end.
+	 */
+	protected final void collectPositions() {
+		PositionFramesWriter.Part part = this.positionFramePart;
+		if (part == null) {
+			return;
+		}
+		for (AbstractQLink link : this.assignedLinks) {
+			if (!link.isActive() && link.isNotOfferingVehicle()) {
+				continue;
+			}
+			double length = link.getLink().getLength();
+			for (MobsimVehicle vehicle : link.getAllNonParkedVehicles()) {
+				QVehicle veh = (QVehicle) vehicle;
+				double enterTime = veh.getLinkEnterTime();
+				double exitTime = veh.getEarliestLinkExitTime();
+				double offset = length;
+				if (exitTime > enterTime && time < exitTime) {
+					offset = length * Math.max(0.0, (time - enterTime) / (exitTime - enterTime));
+				}
+				part.addPosition(veh.getId(), link.getLink().getId(), offset);
+			}
+		}
+		this.positionFramePart = null;
+	}
+
 	/*
 	 * This method is only called while links are NOT "moved", i.e. their
 	 * doStimStep(...) methods are called. To ensure that, we  use a boolean lock.
@@ -0,0 +1,146 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.events.ReusableEvent;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Reuses the instances of the most frequent events of the network engine. The pool is used by a single thread. All
+ * instances handed out in one time step are reused in the next one, which is only safe if the events manager has
+ * processed all events of a time step when the next one starts, see
+ * {@link org.matsim.core.api.experimental.events.EventsManager#isSynchronizedOnSimSteps()}.
+ */
+final class LinkEventsPool {
+
+	private double time = Double.NaN;
+
+	private final List<PooledLinkEnterEvent> linkEnterEvents = new ArrayList<>();
+	private int linkEnterCount = 0;
+	private final List<PooledLinkLeaveEvent> linkLeaveEvents = new ArrayList<>();
+	private int linkLeaveCount = 0;
+	private final List<PooledVehicleEntersTrafficEvent> vehicleEntersTrafficEvents = new ArrayList<>();
+	private int vehicleEntersTrafficCount = 0;
+
+	LinkEnterEvent linkEnter(double now, Id<Vehicle> vehicleId, Id<Link> linkId) {
+		checkTime(now);
+		if (this.linkEnterCount == this.linkEnterEvents.size()) {
+			this.linkEnterEvents.add(new PooledLinkEnterEvent(now, vehicleId, linkId));
+		}
+		PooledLinkEnterEvent event = this.linkEnterEvents.get(this.linkEnterCount++);
+		event.set(now, vehicleId, linkId);
+		return event;
+	}
+
+	LinkLeaveEvent linkLeave(double now, Id<Vehicle> vehicleId, Id<Link> linkId) {
+		checkTime(now);
+		if (this.linkLeaveCount == this.linkLeaveEvents.size()) {
+			this.linkLeaveEvents.add(new PooledLinkLeaveEvent(now, vehicleId, linkId));
+		}
+		PooledLinkLeaveEvent event = this.linkLeaveEvents.get(this.linkLeaveCount++);
+		event.set(now, vehicleId, linkId);
+		return event;
+	}
+
+	VehicleEntersTrafficEvent vehicleEntersTraffic(double now, Id<Person> driverId, Id<Link> linkId, Id<Vehicle> vehicleId,
+			String networkMode, double relativePositionOnLink) {
+		checkTime(now);
+		if (this.vehicleEntersTrafficCount == this.vehicleEntersTrafficEvents.size()) {
+			this.vehicleEntersTrafficEvents.add(new PooledVehicleEntersTrafficEvent(now, driverId, linkId, vehicleId, networkMode, relativePositionOnLink));
+		}
+		PooledVehicleEntersTrafficEvent event = this.vehicleEntersTrafficEvents.get(this.vehicleEntersTrafficCount++);
+		event.set(now, driverId, linkId, vehicleId, networkMode, relativePositionOnLink);
+		return event;
+	}
+
+	private void checkTime(double now) {
+		if (now != this.time) {
+			// a new time step has started, so all events handed out before are processed
+			this.time = now;
+			this.linkEnterCount = 0;
+			this.linkLeaveCount = 0;
+			this.vehicleEntersTrafficCount = 0;
+		}
+	}
+
+	static final class PooledLinkEnterEvent extends LinkEnterEvent implements ReusableEvent {
+		PooledLinkEnterEvent(double time, Id<Vehicle> vehicleId, Id<Link> linkId) {
+			super(time, vehicleId, linkId);
+		}
+
+		void set(double time, Id<Vehicle> vehicleId, Id<Link> linkId) {
+			setTime(time);
+			setVehicleId(vehicleId);
+			setLinkId(linkId);
+		}
+
+		@Override
+		public Event copy() {
+			return new LinkEnterEvent(getTime(), getVehicleId(), getLinkId());
+		}
+	}
+
+	static final class PooledLinkLeaveEvent extends LinkLeaveEvent implements ReusableEvent {
+		PooledLinkLeaveEvent(double time, Id<Vehicle> vehicleId, Id<Link> linkId) {
+			super(time, vehicleId, linkId);
+		}
+
+		void set(double time, Id<Vehicle> vehicleId, Id<Link> linkId) {
+			setTime(time);
+			setVehicleId(vehicleId);
+			setLinkId(linkId);
+		}
+
+		@Override
+		public Event copy() {
+			return new LinkLeaveEvent(getTime(), getVehicleId(), getLinkId());
+		}
+	}
+
+	static final class PooledVehicleEntersTrafficEvent extends VehicleEntersTrafficEvent implements ReusableEvent {
+		PooledVehicleEntersTrafficEvent(double time, Id<Person> driverId, Id<Link> linkId, Id<Vehicle> vehicleId,
+				String networkMode, double relativePositionOnLink) {
+			super(time, driverId, linkId, vehicleId, networkMode, relativePositionOnLink);
+		}
+
+		void set(double time, Id<Person> driverId, Id<Link> linkId, Id<Vehicle> vehicleId, String networkMode,
+				double relativePositionOnLink) {
+			setTime(time);
+			set(driverId, linkId, vehicleId, networkMode, relativePositionOnLink);
+		}
+
+		@Override
+		public Event copy() {
+			return new VehicleEntersTrafficEvent(getTime(), getPersonId(), getLinkId(), getVehicleId(), getNetworkMode(),
+					getRelativePositionOnLink());
+		}
+	}
+}
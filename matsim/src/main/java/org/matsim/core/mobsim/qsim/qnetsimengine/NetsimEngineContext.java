@@ -21,13 +21,23 @@
 
  package org.matsim.core.mobsim.qsim.qnetsimengine;
 
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.mobsim.framework.MobsimTimer;
 import org.matsim.core.mobsim.qsim.interfaces.AgentCounter;
+import org.matsim.vehicles.Vehicle;
 import org.matsim.vis.snapshotwriters.SnapshotLinkWidthCalculator;
 
 public class NetsimEngineContext {
+	private static final Logger log = Logger.getLogger(NetsimEngineContext.class);
+
 	private final EventsManager events;
 	final  double effectiveCellSize;
 	private final AgentCounter agentCounter;
@@ -35,6 +45,7 @@ public class NetsimEngineContext {
 	final QSimConfigGroup qsimConfig;
 	private final MobsimTimer mobsimTimer;
 	final SnapshotLinkWidthCalculator linkWidthCalculator;
+	private final ThreadLocal<LinkEventsPool> eventsPool;
 
 	public NetsimEngineContext(EventsManager events, double effectiveCellSize, AgentCounter agentCounter,
 			AbstractAgentSnapshotInfoBuilder snapshotInfoBuilder, QSimConfigGroup qsimConfig, MobsimTimer mobsimTimer, 
@@ -46,6 +57,32 @@ public class NetsimEngineContext {
 		this.qsimConfig = qsimConfig;
 		this.mobsimTimer = mobsimTimer ;
 		this.linkWidthCalculator = linkWidthCalculator;
+
+		if (qsimConfig != null && qsimConfig.isUsingPooledLinkEvents()) {
+			if (events.isSynchronizedOnSimSteps()) {
+				this.eventsPool = ThreadLocal.withInitial(LinkEventsPool::new);
+			} else {
+				log.warn("link events are not pooled, as the events manager " + events.getClass().getName()
+						+ " may still process events after the sim step in which they were created.");
+				this.eventsPool = null;
+			}
+		} else {
+			this.eventsPool = null;
+		}
+	}
+
+	LinkEnterEvent createLinkEnterEvent(double now, Id<Vehicle> vehicleId, Id<Link> linkId) {
+		return this.eventsPool == null ? new LinkEnterEvent(now, vehicleId, linkId) : this.eventsPool.get().linkEnter(now, vehicleId, linkId);
+	}
+
+	LinkLeaveEvent createLinkLeaveEvent(double now, Id<Vehicle> vehicleId, Id<Link> linkId) {
+		return this.eventsPool == null ? new LinkLeaveEvent(now, vehicleId, linkId) : this.eventsPool.get().linkLeave(now, vehicleId, linkId);
+	}
+
+	VehicleEntersTrafficEvent createVehicleEntersTrafficEvent(double now, Id<Person> driverId, Id<Link> linkId, Id<Vehicle> vehicleId,
+			String networkMode, double relativePositionOnLink) {
+		return this.eventsPool == null ? new VehicleEntersTrafficEvent(now, driverId, linkId, vehicleId, networkMode, relativePositionOnLink)
+				: this.eventsPool.get().vehicleEntersTraffic(now, driverId, linkId, vehicleId, networkMode, relativePositionOnLink);
 	}
 
 	MobsimTimer getSimTimer() {
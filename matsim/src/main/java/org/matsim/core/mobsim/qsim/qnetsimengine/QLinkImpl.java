@@ -26,7 +26,6 @@ import java.util.List;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
-import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
 import org.matsim.core.mobsim.qsim.interfaces.SignalGroupState;
@@ -158,7 +157,7 @@ public final class QLinkImpl extends AbstractQLink implements SignalizeableItem
 			
 			double now = context.getSimTimer().getTimeOfDay() ;
 			context.getEventsManager().processEvent(
-					new VehicleEntersTrafficEvent(now, veh.getDriver().getId(), this.getLink().getId(), veh.getId(), veh.getDriver().getMode(), 1.0));
+					context.createVehicleEntersTrafficEvent(now, veh.getDriver().getId(), this.getLink().getId(), veh.getId(), veh.getDriver().getMode(), 1.0));
 
 			if ( this.getTransitQLink().addTransitToStopQueue(now, veh, this.getLink().getId()) ) {
 				continue ;
@@ -32,7 +32,6 @@ import java.util.Stack;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
-import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
 import org.matsim.core.mobsim.qsim.qnetsimengine.QNetsimEngineI.NetsimInternalInterface;
@@ -416,7 +415,7 @@ public final class QLinkLanesImpl extends AbstractQLink {
 
 			movedWaitToRoad = true;
 			context .getEventsManager() .processEvent(
-							new VehicleEntersTrafficEvent(now, veh.getDriver().getId(),
+							context.createVehicleEntersTrafficEvent(now, veh.getDriver().getId(),
 									this.getLink().getId(), veh.getId(), veh.getDriver().getMode(), 1.0));
 
 			if (this.getTransitQLink().addTransitToStopQueue(now, veh, this.getLink().getId())) {
@@ -49,6 +49,7 @@ final class QNetsimEngineRunnerForThreadpool extends AbstractQNetsimEngineRunner
 			moveNodes();
 		} else {
 			moveLinks();
+			collectPositions();
 		}
 		return true ;
 	}
@@ -22,8 +22,6 @@ package org.matsim.core.mobsim.qsim.qnetsimengine;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
-import org.matsim.api.core.v01.events.LinkEnterEvent;
-import org.matsim.api.core.v01.events.LinkLeaveEvent;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Node;
 import org.matsim.core.config.groups.QSimConfigGroup;
@@ -429,7 +427,7 @@ final class QNodeImpl extends AbstractQNode {
 	private void moveVehicleFromInlinkToAbort(final QVehicle veh, final QLaneI fromLane, final double now, Id<Link> currentLinkId) {
 		fromLane.popFirstVehicle();
 		// -->
-		this.context.getEventsManager().processEvent(new LinkLeaveEvent(now, veh.getId(), currentLinkId));
+		this.context.getEventsManager().processEvent(this.context.createLinkLeaveEvent(now, veh.getId(), currentLinkId));
 		// <--
 		
 		// first treat the passengers:
@@ -456,13 +454,13 @@ final class QNodeImpl extends AbstractQNode {
 		fromLane.popFirstVehicle();
 		// -->
 		//		network.simEngine.getMobsim().getEventsManager().processEvent(new LaneLeaveEvent(now, veh.getId(), currentLinkId, fromLane.getId()));
-		this.context.getEventsManager().processEvent(new LinkLeaveEvent(now, veh.getId(), currentLinkId));
+		this.context.getEventsManager().processEvent(this.context.createLinkLeaveEvent(now, veh.getId(), currentLinkId));
 		// <--
 		
 		veh.getDriver().notifyMoveOverNode( nextLinkId );
 		
 		// -->
-		this.context.getEventsManager().processEvent(new LinkEnterEvent(now, veh.getId(), nextLinkId));
+		this.context.getEventsManager().processEvent(this.context.createLinkEnterEvent(now, veh.getId(), nextLinkId));
 		// <--
 		nextQueueLane.addFromUpstream(veh);
 	}
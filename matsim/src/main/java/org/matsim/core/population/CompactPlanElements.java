@@ -0,0 +1,525 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteFactories;
+import org.matsim.core.utils.misc.OptionalTime;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * The plan elements of a {@link PlanImpl} encoded into a single byte array, see {@link PersonUtils#compactUnselectedPlans}.
+ *
+ * Ids are stored by their index, activity types, modes, route types and attribute names by their index in the
+ * {@link Dictionary} of the population, and integral times as variable-length integers. Network routes are stored as the indices of their links,
+ * all other routes by their route description. Only plans consisting of {@link ActivityImpl}s and {@link LegImpl}s with
+ * attribute values of basic types, and routes that are re-created with the same class by the {@link RouteFactories},
+ * can be encoded.
+ */
+/* deliberately package */ final class CompactPlanElements {
+
+	private static final byte ACTIVITY = 0;
+	private static final byte LEG = 1;
+
+	private static final int ACT_LINK = 1;
+	private static final int ACT_FACILITY = 1 << 1;
+	private static final int ACT_COORD = 1 << 2;
+	private static final int ACT_COORD_Z = 1 << 3;
+	private static final int ACT_START_TIME = 1 << 4;
+	private static final int ACT_END_TIME = 1 << 5;
+	private static final int ACT_MAX_DURATION = 1 << 6;
+
+	private static final int LEG_DEPARTURE_TIME = 1;
+	private static final int LEG_TRAVEL_TIME = 1 << 1;
+	private static final int LEG_NETWORK_ROUTE = 1 << 2;
+	private static final int LEG_OTHER_ROUTE = 1 << 3;
+
+	private static final int ROUTE_TRAVEL_TIME = 1;
+	private static final int ROUTE_DESCRIPTION = 1 << 1;
+	private static final int ROUTE_VEHICLE = 1 << 2;
+
+	private static final byte ATTR_STRING = 0;
+	private static final byte ATTR_INTEGER = 1;
+	private static final byte ATTR_DOUBLE = 2;
+	private static final byte ATTR_BOOLEAN = 3;
+	private static final byte ATTR_LONG = 4;
+
+	private final byte[] data;
+	private final RouteFactories routeFactories;
+	private final Dictionary dictionary;
+
+	private CompactPlanElements(byte[] data, RouteFactories routeFactories, Dictionary dictionary) {
+		this.data = data;
+		this.routeFactories = routeFactories;
+		this.dictionary = dictionary;
+	}
+
+	/**
+	 * @return the dictionary of the population, or a new one if the population does not keep one.
+	 */
+	static Dictionary getDictionary(Population population) {
+		if (population instanceof PopulationImpl) {
+			return ((PopulationImpl) population).getCompactPlanElementsDictionary();
+		}
+		return new Dictionary();
+	}
+
+	/**
+	 * @return the size of the encoded plan elements in bytes
+	 */
+	int size() {
+		return this.data.length;
+	}
+
+	/**
+	 * @return the encoded plan elements, or <code>null</code> if the plan elements cannot be encoded.
+	 */
+	static CompactPlanElements encode(List<PlanElement> planElements, RouteFactories routeFactories, Dictionary dictionary, Map<String, Class<?>> routeClassCache) {
+		Encoder out = new Encoder(planElements.size() * 24);
+		out.writeInt(planElements.size());
+		for (PlanElement pe : planElements) {
+			if (pe instanceof ActivityImpl) {
+				out.writeByte(ACTIVITY);
+				if (!encodeActivity((ActivityImpl) pe, out, dictionary)) {
+					return null;
+				}
+			} else if (pe instanceof LegImpl) {
+				out.writeByte(LEG);
+				if (!encodeLeg((LegImpl) pe, out, routeFactories, dictionary, routeClassCache)) {
+					return null;
+				}
+			} else {
+				return null;
+			}
+		}
+		return new CompactPlanElements(out.toByteArray(), routeFactories, dictionary);
+	}
+
+	private static boolean encodeActivity(ActivityImpl act, Encoder out, Dictionary dictionary) {
+		Coord coord = act.getCoord();
+		int flags = (act.getLinkId() != null ? ACT_LINK : 0)
+				| (act.getFacilityId() != null ? ACT_FACILITY : 0)
+				| (coord != null ? ACT_COORD : 0)
+				| (coord != null && coord.hasZ() ? ACT_COORD_Z : 0)
+				| (act.getStartTime().isDefined() ? ACT_START_TIME : 0)
+				| (act.getEndTime().isDefined() ? ACT_END_TIME : 0)
+				| (act.getMaximumDuration().isDefined() ? ACT_MAX_DURATION : 0);
+		out.writeByte(flags);
+		out.writeInt(dictionary.indexOf(act.getType()));
+		if (act.getLinkId() != null) {
+			out.writeInt(act.getLinkId().index());
+		}
+		if (act.getFacilityId() != null) {
+			out.writeInt(act.getFacilityId().index());
+		}
+		if (coord != null) {
+			out.writeDouble(coord.getX());
+			out.writeDouble(coord.getY());
+			if (coord.hasZ()) {
+				out.writeDouble(coord.getZ());
+			}
+		}
+		writeTime(act.getStartTime(), out);
+		writeTime(act.getEndTime(), out);
+		writeTime(act.getMaximumDuration(), out);
+		return encodeAttributes(act.getAttributes(), out, dictionary);
+	}
+
+	private static boolean encodeLeg(LegImpl leg, Encoder out, RouteFactories routeFactories, Dictionary dictionary, Map<String, Class<?>> routeClassCache) {
+		Route route = leg.getRoute();
+		if (route != null && route.getClass() != getRouteClass(route, routeFactories, routeClassCache)) {
+			return false;
+		}
+		int flags = (leg.getDepartureTime().isDefined() ? LEG_DEPARTURE_TIME : 0)
+				| (leg.getTravelTime().isDefined() ? LEG_TRAVEL_TIME : 0)
+				| (route instanceof NetworkRoute ? LEG_NETWORK_ROUTE : 0)
+				| (route != null && !(route instanceof NetworkRoute) ? LEG_OTHER_ROUTE : 0);
+		out.writeByte(flags);
+		out.writeInt(dictionary.indexOf(leg.getMode()));
+		writeTime(leg.getDepartureTime(), out);
+		writeTime(leg.getTravelTime(), out);
+		if (route != null) {
+			encodeRoute(route, out, dictionary);
+		}
+		return encodeAttributes(leg.getAttributes(), out, dictionary);
+	}
+
+	private static void encodeRoute(Route route, Encoder out, Dictionary dictionary) {
+		boolean hasVehicle = route instanceof NetworkRoute && ((NetworkRoute) route).getVehicleId() != null;
+		String description = route instanceof NetworkRoute ? null : route.getRouteDescription();
+		int flags = (route.getTravelTime().isDefined() ? ROUTE_TRAVEL_TIME : 0)
+				| (description != null ? ROUTE_DESCRIPTION : 0)
+				| (hasVehicle ? ROUTE_VEHICLE : 0);
+		out.writeByte(flags);
+		out.writeInt(route.getStartLinkId() == null ? 0 : route.getStartLinkId().index() + 1);
+		out.writeInt(route.getEndLinkId() == null ? 0 : route.getEndLinkId().index() + 1);
+		out.writeDouble(route.getDistance());
+		writeTime(route.getTravelTime(), out);
+		if (route instanceof NetworkRoute) {
+			NetworkRoute networkRoute = (NetworkRoute) route;
+			out.writeDouble(networkRoute.getTravelCost());
+			List<Id<Link>> linkIds = networkRoute.getLinkIds();
+			out.writeInt(linkIds.size());
+			for (Id<Link> linkId : linkIds) {
+				out.writeInt(linkId.index());
+			}
+			if (hasVehicle) {
+				out.writeInt(networkRoute.getVehicleId().index());
+			}
+		} else {
+			out.writeInt(dictionary.indexOf(route.getRouteType()));
+			if (description != null) {
+				out.writeString(description);
+			}
+		}
+	}
+
+	private static Class<?> getRouteClass(Route route, RouteFactories routeFactories, Map<String, Class<?>> routeClassCache) {
+		// the route must be re-created with the same class when decoding, which is checked once per route type
+		return routeClassCache.computeIfAbsent(route.getRouteType(), type -> {
+			Class<? extends Route> routeClass = route instanceof NetworkRoute ? NetworkRoute.class : routeFactories.getRouteClassForType(type);
+			try {
+				return routeFactories.createRoute(routeClass, null, null).getClass();
+			} catch (RuntimeException e) {
+				return Void.class;
+			}
+		});
+	}
+
+	private static boolean encodeAttributes(Attributes attributes, Encoder out, Dictionary dictionary) {
+		out.writeInt(attributes.size());
+		if (attributes.isEmpty()) {
+			return true;
+		}
+		for (Map.Entry<String, Object> entry : attributes.getAsMap().entrySet()) {
+			out.writeInt(dictionary.indexOf(entry.getKey()));
+			Object value = entry.getValue();
+			if (value instanceof String) {
+				out.writeByte(ATTR_STRING);
+				out.writeString((String) value);
+			} else if (value instanceof Integer) {
+				out.writeByte(ATTR_INTEGER);
+				out.writeInt((Integer) value);
+			} else if (value instanceof Double) {
+				out.writeByte(ATTR_DOUBLE);
+				out.writeDouble((Double) value);
+			} else if (value instanceof Boolean) {
+				out.writeByte(ATTR_BOOLEAN);
+				out.writeByte((Boolean) value ? 1 : 0);
+			} else if (value instanceof Long) {
+				out.writeByte(ATTR_LONG);
+				out.writeLong((Long) value);
+			} else {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	ArrayList<PlanElement> decode() {
+		Decoder in = new Decoder(this.data);
+		int count = in.readInt();
+		ArrayList<PlanElement> planElements = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			if (in.readByte() == ACTIVITY) {
+				planElements.add(decodeActivity(in));
+			} else {
+				planElements.add(decodeLeg(in));
+			}
+		}
+		return planElements;
+	}
+
+	private ActivityImpl decodeActivity(Decoder in) {
+		int flags = in.readByte();
+		ActivityImpl act = new ActivityImpl(this.dictionary.get(in.readInt()));
+		if ((flags & ACT_LINK) != 0) {
+			act.setLinkId(Id.get(in.readInt(), Link.class));
+		}
+		if ((flags & ACT_FACILITY) != 0) {
+			act.setFacilityId(Id.get(in.readInt(), ActivityFacility.class));
+		}
+		if ((flags & ACT_COORD) != 0) {
+			double x = in.readDouble();
+			double y = in.readDouble();
+			act.setCoord((flags & ACT_COORD_Z) != 0 ? new Coord(x, y, in.readDouble()) : new Coord(x, y));
+		}
+		if ((flags & ACT_START_TIME) != 0) {
+			act.setStartTime(in.readTime());
+		}
+		if ((flags & ACT_END_TIME) != 0) {
+			act.setEndTime(in.readTime());
+		}
+		if ((flags & ACT_MAX_DURATION) != 0) {
+			act.setMaximumDuration(in.readTime());
+		}
+		decodeAttributes(in, act.getAttributes());
+		return act;
+	}
+
+	private LegImpl decodeLeg(Decoder in) {
+		int flags = in.readByte();
+		LegImpl leg = new LegImpl(this.dictionary.get(in.readInt()));
+		if ((flags & LEG_DEPARTURE_TIME) != 0) {
+			leg.setDepartureTime(in.readTime());
+		}
+		if ((flags & LEG_TRAVEL_TIME) != 0) {
+			leg.setTravelTime(in.readTime());
+		}
+		if ((flags & (LEG_NETWORK_ROUTE | LEG_OTHER_ROUTE)) != 0) {
+			leg.setRoute(decodeRoute(in, (flags & LEG_NETWORK_ROUTE) != 0));
+		}
+		decodeAttributes(in, leg.getAttributes());
+		return leg;
+	}
+
+	private Route decodeRoute(Decoder in, boolean networkRoute) {
+		int flags = in.readByte();
+		int startLink = in.readInt();
+		int endLink = in.readInt();
+		Id<Link> startLinkId = startLink == 0 ? null : Id.get(startLink - 1, Link.class);
+		Id<Link> endLinkId = endLink == 0 ? null : Id.get(endLink - 1, Link.class);
+		double distance = in.readDouble();
+		double travelTime = (flags & ROUTE_TRAVEL_TIME) != 0 ? in.readTime() : Double.NaN;
+		Route route;
+		if (networkRoute) {
+			NetworkRoute r = this.routeFactories.createRoute(NetworkRoute.class, startLinkId, endLinkId);
+			r.setTravelCost(in.readDouble());
+			int linkCount = in.readInt();
+			List<Id<Link>> linkIds = new ArrayList<>(linkCount);
+			for (int i = 0; i < linkCount; i++) {
+				linkIds.add(Id.get(in.readInt(), Link.class));
+			}
+			r.setLinkIds(startLinkId, linkIds, endLinkId);
+			if ((flags & ROUTE_VEHICLE) != 0) {
+				r.setVehicleId(Id.get(in.readInt(), Vehicle.class));
+			}
+			route = r;
+		} else {
+			Class<? extends Route> routeClass = this.routeFactories.getRouteClassForType(this.dictionary.get(in.readInt()));
+			route = this.routeFactories.createRoute(routeClass, startLinkId, endLinkId);
+			if ((flags & ROUTE_DESCRIPTION) != 0) {
+				route.setRouteDescription(in.readString());
+			}
+		}
+		route.setDistance(distance);
+		if ((flags & ROUTE_TRAVEL_TIME) != 0) {
+			route.setTravelTime(travelTime);
+		} else {
+			route.setTravelTimeUndefined();
+		}
+		return route;
+	}
+
+	private void decodeAttributes(Decoder in, Attributes attributes) {
+		int count = in.readInt();
+		for (int i = 0; i < count; i++) {
+			String name = this.dictionary.get(in.readInt());
+			byte type = in.readByte();
+			Object value;
+			switch (type) {
+				case ATTR_STRING:
+					value = in.readString();
+					break;
+				case ATTR_INTEGER:
+					value = in.readInt();
+					break;
+				case ATTR_DOUBLE:
+					value = in.readDouble();
+					break;
+				case ATTR_BOOLEAN:
+					value = in.readByte() != 0;
+					break;
+				case ATTR_LONG:
+					value = in.readLong();
+					break;
+				default:
+					throw new IllegalStateException("unknown attribute type " + type);
+			}
+			attributes.putAttribute(name, value);
+		}
+	}
+
+	private static void writeTime(OptionalTime time, Encoder out) {
+		if (time.isDefined()) {
+			out.writeTime(time.seconds());
+		}
+	}
+
+	/**
+	 * Activity types, modes, route types and attribute names, which only have a few distinct values. Each population has
+	 * its own dictionary, which is kept by all plans encoded with it. Index 0 stands for null.
+	 */
+	static final class Dictionary {
+		private final Map<String, Integer> indices = new ConcurrentHashMap<>();
+		private final List<String> strings = new CopyOnWriteArrayList<>(new String[] { null });
+
+		int indexOf(String s) {
+			if (s == null) {
+				return 0;
+			}
+			Integer index = this.indices.get(s);
+			if (index != null) {
+				return index;
+			}
+			synchronized (this) {
+				return this.indices.computeIfAbsent(s, k -> {
+					this.strings.add(k);
+					return this.strings.size() - 1;
+				});
+			}
+		}
+
+		String get(int index) {
+			return this.strings.get(index);
+		}
+	}
+
+	/**
+	 * Writes ints as variable-length integers using 1 to 5 bytes, so small indices and counts only need a single byte.
+	 */
+	private static final class Encoder {
+		private byte[] buffer;
+		private int size = 0;
+
+		Encoder(int capacity) {
+			this.buffer = new byte[Math.max(16, capacity)];
+		}
+
+		void writeByte(int b) {
+			ensureCapacity(1);
+			this.buffer[this.size++] = (byte) b;
+		}
+
+		void writeInt(int value) {
+			ensureCapacity(5);
+			int v = value;
+			while ((v & ~0x7f) != 0) {
+				this.buffer[this.size++] = (byte) ((v & 0x7f) | 0x80);
+				v >>>= 7;
+			}
+			this.buffer[this.size++] = (byte) v;
+		}
+
+		void writeLong(long value) {
+			ensureCapacity(8);
+			for (int shift = 56; shift >= 0; shift -= 8) {
+				this.buffer[this.size++] = (byte) (value >>> shift);
+			}
+		}
+
+		void writeDouble(double value) {
+			writeLong(Double.doubleToRawLongBits(value));
+		}
+
+		/** most times are full seconds, these are stored as (seconds << 1) and the others as 1 followed by the double */
+		void writeTime(double seconds) {
+			if (seconds >= 0 && seconds < (1 << 30) && seconds == Math.rint(seconds)) {
+				writeInt(((int) seconds) << 1);
+			} else {
+				writeInt(1);
+				writeDouble(seconds);
+			}
+		}
+
+		void writeString(String s) {
+			byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+			writeInt(bytes.length);
+			ensureCapacity(bytes.length);
+			System.arraycopy(bytes, 0, this.buffer, this.size, bytes.length);
+			this.size += bytes.length;
+		}
+
+		private void ensureCapacity(int bytes) {
+			if (this.size + bytes > this.buffer.length) {
+				this.buffer = Arrays.copyOf(this.buffer, Math.max(this.buffer.length * 2, this.size + bytes));
+			}
+		}
+
+		byte[] toByteArray() {
+			return Arrays.copyOf(this.buffer, this.size);
+		}
+	}
+
+	private static final class Decoder {
+		private final byte[] buffer;
+		private int position = 0;
+
+		Decoder(byte[] buffer) {
+			this.buffer = buffer;
+		}
+
+		byte readByte() {
+			return this.buffer[this.position++];
+		}
+
+		int readInt() {
+			int value = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = this.buffer[this.position++];
+				value |= (b & 0x7f) << shift;
+				shift += 7;
+			} while ((b & 0x80) != 0);
+			return value;
+		}
+
+		long readLong() {
+			long value = 0;
+			for (int i = 0; i < 8; i++) {
+				value = (value << 8) | (this.buffer[this.position++] & 0xff);
+			}
+			return value;
+		}
+
+		double readDouble() {
+			return Double.longBitsToDouble(readLong());
+		}
+
+		double readTime() {
+			int value = readInt();
+			return value == 1 ? readDouble() : (value >>> 1);
+		}
+
+		String readString() {
+			int length = readInt();
+			String s = new String(this.buffer, this.position, length, StandardCharsets.UTF_8);
+			this.position += length;
+			return s;
+		}
+	}
+}
@@ -21,12 +21,16 @@
 
 package org.matsim.core.population;
 
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.TreeSet;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.population.routes.RouteFactories;
 
 public final class PersonUtils {
     private PersonUtils() {
@@ -60,6 +64,37 @@ public final class PersonUtils {
         }
     }
 
+    /**
+     * Stores the plan elements of the unselected plans of the person in a compact binary form, which needs a fraction of
+     * the memory of the activity, leg and route objects. The plan elements are decoded again transparently when they are
+     * accessed the next time, e.g. when the plan is selected, mutated or written. Only the plan elements are encoded, the
+     * plans themselves with their scores, types and attributes remain unchanged. Plans that cannot be encoded, e.g. because
+     * they contain custom plan element or route implementations, are kept as they are.
+     * <p></p>
+     * Decoding creates new activity, leg and route objects. References to the plan elements of a compacted plan that were
+     * obtained before, e.g. in a map from legs to some data, no longer refer to the elements of the plan, and changes to
+     * them are lost. Do not compact plans while such references are still in use.
+     * <p></p>
+     * Activity types, modes and attribute names are stored in a dictionary kept by the population, which must be the
+     * population the person belongs to. The plans of a person must not be accessed by other threads while they are
+     * compacted.
+     *
+     * @return the number of compacted plans
+     */
+    public static int compactUnselectedPlans(Person person, Population population) {
+        return compactUnselectedPlans(person, population.getFactory().getRouteFactories(), CompactPlanElements.getDictionary(population), new HashMap<>());
+    }
+
+    /* package */ static int compactUnselectedPlans(Person person, RouteFactories routeFactories, CompactPlanElements.Dictionary dictionary, Map<String, Class<?>> routeClassCache) {
+        int count = 0;
+        for (Plan plan : person.getPlans()) {
+            if (plan != person.getSelectedPlan() && plan instanceof PlanImpl && ((PlanImpl) plan).compact(routeFactories, dictionary, routeClassCache)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
     /**
      * convenience method for often used demographic attribute
      */
@@ -31,12 +31,15 @@ import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.core.population.routes.RouteFactories;
 import org.matsim.core.scenario.CustomizableUtils;
 import org.matsim.utils.objectattributes.attributable.Attributes;
 
 /* deliberately package */  final class PlanImpl implements Plan {
 
-	private ArrayList<PlanElement> actsLegs = new ArrayList<>();
+	// volatile, so getPlanElements() only needs the lock if the plan elements are compacted
+	private volatile ArrayList<PlanElement> actsLegs = new ArrayList<>();
+	private CompactPlanElements compactActsLegs = null;
 
 	private Double score = null;
 	private Person person = null;
@@ -122,17 +125,59 @@ import org.matsim.utils.objectattributes.attributable.Attributes;
 
 	@Override
 	public final List<PlanElement> getPlanElements() {
-		return this.actsLegs;
+		ArrayList<PlanElement> planElements = this.actsLegs;
+		return planElements != null ? planElements : decode();
+	}
+
+	private synchronized ArrayList<PlanElement> decode() {
+		// another thread may have decoded the plan elements while we were waiting for the lock
+		ArrayList<PlanElement> planElements = this.actsLegs;
+		if (planElements == null) {
+			planElements = this.compactActsLegs.decode();
+			this.compactActsLegs = null;
+			this.actsLegs = planElements;
+		}
+		return planElements;
 	}
 
 	@Override
 	public final void addLeg(final Leg leg) {
-		this.actsLegs.add(leg);
+		getPlanElements().add(leg);
 	}
 
 	@Override
 	public final void addActivity(final Activity act) {
-		this.actsLegs.add(act);
+		getPlanElements().add(act);
+	}
+
+	/**
+	 * Replaces the plan elements by their compact encoding, until they are accessed the next time.
+	 *
+	 * @return <code>false</code> if the plan elements cannot be encoded.
+	 */
+	/* package */ synchronized boolean compact(final RouteFactories routeFactories, final CompactPlanElements.Dictionary dictionary, final Map<String, Class<?>> routeClassCache) {
+		ArrayList<PlanElement> planElements = this.actsLegs;
+		if (planElements == null) {
+			return true;
+		}
+		CompactPlanElements compact = CompactPlanElements.encode(planElements, routeFactories, dictionary, routeClassCache);
+		if (compact == null) {
+			return false;
+		}
+		this.compactActsLegs = compact;
+		this.actsLegs = null;
+		return true;
+	}
+
+	/* package */ boolean isCompact() {
+		return this.actsLegs == null;
+	}
+
+	/**
+	 * @return the size of the encoded plan elements in bytes, or 0 if the plan is not compacted.
+	 */
+	/* package */ synchronized int getCompactSize() {
+		return this.compactActsLegs == null ? 0 : this.compactActsLegs.size();
 	}
 
 	@Override
@@ -42,11 +42,22 @@ import org.matsim.utils.objectattributes.attributable.Attributes;
 	private final PopulationFactory populationFactory;
 	private long counter = 0;
 	private long nextMsg = 1;
+	private CompactPlanElements.Dictionary compactPlanElementsDictionary = null;
 
 	PopulationImpl(PopulationFactory populationFactory2) {
 		this.populationFactory = populationFactory2 ;
 	}
 
+	/**
+	 * @return the dictionary for the compacted plans of this population, see {@link PopulationUtils#compactUnselectedPlans(Population, int)}
+	 */
+	/* package */ synchronized CompactPlanElements.Dictionary getCompactPlanElementsDictionary() {
+		if (this.compactPlanElementsDictionary == null) {
+			this.compactPlanElementsDictionary = new CompactPlanElements.Dictionary();
+		}
+		return this.compactPlanElementsDictionary;
+	}
+
 	@Override
 	public void addPerson(final Person p) {
 		// validation
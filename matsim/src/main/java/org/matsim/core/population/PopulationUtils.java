@@ -26,12 +26,14 @@ import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Coord;
@@ -55,6 +57,7 @@ import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
 import org.matsim.core.config.groups.PlansConfigGroup;
 import org.matsim.core.gbl.Gbl;
 import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.population.algorithms.ParallelPersonAlgorithmUtils;
 import org.matsim.core.population.io.PopulationReader;
 import org.matsim.core.population.io.PopulationWriter;
 import org.matsim.core.population.io.StreamingPopulationReader;
@@ -447,6 +450,25 @@ public final class PopulationUtils {
 		map.putAll(treeMap);
 	}
 
+	/**
+	 * Compacts the unselected plans of all persons, see {@link PersonUtils#compactUnselectedPlans(Person, Population)}.
+	 * <p></p>
+	 * The plan elements of a compacted plan are new objects after it was decoded again. References to activities, legs
+	 * or routes of unselected plans held across a call to this method therefore become stale.
+	 *
+	 * @return the number of compacted plans
+	 */
+	public static int compactUnselectedPlans(final Population population, final int numberOfThreads) {
+		RouteFactories routeFactories = population.getFactory().getRouteFactories();
+		CompactPlanElements.Dictionary dictionary = CompactPlanElements.getDictionary(population);
+		AtomicInteger count = new AtomicInteger();
+		ParallelPersonAlgorithmUtils.run(population, numberOfThreads, () -> {
+			Map<String, Class<?>> routeClassCache = new HashMap<>();
+			return person -> count.addAndGet(PersonUtils.compactUnselectedPlans(person, routeFactories, dictionary, routeClassCache));
+		});
+		return count.get();
+	}
+
 	private static int missingFacilityCnt = 0 ;
 
 	@Deprecated // use decideOnLinkIdForActivity.  kai, sep'18
@@ -0,0 +1,538 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteFactories;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Read-only access to a population stored in the binary columnar format written by {@link BinaryPopulationWriter}.
+ *
+ * The file starts with a dictionary of all distinct strings (ids, types, modes, route descriptions and attributes),
+ * followed by one table each for persons, plans, plan elements, activities and legs, and one attribute table for each
+ * of them. Every column of these tables is stored as a contiguous array of ints (indices into the dictionary or into
+ * other tables) or doubles (<code>NaN</code> for undefined values), and is memory-mapped when the file is opened.
+ * Nothing else is read upfront, so single persons can be materialized with {@link #getPerson(int, PopulationFactory)},
+ * and analyses that only need a few columns, e.g. the scores or modes of the selected plans, only touch the pages of
+ * these columns.
+ *
+ * Persons, plans, plan elements, activities and legs are identified by their row index in the corresponding table.
+ * The persons are sorted by their id, the plans and plan elements of a person are stored in consecutive rows.
+ * As every column is mapped separately, a single column must not be larger than 2 GB, i.e. at most about 268 million
+ * activities or legs per file. Instances are not thread-safe.
+ */
+public final class BinaryPopulationFile {
+
+	static final int MAGIC = 0x4d504f50; // "MPOP"
+	static final int VERSION = 1;
+	private static final int HEADER_BYTES = 15 * 4;
+
+	private final int personCount;
+	private final int planCount;
+	private final int populationName;
+
+	private final IntBuffer stringOffsets;
+	private final ByteBuffer stringBytes;
+	private final String[] stringCache;
+
+	private final IntBuffer personIds;
+	private final IntBuffer personFirstPlan;
+	private final IntBuffer personSelectedPlan;
+	private final IntBuffer personFirstAttribute;
+
+	private final DoubleBuffer planScores;
+	private final IntBuffer planTypes;
+	private final IntBuffer planFirstElement;
+	private final IntBuffer planFirstAttribute;
+
+	private final IntBuffer elementRows;
+
+	private final IntBuffer actTypes;
+	private final IntBuffer actLinks;
+	private final IntBuffer actFacilities;
+	private final DoubleBuffer actX;
+	private final DoubleBuffer actY;
+	private final DoubleBuffer actZ;
+	private final DoubleBuffer actStartTimes;
+	private final DoubleBuffer actEndTimes;
+	private final DoubleBuffer actMaxDurations;
+	private final IntBuffer actFirstAttribute;
+
+	private final IntBuffer legModes;
+	private final DoubleBuffer legDepartureTimes;
+	private final DoubleBuffer legTravelTimes;
+	private final IntBuffer routeTypes;
+	private final IntBuffer routeStartLinks;
+	private final IntBuffer routeEndLinks;
+	private final IntBuffer routeDescriptions;
+	private final IntBuffer routeVehicles;
+	private final DoubleBuffer routeDistances;
+	private final DoubleBuffer routeTravelTimes;
+	private final IntBuffer legFirstAttribute;
+
+	private final AttributeTable populationAttributes;
+	private final AttributeTable personAttributes;
+	private final AttributeTable planAttributes;
+	private final AttributeTable actAttributes;
+	private final AttributeTable legAttributes;
+
+	private final ObjectAttributesConverter converter = new ObjectAttributesConverter();
+
+	private BinaryPopulationFile(FileChannel channel) throws IOException {
+		ByteBuffer header = new ColumnMapper(channel, 0).bytes(HEADER_BYTES);
+		if (header.getInt() != MAGIC) {
+			throw new IllegalArgumentException("Not a binary population file.");
+		}
+		int version = header.getInt();
+		if (version != VERSION) {
+			throw new IllegalArgumentException("Unsupported version of binary population file: " + version);
+		}
+		int stringCount = header.getInt();
+		int stringByteCount = header.getInt();
+		this.personCount = header.getInt();
+		this.planCount = header.getInt();
+		int elementCount = header.getInt();
+		int actCount = header.getInt();
+		int legCount = header.getInt();
+		this.populationName = header.getInt();
+		int populationAttributeCount = header.getInt();
+		int personAttributeCount = header.getInt();
+		int planAttributeCount = header.getInt();
+		int actAttributeCount = header.getInt();
+		int legAttributeCount = header.getInt();
+
+		// the order of the columns must match BinaryPopulationWriter
+		ColumnMapper mapper = new ColumnMapper(channel, HEADER_BYTES);
+		this.stringOffsets = mapper.ints(stringCount + 1);
+		this.stringBytes = mapper.bytes(stringByteCount);
+		this.stringCache = new String[stringCount];
+
+		this.personIds = mapper.ints(this.personCount);
+		this.personFirstPlan = mapper.ints(this.personCount + 1);
+		this.personSelectedPlan = mapper.ints(this.personCount);
+		this.personFirstAttribute = mapper.ints(this.personCount + 1);
+
+		this.planScores = mapper.doubles(this.planCount);
+		this.planTypes = mapper.ints(this.planCount);
+		this.planFirstElement = mapper.ints(this.planCount + 1);
+		this.planFirstAttribute = mapper.ints(this.planCount + 1);
+
+		this.elementRows = mapper.ints(elementCount);
+
+		this.actTypes = mapper.ints(actCount);
+		this.actLinks = mapper.ints(actCount);
+		this.actFacilities = mapper.ints(actCount);
+		this.actX = mapper.doubles(actCount);
+		this.actY = mapper.doubles(actCount);
+		this.actZ = mapper.doubles(actCount);
+		this.actStartTimes = mapper.doubles(actCount);
+		this.actEndTimes = mapper.doubles(actCount);
+		this.actMaxDurations = mapper.doubles(actCount);
+		this.actFirstAttribute = mapper.ints(actCount + 1);
+
+		this.legModes = mapper.ints(legCount);
+		this.legDepartureTimes = mapper.doubles(legCount);
+		this.legTravelTimes = mapper.doubles(legCount);
+		this.routeTypes = mapper.ints(legCount);
+		this.routeStartLinks = mapper.ints(legCount);
+		this.routeEndLinks = mapper.ints(legCount);
+		this.routeDescriptions = mapper.ints(legCount);
+		this.routeVehicles = mapper.ints(legCount);
+		this.routeDistances = mapper.doubles(legCount);
+		this.routeTravelTimes = mapper.doubles(legCount);
+		this.legFirstAttribute = mapper.ints(legCount + 1);
+
+		this.populationAttributes = new AttributeTable(mapper, populationAttributeCount);
+		this.personAttributes = new AttributeTable(mapper, personAttributeCount);
+		this.planAttributes = new AttributeTable(mapper, planAttributeCount);
+		this.actAttributes = new AttributeTable(mapper, actAttributeCount);
+		this.legAttributes = new AttributeTable(mapper, legAttributeCount);
+
+		if (mapper.offset != channel.size()) {
+			throw new IllegalArgumentException("Binary population file has an unexpected size, it might be truncated.");
+		}
+	}
+
+	public static BinaryPopulationFile open(final String filename) {
+		try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+			return new BinaryPopulationFile(channel);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		this.converter.putAttributeConverters(converters);
+	}
+
+	public String getPopulationName() {
+		return getString(this.populationName);
+	}
+
+	public int getPersonCount() {
+		return this.personCount;
+	}
+
+	public int getPlanCount() {
+		return this.planCount;
+	}
+
+	public Id<Person> getPersonId(int person) {
+		return Id.create(getString(this.personIds.get(person)), Person.class);
+	}
+
+	/**
+	 * @return the row of the person with the given id, or <code>-1</code> if the file does not contain such a person.
+	 */
+	public int getPersonIndex(Id<Person> personId) {
+		String id = personId.toString();
+		int low = 0;
+		int high = this.personCount - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int cmp = getString(this.personIds.get(middle)).compareTo(id);
+			if (cmp < 0) {
+				low = middle + 1;
+			} else if (cmp > 0) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -1;
+	}
+
+	public Object getPersonAttribute(int person, String key) {
+		return findAttribute(this.personAttributes, this.personFirstAttribute.get(person), this.personFirstAttribute.get(person + 1), key);
+	}
+
+	/**
+	 * @return the row of the first plan of the person, the other plans follow in consecutive rows.
+	 */
+	public int getFirstPlan(int person) {
+		return this.personFirstPlan.get(person);
+	}
+
+	public int getPlanCount(int person) {
+		return this.personFirstPlan.get(person + 1) - this.personFirstPlan.get(person);
+	}
+
+	/**
+	 * @return the row of the selected plan of the person, or <code>-1</code> if the person has no selected plan.
+	 */
+	public int getSelectedPlan(int person) {
+		return this.personSelectedPlan.get(person);
+	}
+
+	/**
+	 * @return the score of the plan, or <code>NaN</code> if the plan was not scored.
+	 */
+	public double getPlanScore(int plan) {
+		return this.planScores.get(plan);
+	}
+
+	public String getPlanType(int plan) {
+		return getString(this.planTypes.get(plan));
+	}
+
+	public Object getPlanAttribute(int plan, String key) {
+		return findAttribute(this.planAttributes, this.planFirstAttribute.get(plan), this.planFirstAttribute.get(plan + 1), key);
+	}
+
+	/**
+	 * @return the row of the first element of the plan in the plan elements table, the other elements follow in
+	 * consecutive rows.
+	 */
+	public int getFirstPlanElement(int plan) {
+		return this.planFirstElement.get(plan);
+	}
+
+	public int getPlanElementCount(int plan) {
+		return this.planFirstElement.get(plan + 1) - this.planFirstElement.get(plan);
+	}
+
+	public boolean isActivity(int element) {
+		return this.elementRows.get(element) >= 0;
+	}
+
+	public boolean isLeg(int element) {
+		return this.elementRows.get(element) < 0;
+	}
+
+	public String getActivityType(int element) {
+		return getString(this.actTypes.get(activityRow(element)));
+	}
+
+	public String getLegMode(int element) {
+		return getString(this.legModes.get(legRow(element)));
+	}
+
+	/**
+	 * @return the routed distance of the leg, or <code>NaN</code> if the leg has no route or the distance is unknown.
+	 */
+	public double getLegDistance(int element) {
+		return this.routeDistances.get(legRow(element));
+	}
+
+	/**
+	 * Materializes the person with all its plans.
+	 */
+	public Person getPerson(int person, PopulationFactory factory) {
+		Person p = factory.createPerson(getPersonId(person));
+		readAttributes(this.personAttributes, this.personFirstAttribute.get(person), this.personFirstAttribute.get(person + 1), p.getAttributes());
+		int selectedPlan = getSelectedPlan(person);
+		for (int plan = getFirstPlan(person), to = this.personFirstPlan.get(person + 1); plan < to; plan++) {
+			Plan pl = createPlan(plan, factory);
+			p.addPlan(pl);
+			if (plan == selectedPlan) {
+				p.setSelectedPlan(pl);
+			}
+		}
+		return p;
+	}
+
+	/**
+	 * Materializes all persons and adds them to the population.
+	 */
+	public void readInto(Population population) {
+		if (this.populationName >= 0) {
+			population.setName(getPopulationName());
+		}
+		readAttributes(this.populationAttributes, 0, this.populationAttributes.keys.limit(), population.getAttributes());
+		for (int person = 0; person < this.personCount; person++) {
+			population.addPerson(getPerson(person, population.getFactory()));
+		}
+	}
+
+	private Plan createPlan(int plan, PopulationFactory factory) {
+		Plan pl = factory.createPlan();
+		double score = this.planScores.get(plan);
+		if (!Double.isNaN(score)) {
+			pl.setScore(score);
+		}
+		String type = getPlanType(plan);
+		if (type != null) {
+			pl.setType(type);
+		}
+		readAttributes(this.planAttributes, this.planFirstAttribute.get(plan), this.planFirstAttribute.get(plan + 1), pl.getAttributes());
+		for (int element = this.planFirstElement.get(plan), to = this.planFirstElement.get(plan + 1); element < to; element++) {
+			int row = this.elementRows.get(element);
+			if (row >= 0) {
+				pl.addActivity(createActivity(row, factory));
+			} else {
+				pl.addLeg(createLeg(~row, factory));
+			}
+		}
+		return pl;
+	}
+
+	private Activity createActivity(int row, PopulationFactory factory) {
+		String type = getString(this.actTypes.get(row));
+		Id<Link> linkId = createId(this.actLinks.get(row), Link.class);
+		double x = this.actX.get(row);
+		Coord coord = null;
+		if (!Double.isNaN(x)) {
+			double z = this.actZ.get(row);
+			coord = Double.isNaN(z) ? new Coord(x, this.actY.get(row)) : new Coord(x, this.actY.get(row), z);
+		}
+		Activity act;
+		if (linkId != null) {
+			act = factory.createActivityFromLinkId(type, linkId);
+			if (coord != null) {
+				act.setCoord(coord);
+			}
+		} else {
+			act = factory.createActivityFromCoord(type, coord);
+		}
+		Id<ActivityFacility> facilityId = createId(this.actFacilities.get(row), ActivityFacility.class);
+		if (facilityId != null) {
+			act.setFacilityId(facilityId);
+		}
+		double startTime = this.actStartTimes.get(row);
+		if (!Double.isNaN(startTime)) {
+			act.setStartTime(startTime);
+		}
+		double endTime = this.actEndTimes.get(row);
+		if (!Double.isNaN(endTime)) {
+			act.setEndTime(endTime);
+		}
+		double maxDuration = this.actMaxDurations.get(row);
+		if (!Double.isNaN(maxDuration)) {
+			act.setMaximumDuration(maxDuration);
+		}
+		readAttributes(this.actAttributes, this.actFirstAttribute.get(row), this.actFirstAttribute.get(row + 1), act.getAttributes());
+		return act;
+	}
+
+	private Leg createLeg(int row, PopulationFactory factory) {
+		Leg leg = factory.createLeg(getString(this.legModes.get(row)));
+		double departureTime = this.legDepartureTimes.get(row);
+		if (!Double.isNaN(departureTime)) {
+			leg.setDepartureTime(departureTime);
+		}
+		double travelTime = this.legTravelTimes.get(row);
+		if (!Double.isNaN(travelTime)) {
+			leg.setTravelTime(travelTime);
+		}
+		int routeType = this.routeTypes.get(row);
+		if (routeType >= 0) {
+			RouteFactories routeFactories = factory.getRouteFactories();
+			Route route = routeFactories.createRoute(routeFactories.getRouteClassForType(getString(routeType)),
+					createId(this.routeStartLinks.get(row), Link.class), createId(this.routeEndLinks.get(row), Link.class));
+			String description = getString(this.routeDescriptions.get(row));
+			if (description != null) {
+				route.setRouteDescription(description);
+			}
+			Id<Vehicle> vehicleId = createId(this.routeVehicles.get(row), Vehicle.class);
+			if (vehicleId != null && route instanceof NetworkRoute) {
+				((NetworkRoute) route).setVehicleId(vehicleId);
+			}
+			route.setDistance(this.routeDistances.get(row));
+			double routeTravelTime = this.routeTravelTimes.get(row);
+			if (Double.isNaN(routeTravelTime)) {
+				route.setTravelTimeUndefined();
+			} else {
+				route.setTravelTime(routeTravelTime);
+			}
+			leg.setRoute(route);
+		}
+		readAttributes(this.legAttributes, this.legFirstAttribute.get(row), this.legFirstAttribute.get(row + 1), leg.getAttributes());
+		return leg;
+	}
+
+	private void readAttributes(AttributeTable table, int from, int to, Attributes attributes) {
+		for (int i = from; i < to; i++) {
+			Object value = this.converter.convert(getString(table.classes.get(i)), getString(table.values.get(i)));
+			if (value != null) {
+				attributes.putAttribute(getString(table.keys.get(i)), value);
+			}
+		}
+	}
+
+	private Object findAttribute(AttributeTable table, int from, int to, String key) {
+		for (int i = from; i < to; i++) {
+			if (key.equals(getString(table.keys.get(i)))) {
+				return this.converter.convert(getString(table.classes.get(i)), getString(table.values.get(i)));
+			}
+		}
+		return null;
+	}
+
+	private int activityRow(int element) {
+		int row = this.elementRows.get(element);
+		if (row < 0) {
+			throw new IllegalArgumentException("Plan element " + element + " is not an activity.");
+		}
+		return row;
+	}
+
+	private int legRow(int element) {
+		int row = this.elementRows.get(element);
+		if (row >= 0) {
+			throw new IllegalArgumentException("Plan element " + element + " is not a leg.");
+		}
+		return ~row;
+	}
+
+	private <T> Id<T> createId(int index, Class<T> type) {
+		return index < 0 ? null : Id.create(getString(index), type);
+	}
+
+	private String getString(int index) {
+		if (index < 0) {
+			return null;
+		}
+		String s = this.stringCache[index];
+		if (s == null) {
+			int from = this.stringOffsets.get(index);
+			int length = this.stringOffsets.get(index + 1) - from;
+			byte[] bytes = new byte[length];
+			this.stringBytes.duplicate().position(from).get(bytes);
+			s = new String(bytes, StandardCharsets.UTF_8);
+			this.stringCache[index] = s;
+		}
+		return s;
+	}
+
+	private static final class ColumnMapper {
+		private final FileChannel channel;
+		private long offset;
+
+		ColumnMapper(FileChannel channel, long offset) {
+			this.channel = channel;
+			this.offset = offset;
+		}
+
+		ByteBuffer bytes(int count) throws IOException {
+			if (this.offset + count > this.channel.size()) {
+				throw new IllegalArgumentException("Binary population file is truncated.");
+			}
+			ByteBuffer buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, this.offset, count);
+			this.offset += count;
+			return buffer;
+		}
+
+		IntBuffer ints(int count) throws IOException {
+			return bytes(Math.multiplyExact(count, Integer.BYTES)).asIntBuffer();
+		}
+
+		DoubleBuffer doubles(int count) throws IOException {
+			return bytes(Math.multiplyExact(count, Double.BYTES)).asDoubleBuffer();
+		}
+	}
+
+	private static final class AttributeTable {
+		private final IntBuffer keys;
+		private final IntBuffer classes;
+		private final IntBuffer values;
+
+		AttributeTable(ColumnMapper mapper, int count) throws IOException {
+			this.keys = mapper.ints(count);
+			this.classes = mapper.ints(count);
+			this.values = mapper.ints(count);
+		}
+	}
+}
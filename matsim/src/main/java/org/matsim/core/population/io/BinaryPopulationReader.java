@@ -0,0 +1,73 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.core.api.internal.MatsimReader;
+import org.matsim.utils.objectattributes.AttributeConverter;
+
+/**
+ * Reads a complete population from a file written by {@link BinaryPopulationWriter} into the population of a scenario.
+ * Use {@link BinaryPopulationFile} directly to access single persons or columns without materializing the whole
+ * population. As the file is memory-mapped, it can only be read from the local file system.
+ */
+public final class BinaryPopulationReader implements MatsimReader {
+
+	private static final Logger log = Logger.getLogger(BinaryPopulationReader.class);
+
+	private final Scenario scenario;
+	private final Map<Class<?>, AttributeConverter<?>> attributeConverters = new HashMap<>();
+
+	public BinaryPopulationReader(final Scenario scenario) {
+		this.scenario = scenario;
+	}
+
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		this.attributeConverters.putAll(converters);
+	}
+
+	@Override
+	public void readFile(final String filename) {
+		log.info("reading binary population from " + filename);
+		BinaryPopulationFile file = BinaryPopulationFile.open(filename);
+		file.putAttributeConverters(this.attributeConverters);
+		file.readInto(this.scenario.getPopulation());
+		log.info("read " + file.getPersonCount() + " persons with " + file.getPlanCount() + " plans.");
+	}
+
+	@Override
+	public void readURL(final URL url) {
+		if (!"file".equals(url.getProtocol())) {
+			throw new IllegalArgumentException("Binary populations can only be read from files, not from " + url);
+		}
+		try {
+			readFile(new File(url.toURI()).getPath());
+		} catch (URISyntaxException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+}
@@ -0,0 +1,369 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.core.utils.misc.OptionalTime;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+
+/**
+ * Writes a population in the binary columnar format described in {@link BinaryPopulationFile}.
+ *
+ * The population is first collected into columns in memory and then written uncompressed, so the file
+ * can be memory-mapped when reading it. Attribute values are stored as strings using the same
+ * {@link AttributeConverter}s as the xml format, attributes without a converter are skipped with a warning.
+ * Coordinates are written in the internal coordinate system of the population.
+ */
+public final class BinaryPopulationWriter {
+
+	private static final Logger log = Logger.getLogger(BinaryPopulationWriter.class);
+
+	private final Population population;
+	private final ObjectAttributesConverter converter = new ObjectAttributesConverter();
+
+	private final Map<String, Integer> stringIndices = new HashMap<>();
+	private final List<String> strings = new ArrayList<>();
+
+	private final IntColumn personIds = new IntColumn();
+	private final IntColumn personFirstPlan = new IntColumn();
+	private final IntColumn personSelectedPlan = new IntColumn();
+	private final IntColumn personFirstAttribute = new IntColumn();
+
+	private final DoubleColumn planScores = new DoubleColumn();
+	private final IntColumn planTypes = new IntColumn();
+	private final IntColumn planFirstElement = new IntColumn();
+	private final IntColumn planFirstAttribute = new IntColumn();
+
+	private final IntColumn elementRows = new IntColumn();
+
+	private final IntColumn actTypes = new IntColumn();
+	private final IntColumn actLinks = new IntColumn();
+	private final IntColumn actFacilities = new IntColumn();
+	private final DoubleColumn actX = new DoubleColumn();
+	private final DoubleColumn actY = new DoubleColumn();
+	private final DoubleColumn actZ = new DoubleColumn();
+	private final DoubleColumn actStartTimes = new DoubleColumn();
+	private final DoubleColumn actEndTimes = new DoubleColumn();
+	private final DoubleColumn actMaxDurations = new DoubleColumn();
+	private final IntColumn actFirstAttribute = new IntColumn();
+
+	private final IntColumn legModes = new IntColumn();
+	private final DoubleColumn legDepartureTimes = new DoubleColumn();
+	private final DoubleColumn legTravelTimes = new DoubleColumn();
+	private final IntColumn routeTypes = new IntColumn();
+	private final IntColumn routeStartLinks = new IntColumn();
+	private final IntColumn routeEndLinks = new IntColumn();
+	private final IntColumn routeDescriptions = new IntColumn();
+	private final IntColumn routeVehicles = new IntColumn();
+	private final DoubleColumn routeDistances = new DoubleColumn();
+	private final DoubleColumn routeTravelTimes = new DoubleColumn();
+	private final IntColumn legFirstAttribute = new IntColumn();
+
+	private final AttributeColumns populationAttributes = new AttributeColumns();
+	private final AttributeColumns personAttributes = new AttributeColumns();
+	private final AttributeColumns planAttributes = new AttributeColumns();
+	private final AttributeColumns actAttributes = new AttributeColumns();
+	private final AttributeColumns legAttributes = new AttributeColumns();
+
+	public BinaryPopulationWriter(final Population population) {
+		this.population = population;
+	}
+
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		this.converter.putAttributeConverters(converters);
+	}
+
+	public void write(final String filename) {
+		log.info("writing binary population to " + filename);
+		int populationName = addString(this.population.getName());
+		addAttributes(this.population.getAttributes(), this.populationAttributes);
+
+		// sorted by id, so persons can be looked up by binary search when reading
+		Person[] persons = this.population.getPersons().values().toArray(new Person[0]);
+		Arrays.sort(persons, Comparator.comparing(person -> person.getId().toString()));
+		for (Person person : persons) {
+			addPerson(person);
+		}
+		this.personFirstPlan.add(this.planScores.size);
+		this.personFirstAttribute.add(this.personAttributes.keys.size);
+		this.planFirstElement.add(this.elementRows.size);
+		this.planFirstAttribute.add(this.planAttributes.keys.size);
+		this.actFirstAttribute.add(this.actAttributes.keys.size);
+		this.legFirstAttribute.add(this.legAttributes.keys.size);
+
+		byte[][] encodedStrings = new byte[this.strings.size()][];
+		long stringBytes = 0;
+		for (int i = 0; i < encodedStrings.length; i++) {
+			encodedStrings[i] = this.strings.get(i).getBytes(StandardCharsets.UTF_8);
+			stringBytes += encodedStrings[i].length;
+		}
+		if (stringBytes > Integer.MAX_VALUE) {
+			throw new IllegalStateException("The strings of the population are too large for the binary format: " + stringBytes + " bytes.");
+		}
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename), 1 << 16))) {
+			out.writeInt(BinaryPopulationFile.MAGIC);
+			out.writeInt(BinaryPopulationFile.VERSION);
+			out.writeInt(encodedStrings.length);
+			out.writeInt((int) stringBytes);
+			out.writeInt(this.personIds.size);
+			out.writeInt(this.planScores.size);
+			out.writeInt(this.elementRows.size);
+			out.writeInt(this.actTypes.size);
+			out.writeInt(this.legModes.size);
+			out.writeInt(populationName);
+			out.writeInt(this.populationAttributes.keys.size);
+			out.writeInt(this.personAttributes.keys.size);
+			out.writeInt(this.planAttributes.keys.size);
+			out.writeInt(this.actAttributes.keys.size);
+			out.writeInt(this.legAttributes.keys.size);
+
+			// the order of the columns must match BinaryPopulationFile
+			int offset = 0;
+			out.writeInt(offset);
+			for (byte[] bytes : encodedStrings) {
+				offset += bytes.length;
+				out.writeInt(offset);
+			}
+			for (byte[] bytes : encodedStrings) {
+				out.write(bytes);
+			}
+
+			this.personIds.write(out);
+			this.personFirstPlan.write(out);
+			this.personSelectedPlan.write(out);
+			this.personFirstAttribute.write(out);
+
+			this.planScores.write(out);
+			this.planTypes.write(out);
+			this.planFirstElement.write(out);
+			this.planFirstAttribute.write(out);
+
+			this.elementRows.write(out);
+
+			this.actTypes.write(out);
+			this.actLinks.write(out);
+			this.actFacilities.write(out);
+			this.actX.write(out);
+			this.actY.write(out);
+			this.actZ.write(out);
+			this.actStartTimes.write(out);
+			this.actEndTimes.write(out);
+			this.actMaxDurations.write(out);
+			this.actFirstAttribute.write(out);
+
+			this.legModes.write(out);
+			this.legDepartureTimes.write(out);
+			this.legTravelTimes.write(out);
+			this.routeTypes.write(out);
+			this.routeStartLinks.write(out);
+			this.routeEndLinks.write(out);
+			this.routeDescriptions.write(out);
+			this.routeVehicles.write(out);
+			this.routeDistances.write(out);
+			this.routeTravelTimes.write(out);
+			this.legFirstAttribute.write(out);
+
+			this.populationAttributes.write(out);
+			this.personAttributes.write(out);
+			this.planAttributes.write(out);
+			this.actAttributes.write(out);
+			this.legAttributes.write(out);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		log.info("wrote " + this.personIds.size + " persons with " + this.planScores.size + " plans and " + this.strings.size() + " distinct strings.");
+	}
+
+	private void addPerson(Person person) {
+		this.personIds.add(addString(person.getId().toString()));
+		this.personFirstPlan.add(this.planScores.size);
+		this.personFirstAttribute.add(this.personAttributes.keys.size);
+		addAttributes(person.getAttributes(), this.personAttributes);
+
+		int selectedPlan = -1;
+		for (Plan plan : person.getPlans()) {
+			if (plan == person.getSelectedPlan()) {
+				selectedPlan = this.planScores.size;
+			}
+			addPlan(plan);
+		}
+		this.personSelectedPlan.add(selectedPlan);
+	}
+
+	private void addPlan(Plan plan) {
+		this.planScores.add(plan.getScore() == null ? Double.NaN : plan.getScore());
+		this.planTypes.add(addString(plan.getType()));
+		this.planFirstElement.add(this.elementRows.size);
+		this.planFirstAttribute.add(this.planAttributes.keys.size);
+		addAttributes(plan.getAttributes(), this.planAttributes);
+		for (PlanElement pe : plan.getPlanElements()) {
+			if (pe instanceof Activity) {
+				this.elementRows.add(this.actTypes.size);
+				addActivity((Activity) pe);
+			} else if (pe instanceof Leg) {
+				this.elementRows.add(~this.legModes.size);
+				addLeg((Leg) pe);
+			} else {
+				throw new IllegalArgumentException("Unsupported plan element: " + pe);
+			}
+		}
+	}
+
+	private void addActivity(Activity act) {
+		this.actTypes.add(addString(act.getType()));
+		this.actLinks.add(addString(act.getLinkId() == null ? null : act.getLinkId().toString()));
+		this.actFacilities.add(addString(act.getFacilityId() == null ? null : act.getFacilityId().toString()));
+		Coord coord = act.getCoord();
+		this.actX.add(coord == null ? Double.NaN : coord.getX());
+		this.actY.add(coord == null ? Double.NaN : coord.getY());
+		this.actZ.add(coord == null || !coord.hasZ() ? Double.NaN : coord.getZ());
+		this.actStartTimes.add(seconds(act.getStartTime()));
+		this.actEndTimes.add(seconds(act.getEndTime()));
+		this.actMaxDurations.add(seconds(act.getMaximumDuration()));
+		this.actFirstAttribute.add(this.actAttributes.keys.size);
+		addAttributes(act.getAttributes(), this.actAttributes);
+	}
+
+	private void addLeg(Leg leg) {
+		this.legModes.add(addString(leg.getMode()));
+		this.legDepartureTimes.add(seconds(leg.getDepartureTime()));
+		this.legTravelTimes.add(seconds(leg.getTravelTime()));
+		Route route = leg.getRoute();
+		if (route == null) {
+			this.routeTypes.add(-1);
+			this.routeStartLinks.add(-1);
+			this.routeEndLinks.add(-1);
+			this.routeDescriptions.add(-1);
+			this.routeVehicles.add(-1);
+			this.routeDistances.add(Double.NaN);
+			this.routeTravelTimes.add(Double.NaN);
+		} else {
+			this.routeTypes.add(addString(route.getRouteType()));
+			this.routeStartLinks.add(addString(route.getStartLinkId() == null ? null : route.getStartLinkId().toString()));
+			this.routeEndLinks.add(addString(route.getEndLinkId() == null ? null : route.getEndLinkId().toString()));
+			this.routeDescriptions.add(addString(route.getRouteDescription()));
+			boolean hasVehicle = route instanceof NetworkRoute && ((NetworkRoute) route).getVehicleId() != null;
+			this.routeVehicles.add(hasVehicle ? addString(((NetworkRoute) route).getVehicleId().toString()) : -1);
+			this.routeDistances.add(route.getDistance());
+			this.routeTravelTimes.add(seconds(route.getTravelTime()));
+		}
+		this.legFirstAttribute.add(this.legAttributes.keys.size);
+		addAttributes(leg.getAttributes(), this.legAttributes);
+	}
+
+	private void addAttributes(Attributes attributes, AttributeColumns columns) {
+		for (Map.Entry<String, Object> entry : attributes.getAsMap().entrySet()) {
+			String value = this.converter.convertToString(entry.getValue());
+			if (value == null) {
+				continue;
+			}
+			columns.keys.add(addString(entry.getKey()));
+			columns.classes.add(addString(entry.getValue().getClass().getName()));
+			columns.values.add(addString(value));
+		}
+	}
+
+	private int addString(String s) {
+		if (s == null) {
+			return -1;
+		}
+		return this.stringIndices.computeIfAbsent(s, k -> {
+			this.strings.add(k);
+			return this.strings.size() - 1;
+		});
+	}
+
+	private static double seconds(OptionalTime time) {
+		return time.isDefined() ? time.seconds() : Double.NaN;
+	}
+
+	private static final class IntColumn {
+		private int[] values = new int[1024];
+		private int size = 0;
+
+		void add(int value) {
+			if (this.size == this.values.length) {
+				this.values = Arrays.copyOf(this.values, this.values.length * 2);
+			}
+			this.values[this.size++] = value;
+		}
+
+		void write(DataOutputStream out) throws IOException {
+			for (int i = 0; i < this.size; i++) {
+				out.writeInt(this.values[i]);
+			}
+		}
+	}
+
+	private static final class DoubleColumn {
+		private double[] values = new double[1024];
+		private int size = 0;
+
+		void add(double value) {
+			if (this.size == this.values.length) {
+				this.values = Arrays.copyOf(this.values, this.values.length * 2);
+			}
+			this.values[this.size++] = value;
+		}
+
+		void write(DataOutputStream out) throws IOException {
+			for (int i = 0; i < this.size; i++) {
+				out.writeDouble(this.values[i]);
+			}
+		}
+	}
+
+	private static final class AttributeColumns {
+		private final IntColumn keys = new IntColumn();
+		private final IntColumn classes = new IntColumn();
+		private final IntColumn values = new IntColumn();
+
+		void write(DataOutputStream out) throws IOException {
+			this.keys.write(out);
+			this.classes.write(out);
+			this.values.write(out);
+		}
+	}
+}
@@ -0,0 +1,404 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.Config;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.utils.geometry.CoordinateTransformation;
+import org.matsim.facilities.ActivityFacilities;
+import org.matsim.households.Households;
+import org.matsim.lanes.Lanes;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.vehicles.Vehicles;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.AttributesImpl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Parallel implementation of the PopulationReaderMatsimV6, following {@link ParallelPopulationReaderMatsimV4}.
+ * The main thread only reads the file, creates empty person objects which are added to the population to
+ * ensure that their order is not changed, and collects the xml data of the persons in batches. The worker
+ * threads interpret the xml data of the persons, i.e. they create the plans, activities, legs, routes and
+ * attributes.
+ *
+ * Everything outside of the persons, e.g. the attributes of the population which might contain its CRS, is
+ * read on the main thread. The worker threads are started with the first person, so they use the coordinate
+ * transformation and the attribute converters known at that point.
+ */
+/* deliberately package */ class ParallelPopulationReaderMatsimV6 extends PopulationReaderMatsimV6 {
+
+	private static final Logger log = Logger.getLogger(ParallelPopulationReaderMatsimV6.class);
+
+	private final static String POPULATION = "population";
+	private final static String PERSON = "person";
+	private final static String ATTR_PERSON_ID = "id";
+	private final static int BATCH_SIZE = 100;
+
+	private final int numThreads;
+	private final Scenario scenario;
+	private final Map<Class<?>, AttributeConverter<?>> attributeConverters = new HashMap<>();
+	private final AtomicReference<Throwable> exception = new AtomicReference<>();
+
+	private BlockingQueue<List<List<Tag>>> queue = null;
+	private Thread[] threads = null;
+	private List<List<Tag>> currentBatch = null;
+	private List<Tag> currentPersonXmlData = null;
+
+	ParallelPopulationReaderMatsimV6(
+			final String inputCRS,
+			final String targetCRS,
+			final Scenario scenario) {
+		super(inputCRS, targetCRS, scenario);
+		this.scenario = scenario;
+		this.numThreads = Math.max(1, scenario.getConfig().global().getNumberOfThreads());
+	}
+
+	@Override
+	public void putAttributeConverter(final Class<?> clazz, AttributeConverter<?> converter) {
+		super.putAttributeConverter(clazz, converter);
+		this.attributeConverters.put(clazz, converter);
+	}
+
+	@Override
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		super.putAttributeConverters(converters);
+		this.attributeConverters.putAll(converters);
+	}
+
+	private void initThreads() {
+		this.queue = new LinkedBlockingQueue<>(this.numThreads * 4); // limit the memory used by persons not yet processed
+		this.currentBatch = new ArrayList<>(BATCH_SIZE);
+		Scenario collectorScenario = new CollectorScenario(this.scenario, new CollectorPopulation(this.scenario.getPopulation()));
+
+		this.threads = new Thread[this.numThreads];
+		for (int i = 0; i < this.numThreads; i++) {
+			Runner runner = new Runner(getCoordinateTransformation(), collectorScenario, this.queue, this.exception);
+			runner.putAttributeConverters(this.attributeConverters);
+			Thread thread = new Thread(runner);
+			thread.setDaemon(true);
+			thread.setName(ParallelPopulationReaderMatsimV6.class.getSimpleName() + "." + i);
+			this.threads[i] = thread;
+			thread.start();
+		}
+	}
+
+	@Override
+	public void startTag(String name, Attributes atts, Stack<String> context) {
+		if (this.currentPersonXmlData == null) {
+			if (PERSON.equals(name)) {
+				if (this.threads == null) {
+					log.info("Start parallel population reading...");
+					initThreads();
+				}
+				Person person = PopulationUtils.getFactory().createPerson(Id.create(atts.getValue(ATTR_PERSON_ID), Person.class));
+				this.scenario.getPopulation().addPerson(person);
+				this.currentPersonXmlData = new ArrayList<>();
+				this.currentPersonXmlData.add(new PersonTag(person));
+			} else {
+				super.startTag(name, atts, context);
+			}
+		} else {
+			// We have to create copies of the attributes because the object is re-used by the parser!
+			this.currentPersonXmlData.add(new StartTag(name, new AttributesImpl(atts)));
+		}
+	}
+
+	@Override
+	public void endTag(String name, String content, Stack<String> context) {
+		if (this.currentPersonXmlData == null) {
+			if (POPULATION.equals(name)) {
+				finishThreads();
+			}
+			super.endTag(name, content, context);
+		} else if (PERSON.equals(name) && context.peek().equals(POPULATION)) {
+			this.currentBatch.add(this.currentPersonXmlData);
+			this.currentPersonXmlData = null;
+			if (this.currentBatch.size() == BATCH_SIZE) {
+				putBatch(this.currentBatch);
+				this.currentBatch = new ArrayList<>(BATCH_SIZE);
+			}
+		} else {
+			this.currentPersonXmlData.add(new EndTag(name, content));
+		}
+	}
+
+	private void putBatch(List<List<Tag>> batch) {
+		try {
+			this.queue.put(batch);
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+		rethrowException();
+	}
+
+	private void finishThreads() {
+		if (this.threads == null) {
+			return;
+		}
+		if (!this.currentBatch.isEmpty()) {
+			putBatch(this.currentBatch);
+		}
+		// signal the threads that they should end parsing
+		for (int i = 0; i < this.numThreads; i++) {
+			putBatch(new ArrayList<>());
+		}
+		try {
+			for (Thread thread : this.threads) {
+				thread.join();
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+		rethrowException();
+		log.info("Finished parallel population reading...");
+	}
+
+	private void rethrowException() {
+		Throwable t = this.exception.get();
+		if (t != null) {
+			throw new RuntimeException("Exception while reading persons in parallel.", t);
+		}
+	}
+
+	/**
+	 * Processes the xml data of the persons taken from the queue. An empty batch marks the end of the data.
+	 */
+	private static final class Runner extends PopulationReaderMatsimV6 implements Runnable {
+
+		private final BlockingQueue<List<List<Tag>>> queue;
+		private final AtomicReference<Throwable> exception;
+		private final Stack<String> context = new Stack<>();
+
+		Runner(CoordinateTransformation coordinateTransformation, Scenario scenario, BlockingQueue<List<List<Tag>>> queue, AtomicReference<Throwable> exception) {
+			super(coordinateTransformation, scenario);
+			this.queue = queue;
+			this.exception = exception;
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				List<List<Tag>> batch;
+				try {
+					batch = this.queue.take();
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+				if (batch.isEmpty()) {
+					return;
+				}
+				if (this.exception.get() != null) {
+					continue; // keep taking batches, so the main thread does not block
+				}
+				try {
+					for (List<Tag> personXmlData : batch) {
+						processPerson(personXmlData);
+					}
+				} catch (Throwable t) {
+					this.exception.compareAndSet(null, t);
+				}
+			}
+		}
+
+		private void processPerson(List<Tag> tags) {
+			// the person tag itself is not handed over to the super class, as the person was already created and added to the population
+			this.currperson = ((PersonTag) tags.get(0)).person;
+			this.context.clear();
+			this.context.push(POPULATION);
+			this.context.push(PERSON);
+			for (int i = 1; i < tags.size(); i++) {
+				Tag tag = tags.get(i);
+				if (tag instanceof StartTag) {
+					this.startTag(tag.name, ((StartTag) tag).atts, this.context);
+					this.context.push(tag.name);
+				} else {
+					this.context.pop();
+					this.endTag(tag.name, ((EndTag) tag).content, this.context);
+				}
+			}
+			this.currperson = null;
+		}
+	}
+
+	private abstract static class Tag {
+		final String name;
+
+		Tag(String name) {
+			this.name = name;
+		}
+	}
+
+	private static final class PersonTag extends Tag {
+		final Person person;
+
+		PersonTag(Person person) {
+			super(PERSON);
+			this.person = person;
+		}
+	}
+
+	private static final class StartTag extends Tag {
+		final Attributes atts;
+
+		StartTag(String name, Attributes atts) {
+			super(name);
+			this.atts = atts;
+		}
+	}
+
+	private static final class EndTag extends Tag {
+		final String content;
+
+		EndTag(String name, String content) {
+			super(name);
+			this.content = content;
+		}
+	}
+
+	/**
+	 * Gives the worker threads access to the scenario, but not to the population itself, as the persons are
+	 * added to the population by the main thread.
+	 */
+	private static class CollectorScenario implements Scenario {
+
+		private final Scenario delegate;
+		private final Population population;
+
+		CollectorScenario(Scenario scenario, Population population) {
+			this.delegate = scenario;
+			this.population = population;
+		}
+
+		@Override
+		public Network getNetwork() {
+			return this.delegate.getNetwork();
+		}
+
+		@Override
+		public Population getPopulation() {
+			return this.population;
+		}
+
+		@Override
+		public ActivityFacilities getActivityFacilities() {
+			return this.delegate.getActivityFacilities();
+		}
+
+		@Override
+		public TransitSchedule getTransitSchedule() {
+			return this.delegate.getTransitSchedule();
+		}
+
+		@Override
+		public Config getConfig() {
+			return this.delegate.getConfig();
+		}
+
+		@Override
+		public void addScenarioElement(String name, Object o) {
+			this.delegate.addScenarioElement(name, o);
+		}
+
+		@Override
+		public Object getScenarioElement(String name) {
+			return this.delegate.getScenarioElement(name);
+		}
+
+		@Override
+		public Vehicles getTransitVehicles() {
+			return this.delegate.getTransitVehicles();
+		}
+
+		@Override
+		public Households getHouseholds() {
+			return this.delegate.getHouseholds();
+		}
+
+		@Override
+		public Lanes getLanes() {
+			return this.delegate.getLanes();
+		}
+
+		@Override
+		public Vehicles getVehicles() {
+			return this.delegate.getVehicles();
+		}
+	}
+
+	private static class CollectorPopulation implements Population {
+
+		private final Population population;
+
+		CollectorPopulation(Population population) {
+			this.population = population;
+		}
+
+		@Override
+		public PopulationFactory getFactory() {
+			return this.population.getFactory();
+		}
+
+		@Override
+		public String getName() {
+			throw new RuntimeException("Calls to this method are not expected to happen...");
+		}
+
+		@Override
+		public void setName(String name) {
+			throw new RuntimeException("Calls to this method are not expected to happen...");
+		}
+
+		@Override
+		public Map<Id<Person>, ? extends Person> getPersons() {
+			throw new RuntimeException("Calls to this method are not expected to happen...");
+		}
+
+		@Override
+		public void addPerson(Person p) {
+			throw new RuntimeException("Calls to this method are not expected to happen...");
+		}
+
+		@Override
+		public Person removePerson(Id<Person> personId) {
+			throw new RuntimeException("Calls to this method are not expected to happen...");
+		}
+
+		@Override
+		public org.matsim.utils.objectattributes.attributable.Attributes getAttributes() {
+			throw new RuntimeException("Calls to this method are not expected to happen...");
+		}
+	}
+}
@@ -106,7 +106,7 @@ import com.google.inject.Inject;
 	private final Population plans;
 	private final String externalInputCRS;
 
-	private Person currperson = null;
+	/* package */ Person currperson = null;
 	private Plan currplan = null;
 	private Activity curract = null;
 	private Leg currleg = null;
@@ -134,6 +134,21 @@ import com.google.inject.Inject;
 	    }
 	}
 
+	/**
+	 * Creates a reader that uses the given coordinate transformation, without looking at the CRS of the
+	 * population. Used by {@link ParallelPopulationReaderMatsimV6} for the worker threads.
+	 */
+	/* package */ PopulationReaderMatsimV6(
+			final CoordinateTransformation coordinateTransformation,
+			final Scenario scenario) {
+		this(null, null, scenario);
+		this.coordinateTransformation = coordinateTransformation;
+	}
+
+	/* package */ CoordinateTransformation getCoordinateTransformation() {
+		return this.coordinateTransformation;
+	}
+
 	public void putAttributeConverter( final Class<?> clazz , AttributeConverter<?> converter ) {
 		attributesReader.putAttributeConverter( clazz , converter );
 	}
@@ -24,13 +24,19 @@ import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.replanning.PlanStrategyModule;
 import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.config.groups.GlobalConfigGroup.PlanScheduling;
+import org.matsim.core.gbl.MatsimRandom;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
+import org.matsim.core.population.algorithms.PlanBatchAlgorithm;
 import org.matsim.core.replanning.ReplanningContext;
 import org.matsim.core.utils.misc.Counter;
 
 import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -50,6 +56,18 @@ import java.util.concurrent.atomic.AtomicReference;
  * "fast threads"), it helps building reproducible runs.  Additionally, as the threads are only
  * started after all to-be-handled plans are added, we can use unsynchronized data structures.
  * <p></p>
+ * With {@link PlanScheduling#dynamic}, all plans are kept in one list instead, and each thread takes the next
+ * unhandled plan as soon as it is done with the previous one, so no thread is idle while others still have plans
+ * to handle.  To keep such runs reproducible, the random number generators that the plan algorithm got from
+ * {@link MatsimRandom#getLocalInstance()} while being created in <code>getPlanAlgoInstance()</code> are re-seeded
+ * for each plan, based on the person id and the iteration.  Random number generators obtained in other ways are
+ * not re-seeded.
+ * <p></p>
+ * If the plan algorithm is a {@link PlanBatchAlgorithm}, each thread hands all its plans to it at once with
+ * {@link PlanScheduling#roundRobin}.
+ * <p></p>
+ * In both cases, the time each thread was busy handling plans is logged after all threads finished.
+ * <p></p>
  * Design comments/questions:<ul>
  * <li> As a consequence of the design, the instances that getPlanAlgoInstance() returns, need to be thread-safe.  kai, dec'12
  * For an example with discussions, see {@link tutorial.programming.multiThreadedPlanStrategy.RunWithMultithreadedModule}
@@ -59,6 +77,7 @@ import java.util.concurrent.atomic.AtomicReference;
  */
 abstract public class AbstractMultithreadedModule implements PlanStrategyModule {
 	private final int numOfThreads;
+	private final PlanScheduling planScheduling;
 
 	private PlanAlgoThread[] algothreads = null;
 	private Thread[] threads = null;
@@ -66,6 +85,7 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	private String name = null;
 
 	private int count = 0;
+	private List<Plan> sharedPlans = null;
 
 	private final AtomicReference<Throwable> hadException = new AtomicReference<>(null);
 	private final ExceptionHandler exceptionHandler = new ExceptionHandler(this.hadException);
@@ -83,11 +103,16 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	abstract public PlanAlgorithm getPlanAlgoInstance();
 
 	public AbstractMultithreadedModule(GlobalConfigGroup globalConfigGroup) {
-		this.numOfThreads = globalConfigGroup.getNumberOfThreads();
+		this(globalConfigGroup.getNumberOfThreads(), globalConfigGroup.getPlanScheduling());
 	}
 
 	public AbstractMultithreadedModule(final int numOfThreads) {
+		this(numOfThreads, PlanScheduling.roundRobin);
+	}
+
+	public AbstractMultithreadedModule(final int numOfThreads, final PlanScheduling planScheduling) {
 		this.numOfThreads = numOfThreads;
+		this.planScheduling = planScheduling;
 	}
 	
 	protected void beforePrepareReplanningHook(@SuppressWarnings("unused") ReplanningContext replanningContextTmp) {
@@ -118,7 +143,11 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	@Override
 	public final void handlePlan(final Plan plan) {
 		if (this.directAlgo == null) {
-			this.algothreads[this.count % this.numOfThreads].addPlanToThread(plan);
+			if (this.sharedPlans != null) {
+				this.sharedPlans.add(plan);
+			} else {
+				this.algothreads[this.count % this.numOfThreads].addPlanToThread(plan);
+			}
 			this.count++;
 		} else {
 			this.directAlgo.run(plan);
@@ -154,6 +183,10 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 				throw new RuntimeException(e);
 			}
 			log.info("[" + this.name + "] all " + this.threads.length + " threads finished.");
+			for (int i = 0; i < this.algothreads.length; i++) {
+				log.info("[" + this.name + "] thread " + i + " handled " + this.algothreads[i].handledPlans + " plans, busy for "
+						+ (this.algothreads[i].busyNanos / 1_000_000) + " ms");
+			}
 			Throwable throwable = this.hadException.get();
 			if (throwable != null) {
 				throw new RuntimeException("Some threads crashed, thus not all plans may have been handled.", throwable);
@@ -162,6 +195,7 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		// reset
 		this.algothreads = null;
 		this.threads = null;
+		this.sharedPlans = null;
 		this.replanningContext = null;
 		this.count = 0;
 		
@@ -176,16 +210,33 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		this.hadException.set(null);
 		this.threads = new Thread[this.numOfThreads];
 		this.algothreads = new PlanAlgoThread[this.numOfThreads];
+		boolean dynamic = this.planScheduling == PlanScheduling.dynamic;
+		this.sharedPlans = dynamic ? new ArrayList<>() : null;
+		AtomicInteger nextPlan = dynamic ? new AtomicInteger(0) : null;
+		int iteration = this.replanningContext == null ? 0 : this.replanningContext.getIteration();
 
 		Counter counter = null;
 		// setup threads
 		for (int i = 0; i < this.numOfThreads; i++) {
-			PlanAlgorithm algo = getPlanAlgoInstance();
+			PlanAlgorithm algo;
+			List<Random> randoms = null;
+			if (dynamic) {
+				MatsimRandom.startRecordingLocalInstances();
+				try {
+					algo = getPlanAlgoInstance();
+				} finally {
+					randoms = MatsimRandom.stopRecordingLocalInstances();
+				}
+			} else {
+				algo = getPlanAlgoInstance();
+			}
 			if (i == 0) {
 				this.name = algo.getClass().getSimpleName();
 				counter = new Counter("[" + this.name + "] handled plan # ");
 			}
-			PlanAlgoThread algothread = new PlanAlgoThread(algo, counter);
+			PlanAlgoThread algothread = dynamic
+					? new PlanAlgoThread(algo, counter, this.sharedPlans, nextPlan, randoms, iteration)
+					: new PlanAlgoThread(algo, counter);
 			Thread thread = new Thread(algothread, this.name + "." + i);
 			thread.setUncaughtExceptionHandler(this.exceptionHandler);
 			this.threads[i] = thread;
@@ -216,12 +267,26 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	private final static class PlanAlgoThread implements Runnable {
 
 		private final PlanAlgorithm planAlgo;
-		private final List<Plan> plans = new LinkedList<>();
+		private final List<Plan> plans;
 		private final Counter counter;
+		private final AtomicInteger nextPlan; // only set for dynamic scheduling, then the plans are shared by all threads
+		private final List<Random> randoms;
+		private final int iteration;
+		private long busyNanos = 0;
+		private int handledPlans = 0;
 
 		public PlanAlgoThread(final PlanAlgorithm algo, final Counter counter) {
+			this(algo, counter, new LinkedList<>(), null, null, 0);
+		}
+
+		public PlanAlgoThread(final PlanAlgorithm algo, final Counter counter, final List<Plan> sharedPlans,
+				final AtomicInteger nextPlan, final List<Random> randoms, final int iteration) {
 			this.planAlgo = algo;
 			this.counter = counter;
+			this.plans = sharedPlans;
+			this.nextPlan = nextPlan;
+			this.randoms = randoms;
+			this.iteration = iteration;
 		}
 
 		public void addPlanToThread(final Plan plan) {
@@ -230,10 +295,65 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 
 		@Override
 		public void run() {
-			for (Plan plan : this.plans) {
-				this.planAlgo.run(plan);
-				this.counter.incCounter();
+			if (this.nextPlan == null && this.planAlgo instanceof PlanBatchAlgorithm) {
+				long start = System.nanoTime();
+				((PlanBatchAlgorithm) this.planAlgo).run(this.plans);
+				this.busyNanos += System.nanoTime() - start;
+				for (int i = 0; i < this.plans.size(); i++) {
+					this.handledPlans++;
+					this.counter.incCounter();
+				}
+			} else if (this.nextPlan == null) {
+				for (Plan plan : this.plans) {
+					handlePlan(plan);
+				}
+			} else {
+				int index;
+				while ((index = this.nextPlan.getAndIncrement()) < this.plans.size()) {
+					Plan plan = this.plans.get(index);
+					reseed(plan, index);
+					handlePlan(plan);
+				}
+			}
+		}
+
+		private void handlePlan(final Plan plan) {
+			long start = System.nanoTime();
+			this.planAlgo.run(plan);
+			this.busyNanos += System.nanoTime() - start;
+			this.handledPlans++;
+			this.counter.incCounter();
+		}
+
+		private void reseed(final Plan plan, final int index) {
+			// the person id does not depend on which or how many plans were handled before, fall back to the index if there is none
+			long key = (plan != null && plan.getPerson() != null) ? hash64(plan.getPerson().getId().toString()) : index;
+			key = mix64(key + mix64(this.iteration));
+			for (int i = 0; i < this.randoms.size(); i++) {
+				MatsimRandom.reseedLocalInstance(this.randoms.get(i), mix64(key + i));
+			}
+		}
+
+		/**
+		 * 64-bit FNV-1a hash over all characters of the id, so ids with the same 32-bit String hash code still get
+		 * different random numbers.
+		 */
+		private static long hash64(final String id) {
+			long hash = 0xcbf29ce484222325L;
+			for (int i = 0; i < id.length(); i++) {
+				hash ^= id.charAt(i);
+				hash *= 0x100000001b3L;
 			}
+			return hash;
+		}
+
+		/**
+		 * The finalizer of SplitMix64, spreads small differences of the input (like consecutive iterations) over all bits.
+		 */
+		private static long mix64(long z) {
+			z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+			z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+			return z ^ (z >>> 31);
 		}
 	}
 }
@@ -0,0 +1,136 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+import java.util.List;
+
+/**
+ * Decorates a {@link LeastCostPathCalculator} with a {@link RouteCache}.  A cached path is re-used for all requests
+ * with the same start node, end node and departure time bin, as long as the travel times along its links did not
+ * change by more than the cache's threshold since the path was calculated.  Otherwise, the path is dropped and
+ * calculated again.
+ * <p></p>
+ * The travel time and cost of a returned path are always calculated for the actual departure time, person and
+ * vehicle.  The links of a cached path are, however, the ones found for the request that put it into the cache, so
+ * the travel disutility must not depend on the person or vehicle.  With routing randomness, this decorator is thus
+ * not used (see {@link NetworkRoutingProvider}).
+ */
+public final class CachingLeastCostPathCalculator implements LeastCostPathCalculator {
+
+	private final LeastCostPathCalculator delegate;
+	private final RouteCache cache;
+	private final String mode;
+	private final TravelTime travelTime;
+	private final TravelDisutility travelDisutility;
+	private final double timeBinSize;
+
+	public CachingLeastCostPathCalculator(LeastCostPathCalculator delegate, RouteCache cache, String mode,
+			TravelTime travelTime, TravelDisutility travelDisutility, double timeBinSize) {
+		this.delegate = delegate;
+		this.cache = cache;
+		this.mode = mode;
+		this.travelTime = travelTime;
+		this.travelDisutility = travelDisutility;
+		this.timeBinSize = timeBinSize;
+	}
+
+	@Override
+	public Path calcLeastCostPath(Node fromNode, Node toNode, double starttime, Person person, Vehicle vehicle) {
+		Path path = getCachedPath(fromNode, toNode, starttime, person, vehicle);
+		if (path == null) {
+			path = this.delegate.calcLeastCostPath(fromNode, toNode, starttime, person, vehicle);
+			putPath(fromNode, toNode, starttime, person, vehicle, path);
+		}
+		return path;
+	}
+
+	/**
+	 * Looks the path up in the cache, for callers that calculate the missing paths on their own, e.g. many at once.
+	 *
+	 * @return the cached path with its current travel time and cost, or <code>null</code> on a cache miss.
+	 */
+	public Path getCachedPath(Node fromNode, Node toNode, double starttime, Person person, Vehicle vehicle) {
+		RouteCache.Key key = getKey(fromNode, toNode, starttime);
+		RouteCache.CachedPath cached = this.cache.get(key);
+		if (cached != null) {
+			Path path = evaluate(cached, starttime, person, vehicle);
+			if (path != null) {
+				this.cache.countHit();
+				return path;
+			}
+			this.cache.countInvalidation();
+			this.cache.remove(key);
+		}
+		this.cache.countMiss();
+		return null;
+	}
+
+	/**
+	 * Puts a path calculated after a cache miss (see {@link #getCachedPath(Node, Node, double, Person, Vehicle)}) into
+	 * the cache.
+	 */
+	public void putPath(Node fromNode, Node toNode, double starttime, Person person, Vehicle vehicle, Path path) {
+		if (path != null) {
+			this.cache.put(getKey(fromNode, toNode, starttime), new RouteCache.CachedPath(path, getLinkTravelTimes(path.links, starttime, person, vehicle)));
+		}
+	}
+
+	private RouteCache.Key getKey(Node fromNode, Node toNode, double starttime) {
+		return new RouteCache.Key(this.mode, fromNode.getId().index(), toNode.getId().index(), (int) (starttime / this.timeBinSize));
+	}
+
+	/**
+	 * @return the path with its current travel time and cost, or <code>null</code> if the travel times changed too much.
+	 */
+	private Path evaluate(RouteCache.CachedPath cached, double starttime, Person person, Vehicle vehicle) {
+		double time = starttime;
+		double cost = 0;
+		double change = 0;
+		for (int i = 0; i < cached.links.size(); i++) {
+			Link link = cached.links.get(i);
+			double linkTravelTime = this.travelTime.getLinkTravelTime(link, time, person, vehicle);
+			cost += this.travelDisutility.getLinkTravelDisutility(link, time, person, vehicle);
+			change += Math.abs(linkTravelTime - cached.linkTravelTimes[i]);
+			time += linkTravelTime;
+		}
+		if (change > this.cache.getInvalidationThreshold() * cached.travelTime) {
+			return null;
+		}
+		return new Path(cached.nodes, cached.links, time - starttime, cost);
+	}
+
+	private double[] getLinkTravelTimes(List<Link> links, double starttime, Person person, Vehicle vehicle) {
+		double[] linkTravelTimes = new double[links.size()];
+		double time = starttime;
+		for (int i = 0; i < links.size(); i++) {
+			linkTravelTimes[i] = this.travelTime.getLinkTravelTime(links.get(i), time, person, vehicle);
+			time += linkTravelTimes[i];
+		}
+		return linkTravelTimes;
+	}
+}
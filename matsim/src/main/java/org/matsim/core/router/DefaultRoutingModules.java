@@ -22,6 +22,7 @@ import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.population.PopulationFactory;
 import org.matsim.core.config.groups.PlansCalcRouteConfigGroup.ModeRoutingParams;
+import org.matsim.core.router.speedy.ManyToManyPathCalculator;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.core.utils.timing.TimeInterpretation;
 
@@ -67,6 +68,16 @@ public final class DefaultRoutingModules {
 				routeAlgo);
 	}
 
+	public static RoutingModule createPureNetworkRouter( String mode, PopulationFactory popFact, Network net, final LeastCostPathCalculator routeAlgo,
+			final ManyToManyPathCalculator batchRouteAlgo ) {
+		return new NetworkRoutingModule(
+				mode,
+				popFact,
+				net,
+				routeAlgo,
+				batchRouteAlgo);
+	}
+
 	// TODO: make package private again
 	// Please use injection (NetworkRoutingProvider) to get a NetworkRoutingInclAccessEgressModule - kn/gl nov'19
 	public static RoutingModule createAccessEgressNetworkRouter( String mode,
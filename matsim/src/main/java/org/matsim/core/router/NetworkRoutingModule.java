@@ -18,6 +18,7 @@
  * *********************************************************************** */
 package org.matsim.core.router;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -34,6 +35,8 @@ import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.population.routes.NetworkRoute;
 import org.matsim.core.population.routes.RouteUtils;
 import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.speedy.ManyToManyPathCalculator;
+import org.matsim.core.router.speedy.ManyToManyPathCalculator.PathRequest;
 import org.matsim.core.router.util.LeastCostPathCalculator.Path;
 import org.matsim.facilities.Facility;
 import org.matsim.vehicles.Vehicle;
@@ -54,6 +57,7 @@ public final class NetworkRoutingModule implements RoutingModule {
 
 	private final Network network;
 	private final LeastCostPathCalculator routeAlgo;
+	private final ManyToManyPathCalculator batchRouteAlgo;
 
 
 	 public NetworkRoutingModule(
@@ -61,53 +65,130 @@ public final class NetworkRoutingModule implements RoutingModule {
 			final PopulationFactory populationFactory,
 			final Network network,
 			final LeastCostPathCalculator routeAlgo) {
+		 this(mode, populationFactory, network, routeAlgo, null);
+	}
+
+	/**
+	 * @param batchRouteAlgo used for {@link #calcRoutes(List)}, may be <tt>null</tt>, in which case each request is
+	 * routed on its own with the routeAlgo.
+	 */
+	 public NetworkRoutingModule(
+			final String mode,
+			final PopulationFactory populationFactory,
+			final Network network,
+			final LeastCostPathCalculator routeAlgo,
+			final ManyToManyPathCalculator batchRouteAlgo) {
 		 Gbl.assertNotNull(network);
 //		 Gbl.assertIf( network.getLinks().size()>0 ) ; // otherwise network for mode probably not defined
 		 // makes many tests fail.  
 		 this.network = network;
 		 this.routeAlgo = routeAlgo;
+		 this.batchRouteAlgo = batchRouteAlgo;
 		 this.mode = mode;
 		 this.populationFactory = populationFactory;
 	}
 
 	@Override
 	public List<? extends PlanElement> calcRoute(RoutingRequest request) {
-		final Facility fromFacility = request.getFromFacility();
-		final Facility toFacility = request.getToFacility();
-		final double departureTime = request.getDepartureTime();
-		final Person person = request.getPerson();
-		
-		Leg newLeg = this.populationFactory.createLeg( this.mode );
+		final Link fromLink = getFromLink(request);
+		final Link toLink = getToLink(request);
+		Path path = null;
+		if (toLink != fromLink) {
+			// (a "true" route)
+			Node startNode = fromLink.getToNode(); // start at the end of the "current" link
+			Node endNode = toLink.getFromNode(); // the target is the start of the link
 
-		Gbl.assertNotNull(fromFacility);
-		Gbl.assertNotNull(toFacility);
+			/* The NetworkInclAccessEgressModule actually looks up the vehicle in the scenario and passes it to the routeAlgo as well as to the resulting route.
+			 * Here, we do not hold the scenario as a field (yet) and can not perform the lookup.
+			 * So i don't add it here (yet), in order not to break anything. But probably should be done in future.
+			 * ts, june '21
+			 */
+			path = this.routeAlgo.calcLeastCostPath(startNode, endNode, request.getDepartureTime(), request.getPerson(), null);
+			if (path == null)
+				throw new RuntimeException("No route found from node " + startNode.getId() + " to node " + endNode.getId() + " by mode " + this.mode + ".");
+		}
+		return createTrip(fromLink, toLink, request.getDepartureTime(), path);
+	}
+
+	/**
+	 * Routes all requests which need a "true" route with a single call to the {@link ManyToManyPathCalculator}, if
+	 * one was given. If the routeAlgo is a {@link CachingLeastCostPathCalculator}, the paths are looked up in its cache
+	 * first, and only the missing ones are calculated and then put into the cache.
+	 */
+	@Override
+	public List<List<? extends PlanElement>> calcRoutes(List<RoutingRequest> requests) {
+		if (this.batchRouteAlgo == null) {
+			return RoutingModule.super.calcRoutes(requests);
+		}
+		CachingLeastCostPathCalculator cache = this.routeAlgo instanceof CachingLeastCostPathCalculator ? (CachingLeastCostPathCalculator) this.routeAlgo : null;
+		Link[] fromLinks = new Link[requests.size()];
+		Link[] toLinks = new Link[requests.size()];
+		Path[] paths = new Path[requests.size()];
+		List<PathRequest> pathRequests = new ArrayList<>();
+		List<Integer> pathRequestIndices = new ArrayList<>();
+		for (int i = 0; i < requests.size(); i++) {
+			RoutingRequest request = requests.get(i);
+			fromLinks[i] = getFromLink(request);
+			toLinks[i] = getToLink(request);
+			if (toLinks[i] != fromLinks[i]) {
+				Node startNode = fromLinks[i].getToNode();
+				Node endNode = toLinks[i].getFromNode();
+				if (cache != null) {
+					paths[i] = cache.getCachedPath(startNode, endNode, request.getDepartureTime(), request.getPerson(), null);
+				}
+				if (paths[i] == null) {
+					pathRequests.add(new PathRequest(startNode, endNode, request.getDepartureTime(), request.getPerson(), null));
+					pathRequestIndices.add(i);
+				}
+			}
+		}
+		List<Path> calculatedPaths = this.batchRouteAlgo.calcLeastCostPaths(pathRequests);
+		for (int j = 0; j < calculatedPaths.size(); j++) {
+			int i = pathRequestIndices.get(j);
+			paths[i] = calculatedPaths.get(j);
+			if (cache != null) {
+				cache.putPath(fromLinks[i].getToNode(), toLinks[i].getFromNode(), requests.get(i).getDepartureTime(), requests.get(i).getPerson(), null, paths[i]);
+			}
+		}
 
+		List<List<? extends PlanElement>> trips = new ArrayList<>(requests.size());
+		for (int i = 0; i < requests.size(); i++) {
+			if (toLinks[i] != fromLinks[i] && paths[i] == null)
+				throw new RuntimeException("No route found from node " + fromLinks[i].getToNode().getId() + " to node " + toLinks[i].getFromNode().getId() + " by mode " + this.mode + ".");
+			trips.add(createTrip(fromLinks[i], toLinks[i], requests.get(i).getDepartureTime(), paths[i]));
+		}
+		return trips;
+	}
+
+	private Link getFromLink(RoutingRequest request) {
+		final Facility fromFacility = request.getFromFacility();
+		Gbl.assertNotNull(fromFacility);
 		Link fromLink = this.network.getLinks().get(fromFacility.getLinkId());
 		if ( fromLink==null ) {
 			Gbl.assertNotNull( fromFacility.getCoord() ) ;
 			fromLink = NetworkUtils.getNearestLink( network, fromFacility.getCoord()) ;
 		}
+		Gbl.assertNotNull(fromLink);
+		return fromLink;
+	}
+
+	private Link getToLink(RoutingRequest request) {
+		final Facility toFacility = request.getToFacility();
+		Gbl.assertNotNull(toFacility);
 		Link toLink = this.network.getLinks().get(toFacility.getLinkId());
 		if ( toLink==null ) {
 			Gbl.assertNotNull( toFacility.getCoord() ) ;
 			toLink = NetworkUtils.getNearestLink(network, toFacility.getCoord());
 		}
-		Gbl.assertNotNull(fromLink);
 		Gbl.assertNotNull(toLink);
-		
+		return toLink;
+	}
+
+	private List<? extends PlanElement> createTrip(Link fromLink, Link toLink, double departureTime, Path path) {
+		Leg newLeg = this.populationFactory.createLeg( this.mode );
+
 		if (toLink != fromLink) {
 			// (a "true" route)
-			Node startNode = fromLink.getToNode(); // start at the end of the "current" link
-			Node endNode = toLink.getFromNode(); // the target is the start of the link
-
-			/* The NetworkInclAccessEgressModule actually looks up the vehicle in the scenario and passes it to the routeAlgo as well as to the resulting route.
-			 * Here, we do not hold the scenario as a field (yet) and can not perform the lookup.
-			 * So i don't add it here (yet), in order not to break anything. But probably should be done in future.
-			 * ts, june '21
-			 */
-			Path path = this.routeAlgo.calcLeastCostPath(startNode, endNode, departureTime, person, null);
-			if (path == null)
-				throw new RuntimeException("No route found from node " + startNode.getId() + " to node " + endNode.getId() + " by mode " + this.mode + ".");
 			NetworkRoute route = this.populationFactory.getRouteFactories().createRoute(NetworkRoute.class, fromLink.getId(), toLink.getId());
 			route.setLinkIds(fromLink.getId(), NetworkUtils.getLinkIds(path.links), toLink.getId());
 			route.setTravelTime(path.travelTime);
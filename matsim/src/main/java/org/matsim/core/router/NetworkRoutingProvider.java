@@ -31,8 +31,11 @@ import org.matsim.core.config.groups.PlansCalcRouteConfigGroup;
 import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.network.algorithms.TransportModeNetworkFilter;
 import org.matsim.core.router.costcalculators.TravelDisutilityFactory;
+import org.matsim.core.router.speedy.ManyToManyPathCalculator;
+import org.matsim.core.router.speedy.SpeedyGraph;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.router.util.TravelDisutility;
 import org.matsim.core.router.util.TravelTime;
 import org.matsim.core.utils.timing.TimeInterpretation;
 
@@ -43,6 +46,7 @@ import javax.inject.Provider;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class NetworkRoutingProvider implements Provider<RoutingModule> {
 	private static final Logger log = Logger.getLogger( NetworkRoutingProvider.class ) ;
@@ -62,6 +66,10 @@ public class NetworkRoutingProvider implements Provider<RoutingModule> {
 	@Inject
 	@Named(TransportMode.walk)
 	private RoutingModule walkRouter;
+
+	@Inject RouteCache routeCache;
+
+	private final Map<Network, SpeedyGraph> graphs = new ConcurrentHashMap<>();
 	
 	/**
 	 * This is the older (and still more standard) constructor, where the routingMode and the resulting mode were the
@@ -120,11 +128,17 @@ public class NetworkRoutingProvider implements Provider<RoutingModule> {
 		if (travelTime == null) {
 			throw new RuntimeException("No TravelTime bound for mode "+routingMode+".");
 		}
+		TravelDisutility travelDisutility = travelDisutilityFactory.createTravelDisutility(travelTime);
 		LeastCostPathCalculator routeAlgo =
 				leastCostPathCalculatorFactory.createPathCalculator(
 						filteredNetwork,
-						travelDisutilityFactory.createTravelDisutility(travelTime),
+						travelDisutility,
 						travelTime);
+		// with routing randomness, the disutility differs per person, so a route cannot be re-used for other persons
+		if (plansCalcRouteConfigGroup.getRouteCacheSize() > 0 && plansCalcRouteConfigGroup.getRoutingRandomness() == 0) {
+			routeAlgo = new CachingLeastCostPathCalculator(routeAlgo, this.routeCache, routingMode, travelTime, travelDisutility,
+					scenario.getConfig().travelTimeCalculator().getTraveltimeBinSize());
+		}
 
 		// the following again refers to the (transport)mode, since it will determine the mode of the leg on the network:
 		if ( !plansCalcRouteConfigGroup.getAccessEgressType().equals(PlansCalcRouteConfigGroup.AccessEgressType.none) ) {
@@ -140,6 +154,12 @@ public class NetworkRoutingProvider implements Provider<RoutingModule> {
 				return DefaultRoutingModules.createAccessEgressNetworkRouter(mode, routeAlgo, scenario, filteredNetwork, walkRouter, timeInterpretation) ;
 			}
 			
+		} else if ( plansCalcRouteConfigGroup.getBatchedRoutingTimeBinSize() > 0 && plansCalcRouteConfigGroup.getRoutingRandomness() == 0 ) {
+			// with routing randomness, the disutility differs per person, so hardly any trips could share a tree
+			SpeedyGraph graph = this.graphs.computeIfAbsent(filteredNetwork, SpeedyGraph::new);
+			ManyToManyPathCalculator batchRouteAlgo = new ManyToManyPathCalculator(graph, travelTime, travelDisutility,
+					plansCalcRouteConfigGroup.getBatchedRoutingTimeBinSize());
+			return DefaultRoutingModules.createPureNetworkRouter(mode, populationFactory, filteredNetwork, routeAlgo, batchRouteAlgo);
 		} else {
 			return DefaultRoutingModules.createPureNetworkRouter(mode, populationFactory, filteredNetwork, routeAlgo);
 		}
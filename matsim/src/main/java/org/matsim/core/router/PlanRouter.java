@@ -29,6 +29,7 @@ import org.matsim.api.core.v01.population.PlanElement;
 import org.matsim.core.config.Config;
 import org.matsim.core.population.algorithms.PersonAlgorithm;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
+import org.matsim.core.population.algorithms.PlanBatchAlgorithm;
 import org.matsim.core.population.routes.NetworkRoute;
 import org.matsim.core.router.TripStructureUtils.Trip;
 import org.matsim.core.utils.timing.TimeInterpretation;
@@ -37,16 +38,27 @@ import org.matsim.facilities.ActivityFacilities;
 import org.matsim.facilities.FacilitiesUtils;
 import org.matsim.vehicles.Vehicle;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * {@link PlanAlgorithm} responsible for routing all trips of a plan.
  * Activity times are not updated, even if the previous trip arrival time
  * is after the activity end time.
+ * <p></p>
+ * If batched routing is enabled in the config (see
+ * {@link org.matsim.core.config.groups.PlansCalcRouteConfigGroup#getBatchedRoutingTimeBinSize()}),
+ * {@link #run(List)} routes all trips of all plans together, so the routing modules can share work between
+ * similar trips. The departure times of the trips are taken from the plans before routing. If a trip departs at
+ * a different time because a previous trip of the plan got a different travel time, it is routed again, together
+ * with the other trips of the next round.
  *
  * @author thibautd
  */
-public class PlanRouter implements PlanAlgorithm, PersonAlgorithm {
+public class PlanRouter implements PlanBatchAlgorithm, PersonAlgorithm {
 	private static final Logger log = Logger.getLogger( PlanRouter.class ) ;
 	
 	private final TripRouter tripRouter;
@@ -118,6 +130,120 @@ public class PlanRouter implements PlanAlgorithm, PersonAlgorithm {
 		}
 	}
 
+	@Override
+	public void run(final List<Plan> plans) {
+		if (tripRouter.getConfig() == null || tripRouter.getConfig().plansCalcRoute().getBatchedRoutingTimeBinSize() <= 0) {
+			for (Plan plan : plans) {
+				run( plan );
+			}
+			return;
+		}
+
+		List<List<Trip>> tripsPerPlan = new ArrayList<>(plans.size());
+		List<TimeTracker> timeTrackers = new ArrayList<>(plans.size());
+		int[] nextTrip = new int[plans.size()];
+		for (Plan plan : plans) {
+			tripsPerPlan.add(TripStructureUtils.getTrips( plan ));
+			timeTrackers.add(new TimeTracker(timeInterpretation));
+		}
+
+		boolean pending = true;
+		while (pending) {
+			// the departure time of a trip depends on the previous trips of the plan. So request the next trip of each
+			// plan with its actual departure time, and the following ones with the departure times they get if the
+			// travel times of the previous trips do not change.
+			List<double[]> departureTimes = new ArrayList<>(plans.size());
+			Map<String, List<int[]>> tripsPerMode = new LinkedHashMap<>();
+			Map<String, List<RoutingRequest>> requestsPerMode = new LinkedHashMap<>();
+			for (int p = 0; p < plans.size(); p++) {
+				List<Trip> trips = tripsPerPlan.get(p);
+				double[] departures = new double[trips.size()];
+				departureTimes.add(departures);
+				if (nextTrip[p] == trips.size()) {
+					continue;
+				}
+				TimeTracker timeTracker = new TimeTracker(timeInterpretation);
+				timeTracker.setTime(timeTrackers.get(p).getTime().seconds());
+				for (int k = nextTrip[p]; k < trips.size(); k++) {
+					Trip oldTrip = trips.get(k);
+					timeTracker.addActivity(oldTrip.getOriginActivity());
+					if (k > nextTrip[p] && timeTracker.getTime().isUndefined()) {
+						break;
+					}
+					departures[k] = timeTracker.getTime().seconds(); // fails like run(Plan) if the next trip has no departure time
+					final String routingMode = TripStructureUtils.identifyMainMode( oldTrip.getTripElements() );
+					tripsPerMode.computeIfAbsent(routingMode, m -> new ArrayList<>()).add(new int[] { p, k });
+					requestsPerMode.computeIfAbsent(routingMode, m -> new ArrayList<>()).add(DefaultRoutingRequest.of(
+							FacilitiesUtils.toFacility(oldTrip.getOriginActivity(), facilities),
+							FacilitiesUtils.toFacility(oldTrip.getDestinationActivity(), facilities),
+							departures[k],
+							plans.get(p).getPerson(),
+							oldTrip.getTripAttributes()));
+					if (!addElementsWhileDefined(timeTracker, oldTrip.getTripElements())) {
+						break;
+					}
+				}
+			}
+
+			List<List<List<? extends PlanElement>>> newTripsPerPlan = new ArrayList<>(plans.size());
+			for (int p = 0; p < plans.size(); p++) {
+				newTripsPerPlan.add(new ArrayList<>(Collections.nCopies(tripsPerPlan.get(p).size(), null)));
+			}
+			for (Map.Entry<String, List<int[]>> e : tripsPerMode.entrySet()) {
+				List<List<? extends PlanElement>> newTrips = tripRouter.calcRoutes(e.getKey(), requestsPerMode.get(e.getKey()));
+				for (int i = 0; i < newTrips.size(); i++) {
+					int[] trip = e.getValue().get(i);
+					newTripsPerPlan.get(trip[0]).set(trip[1], newTrips.get(i));
+				}
+			}
+
+			// keep the routed trips as long as their departure times turned out right, the others are requested again
+			pending = false;
+			for (int p = 0; p < plans.size(); p++) {
+				List<Trip> trips = tripsPerPlan.get(p);
+				TimeTracker timeTracker = timeTrackers.get(p);
+				while (nextTrip[p] < trips.size()) {
+					int k = nextTrip[p];
+					List<? extends PlanElement> newTrip = newTripsPerPlan.get(p).get(k);
+					if (newTrip == null || departureTime(timeTracker, trips.get(k)) != departureTimes.get(p)[k]) {
+						pending = true;
+						break;
+					}
+					Trip oldTrip = trips.get(k);
+					timeTracker.addActivity(oldTrip.getOriginActivity());
+
+					putVehicleFromOldTripIntoNewTripIfMeaningful(oldTrip, newTrip);
+					TripRouter.insertTrip(
+							plans.get(p),
+							oldTrip.getOriginActivity(),
+							newTrip,
+							oldTrip.getDestinationActivity());
+
+					timeTracker.addElements(newTrip);
+					nextTrip[p]++;
+				}
+			}
+		}
+	}
+
+	private double departureTime(TimeTracker timeTracker, Trip trip) {
+		TimeTracker copy = new TimeTracker(timeInterpretation);
+		copy.setTime(timeTracker.getTime().seconds());
+		return copy.addActivity(trip.getOriginActivity()).seconds();
+	}
+
+	/**
+	 * @return <code>false</code> if the time became undefined, e.g. because a leg has no travel time.
+	 */
+	private static boolean addElementsWhileDefined(TimeTracker timeTracker, List<? extends PlanElement> elements) {
+		for (PlanElement element : elements) {
+			if (timeTracker.addElement(element).isUndefined()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	/**
 	 * If the old trip had vehicles set in its network routes, and it used a single vehicle,
 	 * and if the new trip does not come with vehicles set in its network routes,
@@ -0,0 +1,157 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import com.google.inject.Inject;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.groups.PlansCalcRouteConfigGroup;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache of least-cost paths, keyed by mode, start node, end node and departure time bin, see
+ * {@link CachingLeastCostPathCalculator}.  When the cache is full, the least recently used path is dropped.
+ * <p></p>
+ * The cache is thread-safe and shared by all routers.  It also counts the hits, misses and invalidated paths,
+ * which {@link RouteCacheStatsListener} writes out after each iteration.
+ *
+ * @see PlansCalcRouteConfigGroup#getRouteCacheSize()
+ */
+public final class RouteCache {
+
+	private final int maxSize;
+	private final double invalidationThreshold;
+	private final Map<Key, CachedPath> paths;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong invalidations = new AtomicLong();
+
+	@Inject
+	RouteCache(PlansCalcRouteConfigGroup config) {
+		this(config.getRouteCacheSize(), config.getRouteCacheInvalidationThreshold());
+	}
+
+	/**
+	 * @param maxSize the maximum number of cached paths.
+	 * @param invalidationThreshold a cached path is dropped when the summed absolute change of its link travel times
+	 * exceeds this fraction of its travel time.
+	 */
+	public RouteCache(int maxSize, double invalidationThreshold) {
+		this.maxSize = maxSize;
+		this.invalidationThreshold = invalidationThreshold;
+		this.paths = new LinkedHashMap<Key, CachedPath>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, CachedPath> eldest) {
+				return size() > RouteCache.this.maxSize;
+			}
+		};
+	}
+
+	synchronized CachedPath get(Key key) {
+		return this.paths.get(key);
+	}
+
+	synchronized void put(Key key, CachedPath path) {
+		this.paths.put(key, path);
+	}
+
+	synchronized void remove(Key key) {
+		this.paths.remove(key);
+	}
+
+	public synchronized int size() {
+		return this.paths.size();
+	}
+
+	double getInvalidationThreshold() {
+		return this.invalidationThreshold;
+	}
+
+	void countHit() {
+		this.hits.incrementAndGet();
+	}
+
+	void countMiss() {
+		this.misses.incrementAndGet();
+	}
+
+	void countInvalidation() {
+		this.invalidations.incrementAndGet();
+	}
+
+	/**
+	 * @return the hits, misses and invalidations since the last call, in this order.
+	 */
+	public long[] getAndResetStats() {
+		return new long[] { this.hits.getAndSet(0), this.misses.getAndSet(0), this.invalidations.getAndSet(0) };
+	}
+
+	static final class Key {
+		private final String mode;
+		private final int fromNode;
+		private final int toNode;
+		private final int timeBin;
+
+		Key(String mode, int fromNode, int toNode, int timeBin) {
+			this.mode = mode;
+			this.fromNode = fromNode;
+			this.toNode = toNode;
+			this.timeBin = timeBin;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (!(o instanceof Key)) return false;
+			Key key = (Key) o;
+			return this.fromNode == key.fromNode && this.toNode == key.toNode && this.timeBin == key.timeBin && this.mode.equals(key.mode);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(this.mode, this.fromNode, this.toNode, this.timeBin);
+		}
+	}
+
+	static final class CachedPath {
+		final List<Node> nodes;
+		final List<Link> links;
+		final double[] linkTravelTimes; // at the time the path was calculated
+		final double travelTime;
+
+		CachedPath(Path path, double[] linkTravelTimes) {
+			this.nodes = List.copyOf(path.nodes);
+			this.links = List.copyOf(path.links);
+			this.linkTravelTimes = linkTravelTimes;
+			double sum = 0;
+			for (double t : linkTravelTimes) {
+				sum += t;
+			}
+			this.travelTime = sum;
+		}
+	}
+}
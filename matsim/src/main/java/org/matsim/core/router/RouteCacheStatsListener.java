@@ -0,0 +1,75 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import org.matsim.core.controler.OutputDirectoryHierarchy;
+import org.matsim.core.controler.events.IterationEndsEvent;
+import org.matsim.core.controler.events.ShutdownEvent;
+import org.matsim.core.controler.listener.IterationEndsListener;
+import org.matsim.core.controler.listener.ShutdownListener;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+
+import javax.inject.Inject;
+import java.io.BufferedWriter;
+import java.io.IOException;
+
+/**
+ * Writes the hits, misses and invalidated paths of the {@link RouteCache} of each iteration to
+ * <code>routecachestats.txt</code>.
+ */
+final class RouteCacheStatsListener implements IterationEndsListener, ShutdownListener {
+
+	private final RouteCache routeCache;
+	private final BufferedWriter out;
+
+	@Inject
+	RouteCacheStatsListener(RouteCache routeCache, OutputDirectoryHierarchy controlerIO) {
+		this.routeCache = routeCache;
+		this.out = IOUtils.getBufferedWriter(controlerIO.getOutputFilename("routecachestats.txt"));
+		try {
+			this.out.write("ITERATION\thits\tmisses\tinvalidated\thit rate\tcached paths\n");
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void notifyIterationEnds(IterationEndsEvent event) {
+		long[] stats = this.routeCache.getAndResetStats();
+		long requests = stats[0] + stats[1];
+		double hitRate = requests == 0 ? 0 : (double) stats[0] / requests;
+		try {
+			this.out.write(event.getIteration() + "\t" + stats[0] + "\t" + stats[1] + "\t" + stats[2] + "\t" + hitRate + "\t" + this.routeCache.size() + "\n");
+			this.out.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void notifyShutdown(ShutdownEvent event) {
+		try {
+			this.out.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
@@ -19,6 +19,7 @@
  * *********************************************************************** */
 package org.matsim.core.router;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.matsim.api.core.v01.population.PlanElement;
@@ -51,6 +52,21 @@ public interface RoutingModule {
 	 * @return a list of {@link PlanElement}, in proper order, representing the trip.
 	 */
 	public List<? extends PlanElement> calcRoute(RoutingRequest request);
+
+	/**
+	 * Computes the routes of several independent requests at once.  Implementations may use this to share work
+	 * between similar requests; by default, each request is routed on its own.
+	 *
+	 * @param requests the requests to route.
+	 * @return the routes in the same order as the requests, each as {@link #calcRoute(RoutingRequest)} would return it.
+	 */
+	default List<List<? extends PlanElement>> calcRoutes(List<RoutingRequest> requests) {
+		List<List<? extends PlanElement>> routes = new ArrayList<>(requests.size());
+		for (RoutingRequest request : requests) {
+			routes.add(calcRoute(request));
+		}
+		return routes;
+	}
 	
 	// NOTE: It makes some sense to _not_ have the vehicle as an argument here ... since that only makes sense for vehicular modes. kai, feb'19
 	// NOTE: But now we have replaced the arguments with the RoutingRequest interface, which could now have a derived VehicularRoutingRequest if needed. shoerl, aug'21
@@ -193,6 +193,37 @@ public final class TripRouter implements MatsimExtensionPoint {
 		throw new UnknownModeException( "unregistered main mode |"+mainMode+"|: does not pertain to "+routingModules.keySet() );
 	}
 
+	/**
+	 * Routes several independent trips with the same main mode at once, see {@link RoutingModule#calcRoutes(List)}.
+	 *
+	 * @param mainMode the main mode for the trips
+	 * @param requests the trips to route
+	 * @return the trips in the same order as the requests
+	 *
+	 * @throws UnknownModeException if no RoutingModule is registered for the
+	 * given mode.
+	 */
+	public synchronized List<List<? extends PlanElement>> calcRoutes(
+			final String mainMode,
+			final List<RoutingRequest> requests) {
+		RoutingModule module = routingModules.get( mainMode );
+
+		if (module != null) {
+			List<List<? extends PlanElement>> trips = new ArrayList<>( module.calcRoutes( requests ) );
+			for (int i = 0; i < trips.size(); i++) {
+				if ( trips.get( i ) == null ) {
+					trips.set( i, fallbackRoutingModule.calcRoute( requests.get( i ) ) );
+				}
+				for (Leg leg: TripStructureUtils.getLegs(trips.get( i ))) {
+					TripStructureUtils.setRoutingMode(leg, mainMode);
+				}
+			}
+			return trips;
+		}
+
+		throw new UnknownModeException( "unregistered main mode |"+mainMode+"|: does not pertain to "+routingModules.keySet() );
+	}
+
 	public static class UnknownModeException extends RuntimeException {
 		private UnknownModeException(
 				final String msg) {
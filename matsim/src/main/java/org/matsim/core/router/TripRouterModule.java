@@ -22,6 +22,7 @@
 
 package org.matsim.core.router;
 
+import org.apache.log4j.Logger;
 import org.matsim.core.config.groups.PlansCalcRouteConfigGroup;
 import org.matsim.core.controler.AbstractModule;
 import org.matsim.core.network.algorithms.NetworkTurnInfoBuilder;
@@ -32,6 +33,8 @@ import org.matsim.pt.router.TransitRouterModule;
 
 public class TripRouterModule extends AbstractModule {
 
+    private static final Logger log = Logger.getLogger(TripRouterModule.class);
+
     @Override
     public void install() {
 	    // yy The code below will install _one_ LeastCostPathCalculator, which will be Dijkstra or Landmarks or something.  It will be the
@@ -46,6 +49,13 @@ public class TripRouterModule extends AbstractModule {
         install(new TransitRouterModule());
         bind(SingleModeNetworksCache.class).asEagerSingleton();
         PlansCalcRouteConfigGroup routeConfigGroup = getConfig().plansCalcRoute();
+        // always bound, so that it can be injected, but only used if routeCacheSize > 0 and there is no routing randomness
+        bind(RouteCache.class).asEagerSingleton();
+        if (routeConfigGroup.getRouteCacheSize() > 0 && routeConfigGroup.getRoutingRandomness() > 0) {
+            log.warn("the route cache is not used with routingRandomness > 0, as the travel disutility then differs per person.");
+        } else if (routeConfigGroup.getRouteCacheSize() > 0) {
+            addControlerListenerBinding().to(RouteCacheStatsListener.class);
+        }
         for (String mode : routeConfigGroup.getTeleportedModeFreespeedFactors().keySet()) {
             if (getConfig().transit().isUseTransit() && getConfig().transit().getTransitModes().contains(mode)) {
                 // default config contains "pt" as teleported mode, but if we have simulated transit, this is supposed to override it
@@ -0,0 +1,37 @@
+package org.matsim.core.router.speedy;
+
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * Identifies preprocessed data that depends on the travel times and costs, not only on the graph. The travel time
+ * and disutility are compared by identity, as they usually do not implement equals.
+ */
+final class CostFunctionKey {
+
+	private final SpeedyGraph graph;
+	private final TravelDisutility travelCosts;
+	private final TravelTime travelTimes;
+
+	CostFunctionKey(SpeedyGraph graph, TravelDisutility travelCosts, TravelTime travelTimes) {
+		this.graph = graph;
+		this.travelCosts = travelCosts;
+		this.travelTimes = travelTimes;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (!(o instanceof CostFunctionKey)) {
+			return false;
+		}
+		CostFunctionKey other = (CostFunctionKey) o;
+		return this.graph == other.graph && this.travelCosts == other.travelCosts && this.travelTimes == other.travelTimes;
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = System.identityHashCode(this.graph);
+		hash = 31 * hash + System.identityHashCode(this.travelCosts);
+		return 31 * hash + System.identityHashCode(this.travelTimes);
+	}
+}
@@ -17,6 +17,10 @@ import java.util.Arrays;
  * <p>
  * The implementation does not allocate any memory in the {@link #calculate(int, double, Person, Vehicle)} method. All required memory is pre-allocated in the constructor. This makes the
  * implementation NOT thread-safe.
+ * <p>
+ * For queries that only need to reach a few nodes, {@link #calculateToTargets(int, double, Person, Vehicle, int[], SpeedyALTData, StopCriterion)} stops as soon as
+ * all target nodes are settled, and can direct the search towards the targets using the lower bounds of {@link SpeedyALTData}. The additional memory for this
+ * is allocated on first use.
  *
  * @author mrieser / Simunto, sponsored by SBB Swiss Federal Railways
  */
@@ -30,6 +34,8 @@ public class LeastCostPathTree {
     private final SpeedyGraph.LinkIterator outLI;
     private final SpeedyGraph.LinkIterator inLI;
     private final NodeMinHeap pq;
+    private DAryMinHeap targetPQ = null;
+    private boolean[] isTarget = null;
 
     public LeastCostPathTree(SpeedyGraph graph, TravelTime tt, TravelDisutility td) {
         this.graph = graph;
@@ -93,7 +99,7 @@ public class LeastCostPathTree {
     }
 
     public void calculateBackwards(int arrivalNode, double arrivalTime, Person person, Vehicle vehicle) {
-        this.calculate(arrivalNode, arrivalTime, person, vehicle, (node, arrTime, cost, distance, depTime) -> false);
+        this.calculateBackwards(arrivalNode, arrivalTime, person, vehicle, (node, arrTime, cost, distance, depTime) -> false);
     }
 
     public void calculateBackwards(int arrivalNode, double arrivalTime, Person person, Vehicle vehicle, StopCriterion stopCriterion) {
@@ -142,6 +148,144 @@ public class LeastCostPathTree {
         }
     }
 
+    /**
+     * Calculates the tree from the start node until all target nodes are settled, or the stop criterion is met.
+     * Only the values of the settled nodes are final, other nodes might have been reached with non-optimal costs.
+     *
+     * If <code>altData</code> is given, the nodes are settled in the order of their cost plus the lower bound of the
+     * cost to the nearest target (A* with landmarks), and dead-ends not containing the start or a target node are skipped.
+     * <code>altData</code> must have been created for the same network and with a travel disutility whose minimum
+     * disutilities are lower bounds of the disutility used by this tree. Note that in this case, the stop criterion
+     * is also called in this order and not strictly by increasing cost.
+     *
+     * @param altData can be <code>null</code>, in which case the search is a plain Dijkstra that stops at the targets.
+     * @param stopCriterion can be <code>null</code>.
+     */
+    public void calculateToTargets(int startNode, double startTime, Person person, Vehicle vehicle, int[] targetNodes, SpeedyALTData altData, StopCriterion stopCriterion) {
+        calculateWithTargets(startNode, startTime, person, vehicle, targetNodes, altData, stopCriterion, true);
+    }
+
+    /**
+     * The backward variant of {@link #calculateToTargets(int, double, Person, Vehicle, int[], SpeedyALTData, StopCriterion)}: calculates the tree of paths
+     * from the target nodes to the arrival node.
+     */
+    public void calculateBackwardsToTargets(int arrivalNode, double arrivalTime, Person person, Vehicle vehicle, int[] targetNodes, SpeedyALTData altData, StopCriterion stopCriterion) {
+        calculateWithTargets(arrivalNode, arrivalTime, person, vehicle, targetNodes, altData, stopCriterion, false);
+    }
+
+    private void calculateWithTargets(int startNode, double startTime, Person person, Vehicle vehicle, int[] targetNodes, SpeedyALTData altData, StopCriterion stopCriterion, boolean forward) {
+        if (this.targetPQ == null) {
+            this.targetPQ = new DAryMinHeap(this.graph.nodeCount, 6);
+            this.isTarget = new boolean[this.graph.nodeCount];
+        }
+        Arrays.fill(this.data, Double.POSITIVE_INFINITY);
+        Arrays.fill(this.comingFrom, -1);
+
+        int remainingTargets = 0;
+        for (int target : targetNodes) {
+            if (!this.isTarget[target]) {
+                this.isTarget[target] = true;
+                remainingTargets++;
+            }
+        }
+
+        setData(startNode, 0, startTime, 0);
+        this.targetPQ.clear();
+        this.targetPQ.insert(startNode, estimateMinTravelCost(altData, startNode, targetNodes, forward));
+
+        SpeedyGraph.LinkIterator li = forward ? this.outLI : this.inLI;
+        while (remainingTargets > 0 && !this.targetPQ.isEmpty()) {
+            final int nodeIdx = this.targetPQ.poll();
+            double currTime = getTime(nodeIdx).orElseThrow(() -> new RuntimeException("Undefined Time"));
+            double currCost = getCost(nodeIdx);
+            double currDistance = getDistance(nodeIdx);
+
+            if (this.isTarget[nodeIdx]) {
+                this.isTarget[nodeIdx] = false;
+                remainingTargets--;
+                if (remainingTargets == 0) {
+                    break;
+                }
+            }
+            if (stopCriterion != null && (forward
+                    ? stopCriterion.stop(nodeIdx, currTime, currCost, currDistance, startTime)
+                    : stopCriterion.stop(nodeIdx, startTime, currCost, currDistance, currTime))) {
+                break;
+            }
+            if (altData != null && isIrrelevantDeadend(altData, nodeIdx, startNode, targetNodes)) {
+                continue;
+            }
+
+            li.reset(nodeIdx);
+            while (li.next()) {
+                Link link = this.graph.getLink(li.getLinkIndex());
+                int nextNode = forward ? li.getToNodeIndex() : li.getFromNodeIndex();
+
+                double travelTime = this.tt.getLinkTravelTime(link, currTime, person, vehicle);
+                double newTime = forward ? currTime + travelTime : currTime - travelTime;
+                double newCost = currCost + this.td.getLinkTravelDisutility(link, currTime, person, vehicle);
+
+                double oldCost = getCost(nextNode);
+                if (Double.isFinite(oldCost)) {
+                    if (newCost < oldCost) {
+                        this.targetPQ.decreaseKey(nextNode, newCost + estimateMinTravelCost(altData, nextNode, targetNodes, forward));
+                        setData(nextNode, newCost, newTime, currDistance + link.getLength());
+                        this.comingFrom[nextNode] = nodeIdx;
+                    }
+                } else {
+                    setData(nextNode, newCost, newTime, currDistance + link.getLength());
+                    this.targetPQ.insert(nextNode, newCost + estimateMinTravelCost(altData, nextNode, targetNodes, forward));
+                    this.comingFrom[nextNode] = nodeIdx;
+                }
+            }
+        }
+
+        for (int target : targetNodes) {
+            this.isTarget[target] = false;
+        }
+    }
+
+    private static boolean isIrrelevantDeadend(SpeedyALTData altData, int nodeIdx, int startNode, int[] targetNodes) {
+        int deadend = altData.getNodeDeadend(nodeIdx);
+        if (deadend < 0 || deadend == altData.getNodeDeadend(startNode)) {
+            return false;
+        }
+        for (int target : targetNodes) {
+            if (deadend == altData.getNodeDeadend(target)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return a lower bound of the travel cost between the node and the nearest target, using the triangle inequality
+     * with the landmarks as in {@link SpeedyALT}. In the backward search, the paths lead from the targets to the node.
+     */
+    private static double estimateMinTravelCost(SpeedyALTData altData, int nodeIdx, int[] targetNodes, boolean forward) {
+        if (altData == null) {
+            return 0;
+        }
+        double min = Double.POSITIVE_INFINITY;
+        for (int target : targetNodes) {
+            int from = forward ? nodeIdx : target;
+            int to = forward ? target : nodeIdx;
+            double best = 0;
+            for (int i = 0, n = altData.getLandmarksCount(); i < n; i++) {
+                double estimate = Math.max(
+                        altData.getTravelCostToLandmark(from, i) - altData.getTravelCostToLandmark(to, i),
+                        altData.getTravelCostFromLandmark(to, i) - altData.getTravelCostFromLandmark(from, i));
+                if (estimate > best) {
+                    best = estimate;
+                }
+            }
+            if (best < min) {
+                min = best;
+            }
+        }
+        return Double.isFinite(min) ? min : 0;
+    }
+
     public double getCost(int nodeIndex) {
         return this.data[nodeIndex * 3];
     }
@@ -0,0 +1,218 @@
+package org.matsim.core.router.speedy;
+
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Calculates many least-cost paths at once, using one {@link LeastCostPathTree} for all requests that start at the
+ * same node in the same time bin. The tree is calculated for the earliest departure time of such a group and for
+ * the person and vehicle of its first request, and stops as soon as all destinations of the group are reached.
+ * Requests with the same start node, end node and time bin get the same links.
+ *
+ * If the travel disutility depends on the person (e.g. with routing randomness), <code>groupPerPerson</code> must be
+ * set, so that only requests of the same person share a tree. Otherwise, all persons of a group would get the route
+ * of its first person.
+ *
+ * The travel time and cost of each returned path are calculated for its own departure time, person and vehicle.
+ * The links of the path might still differ from the ones a single query would return, if the travel times change
+ * within a time bin.
+ *
+ * This implementation is not thread-safe. In the case of multi-threading, every thread should use
+ * a separate instance.
+ */
+public class ManyToManyPathCalculator {
+
+	private final SpeedyGraph graph;
+	private final TravelTime tt;
+	private final TravelDisutility td;
+	private final double binSize;
+	private final boolean groupPerPerson;
+	private final LeastCostPathTree tree;
+	private final SpeedyGraph.LinkIterator outLI;
+	private int currentIteration = Integer.MIN_VALUE;
+	private final int[] targetIterationIds;
+	private int remainingTargets = 0;
+	private Person treePerson;
+	private Vehicle treeVehicle;
+
+	public ManyToManyPathCalculator(SpeedyGraph graph, TravelTime tt, TravelDisutility td, double binSize) {
+		this(graph, tt, td, binSize, false);
+	}
+
+	public ManyToManyPathCalculator(SpeedyGraph graph, TravelTime tt, TravelDisutility td, double binSize, boolean groupPerPerson) {
+		this.graph = graph;
+		this.tt = tt;
+		this.td = td;
+		this.binSize = binSize;
+		this.groupPerPerson = groupPerPerson;
+		this.tree = new LeastCostPathTree(graph, tt, td);
+		this.outLI = graph.getOutLinkIterator();
+		this.targetIterationIds = new int[graph.nodeCount];
+		Arrays.fill(this.targetIterationIds, this.currentIteration);
+	}
+
+	/**
+	 * @return the paths in the same order as the requests, <code>null</code> for requests without a path.
+	 */
+	public List<Path> calcLeastCostPaths(List<PathRequest> requests) {
+		Map<GroupKey, List<Integer>> groups = new LinkedHashMap<>();
+		for (int i = 0; i < requests.size(); i++) {
+			PathRequest request = requests.get(i);
+			long bin = (long) Math.floor(request.departureTime / this.binSize);
+			GroupKey key = new GroupKey((bin << 32) | request.fromNode.getId().index(), this.groupPerPerson ? request.person : null);
+			groups.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+		}
+
+		Path[] paths = new Path[requests.size()];
+		for (List<Integer> group : groups.values()) {
+			calcGroup(requests, group, paths);
+		}
+		return Arrays.asList(paths);
+	}
+
+	private void calcGroup(List<PathRequest> requests, List<Integer> group, Path[] paths) {
+		this.currentIteration++;
+		if (this.currentIteration == Integer.MAX_VALUE) {
+			// reset iteration as we overflow
+			Arrays.fill(this.targetIterationIds, this.currentIteration);
+			this.currentIteration = Integer.MIN_VALUE;
+		}
+
+		PathRequest first = requests.get(group.get(0));
+		double departureTime = first.departureTime;
+		this.remainingTargets = 0;
+		for (int i : group) {
+			PathRequest request = requests.get(i);
+			departureTime = Math.min(departureTime, request.departureTime);
+			int toNode = request.toNode.getId().index();
+			if (this.targetIterationIds[toNode] != this.currentIteration) {
+				this.targetIterationIds[toNode] = this.currentIteration;
+				this.remainingTargets++;
+			}
+		}
+
+		int startNode = first.fromNode.getId().index();
+		this.treePerson = first.person;
+		this.treeVehicle = first.vehicle;
+		this.tree.calculate(startNode, departureTime, first.person, first.vehicle, (nodeIndex, arrivalTime, travelCost, distance, depTime) -> {
+			if (this.targetIterationIds[nodeIndex] == this.currentIteration) {
+				this.targetIterationIds[nodeIndex] = this.currentIteration - 1; // only count each target once
+				this.remainingTargets--;
+			}
+			return this.remainingTargets == 0;
+		});
+
+		Map<Integer, List<Link>> linksPerTarget = new HashMap<>();
+		for (int i : group) {
+			PathRequest request = requests.get(i);
+			int toNode = request.toNode.getId().index();
+			List<Link> links = linksPerTarget.computeIfAbsent(toNode, node -> extractLinks(startNode, node));
+			if (links != null) {
+				paths[i] = createPath(request, links);
+			}
+		}
+	}
+
+	private List<Link> extractLinks(int startNode, int endNode) {
+		if (endNode != startNode && this.tree.getComingFrom(endNode) < 0) {
+			return null;
+		}
+		List<Link> links = new ArrayList<>();
+		int nodeIndex = endNode;
+		while (nodeIndex != startNode) {
+			int fromNode = this.tree.getComingFrom(nodeIndex);
+			links.add(findLink(fromNode, nodeIndex));
+			nodeIndex = fromNode;
+		}
+		Collections.reverse(links);
+		return Collections.unmodifiableList(links);
+	}
+
+	/**
+	 * The tree only stores the node a node was reached from, so pick the cheapest of the (possibly parallel) links
+	 * between them, with the same person and vehicle the tree was calculated for.
+	 */
+	private Link findLink(int fromNode, int toNode) {
+		double time = this.tree.getTime(fromNode).seconds();
+		Link bestLink = null;
+		double bestCost = Double.POSITIVE_INFINITY;
+		this.outLI.reset(fromNode);
+		while (this.outLI.next()) {
+			if (this.outLI.getToNodeIndex() == toNode) {
+				Link link = this.graph.getLink(this.outLI.getLinkIndex());
+				double cost = this.td.getLinkTravelDisutility(link, time, this.treePerson, this.treeVehicle);
+				if (bestLink == null || cost < bestCost) {
+					bestLink = link;
+					bestCost = cost;
+				}
+			}
+		}
+		return bestLink;
+	}
+
+	private Path createPath(PathRequest request, List<Link> links) {
+		List<Node> nodes = new ArrayList<>(links.size() + 1);
+		nodes.add(request.fromNode);
+		double time = request.departureTime;
+		double travelCost = 0;
+		for (Link link : links) {
+			nodes.add(link.getToNode());
+			travelCost += this.td.getLinkTravelDisutility(link, time, request.person, request.vehicle);
+			time += this.tt.getLinkTravelTime(link, time, request.person, request.vehicle);
+		}
+		return new Path(nodes, links, time - request.departureTime, travelCost);
+	}
+
+	private static final class GroupKey {
+		private final long binAndNode;
+		private final Person person;
+
+		GroupKey(long binAndNode, Person person) {
+			this.binAndNode = binAndNode;
+			this.person = person;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof GroupKey)) {
+				return false;
+			}
+			GroupKey other = (GroupKey) o;
+			return this.binAndNode == other.binAndNode && this.person == other.person;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * Long.hashCode(this.binAndNode) + System.identityHashCode(this.person);
+		}
+	}
+
+	public static final class PathRequest {
+		private final Node fromNode;
+		private final Node toNode;
+		private final double departureTime;
+		private final Person person;
+		private final Vehicle vehicle;
+
+		public PathRequest(Node fromNode, Node toNode, double departureTime, Person person, Vehicle vehicle) {
+			this.fromNode = fromNode;
+			this.toNode = toNode;
+			this.departureTime = departureTime;
+			this.person = person;
+			this.vehicle = vehicle;
+		}
+	}
+}
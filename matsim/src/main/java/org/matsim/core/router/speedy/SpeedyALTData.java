@@ -2,11 +2,16 @@ package org.matsim.core.router.speedy;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.Node;
 import org.matsim.core.router.speedy.SpeedyGraph.LinkIterator;
 import org.matsim.core.router.util.TravelDisutility;
 
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
@@ -18,14 +23,21 @@ import java.util.concurrent.Future;
 /**
  * Preprocessed data for the ALT algorithm, see {@link SpeedyALT}.
  *
+ * The forward and backward trees of the landmarks are calculated in parallel. As the landmarks only depend on the
+ * network and the minimal travel disutilities of the links, they can be written to a file and re-used, see
+ * {@link #loadOrCreate(SpeedyGraph, Network, int, TravelDisutility, int, File)}.
+ *
  * This class is thread-safe and can safely be used by multiple threads.
  *
  * @author mrieser / Simunto, sponsored by SBB Swiss Federal Railways
  */
-class SpeedyALTData {
+public class SpeedyALTData {
 
 	private final static Logger LOG = LogManager.getLogger(SpeedyALTData.class);
 
+	private final static int MAGIC = 0x53414c54; // "SALT"
+	private final static int VERSION = 1;
+
 	final SpeedyGraph graph;
 	private final int landmarksCount;
 	private final TravelDisutility travelCosts;
@@ -35,6 +47,15 @@ class SpeedyALTData {
 	private final double minTravelCostPerLength;
 
 	public SpeedyALTData(SpeedyGraph graph, int landmarksCount, TravelDisutility travelCosts) {
+		this(graph, landmarksCount, travelCosts, 4);
+	}
+
+	public SpeedyALTData(SpeedyGraph graph, int landmarksCount, TravelDisutility travelCosts, int numberOfThreads) {
+		this(graph, landmarksCount, travelCosts, numberOfThreads, true);
+	}
+
+	/** If <code>calcLandmarks</code> is false, the landmarks have to be read from a file afterwards. */
+	private SpeedyALTData(SpeedyGraph graph, int landmarksCount, TravelDisutility travelCosts, int numberOfThreads, boolean calcLandmarks) {
 		this.graph = graph;
 		this.landmarksCount = landmarksCount;
 		this.travelCosts = travelCosts;
@@ -43,10 +64,95 @@ class SpeedyALTData {
 		this.deadendData = new int[graph.nodeCount];
 
 		this.findDeadEnds();
-		this.calcLandmarks();
+		if (calcLandmarks) {
+			this.calcLandmarks(Math.max(1, numberOfThreads));
+		}
 		this.minTravelCostPerLength = this.calcMinTravelCostPerLength();
 	}
 
+	/**
+	 * Reads the landmarks from a file in the given directory if it was created for the same network, minimal
+	 * travel disutilities and number of landmarks, otherwise calculates the landmarks and writes them to the
+	 * directory. The name of the file contains a fingerprint of the network and the travel disutilities, so
+	 * multiple networks or disutilities can use the same directory.
+	 */
+	public static SpeedyALTData loadOrCreate(SpeedyGraph graph, Network network, int landmarksCount, TravelDisutility travelCosts, int numberOfThreads, File directory) {
+		long fingerprint = fingerprint(network, landmarksCount, travelCosts);
+		File file = new File(directory, "speedyALT-" + Long.toHexString(fingerprint) + ".bin");
+		SpeedyALTData data = SpeedyCacheFiles.read(file, in -> read(in, graph, network, landmarksCount, travelCosts, fingerprint));
+		if (data != null) {
+			LOG.info("read landmarks from " + file);
+			return data;
+		}
+		data = new SpeedyALTData(graph, landmarksCount, travelCosts, numberOfThreads);
+		SpeedyCacheFiles.write(file, data.writer(network, fingerprint));
+		return data;
+	}
+
+	private static long fingerprint(Network network, int landmarksCount, TravelDisutility travelCosts) {
+		long hash = 31L * landmarksCount;
+		for (Node node : network.getNodes().values()) {
+			hash = hash * 31 + node.getId().toString().hashCode();
+		}
+		for (Link link : network.getLinks().values()) {
+			hash = hash * 31 + link.getId().toString().hashCode();
+			hash = hash * 31 + link.getFromNode().getId().toString().hashCode();
+			hash = hash * 31 + link.getToNode().getId().toString().hashCode();
+			hash = hash * 31 + Double.hashCode(travelCosts.getLinkMinimumTravelDisutility(link));
+		}
+		return hash;
+	}
+
+	private SpeedyCacheFiles.Writer writer(Network network, long fingerprint) {
+		int valuesPerNode = this.landmarksCount * 2;
+		return out -> {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(fingerprint);
+			for (int landmarkIdx : this.landmarksNodeIndices) {
+				out.writeUTF(this.graph.getNode(landmarkIdx).getId().toString());
+			}
+			out.writeInt(network.getNodes().size());
+			for (Node node : network.getNodes().values()) {
+				out.writeUTF(node.getId().toString());
+				int offset = node.getId().index() * valuesPerNode;
+				for (int i = 0; i < valuesPerNode; i++) {
+					out.writeDouble(this.nodesData[offset + i]);
+				}
+			}
+		};
+	}
+
+	private static SpeedyALTData read(DataInputStream in, SpeedyGraph graph, Network network, int landmarksCount, TravelDisutility travelCosts, long fingerprint) throws IOException {
+		if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readLong() != fingerprint) {
+			return null;
+		}
+		SpeedyALTData data = new SpeedyALTData(graph, landmarksCount, travelCosts, 1, false);
+		for (int i = 0; i < landmarksCount; i++) {
+			Node node = network.getNodes().get(Id.create(in.readUTF(), Node.class));
+			if (node == null) {
+				return null;
+			}
+			data.landmarksNodeIndices[i] = node.getId().index();
+		}
+		int count = in.readInt();
+		if (count != network.getNodes().size()) {
+			return null;
+		}
+		int valuesPerNode = landmarksCount * 2;
+		for (int n = 0; n < count; n++) {
+			Node node = network.getNodes().get(Id.create(in.readUTF(), Node.class));
+			if (node == null) {
+				return null;
+			}
+			int offset = node.getId().index() * valuesPerNode;
+			for (int i = 0; i < valuesPerNode; i++) {
+				data.nodesData[offset + i] = in.readDouble();
+			}
+		}
+		return data;
+	}
+
 	private void findDeadEnds() {
 		LOG.info("find dead ends...");
 
@@ -128,7 +234,7 @@ class SpeedyALTData {
 		return otherNodeIndex;
 	}
 
-	private void calcLandmarks() {
+	private void calcLandmarks(int numberOfThreads) {
 		LOG.info("calculate landmarks...");
 		Node firstNode = null;
 		for (int i = 0; i < this.graph.nodeCount; i++) {
@@ -143,7 +249,7 @@ class SpeedyALTData {
 		}
 
 		Future<double[]>[] trees = new Future[this.landmarksCount * 2];
-		ExecutorService executor = Executors.newFixedThreadPool(4);
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(numberOfThreads, trees.length));
 
 		int firstLandmarkIndex = firstNode.getId().index();
 		this.landmarksNodeIndices[0] = firstLandmarkIndex;
@@ -158,15 +264,16 @@ class SpeedyALTData {
 			trees[i * 2 + 1] = executor.submit(() -> calculateTreeBackward(nextLandmark));
 		}
 
-		for (int i = 0; i < trees.length; i++) {
-			try {
+		try {
+			for (int i = 0; i < trees.length; i++) {
 				double[] data = trees[i].get();
 				setNodeData(data, i);
-			} catch (InterruptedException | ExecutionException e) {
-				LOG.error(e);
 			}
+		} catch (InterruptedException | ExecutionException e) {
+			throw new RuntimeException("could not calculate landmarks", e);
+		} finally {
+			executor.shutdown();
 		}
-		executor.shutdown();
 	}
 
 	private double calcMinTravelCostPerLength() {
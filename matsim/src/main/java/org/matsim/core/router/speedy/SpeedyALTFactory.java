@@ -1,21 +1,53 @@
 package org.matsim.core.router.speedy;
 
+import com.google.inject.Inject;
 import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.config.groups.ControlerConfigGroup;
+import org.matsim.core.config.groups.GlobalConfigGroup;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
 import org.matsim.core.router.util.TravelDisutility;
 import org.matsim.core.router.util.TravelTime;
 
+import java.io.File;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
+ * Creates {@link SpeedyALT} instances. If a cache directory is given (see
+ * {@link ControlerConfigGroup#getRoutingCacheDirectory()}), the landmarks are stored there and re-used by later runs
+ * on the same network with the same travel disutility.
+ *
  * @author mrieser / Simunto, sponsored by SBB Swiss Federal Railways
  */
 public class SpeedyALTFactory implements LeastCostPathCalculatorFactory {
 
 	private final Map<Network, SpeedyGraph> graphs = new ConcurrentHashMap<>();
 	private final Map<SpeedyGraph, SpeedyALTData> landmarksData = new ConcurrentHashMap<>();
+	private final int numberOfThreads;
+	private final File cacheDirectory;
+
+	public SpeedyALTFactory() {
+		this(4);
+	}
+
+	@Inject
+	public SpeedyALTFactory(GlobalConfigGroup globalConfig, ControlerConfigGroup controlerConfig) {
+		this(globalConfig.getNumberOfThreads(),
+				controlerConfig.getRoutingCacheDirectory() == null ? null : new File(controlerConfig.getRoutingCacheDirectory()));
+	}
+
+	public SpeedyALTFactory(int numberOfThreads) {
+		this(numberOfThreads, null);
+	}
+
+	/**
+	 * @param cacheDirectory directory to store the landmarks in, <code>null</code> to not store them.
+	 */
+	public SpeedyALTFactory(int numberOfThreads, File cacheDirectory) {
+		this.numberOfThreads = Math.max(1, numberOfThreads);
+		this.cacheDirectory = cacheDirectory;
+	}
 
 	@Override
 	public LeastCostPathCalculator createPathCalculator(Network network, TravelDisutility travelCosts, TravelTime travelTimes) {
@@ -26,10 +58,17 @@ public class SpeedyALTFactory implements LeastCostPathCalculatorFactory {
 		}
 		SpeedyALTData landmarks = this.landmarksData.get(graph);
 		if (landmarks == null) {
-			landmarks = new SpeedyALTData(graph, 16, travelCosts);
+			landmarks = createLandmarks(graph, network, travelCosts);
 			this.landmarksData.put(graph, landmarks);
 		}
 		return new SpeedyALT(landmarks, travelTimes, travelCosts);
 	}
 
+	private SpeedyALTData createLandmarks(SpeedyGraph graph, Network network, TravelDisutility travelCosts) {
+		if (this.cacheDirectory == null) {
+			return new SpeedyALTData(graph, 16, travelCosts, this.numberOfThreads);
+		}
+		return SpeedyALTData.loadOrCreate(graph, network, 16, travelCosts, this.numberOfThreads, this.cacheDirectory);
+	}
+
 }
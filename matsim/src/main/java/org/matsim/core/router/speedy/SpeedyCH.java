@@ -0,0 +1,224 @@
+package org.matsim.core.router.speedy;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A router using time-dependent contraction hierarchies, based on the ideas of "Time-Dependent Contraction
+ * Hierarchies" by G. Veit Batz, Daniel Delling, Peter Sanders and Christian Vetter, 2009.
+ *
+ * A query first marks all nodes from which the destination node can be reached by only going down in the
+ * hierarchy, by searching backwards from the destination on the upward edges. Then a time-dependent Dijkstra
+ * search starts from the start node, first going up in the hierarchy, and going down only to marked nodes. The
+ * cost of each edge is taken from its profile in the {@link SpeedyCHData} for the time the edge is entered.
+ *
+ * As the profiles are piecewise constant approximations of the travel times and costs, the found path might differ
+ * slightly from the one found by a time-dependent Dijkstra on the original network. The paths are only guaranteed
+ * to be least cost paths if all travel times are multiples of the bin size of the profiles. The travel time and cost of
+ * the returned path are always calculated using the actual {@link TravelTime} and {@link TravelDisutility}.
+ *
+ * This implementation is not thread-safe. In the case of multi-threading, every thread should use
+ * a separate instance. (But the used {@link SpeedyCHData} is thread-safe and can be shared by multiple
+ * instances).
+ */
+public class SpeedyCH implements LeastCostPathCalculator {
+
+	private final static Logger LOG = LogManager.getLogger(SpeedyCH.class);
+
+	private final SpeedyGraph graph;
+	private final SpeedyCHData chData;
+	private final TravelTime tt;
+	private final TravelDisutility td;
+	private final double[] data; // 2 entries per node: cost to node, time
+	private int currentIteration = Integer.MIN_VALUE;
+	private final int[] iterationIds;
+	private final int[] markedIterationIds;
+	private final int[] settledIterationIds;
+	private final int[] usedEdge;
+	private final boolean[] goingDown;
+	private final int[] stack;
+	private final DAryMinHeap pq;
+
+	public SpeedyCH(SpeedyCHData chData, TravelTime tt, TravelDisutility td) {
+		this.graph = chData.graph;
+		this.chData = chData;
+		this.tt = tt;
+		this.td = td;
+		this.data = new double[this.graph.nodeCount * 2];
+		this.iterationIds = new int[this.graph.nodeCount];
+		this.markedIterationIds = new int[this.graph.nodeCount];
+		this.settledIterationIds = new int[this.graph.nodeCount];
+		this.usedEdge = new int[this.graph.nodeCount];
+		this.goingDown = new boolean[this.graph.nodeCount];
+		this.stack = new int[this.graph.nodeCount];
+		this.pq = new DAryMinHeap(this.graph.nodeCount, 6);
+		Arrays.fill(this.iterationIds, this.currentIteration);
+		Arrays.fill(this.markedIterationIds, this.currentIteration);
+		Arrays.fill(this.settledIterationIds, this.currentIteration);
+	}
+
+	private double getCost(int nodeIndex) {
+		return this.data[nodeIndex * 2];
+	}
+
+	private double getTimeRaw(int nodeIndex) {
+		return this.data[nodeIndex * 2 + 1];
+	}
+
+	private void setData(int nodeIndex, double cost, double time) {
+		int index = nodeIndex * 2;
+		this.data[index] = cost;
+		this.data[index + 1] = time;
+		this.iterationIds[nodeIndex] = this.currentIteration;
+	}
+
+	@Override
+	public Path calcLeastCostPath(Node startNode, Node endNode, double startTime, Person person, Vehicle vehicle) {
+		this.currentIteration++;
+		if (this.currentIteration == Integer.MAX_VALUE) {
+			// reset iteration as we overflow
+			Arrays.fill(this.iterationIds, this.currentIteration);
+			Arrays.fill(this.markedIterationIds, this.currentIteration);
+			Arrays.fill(this.settledIterationIds, this.currentIteration);
+			this.currentIteration = Integer.MIN_VALUE;
+		}
+		int startNodeIndex = startNode.getId().index();
+		int endNodeIndex = endNode.getId().index();
+
+		markNodesAboveEndNode(endNodeIndex);
+
+		this.usedEdge[startNodeIndex] = -1;
+		this.goingDown[startNodeIndex] = false;
+		setData(startNodeIndex, 0, startTime);
+		this.pq.clear();
+		this.pq.insert(startNodeIndex, 0);
+		boolean foundEndNode = false;
+
+		while (!this.pq.isEmpty()) {
+			final int nodeIdx = this.pq.poll();
+			this.settledIterationIds[nodeIdx] = this.currentIteration;
+			if (nodeIdx == endNodeIndex) {
+				foundEndNode = true;
+				break;
+			}
+
+			double currTime = getTimeRaw(nodeIdx);
+			double currCost = getCost(nodeIdx);
+			int bin = this.chData.getBin(currTime);
+
+			if (!this.goingDown[nodeIdx]) {
+				for (int i = this.chData.getUpOutStart(nodeIdx), end = this.chData.getUpOutEnd(nodeIdx); i < end; i++) {
+					visit(this.chData.getUpOutEdge(i), bin, currTime, currCost, false);
+				}
+			}
+			for (int i = this.chData.getDownOutStart(nodeIdx), end = this.chData.getDownOutEnd(nodeIdx); i < end; i++) {
+				int edge = this.chData.getDownOutEdge(i);
+				if (this.markedIterationIds[this.chData.getEdgeTo(edge)] == this.currentIteration) {
+					visit(edge, bin, currTime, currCost, true);
+				}
+			}
+		}
+
+		if (foundEndNode) {
+			return constructPath(endNodeIndex, startTime, person, vehicle);
+		}
+		LOG.warn("No route was found from node " + startNode.getId() + " to node " + endNode.getId() + ". Some possible reasons:");
+		LOG.warn("  * Network is not connected.  Run NetworkCleaner().") ;
+		LOG.warn("  * Network for considered mode does not even exist.  Modes need to be entered for each link in network.xml.");
+		LOG.warn("  * Network for considered mode is not connected to starting or ending point of route.  Setting insertingAccessEgressWalk to true may help.");
+		LOG.warn("This will now return null, but it may fail later with a NullPointerException.");
+		return null;
+	}
+
+	private void visit(int edge, int bin, double currTime, double currCost, boolean down) {
+		int toNode = this.chData.getEdgeTo(edge);
+		double newCost = currCost + this.chData.getEdgeCost(edge, bin);
+		double newTime = currTime + this.chData.getEdgeTime(edge, bin);
+
+		if (this.settledIterationIds[toNode] == this.currentIteration) {
+			return;
+		}
+		if (this.iterationIds[toNode] == this.currentIteration) {
+			// this node was already visited in this route-query
+			double oldCost = getCost(toNode);
+			// on a tie, prefer going up, as this allows more paths to continue from the node
+			if (newCost < oldCost || (newCost == oldCost && !down && this.goingDown[toNode])) {
+				this.pq.decreaseKey(toNode, newCost);
+				setData(toNode, newCost, newTime);
+				this.usedEdge[toNode] = edge;
+				this.goingDown[toNode] = down;
+			}
+		} else {
+			setData(toNode, newCost, newTime);
+			this.pq.insert(toNode, newCost);
+			this.usedEdge[toNode] = edge;
+			this.goingDown[toNode] = down;
+		}
+	}
+
+	/**
+	 * Marks the end node and all nodes from which it can be reached using only edges going down in the hierarchy.
+	 */
+	private void markNodesAboveEndNode(int endNodeIndex) {
+		int stackSize = 0;
+		this.markedIterationIds[endNodeIndex] = this.currentIteration;
+		this.stack[stackSize++] = endNodeIndex;
+		while (stackSize > 0) {
+			int nodeIdx = this.stack[--stackSize];
+			for (int i = this.chData.getDownInStart(nodeIdx), end = this.chData.getDownInEnd(nodeIdx); i < end; i++) {
+				int fromNode = this.chData.getEdgeFrom(this.chData.getDownInEdge(i));
+				if (this.markedIterationIds[fromNode] != this.currentIteration) {
+					this.markedIterationIds[fromNode] = this.currentIteration;
+					this.stack[stackSize++] = fromNode;
+				}
+			}
+		}
+	}
+
+	private Path constructPath(int endNodeIndex, double startTime, Person person, Vehicle vehicle) {
+		List<Link> links = new ArrayList<>();
+		int nodeIndex = endNodeIndex;
+		List<Integer> edges = new ArrayList<>();
+		while (this.usedEdge[nodeIndex] >= 0) {
+			int edge = this.usedEdge[nodeIndex];
+			edges.add(edge);
+			nodeIndex = this.chData.getEdgeFrom(edge);
+		}
+		for (int i = edges.size() - 1; i >= 0; i--) {
+			unpack(edges.get(i), links);
+		}
+
+		List<Node> nodes = new ArrayList<>(links.size() + 1);
+		nodes.add(this.graph.getNode(nodeIndex));
+		double time = startTime;
+		double travelCost = 0;
+		for (Link link : links) {
+			nodes.add(link.getToNode());
+			travelCost += this.td.getLinkTravelDisutility(link, time, person, vehicle);
+			time += this.tt.getLinkTravelTime(link, time, person, vehicle);
+		}
+		return new Path(nodes, links, time - startTime, travelCost);
+	}
+
+	private void unpack(int edge, List<Link> links) {
+		int linkIndex = this.chData.getEdgeLink(edge);
+		if (linkIndex >= 0) {
+			links.add(this.graph.getLink(linkIndex));
+		} else {
+			unpack(this.chData.getEdgeChild1(edge), links);
+			unpack(this.chData.getEdgeChild2(edge), links);
+		}
+	}
+
+}
@@ -0,0 +1,494 @@
+package org.matsim.core.router.speedy;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+import java.util.Arrays;
+
+/**
+ * Preprocessed data for time-dependent contraction hierarchies, see {@link SpeedyCH}.
+ *
+ * Every edge of the hierarchy, original links as well as shortcuts, has a piecewise constant profile with one
+ * travel time and one travel cost per time bin. The profiles of the links are sampled from the {@link TravelTime}
+ * and {@link TravelDisutility} at the start of each bin. The profile of a shortcut is the concatenation of the
+ * profiles of its two child edges, where the second edge is evaluated in the bin in which the first edge is left
+ * when it is entered at the start of the bin. Thus the profiles are only exact if all travel times are multiples of
+ * the bin size. Otherwise, a vehicle entering the first edge late in a bin might leave it in a later bin than the
+ * one assumed by the shortcut, and the router might miss the least cost path (see {@link SpeedyCH}).
+ *
+ * Nodes are contracted in the order of their edge difference (with lazy updates). A shortcut is only omitted if a
+ * witness path exists whose cost in the worst bin is not larger than the cost of the shortcut in its best bin. Thus
+ * the hierarchy is correct for every time bin without comparing the profiles bin by bin.
+ *
+ * As the costs of all edges depend on the travel times, the data has to be rebuilt whenever the travel times
+ * change, typically once per iteration (see {@link SpeedyCHFactory}).
+ *
+ * The profiles are sampled without a person and vehicle, so the travel disutility must not depend on them. Person
+ * dependent disutilities, like the randomizing one used with a routing randomness larger than zero, are not
+ * supported.
+ *
+ * This class is thread-safe and can safely be used by multiple threads.
+ */
+public class SpeedyCHData {
+
+	private final static Logger LOG = LogManager.getLogger(SpeedyCHData.class);
+
+	private final static int WITNESS_SETTLED_LIMIT = 500;
+
+	final SpeedyGraph graph;
+	final double binSize;
+	final int binCount;
+
+	private final int[] nodeRank;
+
+	// edges, original links and shortcuts
+	private int edgeCount = 0;
+	private int[] edgeFrom;
+	private int[] edgeTo;
+	private int[] edgeLink; // link index for original links, -1 for shortcuts
+	private int[] edgeChild1;
+	private int[] edgeChild2;
+	private float[] edgeTimes; // binCount values per edge
+	private float[] edgeCosts; // binCount values per edge
+	private float[] edgeMinCost;
+	private float[] edgeMaxCost;
+
+	// the hierarchy, as compressed adjacency arrays
+	private int[] upOutStart; // edges from the node to a node with higher rank
+	private int[] upOutEdges;
+	private int[] downOutStart; // edges from the node to a node with lower rank
+	private int[] downOutEdges;
+	private int[] downInStart; // edges from a node with higher rank to the node
+	private int[] downInEdges;
+
+	public SpeedyCHData(SpeedyGraph graph, TravelTime travelTimes, TravelDisutility travelCosts, double binSize, double maxTime) {
+		this.graph = graph;
+		this.binSize = binSize;
+		this.binCount = Math.max(1, (int) Math.ceil(maxTime / binSize));
+		this.nodeRank = new int[graph.nodeCount];
+
+		int capacity = Math.max(16, graph.linkCount * 2);
+		this.edgeFrom = new int[capacity];
+		this.edgeTo = new int[capacity];
+		this.edgeLink = new int[capacity];
+		this.edgeChild1 = new int[capacity];
+		this.edgeChild2 = new int[capacity];
+		this.edgeTimes = new float[capacity * this.binCount];
+		this.edgeCosts = new float[capacity * this.binCount];
+		this.edgeMinCost = new float[capacity];
+		this.edgeMaxCost = new float[capacity];
+
+		this.addLinks(travelTimes, travelCosts);
+		this.contract();
+	}
+
+	private void addLinks(TravelTime travelTimes, TravelDisutility travelCosts) {
+		LOG.info("sample link profiles for " + this.binCount + " time bins...");
+		for (int linkIdx = 0; linkIdx < this.graph.linkCount; linkIdx++) {
+			Link link = this.graph.getLink(linkIdx);
+			if (link == null) continue; // not all indices might be in use
+			int fromNodeIdx = link.getFromNode().getId().index();
+			int toNodeIdx = link.getToNode().getId().index();
+			if (fromNodeIdx == toNodeIdx) continue; // loops are never part of a least cost path
+
+			int e = newEdge(fromNodeIdx, toNodeIdx, linkIdx, -1, -1);
+			float min = Float.POSITIVE_INFINITY;
+			float max = 0;
+			for (int bin = 0; bin < this.binCount; bin++) {
+				double time = bin * this.binSize;
+				// no person and vehicle: the hierarchy is shared by all of them
+				float cost = (float) travelCosts.getLinkTravelDisutility(link, time, null, null);
+				this.edgeTimes[e * this.binCount + bin] = (float) travelTimes.getLinkTravelTime(link, time, null, null);
+				this.edgeCosts[e * this.binCount + bin] = cost;
+				min = Math.min(min, cost);
+				max = Math.max(max, cost);
+			}
+			this.edgeMinCost[e] = min;
+			this.edgeMaxCost[e] = max;
+		}
+	}
+
+	private int newEdge(int from, int to, int link, int child1, int child2) {
+		if (this.edgeCount == this.edgeFrom.length) {
+			int capacity = this.edgeCount * 3 / 2;
+			this.edgeFrom = Arrays.copyOf(this.edgeFrom, capacity);
+			this.edgeTo = Arrays.copyOf(this.edgeTo, capacity);
+			this.edgeLink = Arrays.copyOf(this.edgeLink, capacity);
+			this.edgeChild1 = Arrays.copyOf(this.edgeChild1, capacity);
+			this.edgeChild2 = Arrays.copyOf(this.edgeChild2, capacity);
+			this.edgeTimes = Arrays.copyOf(this.edgeTimes, capacity * this.binCount);
+			this.edgeCosts = Arrays.copyOf(this.edgeCosts, capacity * this.binCount);
+			this.edgeMinCost = Arrays.copyOf(this.edgeMinCost, capacity);
+			this.edgeMaxCost = Arrays.copyOf(this.edgeMaxCost, capacity);
+		}
+		int e = this.edgeCount++;
+		this.edgeFrom[e] = from;
+		this.edgeTo[e] = to;
+		this.edgeLink[e] = link;
+		this.edgeChild1[e] = child1;
+		this.edgeChild2[e] = child2;
+		return e;
+	}
+
+	private void contract() {
+		LOG.info("contract nodes...");
+		Contraction c = new Contraction();
+		int originalEdges = this.edgeCount;
+		DAryMinHeap pq = new DAryMinHeap(this.graph.nodeCount, 4);
+		double[] priority = new double[this.graph.nodeCount];
+		int nodes = 0;
+		for (int nodeIdx = 0; nodeIdx < this.graph.nodeCount; nodeIdx++) {
+			if (this.graph.getNode(nodeIdx) == null) continue; // not all indices might be in use
+			priority[nodeIdx] = c.priority(nodeIdx);
+			pq.insert(nodeIdx, priority[nodeIdx]);
+			nodes++;
+		}
+
+		int rank = 0;
+		while (!pq.isEmpty()) {
+			int nodeIdx = pq.poll();
+			// lazy update: only contract the node if it is still the best one
+			double p = c.priority(nodeIdx);
+			if (!pq.isEmpty() && p > priority[pq.peek()]) {
+				priority[nodeIdx] = p;
+				pq.insert(nodeIdx, p);
+				continue;
+			}
+			c.contractNode(nodeIdx);
+			this.nodeRank[nodeIdx] = rank++;
+
+			IntList neighbours = c.uncontractedNeighbours(nodeIdx);
+			for (int i = 0; i < neighbours.size; i++) {
+				int neighbour = neighbours.get(i);
+				c.contractedNeighbours[neighbour]++;
+				priority[neighbour] = c.priority(neighbour);
+				pq.remove(neighbour);
+				pq.insert(neighbour, priority[neighbour]);
+			}
+			if (rank % 100000 == 0) {
+				LOG.info("  contracted " + rank + " of " + nodes + " nodes");
+			}
+		}
+		LOG.info("contracted " + nodes + " nodes, added " + (this.edgeCount - originalEdges) + " shortcuts to " + originalEdges + " edges.");
+		buildHierarchy();
+	}
+
+	private void buildHierarchy() {
+		int n = this.graph.nodeCount;
+		this.upOutStart = new int[n + 1];
+		this.downOutStart = new int[n + 1];
+		this.downInStart = new int[n + 1];
+		for (int e = 0; e < this.edgeCount; e++) {
+			if (isUpward(e)) {
+				this.upOutStart[this.edgeFrom[e] + 1]++;
+			} else {
+				this.downOutStart[this.edgeFrom[e] + 1]++;
+				this.downInStart[this.edgeTo[e] + 1]++;
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			this.upOutStart[i + 1] += this.upOutStart[i];
+			this.downOutStart[i + 1] += this.downOutStart[i];
+			this.downInStart[i + 1] += this.downInStart[i];
+		}
+		this.upOutEdges = new int[this.upOutStart[n]];
+		this.downOutEdges = new int[this.downOutStart[n]];
+		this.downInEdges = new int[this.downInStart[n]];
+		int[] upOutNext = Arrays.copyOf(this.upOutStart, n);
+		int[] downOutNext = Arrays.copyOf(this.downOutStart, n);
+		int[] downInNext = Arrays.copyOf(this.downInStart, n);
+		for (int e = 0; e < this.edgeCount; e++) {
+			if (isUpward(e)) {
+				this.upOutEdges[upOutNext[this.edgeFrom[e]]++] = e;
+			} else {
+				this.downOutEdges[downOutNext[this.edgeFrom[e]]++] = e;
+				this.downInEdges[downInNext[this.edgeTo[e]]++] = e;
+			}
+		}
+	}
+
+	private boolean isUpward(int e) {
+		return this.nodeRank[this.edgeFrom[e]] < this.nodeRank[this.edgeTo[e]];
+	}
+
+	int getBin(double time) {
+		int bin = (int) (time / this.binSize);
+		return bin < 0 ? 0 : Math.min(bin, this.binCount - 1);
+	}
+
+	double getEdgeTime(int edge, int bin) {
+		return this.edgeTimes[edge * this.binCount + bin];
+	}
+
+	double getEdgeCost(int edge, int bin) {
+		return this.edgeCosts[edge * this.binCount + bin];
+	}
+
+	int getEdgeFrom(int edge) {
+		return this.edgeFrom[edge];
+	}
+
+	int getEdgeTo(int edge) {
+		return this.edgeTo[edge];
+	}
+
+	/**
+	 * @return the link index of an original edge, <code>-1</code> for shortcuts.
+	 */
+	int getEdgeLink(int edge) {
+		return this.edgeLink[edge];
+	}
+
+	int getEdgeChild1(int edge) {
+		return this.edgeChild1[edge];
+	}
+
+	int getEdgeChild2(int edge) {
+		return this.edgeChild2[edge];
+	}
+
+	int getUpOutStart(int nodeIdx) {
+		return this.upOutStart[nodeIdx];
+	}
+
+	int getUpOutEnd(int nodeIdx) {
+		return this.upOutStart[nodeIdx + 1];
+	}
+
+	int getUpOutEdge(int i) {
+		return this.upOutEdges[i];
+	}
+
+	int getDownOutStart(int nodeIdx) {
+		return this.downOutStart[nodeIdx];
+	}
+
+	int getDownOutEnd(int nodeIdx) {
+		return this.downOutStart[nodeIdx + 1];
+	}
+
+	int getDownOutEdge(int i) {
+		return this.downOutEdges[i];
+	}
+
+	int getDownInStart(int nodeIdx) {
+		return this.downInStart[nodeIdx];
+	}
+
+	int getDownInEnd(int nodeIdx) {
+		return this.downInStart[nodeIdx + 1];
+	}
+
+	int getDownInEdge(int i) {
+		return this.downInEdges[i];
+	}
+
+	/**
+	 * The state only required while contracting the nodes: the remaining graph and the witness search.
+	 */
+	private final class Contraction {
+
+		private final IntList[] outEdges;
+		private final IntList[] inEdges;
+		private final boolean[] contracted;
+		final int[] contractedNeighbours;
+
+		private final double[] witnessCost;
+		private final int[] witnessIteration;
+		private int currentWitnessIteration = 0;
+		private final DAryMinHeap witnessPQ;
+
+		private final float[] shortcutTimes;
+		private final float[] shortcutCosts;
+
+		Contraction() {
+			int n = SpeedyCHData.this.graph.nodeCount;
+			this.outEdges = new IntList[n];
+			this.inEdges = new IntList[n];
+			for (int i = 0; i < n; i++) {
+				this.outEdges[i] = new IntList();
+				this.inEdges[i] = new IntList();
+			}
+			for (int e = 0; e < SpeedyCHData.this.edgeCount; e++) {
+				this.outEdges[SpeedyCHData.this.edgeFrom[e]].add(e);
+				this.inEdges[SpeedyCHData.this.edgeTo[e]].add(e);
+			}
+			this.contracted = new boolean[n];
+			this.contractedNeighbours = new int[n];
+			this.witnessCost = new double[n];
+			this.witnessIteration = new int[n];
+			this.witnessPQ = new DAryMinHeap(n, 4);
+			this.shortcutTimes = new float[SpeedyCHData.this.binCount];
+			this.shortcutCosts = new float[SpeedyCHData.this.binCount];
+		}
+
+		double priority(int nodeIdx) {
+			int removed = 0;
+			for (int i = 0; i < this.inEdges[nodeIdx].size; i++) {
+				if (!this.contracted[edgeFrom[this.inEdges[nodeIdx].get(i)]]) removed++;
+			}
+			for (int i = 0; i < this.outEdges[nodeIdx].size; i++) {
+				if (!this.contracted[edgeTo[this.outEdges[nodeIdx].get(i)]]) removed++;
+			}
+			int shortcuts = processNode(nodeIdx, false);
+			return 2 * (shortcuts - removed) + this.contractedNeighbours[nodeIdx];
+		}
+
+		void contractNode(int nodeIdx) {
+			processNode(nodeIdx, true);
+			this.contracted[nodeIdx] = true;
+		}
+
+		IntList uncontractedNeighbours(int nodeIdx) {
+			// the witness search data is not needed anymore after the contraction, use it to find duplicates
+			this.currentWitnessIteration++;
+			IntList neighbours = new IntList();
+			for (int i = 0; i < this.inEdges[nodeIdx].size; i++) {
+				addNeighbour(neighbours, edgeFrom[this.inEdges[nodeIdx].get(i)]);
+			}
+			for (int i = 0; i < this.outEdges[nodeIdx].size; i++) {
+				addNeighbour(neighbours, edgeTo[this.outEdges[nodeIdx].get(i)]);
+			}
+			return neighbours;
+		}
+
+		private void addNeighbour(IntList neighbours, int other) {
+			if (!this.contracted[other] && this.witnessIteration[other] != this.currentWitnessIteration) {
+				this.witnessIteration[other] = this.currentWitnessIteration;
+				neighbours.add(other);
+			}
+		}
+
+		/**
+		 * Finds the shortcuts required when the node is contracted, and adds them if <code>add</code> is true.
+		 *
+		 * @return the number of required shortcuts
+		 */
+		private int processNode(int nodeIdx, boolean add) {
+			int shortcuts = 0;
+			IntList in = this.inEdges[nodeIdx];
+			IntList out = this.outEdges[nodeIdx];
+			for (int i = 0; i < in.size; i++) {
+				int inEdge = in.get(i);
+				int u = edgeFrom[inEdge];
+				if (this.contracted[u]) continue;
+
+				double maxViaCost = -1;
+				for (int j = 0; j < out.size; j++) {
+					int outEdge = out.get(j);
+					if (!this.contracted[edgeTo[outEdge]] && edgeTo[outEdge] != u) {
+						maxViaCost = Math.max(maxViaCost, edgeMaxCost[inEdge] + edgeMaxCost[outEdge]);
+					}
+				}
+				if (maxViaCost < 0) continue; // no uncontracted out-neighbours
+				witnessSearch(u, nodeIdx, maxViaCost);
+
+				for (int j = 0; j < out.size; j++) {
+					int outEdge = out.get(j);
+					int w = edgeTo[outEdge];
+					if (this.contracted[w] || w == u) continue;
+
+					float minViaCost = concatenate(inEdge, outEdge);
+					boolean witnessFound = this.witnessIteration[w] == this.currentWitnessIteration && this.witnessCost[w] <= minViaCost;
+					if (!witnessFound) {
+						shortcuts++;
+						if (add) {
+							addShortcut(u, w, inEdge, outEdge);
+						}
+					}
+				}
+			}
+			return shortcuts;
+		}
+
+		/**
+		 * Stores the profile of the path along both edges in shortcutTimes and shortcutCosts.
+		 *
+		 * @return the minimal cost of the profile
+		 */
+		private float concatenate(int edge1, int edge2) {
+			int bins = SpeedyCHData.this.binCount;
+			float min = Float.POSITIVE_INFINITY;
+			for (int bin = 0; bin < bins; bin++) {
+				float time1 = edgeTimes[edge1 * bins + bin];
+				int bin2 = getBin(bin * SpeedyCHData.this.binSize + time1);
+				this.shortcutTimes[bin] = time1 + edgeTimes[edge2 * bins + bin2];
+				this.shortcutCosts[bin] = edgeCosts[edge1 * bins + bin] + edgeCosts[edge2 * bins + bin2];
+				min = Math.min(min, this.shortcutCosts[bin]);
+			}
+			return min;
+		}
+
+		private void addShortcut(int u, int w, int edge1, int edge2) {
+			concatenate(edge1, edge2);
+			int e = newEdge(u, w, -1, edge1, edge2);
+			int bins = SpeedyCHData.this.binCount;
+			float min = Float.POSITIVE_INFINITY;
+			float max = 0;
+			for (int bin = 0; bin < bins; bin++) {
+				edgeTimes[e * bins + bin] = this.shortcutTimes[bin];
+				edgeCosts[e * bins + bin] = this.shortcutCosts[bin];
+				min = Math.min(min, this.shortcutCosts[bin]);
+				max = Math.max(max, this.shortcutCosts[bin]);
+			}
+			edgeMinCost[e] = min;
+			edgeMaxCost[e] = max;
+			this.outEdges[u].add(e);
+			this.inEdges[w].add(e);
+		}
+
+		/**
+		 * Dijkstra on the remaining graph without the node to be contracted, using the maximal cost of each edge.
+		 */
+		private void witnessSearch(int start, int excludedNode, double maxCost) {
+			this.currentWitnessIteration++;
+			this.witnessPQ.clear();
+			this.witnessCost[start] = 0;
+			this.witnessIteration[start] = this.currentWitnessIteration;
+			this.witnessPQ.insert(start, 0);
+			int settled = 0;
+			while (!this.witnessPQ.isEmpty() && settled < WITNESS_SETTLED_LIMIT) {
+				int nodeIdx = this.witnessPQ.poll();
+				double cost = this.witnessCost[nodeIdx];
+				if (cost > maxCost) {
+					break;
+				}
+				settled++;
+				IntList out = this.outEdges[nodeIdx];
+				for (int i = 0; i < out.size; i++) {
+					int e = out.get(i);
+					int to = edgeTo[e];
+					if (to == excludedNode || this.contracted[to]) continue;
+					double newCost = cost + edgeMaxCost[e];
+					if (this.witnessIteration[to] != this.currentWitnessIteration) {
+						this.witnessIteration[to] = this.currentWitnessIteration;
+						this.witnessCost[to] = newCost;
+						this.witnessPQ.insert(to, newCost);
+					} else if (newCost < this.witnessCost[to]) {
+						this.witnessCost[to] = newCost;
+						this.witnessPQ.decreaseKey(to, newCost);
+					}
+				}
+			}
+		}
+	}
+
+	private static final class IntList {
+		private int[] values = new int[4];
+		private int size = 0;
+
+		void add(int value) {
+			if (this.size == this.values.length) {
+				this.values = Arrays.copyOf(this.values, this.size * 2);
+			}
+			this.values[this.size++] = value;
+		}
+
+		int get(int index) {
+			return this.values[index];
+		}
+	}
+}
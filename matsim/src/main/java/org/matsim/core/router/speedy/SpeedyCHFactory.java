@@ -0,0 +1,76 @@
+package org.matsim.core.router.speedy;
+
+import com.google.inject.Inject;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.controler.IterationCounter;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates {@link SpeedyCH} instances. A contraction hierarchy is built for each combination of network, travel
+ * disutility and travel time passed to this factory, where the disutility and travel time are compared by identity.
+ * Callers should thus share their instances to share the hierarchy. If an {@link IterationCounter} is available, the
+ * hierarchies are rebuilt for the first request in each iteration, so they reflect the travel times of the last
+ * iteration, and the ones of earlier iterations are dropped.
+ *
+ * The travel disutility must not depend on the person, see {@link SpeedyCHData}.
+ */
+public class SpeedyCHFactory implements LeastCostPathCalculatorFactory {
+
+	private final Map<Network, SpeedyGraph> graphs = new ConcurrentHashMap<>();
+	private final Map<CostFunctionKey, CHDataForIteration> chData = new ConcurrentHashMap<>();
+	private final double binSize;
+	private final double maxTime;
+	private IterationCounter iterationCounter = null;
+
+	public SpeedyCHFactory() {
+		this(900, 30 * 3600);
+	}
+
+	@Inject
+	public SpeedyCHFactory(TravelTimeCalculatorConfigGroup ttConfig) {
+		this(ttConfig.getTraveltimeBinSize(), ttConfig.getMaxTime());
+	}
+
+	public SpeedyCHFactory(double binSize, double maxTime) {
+		this.binSize = binSize;
+		this.maxTime = maxTime;
+	}
+
+	@Inject(optional = true)
+	void setIterationCounter(IterationCounter iterationCounter) {
+		this.iterationCounter = iterationCounter;
+	}
+
+	@Override
+	public LeastCostPathCalculator createPathCalculator(Network network, TravelDisutility travelCosts, TravelTime travelTimes) {
+		SpeedyGraph graph = this.graphs.computeIfAbsent(network, SpeedyGraph::new);
+		Integer iteration = this.iterationCounter == null ? null : this.iterationCounter.getIterationNumber();
+		if (iteration != null) {
+			this.chData.values().removeIf(existing -> !iteration.equals(existing.iteration));
+		}
+		CHDataForIteration data = this.chData.compute(new CostFunctionKey(graph, travelCosts, travelTimes), (key, existing) -> {
+			if (existing != null && (iteration == null || iteration.equals(existing.iteration))) {
+				return existing;
+			}
+			return new CHDataForIteration(iteration, new SpeedyCHData(graph, travelTimes, travelCosts, this.binSize, this.maxTime));
+		});
+		return new SpeedyCH(data.data, travelTimes, travelCosts);
+	}
+
+	private static class CHDataForIteration {
+		private final Integer iteration;
+		private final SpeedyCHData data;
+
+		CHDataForIteration(Integer iteration, SpeedyCHData data) {
+			this.iteration = iteration;
+			this.data = data;
+		}
+	}
+}
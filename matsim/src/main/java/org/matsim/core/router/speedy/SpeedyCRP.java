@@ -0,0 +1,254 @@
+package org.matsim.core.router.speedy;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A router using customizable route planning, based on the ideas of "Customizable Route Planning" by Daniel Delling,
+ * Andrew V. Goldberg, Thomas Pajor and Renato F. Werneck, 2011.
+ *
+ * The search is a time-dependent Dijkstra on a multilevel overlay graph: nodes in the same level-0 cell as the
+ * start or end node use the links of the network. All other nodes use the highest level on which their cell contains
+ * neither the start nor the end node. There, entry nodes use the clique of their cell from the {@link SpeedyCRPData}
+ * for the time bin they are reached in, and exit nodes use the links leaving their cell. Clique edges of the found
+ * path are unpacked level by level with a search restricted to the respective cell.
+ *
+ * As the cliques are piecewise constant approximations of the travel times and costs, the found path might differ
+ * slightly from the one found by a time-dependent Dijkstra on the original network. The travel time and cost of
+ * the returned path are always calculated using the actual {@link TravelTime} and {@link TravelDisutility}.
+ *
+ * This implementation is not thread-safe. In the case of multi-threading, every thread should use
+ * a separate instance. (But the used {@link SpeedyCRPData} is thread-safe and can be shared by multiple
+ * instances).
+ */
+public class SpeedyCRP implements LeastCostPathCalculator {
+
+	private final static Logger LOG = LogManager.getLogger(SpeedyCRP.class);
+
+	private final SpeedyGraph graph;
+	private final SpeedyCRPData crpData;
+	private final SpeedyPartition partition;
+	private final TravelTime tt;
+	private final TravelDisutility td;
+	private final double[] data; // 2 entries per node: cost to node, time
+	private int currentIteration = Integer.MIN_VALUE;
+	private final int[] iterationIds;
+	private final int[] comingFrom;
+	private final int[] usedLink; // -1 if the node was reached by a clique
+	private final DAryMinHeap pq;
+	private final SpeedyGraph.LinkIterator outLI;
+	private final SpeedyCRPData.CellSearch[] unpackSearches;
+
+	public SpeedyCRP(SpeedyCRPData crpData, TravelTime tt, TravelDisutility td) {
+		this.graph = crpData.graph;
+		this.crpData = crpData;
+		this.partition = crpData.partition;
+		this.tt = tt;
+		this.td = td;
+		this.data = new double[this.graph.nodeCount * 2];
+		this.iterationIds = new int[this.graph.nodeCount];
+		this.comingFrom = new int[this.graph.nodeCount];
+		this.usedLink = new int[this.graph.nodeCount];
+		this.pq = new DAryMinHeap(this.graph.nodeCount, 6);
+		this.outLI = this.graph.getOutLinkIterator();
+		this.unpackSearches = new SpeedyCRPData.CellSearch[this.partition.getLevelsCount()];
+		Arrays.fill(this.iterationIds, this.currentIteration);
+	}
+
+	private double getCost(int nodeIndex) {
+		return this.data[nodeIndex * 2];
+	}
+
+	private double getTimeRaw(int nodeIndex) {
+		return this.data[nodeIndex * 2 + 1];
+	}
+
+	private void setData(int nodeIndex, double cost, double time) {
+		int index = nodeIndex * 2;
+		this.data[index] = cost;
+		this.data[index + 1] = time;
+		this.iterationIds[nodeIndex] = this.currentIteration;
+	}
+
+	@Override
+	public Path calcLeastCostPath(Node startNode, Node endNode, double startTime, Person person, Vehicle vehicle) {
+		this.currentIteration++;
+		if (this.currentIteration == Integer.MAX_VALUE) {
+			// reset iteration as we overflow
+			Arrays.fill(this.iterationIds, this.currentIteration);
+			this.currentIteration = Integer.MIN_VALUE;
+		}
+		int startNodeIndex = startNode.getId().index();
+		int endNodeIndex = endNode.getId().index();
+
+		this.comingFrom[startNodeIndex] = -1;
+		setData(startNodeIndex, 0, startTime);
+		this.pq.clear();
+		this.pq.insert(startNodeIndex, 0);
+		boolean foundEndNode = false;
+
+		while (!this.pq.isEmpty()) {
+			final int nodeIdx = this.pq.poll();
+			if (nodeIdx == endNodeIndex) {
+				foundEndNode = true;
+				break;
+			}
+
+			double currTime = getTimeRaw(nodeIdx);
+			double currCost = getCost(nodeIdx);
+			int level = getQueryLevel(nodeIdx, startNodeIndex, endNodeIndex);
+
+			if (level >= 0) {
+				int entry = this.crpData.getEntryIndex(level, nodeIdx);
+				if (entry >= 0) {
+					int cell = this.partition.getCell(nodeIdx, level);
+					int[] exits = this.crpData.getExits(level, cell);
+					int bin = this.crpData.getBin(currTime);
+					for (int exit = 0; exit < exits.length; exit++) {
+						double cliqueCost = this.crpData.getCliqueCost(level, cell, entry, exit, bin);
+						if (cliqueCost < Double.POSITIVE_INFINITY) {
+							visit(exits[exit], currCost + cliqueCost, currTime + this.crpData.getCliqueTime(level, cell, entry, exit, bin), nodeIdx, -1);
+						}
+					}
+				}
+				if (this.crpData.getExitIndex(level, nodeIdx) < 0) {
+					continue;
+				}
+			}
+
+			this.outLI.reset(nodeIdx);
+			while (this.outLI.next()) {
+				int toNode = this.outLI.getToNodeIndex();
+				if (level >= 0 && this.partition.getCrossingLevel(nodeIdx, toNode) < level) {
+					continue; // stays within the cell, covered by the clique
+				}
+				int linkIdx = this.outLI.getLinkIndex();
+				Link link = this.graph.getLink(linkIdx);
+				double newTime = currTime + this.tt.getLinkTravelTime(link, currTime, person, vehicle);
+				double newCost = currCost + this.td.getLinkTravelDisutility(link, currTime, person, vehicle);
+				visit(toNode, newCost, newTime, nodeIdx, linkIdx);
+			}
+		}
+
+		if (foundEndNode) {
+			return constructPath(endNodeIndex, startTime, person, vehicle);
+		}
+		LOG.warn("No route was found from node " + startNode.getId() + " to node " + endNode.getId() + ". Some possible reasons:");
+		LOG.warn("  * Network is not connected.  Run NetworkCleaner().") ;
+		LOG.warn("  * Network for considered mode does not even exist.  Modes need to be entered for each link in network.xml.");
+		LOG.warn("  * Network for considered mode is not connected to starting or ending point of route.  Setting insertingAccessEgressWalk to true may help.");
+		LOG.warn("This will now return null, but it may fail later with a NullPointerException.");
+		return null;
+	}
+
+	/**
+	 * @return the highest level on which the cell of the node neither contains the start nor the end node, or
+	 * <code>-1</code> if the node is in the same level-0 cell as one of them.
+	 */
+	private int getQueryLevel(int nodeIdx, int startNodeIndex, int endNodeIndex) {
+		return Math.min(this.partition.getCrossingLevel(nodeIdx, startNodeIndex), this.partition.getCrossingLevel(nodeIdx, endNodeIndex));
+	}
+
+	private void visit(int toNode, double newCost, double newTime, int fromNode, int linkIdx) {
+		if (this.iterationIds[toNode] == this.currentIteration) {
+			// this node was already visited in this route-query
+			if (newCost < getCost(toNode)) {
+				this.pq.decreaseKey(toNode, newCost);
+				setData(toNode, newCost, newTime);
+				this.comingFrom[toNode] = fromNode;
+				this.usedLink[toNode] = linkIdx;
+			}
+		} else {
+			setData(toNode, newCost, newTime);
+			this.pq.insert(toNode, newCost);
+			this.comingFrom[toNode] = fromNode;
+			this.usedLink[toNode] = linkIdx;
+		}
+	}
+
+	private Path constructPath(int endNodeIndex, double startTime, Person person, Vehicle vehicle) {
+		// collect the segments backwards, then unpack them forwards
+		List<Integer> segmentEnds = new ArrayList<>();
+		int nodeIndex = endNodeIndex;
+		while (this.comingFrom[nodeIndex] >= 0) {
+			segmentEnds.add(nodeIndex);
+			nodeIndex = this.comingFrom[nodeIndex];
+		}
+		int startNodeIndex = nodeIndex;
+
+		List<Link> links = new ArrayList<>();
+		for (int i = segmentEnds.size() - 1; i >= 0; i--) {
+			int toNode = segmentEnds.get(i);
+			int fromNode = this.comingFrom[toNode];
+			if (this.usedLink[toNode] >= 0) {
+				links.add(this.graph.getLink(this.usedLink[toNode]));
+			} else {
+				int level = getQueryLevel(fromNode, startNodeIndex, endNodeIndex);
+				unpack(fromNode, toNode, level, getTimeRaw(fromNode), links);
+			}
+		}
+
+		List<Node> nodes = new ArrayList<>(links.size() + 1);
+		nodes.add(this.graph.getNode(startNodeIndex));
+		double time = startTime;
+		double travelCost = 0;
+		for (Link link : links) {
+			nodes.add(link.getToNode());
+			travelCost += this.td.getLinkTravelDisutility(link, time, person, vehicle);
+			time += this.tt.getLinkTravelTime(link, time, person, vehicle);
+		}
+		return new Path(nodes, links, time - startTime, travelCost);
+	}
+
+	/**
+	 * Replaces the clique edge from entry to exit node of a cell on the given level by the links it represents.
+	 */
+	private void unpack(int entryNode, int exitNode, int level, double time, List<Link> links) {
+		SpeedyCRPData.CellSearch search = this.unpackSearches[level];
+		if (search == null) {
+			search = new SpeedyCRPData.CellSearch(this.crpData, level);
+			this.unpackSearches[level] = search;
+		}
+		search.search(entryNode, this.partition.getCell(entryNode, level), time, exitNode);
+		if (!search.isReached(exitNode)) {
+			throw new IllegalStateException("could not unpack the path from node " + this.graph.getNode(entryNode).getId() + " to node " + this.graph.getNode(exitNode).getId());
+		}
+
+		List<Integer> segmentEnds = new ArrayList<>();
+		int nodeIndex = exitNode;
+		while (nodeIndex != entryNode) {
+			segmentEnds.add(nodeIndex);
+			nodeIndex = search.getComingFrom(nodeIndex);
+		}
+		int[] from = new int[segmentEnds.size()];
+		int[] usedLinks = new int[segmentEnds.size()];
+		double[] times = new double[segmentEnds.size()];
+		for (int i = 0; i < from.length; i++) {
+			int toNode = segmentEnds.get(from.length - 1 - i);
+			from[i] = search.getComingFrom(toNode);
+			usedLinks[i] = search.getUsedLink(toNode);
+			times[i] = search.getTime(from[i]);
+		}
+		// the search of this level is re-used when unpacking the cliques of the level below, so copy the path first
+		for (int i = 0; i < from.length; i++) {
+			if (usedLinks[i] >= 0) {
+				links.add(this.graph.getLink(usedLinks[i]));
+			} else {
+				int toNode = segmentEnds.get(from.length - 1 - i);
+				unpack(from[i], toNode, level - 1, times[i], links);
+			}
+		}
+	}
+
+}
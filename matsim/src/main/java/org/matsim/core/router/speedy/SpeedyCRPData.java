@@ -0,0 +1,353 @@
+package org.matsim.core.router.speedy;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The metric-dependent part of customizable route planning, see {@link SpeedyCRP}.
+ *
+ * For every cell of the {@link SpeedyPartition} on every level, the boundary nodes are split into entry nodes
+ * (reached by a link from another cell) and exit nodes (left by a link into another cell). The clique of a cell
+ * contains the least cost from each entry to each exit node. It is computed for each time bin separately, by a
+ * time-dependent Dijkstra starting at the beginning of the bin. On level 0 the search uses the links inside the
+ * cell, on higher levels it uses the cliques of the cells of the level below and the links between them.
+ *
+ * The boundary nodes only depend on the partition, the cliques are recomputed from scratch ("customized") with the
+ * current travel times and costs. The cells of one level are independent of each other and are customized in
+ * parallel.
+ *
+ * This class is thread-safe and can safely be used by multiple threads.
+ */
+public class SpeedyCRPData {
+
+	private final static Logger LOG = LogManager.getLogger(SpeedyCRPData.class);
+
+	final SpeedyGraph graph;
+	final SpeedyPartition partition;
+	final TravelTime travelTimes;
+	final TravelDisutility travelCosts;
+	final double binSize;
+	final int binCount;
+
+	private final int[][] entryIndex; // [level][node], -1 if the node is no entry node on that level
+	private final int[][] exitIndex; // [level][node], -1 if the node is no exit node on that level
+	private final int[][][] entries; // [level][cell] -> node indices
+	private final int[][][] exits; // [level][cell] -> node indices
+	private final float[][][] cliqueCosts; // [level][cell] -> (entry * exits + exit) * binCount + bin
+	private final float[][][] cliqueTimes;
+
+	public SpeedyCRPData(SpeedyGraph graph, SpeedyPartition partition, TravelTime travelTimes, TravelDisutility travelCosts,
+						 double binSize, double maxTime, int numberOfThreads) {
+		this.graph = graph;
+		this.partition = partition;
+		this.travelTimes = travelTimes;
+		this.travelCosts = travelCosts;
+		this.binSize = binSize;
+		this.binCount = Math.max(1, (int) Math.ceil(maxTime / binSize));
+
+		int levels = partition.getLevelsCount();
+		this.entryIndex = new int[levels][];
+		this.exitIndex = new int[levels][];
+		this.entries = new int[levels][][];
+		this.exits = new int[levels][][];
+		this.cliqueCosts = new float[levels][][];
+		this.cliqueTimes = new float[levels][][];
+		findBoundaryNodes();
+
+		ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+		try {
+			for (int level = 0; level < levels; level++) {
+				customizeLevel(level, executor, numberOfThreads);
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private void findBoundaryNodes() {
+		int levels = this.partition.getLevelsCount();
+		for (int level = 0; level < levels; level++) {
+			this.entryIndex[level] = new int[this.graph.nodeCount];
+			this.exitIndex[level] = new int[this.graph.nodeCount];
+			Arrays.fill(this.entryIndex[level], -1);
+			Arrays.fill(this.exitIndex[level], -1);
+		}
+		SpeedyGraph.LinkIterator outLI = this.graph.getOutLinkIterator();
+		for (int nodeIdx = 0; nodeIdx < this.graph.nodeCount; nodeIdx++) {
+			if (this.graph.getNode(nodeIdx) == null) continue; // not all indices might be in use
+			outLI.reset(nodeIdx);
+			while (outLI.next()) {
+				int toNode = outLI.getToNodeIndex();
+				int crossingLevel = this.partition.getCrossingLevel(nodeIdx, toNode);
+				for (int level = 0; level <= crossingLevel; level++) {
+					this.exitIndex[level][nodeIdx] = 0;
+					this.entryIndex[level][toNode] = 0;
+				}
+			}
+		}
+
+		int boundaryNodes = 0;
+		for (int level = 0; level < levels; level++) {
+			int cells = this.partition.getCellsCount(level);
+			int[] entriesPerCell = new int[cells];
+			int[] exitsPerCell = new int[cells];
+			for (int nodeIdx = 0; nodeIdx < this.graph.nodeCount; nodeIdx++) {
+				if (this.graph.getNode(nodeIdx) == null) continue;
+				int cell = this.partition.getCell(nodeIdx, level);
+				if (this.entryIndex[level][nodeIdx] >= 0) {
+					this.entryIndex[level][nodeIdx] = entriesPerCell[cell]++;
+				}
+				if (this.exitIndex[level][nodeIdx] >= 0) {
+					this.exitIndex[level][nodeIdx] = exitsPerCell[cell]++;
+				}
+			}
+			this.entries[level] = new int[cells][];
+			this.exits[level] = new int[cells][];
+			this.cliqueCosts[level] = new float[cells][];
+			this.cliqueTimes[level] = new float[cells][];
+			for (int cell = 0; cell < cells; cell++) {
+				this.entries[level][cell] = new int[entriesPerCell[cell]];
+				this.exits[level][cell] = new int[exitsPerCell[cell]];
+				this.cliqueCosts[level][cell] = new float[entriesPerCell[cell] * exitsPerCell[cell] * this.binCount];
+				this.cliqueTimes[level][cell] = new float[entriesPerCell[cell] * exitsPerCell[cell] * this.binCount];
+			}
+			for (int nodeIdx = 0; nodeIdx < this.graph.nodeCount; nodeIdx++) {
+				if (this.graph.getNode(nodeIdx) == null) continue;
+				int cell = this.partition.getCell(nodeIdx, level);
+				if (this.entryIndex[level][nodeIdx] >= 0) {
+					this.entries[level][cell][this.entryIndex[level][nodeIdx]] = nodeIdx;
+				}
+				if (this.exitIndex[level][nodeIdx] >= 0) {
+					this.exits[level][cell][this.exitIndex[level][nodeIdx]] = nodeIdx;
+				}
+			}
+			if (level == 0) {
+				for (int cell = 0; cell < cells; cell++) {
+					boundaryNodes += entriesPerCell[cell] + exitsPerCell[cell];
+				}
+			}
+		}
+		LOG.info("found " + boundaryNodes + " entry and exit nodes on level 0.");
+	}
+
+	private void customizeLevel(int level, ExecutorService executor, int numberOfThreads) {
+		int cells = this.partition.getCellsCount(level);
+		AtomicInteger nextCell = new AtomicInteger(0);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int t = 0; t < numberOfThreads; t++) {
+			futures.add(executor.submit(() -> {
+				CellSearch search = new CellSearch(this, level);
+				int cell;
+				while ((cell = nextCell.getAndIncrement()) < cells) {
+					customizeCell(search, level, cell);
+				}
+			}));
+		}
+		try {
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	private void customizeCell(CellSearch search, int level, int cell) {
+		int[] cellEntries = this.entries[level][cell];
+		int[] cellExits = this.exits[level][cell];
+		float[] costs = this.cliqueCosts[level][cell];
+		float[] times = this.cliqueTimes[level][cell];
+		for (int entry = 0; entry < cellEntries.length; entry++) {
+			for (int bin = 0; bin < this.binCount; bin++) {
+				double startTime = bin * this.binSize;
+				search.search(cellEntries[entry], cell, startTime, -1);
+				for (int exit = 0; exit < cellExits.length; exit++) {
+					int i = (entry * cellExits.length + exit) * this.binCount + bin;
+					int exitNode = cellExits[exit];
+					if (search.isReached(exitNode)) {
+						costs[i] = (float) search.getCost(exitNode);
+						times[i] = (float) (search.getTime(exitNode) - startTime);
+					} else {
+						costs[i] = Float.POSITIVE_INFINITY;
+						times[i] = Float.POSITIVE_INFINITY;
+					}
+				}
+			}
+		}
+	}
+
+	int getBin(double time) {
+		int bin = (int) (time / this.binSize);
+		return bin < 0 ? 0 : Math.min(bin, this.binCount - 1);
+	}
+
+	int getEntryIndex(int level, int nodeIdx) {
+		return this.entryIndex[level][nodeIdx];
+	}
+
+	int getExitIndex(int level, int nodeIdx) {
+		return this.exitIndex[level][nodeIdx];
+	}
+
+	int[] getExits(int level, int cell) {
+		return this.exits[level][cell];
+	}
+
+	double getCliqueCost(int level, int cell, int entry, int exit, int bin) {
+		return this.cliqueCosts[level][cell][(entry * this.exits[level][cell].length + exit) * this.binCount + bin];
+	}
+
+	double getCliqueTime(int level, int cell, int entry, int exit, int bin) {
+		return this.cliqueTimes[level][cell][(entry * this.exits[level][cell].length + exit) * this.binCount + bin];
+	}
+
+	/**
+	 * A time-dependent Dijkstra restricted to one cell. On level 0 it uses the links inside the cell, on higher
+	 * levels the cliques of the cells one level below and the links between them. Also used by {@link SpeedyCRP}
+	 * to unpack the cliques of a path.
+	 */
+	static final class CellSearch {
+
+		private final SpeedyCRPData data;
+		private final int level;
+		private final double[] costs;
+		private final double[] times;
+		private final int[] comingFrom;
+		private final int[] usedLink; // -1 if the node was reached by a clique
+		private int currentIteration = Integer.MIN_VALUE;
+		private final int[] iterationIds;
+		private final DAryMinHeap pq;
+		private final SpeedyGraph.LinkIterator outLI;
+
+		CellSearch(SpeedyCRPData data, int level) {
+			this.data = data;
+			this.level = level;
+			int n = data.graph.nodeCount;
+			this.costs = new double[n];
+			this.times = new double[n];
+			this.comingFrom = new int[n];
+			this.usedLink = new int[n];
+			this.iterationIds = new int[n];
+			Arrays.fill(this.iterationIds, this.currentIteration);
+			this.pq = new DAryMinHeap(n, 4);
+			this.outLI = data.graph.getOutLinkIterator();
+		}
+
+		/**
+		 * Searches from the start node within the given cell on this search's level, until the target node is
+		 * found or, if the target is <code>-1</code>, all reachable nodes are settled.
+		 */
+		void search(int startNode, int cell, double startTime, int targetNode) {
+			this.currentIteration++;
+			if (this.currentIteration == Integer.MAX_VALUE) {
+				Arrays.fill(this.iterationIds, this.currentIteration);
+				this.currentIteration = Integer.MIN_VALUE;
+			}
+			SpeedyPartition partition = this.data.partition;
+			this.pq.clear();
+			visit(startNode, 0, startTime, -1, -1);
+
+			while (!this.pq.isEmpty()) {
+				int nodeIdx = this.pq.poll();
+				if (nodeIdx == targetNode) {
+					return;
+				}
+				double cost = this.costs[nodeIdx];
+				double time = this.times[nodeIdx];
+
+				if (this.level == 0) {
+					this.outLI.reset(nodeIdx);
+					while (this.outLI.next()) {
+						int toNode = this.outLI.getToNodeIndex();
+						if (partition.getCell(toNode, 0) != cell) continue;
+						Link link = this.data.graph.getLink(this.outLI.getLinkIndex());
+						visit(toNode,
+								cost + this.data.travelCosts.getLinkTravelDisutility(link, time, null, null),
+								time + this.data.travelTimes.getLinkTravelTime(link, time, null, null),
+								nodeIdx, this.outLI.getLinkIndex());
+					}
+				} else {
+					int subLevel = this.level - 1;
+					int entry = this.data.getEntryIndex(subLevel, nodeIdx);
+					if (entry >= 0) {
+						int subCell = partition.getCell(nodeIdx, subLevel);
+						int[] subExits = this.data.getExits(subLevel, subCell);
+						int bin = this.data.getBin(time);
+						for (int exit = 0; exit < subExits.length; exit++) {
+							double cliqueCost = this.data.getCliqueCost(subLevel, subCell, entry, exit, bin);
+							if (cliqueCost < Double.POSITIVE_INFINITY) {
+								visit(subExits[exit], cost + cliqueCost, time + this.data.getCliqueTime(subLevel, subCell, entry, exit, bin), nodeIdx, -1);
+							}
+						}
+					}
+					if (this.data.getExitIndex(subLevel, nodeIdx) >= 0) {
+						this.outLI.reset(nodeIdx);
+						while (this.outLI.next()) {
+							int toNode = this.outLI.getToNodeIndex();
+							if (partition.getCell(toNode, this.level) != cell) continue;
+							if (partition.getCell(toNode, subLevel) == partition.getCell(nodeIdx, subLevel)) continue; // covered by the clique
+							Link link = this.data.graph.getLink(this.outLI.getLinkIndex());
+							visit(toNode,
+									cost + this.data.travelCosts.getLinkTravelDisutility(link, time, null, null),
+									time + this.data.travelTimes.getLinkTravelTime(link, time, null, null),
+									nodeIdx, this.outLI.getLinkIndex());
+						}
+					}
+				}
+			}
+		}
+
+		private void visit(int nodeIdx, double cost, double time, int fromNode, int link) {
+			if (this.iterationIds[nodeIdx] == this.currentIteration) {
+				if (cost < this.costs[nodeIdx]) {
+					this.costs[nodeIdx] = cost;
+					this.times[nodeIdx] = time;
+					this.comingFrom[nodeIdx] = fromNode;
+					this.usedLink[nodeIdx] = link;
+					this.pq.decreaseKey(nodeIdx, cost);
+				}
+			} else {
+				this.iterationIds[nodeIdx] = this.currentIteration;
+				this.costs[nodeIdx] = cost;
+				this.times[nodeIdx] = time;
+				this.comingFrom[nodeIdx] = fromNode;
+				this.usedLink[nodeIdx] = link;
+				this.pq.insert(nodeIdx, cost);
+			}
+		}
+
+		boolean isReached(int nodeIdx) {
+			return this.iterationIds[nodeIdx] == this.currentIteration;
+		}
+
+		double getCost(int nodeIdx) {
+			return this.costs[nodeIdx];
+		}
+
+		double getTime(int nodeIdx) {
+			return this.times[nodeIdx];
+		}
+
+		int getComingFrom(int nodeIdx) {
+			return this.comingFrom[nodeIdx];
+		}
+
+		int getUsedLink(int nodeIdx) {
+			return this.usedLink[nodeIdx];
+		}
+	}
+}
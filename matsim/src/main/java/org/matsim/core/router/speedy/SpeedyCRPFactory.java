@@ -0,0 +1,104 @@
+package org.matsim.core.router.speedy;
+
+import com.google.inject.Inject;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.config.groups.ControlerConfigGroup;
+import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.controler.IterationCounter;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates {@link SpeedyCRP} instances. The partition of a network is only created once, and if a cache directory is
+ * given (see {@link ControlerConfigGroup#getRoutingCacheDirectory()}), it is also stored there and re-used by later
+ * runs on the same network. The cliques are customized for each combination of network, travel disutility and travel
+ * time passed to this factory, where the disutility and travel time are compared by identity. Callers should thus
+ * share their instances to share the cliques. If an {@link IterationCounter} is available, the cliques are customized
+ * again for the first request in each iteration, so they reflect the travel times of the last iteration, and the ones
+ * of earlier iterations are dropped.
+ */
+public class SpeedyCRPFactory implements LeastCostPathCalculatorFactory {
+
+	private final Map<Network, SpeedyGraph> graphs = new ConcurrentHashMap<>();
+	private final Map<SpeedyGraph, SpeedyPartition> partitions = new ConcurrentHashMap<>();
+	private final Map<CostFunctionKey, CRPDataForIteration> crpData = new ConcurrentHashMap<>();
+	private final double binSize;
+	private final double maxTime;
+	private final int numberOfThreads;
+	private final int maxCellSize;
+	private final int bitsPerLevel;
+	private final File cacheDirectory;
+	private IterationCounter iterationCounter = null;
+
+	public SpeedyCRPFactory() {
+		this(900, 30 * 3600, 1);
+	}
+
+	@Inject
+	public SpeedyCRPFactory(TravelTimeCalculatorConfigGroup ttConfig, GlobalConfigGroup globalConfig, ControlerConfigGroup controlerConfig) {
+		this(ttConfig.getTraveltimeBinSize(), ttConfig.getMaxTime(), globalConfig.getNumberOfThreads(), 256, 3,
+				controlerConfig.getRoutingCacheDirectory() == null ? null : new File(controlerConfig.getRoutingCacheDirectory()));
+	}
+
+	public SpeedyCRPFactory(double binSize, double maxTime, int numberOfThreads) {
+		this(binSize, maxTime, numberOfThreads, 256, 3, null);
+	}
+
+	/**
+	 * @param cacheDirectory directory to store the partitions in, <code>null</code> to not store them.
+	 */
+	public SpeedyCRPFactory(double binSize, double maxTime, int numberOfThreads, int maxCellSize, int bitsPerLevel, File cacheDirectory) {
+		this.binSize = binSize;
+		this.maxTime = maxTime;
+		this.numberOfThreads = Math.max(1, numberOfThreads);
+		this.maxCellSize = maxCellSize;
+		this.bitsPerLevel = bitsPerLevel;
+		this.cacheDirectory = cacheDirectory;
+	}
+
+	@Inject(optional = true)
+	void setIterationCounter(IterationCounter iterationCounter) {
+		this.iterationCounter = iterationCounter;
+	}
+
+	@Override
+	public LeastCostPathCalculator createPathCalculator(Network network, TravelDisutility travelCosts, TravelTime travelTimes) {
+		SpeedyGraph graph = this.graphs.computeIfAbsent(network, SpeedyGraph::new);
+		SpeedyPartition partition = this.partitions.computeIfAbsent(graph, g -> createPartition(g, network, travelCosts));
+		Integer iteration = this.iterationCounter == null ? null : this.iterationCounter.getIterationNumber();
+		if (iteration != null) {
+			this.crpData.values().removeIf(existing -> !iteration.equals(existing.iteration));
+		}
+		CRPDataForIteration data = this.crpData.compute(new CostFunctionKey(graph, travelCosts, travelTimes), (key, existing) -> {
+			if (existing != null && (iteration == null || iteration.equals(existing.iteration))) {
+				return existing;
+			}
+			return new CRPDataForIteration(iteration, new SpeedyCRPData(graph, partition, travelTimes, travelCosts, this.binSize, this.maxTime, this.numberOfThreads));
+		});
+		return new SpeedyCRP(data.data, travelTimes, travelCosts);
+	}
+
+	private SpeedyPartition createPartition(SpeedyGraph graph, Network network, TravelDisutility travelCosts) {
+		if (this.cacheDirectory == null) {
+			return new SpeedyPartition(graph, this.maxCellSize, this.bitsPerLevel);
+		}
+		return SpeedyPartition.loadOrCreate(graph, network, this.maxCellSize, this.bitsPerLevel, travelCosts, this.cacheDirectory);
+	}
+
+	private static class CRPDataForIteration {
+		private final Integer iteration;
+		private final SpeedyCRPData data;
+
+		CRPDataForIteration(Integer iteration, SpeedyCRPData data) {
+			this.iteration = iteration;
+			this.data = data;
+		}
+	}
+}
@@ -0,0 +1,79 @@
+package org.matsim.core.router.speedy;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Reads and writes the files in which routers cache their preprocessed data. The files may be shared by several
+ * routers or processes at the same time: they are written to a temporary file first and then moved to their final
+ * name atomically, so a reader never sees a partially written file. A file that cannot be read is treated like a
+ * missing file, so the data is just calculated again.
+ */
+final class SpeedyCacheFiles {
+
+	private final static Logger LOG = LogManager.getLogger(SpeedyCacheFiles.class);
+
+	interface Writer {
+		void write(DataOutputStream out) throws IOException;
+	}
+
+	interface Reader<T> {
+		T read(DataInputStream in) throws IOException;
+	}
+
+	private SpeedyCacheFiles() {
+	}
+
+	/**
+	 * @return the data read from the file, or <code>null</code> if the file does not exist or cannot be read.
+	 */
+	static <T> T read(File file, Reader<T> reader) {
+		if (!file.exists()) {
+			return null;
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+			return reader.read(in);
+		} catch (IOException e) {
+			// also includes EOFException for truncated files
+			LOG.warn("could not read " + file + ", the data is calculated again: " + e.getMessage());
+			return null;
+		}
+	}
+
+	static void write(File file, Writer writer) {
+		Path tmpFile = null;
+		try {
+			Files.createDirectories(file.toPath().toAbsolutePath().getParent());
+			// every writer uses its own temporary file, so concurrent writers do not interfere
+			tmpFile = Files.createTempFile(file.toPath().toAbsolutePath().getParent(), file.getName(), ".tmp");
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+				writer.write(out);
+			}
+			try {
+				Files.move(tmpFile, file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tmpFile, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (IOException e) {
+			LOG.warn("could not write " + file, e);
+			if (tmpFile != null) {
+				try {
+					Files.deleteIfExists(tmpFile);
+				} catch (IOException ignored) {
+					// nothing more we can do
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,205 @@
+package org.matsim.core.router.speedy;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.router.util.TravelDisutility;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * A nested multilevel partition of the nodes of a {@link SpeedyGraph}, as used by {@link SpeedyCRP}.
+ *
+ * The nodes are split recursively into two halves of equal size along the longer side of their bounding box, until
+ * the cells contain at most <code>maxCellSize</code> nodes. The path of left/right decisions of each node is its
+ * cell code. The cells on level 0 are the cells of the last split, each higher level merges
+ * 2<sup><code>bitsPerLevel</code></sup> cells of the level below. As the partition only depends on the
+ * network and not on any travel times or costs, it can be written to a file and re-used, see
+ * {@link #loadOrCreate(SpeedyGraph, Network, int, int, TravelDisutility, File)}.
+ */
+public class SpeedyPartition {
+
+	private final static Logger LOG = LogManager.getLogger(SpeedyPartition.class);
+
+	private final static int MAGIC = 0x53505054; // "SPPT"
+	private final static int VERSION = 1;
+
+	private final int depth;
+	private final int bitsPerLevel;
+	private final int levels;
+	private final int[] cellCodes;
+
+	private SpeedyPartition(int nodeCount, int depth, int bitsPerLevel) {
+		this.depth = depth;
+		this.bitsPerLevel = bitsPerLevel;
+		this.levels = Math.max(1, (depth + bitsPerLevel - 1) / bitsPerLevel);
+		this.cellCodes = new int[nodeCount];
+	}
+
+	public SpeedyPartition(SpeedyGraph graph, int maxCellSize, int bitsPerLevel) {
+		this(graph.nodeCount, calcDepth(graph, maxCellSize), bitsPerLevel);
+		int[] nodes = new int[countNodes(graph)];
+		int n = 0;
+		for (int nodeIdx = 0; nodeIdx < graph.nodeCount; nodeIdx++) {
+			if (graph.getNode(nodeIdx) != null) {
+				nodes[n++] = nodeIdx;
+			}
+		}
+		LOG.info("partition " + nodes.length + " nodes into " + (1 << this.depth) + " cells on " + this.levels + " levels...");
+		bisect(graph, nodes, 0, nodes.length, 0, 0);
+	}
+
+	private static int countNodes(SpeedyGraph graph) {
+		int count = 0;
+		for (int nodeIdx = 0; nodeIdx < graph.nodeCount; nodeIdx++) {
+			if (graph.getNode(nodeIdx) != null) count++;
+		}
+		return count;
+	}
+
+	private static int calcDepth(SpeedyGraph graph, int maxCellSize) {
+		int count = countNodes(graph);
+		int depth = 0;
+		while ((count >> depth) > maxCellSize && depth < 30) {
+			depth++;
+		}
+		return depth;
+	}
+
+	private void bisect(SpeedyGraph graph, int[] nodes, int from, int to, int level, int code) {
+		if (level == this.depth) {
+			for (int i = from; i < to; i++) {
+				this.cellCodes[nodes[i]] = code;
+			}
+			return;
+		}
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+		for (int i = from; i < to; i++) {
+			Coord c = graph.getNode(nodes[i]).getCoord();
+			minX = Math.min(minX, c.getX());
+			maxX = Math.max(maxX, c.getX());
+			minY = Math.min(minY, c.getY());
+			maxY = Math.max(maxY, c.getY());
+		}
+		Comparator<Integer> comparator = (maxX - minX) >= (maxY - minY)
+				? Comparator.comparingDouble((Integer nodeIdx) -> graph.getNode(nodeIdx).getCoord().getX())
+				: Comparator.comparingDouble((Integer nodeIdx) -> graph.getNode(nodeIdx).getCoord().getY());
+		Integer[] sorted = new Integer[to - from];
+		for (int i = from; i < to; i++) {
+			sorted[i - from] = nodes[i];
+		}
+		Arrays.sort(sorted, comparator.thenComparingInt(nodeIdx -> nodeIdx));
+		for (int i = from; i < to; i++) {
+			nodes[i] = sorted[i - from];
+		}
+		int middle = (from + to) >>> 1;
+		bisect(graph, nodes, from, middle, level + 1, code << 1);
+		bisect(graph, nodes, middle, to, level + 1, (code << 1) | 1);
+	}
+
+	/**
+	 * @return the number of levels, level 0 being the one with the smallest cells.
+	 */
+	public int getLevelsCount() {
+		return this.levels;
+	}
+
+	public int getCellsCount(int level) {
+		return 1 << Math.max(0, this.depth - level * this.bitsPerLevel);
+	}
+
+	public int getCell(int nodeIdx, int level) {
+		int shift = level * this.bitsPerLevel;
+		return shift >= 32 ? 0 : this.cellCodes[nodeIdx] >>> shift;
+	}
+
+	/**
+	 * @return the highest level on which the link crosses the border between two cells, <code>-1</code> if both
+	 * nodes are in the same cell on level 0.
+	 */
+	public int getCrossingLevel(int fromNodeIdx, int toNodeIdx) {
+		int level = -1;
+		while (level + 1 < this.levels && getCell(fromNodeIdx, level + 1) != getCell(toNodeIdx, level + 1)) {
+			level++;
+		}
+		return level;
+	}
+
+	/**
+	 * Reads the partition from a file in the given directory if it was created for the same network, parameters and
+	 * minimal travel disutilities, otherwise creates the partition and writes it to the directory. The name of the file
+	 * contains a fingerprint of all of them, like the files of {@link SpeedyALTData}, so multiple networks (e.g. for
+	 * different modes) and disutilities can use the same directory.
+	 */
+	public static SpeedyPartition loadOrCreate(SpeedyGraph graph, Network network, int maxCellSize, int bitsPerLevel, TravelDisutility travelCosts, File directory) {
+		long fingerprint = fingerprint(network, maxCellSize, bitsPerLevel, travelCosts);
+		File file = new File(directory, "speedyPartition-" + Long.toHexString(fingerprint) + ".bin");
+		SpeedyPartition partition = SpeedyCacheFiles.read(file, in -> read(in, graph, network, fingerprint));
+		if (partition != null) {
+			LOG.info("read partition from " + file);
+			return partition;
+		}
+		partition = new SpeedyPartition(graph, maxCellSize, bitsPerLevel);
+		SpeedyCacheFiles.write(file, partition.writer(network, fingerprint));
+		return partition;
+	}
+
+	private static long fingerprint(Network network, int maxCellSize, int bitsPerLevel, TravelDisutility travelCosts) {
+		long hash = 31L * maxCellSize + bitsPerLevel;
+		for (Node node : network.getNodes().values()) {
+			hash = hash * 31 + node.getId().toString().hashCode();
+			hash = hash * 31 + Double.hashCode(node.getCoord().getX());
+			hash = hash * 31 + Double.hashCode(node.getCoord().getY());
+		}
+		for (Link link : network.getLinks().values()) {
+			hash = hash * 31 + link.getId().toString().hashCode();
+			hash = hash * 31 + link.getFromNode().getId().toString().hashCode();
+			hash = hash * 31 + link.getToNode().getId().toString().hashCode();
+			hash = hash * 31 + Double.hashCode(travelCosts.getLinkMinimumTravelDisutility(link));
+		}
+		return hash;
+	}
+
+	private SpeedyCacheFiles.Writer writer(Network network, long fingerprint) {
+		return out -> {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(fingerprint);
+			out.writeInt(this.depth);
+			out.writeInt(this.bitsPerLevel);
+			out.writeInt(network.getNodes().size());
+			for (Node node : network.getNodes().values()) {
+				out.writeUTF(node.getId().toString());
+				out.writeInt(this.cellCodes[node.getId().index()]);
+			}
+		};
+	}
+
+	private static SpeedyPartition read(DataInputStream in, SpeedyGraph graph, Network network, long fingerprint) throws IOException {
+		if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readLong() != fingerprint) {
+			return null;
+		}
+		SpeedyPartition partition = new SpeedyPartition(graph.nodeCount, in.readInt(), in.readInt());
+		int count = in.readInt();
+		if (count != network.getNodes().size()) {
+			return null;
+		}
+		for (int i = 0; i < count; i++) {
+			Node node = network.getNodes().get(Id.create(in.readUTF(), Node.class));
+			if (node == null) {
+				return null;
+			}
+			partition.cellCodes[node.getId().index()] = in.readInt();
+		}
+		return partition;
+	}
+}
@@ -41,6 +41,7 @@ import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
 import org.matsim.core.api.experimental.events.handler.VehicleArrivesAtFacilityEventHandler;
 import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.events.handler.NonRetainingEventHandler;
 import org.matsim.core.gbl.Gbl;
 import org.matsim.core.router.util.LinkToLinkTravelTime;
 import org.matsim.core.router.util.TravelTime;
@@ -64,14 +65,15 @@ import java.util.concurrent.ConcurrentHashMap;
  * is stored in {@link TravelTimeData}-objects. If a short binSize is used, it is useful to
  * use {@link TravelTimeDataHashMap},}
  * as that one does not use any memory to time bins where no traffic occurred. By default,
- * {@link TravelTimeDataArray} is used.
+ * {@link TravelTimeDataArray} is used. {@link TravelTimeDataFlatArrayStore} stores the same data in a few large arrays
+ * indexed by link, without any object per link, and can be filled by several threads at once.
  *
  * @author dgrether
  * @author mrieser
  */
 public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEventHandler,
 									     VehicleEntersTrafficEventHandler, VehicleLeavesTrafficEventHandler, VehicleArrivesAtFacilityEventHandler,
-									     VehicleAbortsEventHandler {
+									     VehicleAbortsEventHandler, NonRetainingEventHandler {
 	private static final Logger log = Logger.getLogger(TravelTimeCalculator.class);
 
 	private static final String ERROR_STUCK_AND_LINKTOLINK = "Using the stuck feature with turning move travel times is not available. As the next link of a stucked" +
@@ -86,9 +88,13 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 
 	private Map<Tuple<Id<Link>, Id<Link>>, TravelTimeData> linkToLinkData;
 
-	private final DataContainerProvider dataContainerProvider;
+	private DataContainerProvider dataContainerProvider;
 
-	private final Map<Id<Vehicle>, LinkEnterEvent> linkEnterEvents;
+	// replaces linkData, linkToLinkData and the dataContainerProvider if set
+	private TravelTimeDataFlatArrayStore flatArrays = null;
+
+	// only the link and time of the events are kept, the events themselves may be reused by the mobsim
+	private final Map<Id<Vehicle>, LinkEnter> linkEnterEvents;
 
 	private final Set<Id<Vehicle>> vehiclesToIgnore;
 	private final Set<String> analyzedModes;
@@ -123,6 +129,9 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 			case TravelTimeCalculatorHashMap:
 				calculator.ttDataFactory = new TravelTimeDataHashMapFactory(network);
 				break;
+			case TravelTimeCalculatorFlatArray:
+				calculator.useFlatArrays(network);
+				break;
 			default:
 				throw new RuntimeException(config.getTravelTimeCalculatorType() + " is unknown!");
 		}
@@ -271,11 +280,10 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 		 * performs a trip with one of those modes. if not, we skip the event. */
 		if (filterAnalyzedModes && vehiclesToIgnore.contains(e.getVehicleId())) return;
 
-		LinkEnterEvent oldEvent = this.linkEnterEvents.put(e.getVehicleId(), e);
+		LinkEnter oldEvent = this.linkEnterEvents.put(e.getVehicleId(), new LinkEnter(e.getLinkId(), e.getTime()));
 		if ((oldEvent != null) && this.calculateLinkToLinkTravelTimes) {
-			Tuple<Id<Link>, Id<Link>> fromToLink = new Tuple<>(oldEvent.getLinkId(), e.getLinkId());
-			TravelTimeData data = getLinkToLinkTravelTimeData(fromToLink );
-			double enterTime = oldEvent.getTime();
+			TravelTimeData data = getLinkToLinkTravelTimeData(oldEvent.linkId, e.getLinkId());
+			double enterTime = oldEvent.time;
 
 			final int timeSlot = this.aggregator.getTimeSlotIndex(enterTime );
 			data.addTravelTime(timeSlot, e.getTime() - enterTime );
@@ -286,10 +294,10 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 	@Override
 	public void handleEvent(final LinkLeaveEvent e) {
 		if (this.calculateLinkTravelTimes) {
-			LinkEnterEvent oldEvent = this.linkEnterEvents.get(e.getVehicleId());
+			LinkEnter oldEvent = this.linkEnterEvents.get(e.getVehicleId());
 			if (oldEvent != null) {
-				TravelTimeData data = this.dataContainerProvider.getTravelTimeData(e.getLinkId(), true);
-				double enterTime = oldEvent.getTime();
+				TravelTimeData data = getLinkTravelTimeData(e.getLinkId());
+				double enterTime = oldEvent.time;
 
 				final int timeSlot = this.aggregator.getTimeSlotIndex(enterTime );
 				data.addTravelTime(timeSlot, e.getTime() - enterTime );
@@ -329,9 +337,9 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 
 	@Override
 	public void handleEvent(VehicleAbortsEvent event) {
-		LinkEnterEvent e = this.linkEnterEvents.remove(event.getVehicleId());
+		LinkEnter e = this.linkEnterEvents.remove(event.getVehicleId());
 		if (e != null) {
-			TravelTimeData data = this.dataContainerProvider.getTravelTimeData(e.getLinkId(), true);
+			TravelTimeData data = getLinkTravelTimeData(e.linkId);
 			data.setNeedsConsolidation( true );
 
 			//			this.aggregator.addStuckEventTravelTime(data, e.getTime(), event.getTime());
@@ -350,7 +358,35 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 		if (filterAnalyzedModes) this.vehiclesToIgnore.remove(event.getVehicleId());
 	}
 
-	private TravelTimeData getLinkToLinkTravelTimeData( Tuple<Id<Link>, Id<Link>> fromLinkToLink ) {
+	/**
+	 * Stores the data in a {@link TravelTimeDataFlatArrayStore} instead of one object per link and per pair of links.
+	 */
+	void useFlatArrays(final Network network) {
+		this.flatArrays = new TravelTimeDataFlatArrayStore(network, this.numSlots, this.calculateLinkToLinkTravelTimes);
+		this.linkData = null;
+		this.linkToLinkData = null;
+		this.dataContainerProvider = null;
+	}
+
+	private TravelTimeData getLinkTravelTimeData( Id<Link> linkId ) {
+		if (this.flatArrays != null) {
+			return this.flatArrays.getLinkData(linkId);
+		}
+		return this.dataContainerProvider.getTravelTimeData(linkId, true);
+	}
+
+	private TravelTimeData getLinkTravelTimeData( Link link ) {
+		if (this.flatArrays != null) {
+			return this.flatArrays.getLinkData(link);
+		}
+		return this.dataContainerProvider.getTravelTimeData(link, true);
+	}
+
+	private TravelTimeData getLinkToLinkTravelTimeData( Id<Link> fromLinkId, Id<Link> toLinkId ) {
+		if (this.flatArrays != null) {
+			return this.flatArrays.getLinkToLinkData(fromLinkId, toLinkId);
+		}
+		Tuple<Id<Link>, Id<Link>> fromLinkToLink = new Tuple<>(fromLinkId, toLinkId);
 		TravelTimeData data = this.linkToLinkData.get(fromLinkToLink);
 		if ( null == data ) {
 			data = this.ttDataFactory.createTravelTimeData(fromLinkToLink.getFirst()) ;
@@ -368,7 +404,7 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 	private double getLinkTravelTime(final Link link, final double time) {
 		if (this.calculateLinkTravelTimes) {
 
-			TravelTimeData data = this.dataContainerProvider.getTravelTimeData(link, true);
+			TravelTimeData data = getLinkTravelTimeData(link);
 			if ( data.isNeedingConsolidation() ) {
 				consolidateData(data);
 			}
@@ -411,7 +447,7 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 			throw new IllegalStateException("No link to link travel time is available " +
 									    "if calculation is switched off by config option!");
 		}
-		TravelTimeData data = this.getLinkToLinkTravelTimeData(new Tuple<>(fromLinkId, toLinkId) );
+		TravelTimeData data = this.getLinkToLinkTravelTimeData(fromLinkId, toLinkId);
 		if ( data.isNeedingConsolidation() ) {
 			consolidateData(data);
 		}
@@ -420,13 +456,16 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 
 	@Override
 	public void reset(int iteration) {
-		if (this.calculateLinkTravelTimes) {
+		if (this.flatArrays != null) {
+			this.flatArrays.reset();
+		}
+		else if (this.calculateLinkTravelTimes) {
 			for (TravelTimeData data : this.linkData.values()){
 				data.resetTravelTimes();
 				data.setNeedsConsolidation( false );
 			}
 		}
-		if (this.calculateLinkToLinkTravelTimes){
+		if (this.flatArrays == null && this.calculateLinkToLinkTravelTimes){
 			for (TravelTimeData data : this.linkToLinkData.values()){
 				data.resetTravelTimes();
 				data.setNeedsConsolidation( false );
@@ -455,6 +494,8 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 	 *
 	 */
 	private void consolidateData(final TravelTimeData data) {
+		// (the views of the flat arrays are not shared, so this does not exclude other threads for them.  As consolidating
+		// only raises travel times to a minimum that only depends on the data, doing it twice gives the same result.)
 		synchronized(data) {
 			if ( data.isNeedingConsolidation() ) {
 
@@ -552,4 +593,14 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 		// yyyyyy this is currently here for a test, but should be removed.  kai, feb'19
 		this.ttDataFactory = ttDataFactory;
 	}
+
+	private static final class LinkEnter {
+		private final Id<Link> linkId;
+		private final double time;
+
+		LinkEnter(Id<Link> linkId, double time) {
+			this.linkId = linkId;
+			this.time = time;
+		}
+	}
 }
@@ -0,0 +1,132 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.trafficmonitoring;
+
+import static org.matsim.core.trafficmonitoring.TravelTimeDataArray.count;
+import static org.matsim.core.trafficmonitoring.TravelTimeDataArray.encode;
+import static org.matsim.core.trafficmonitoring.TravelTimeDataArray.traveltime;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+
+/**
+ * Implementation of {@link TravelTimeData} that is a view on one row of a {@link TravelTimeDataFlatArrayStore}. The
+ * views are created whenever data of a link is accessed and hold no data themselves, all time bins and the
+ * consolidation flag are in the store. The count and the average travel time of a time bin are encoded into one long
+ * like in {@link TravelTimeDataArray}.
+ * <p>
+ * Travel times are added with compare-and-set instead of locks, so events may be handled by several threads while
+ * routers read the travel times, without losing updates or reading a count that does not belong to the average.
+ */
+class TravelTimeDataFlatArray extends TravelTimeData {
+
+	private static final VarHandle DATA = MethodHandles.arrayElementVarHandle(long[].class);
+	private static final long EMPTY = TravelTimeDataFlatArrayStore.EMPTY;
+
+	private final TravelTimeDataFlatArrayStore.Rows rows;
+	private final int row;
+	private final Id<Link> linkId;
+	private Link link;
+	private final Network network;
+
+	TravelTimeDataFlatArray(final TravelTimeDataFlatArrayStore.Rows rows, final int row, final Id<Link> linkId, final Link link,
+			final Network network) {
+		this.rows = rows;
+		this.row = row;
+		this.linkId = linkId;
+		this.link = link;
+		this.network = network;
+	}
+
+	private int index(final int timeSlot) {
+		return TravelTimeDataFlatArrayStore.Rows.getOffset(this.row, this.rows.numSlots) + timeSlot;
+	}
+
+	@Override
+	public void resetTravelTimes() {
+		long[] page = this.rows.getPage(this.row);
+		if (page != null) {
+			int offset = index(0);
+			Arrays.fill(page, offset, offset + this.rows.numSlots, EMPTY);
+			VarHandle.releaseFence();
+		}
+	}
+
+	@Override
+	void setTravelTime(final int timeSlot, final double traveltime) {
+		DATA.setVolatile(this.rows.getOrCreatePage(this.row), index(timeSlot), encode(1, traveltime));
+	}
+
+	@Override
+	void addTravelTime(final int timeSlot, final double traveltime) {
+		long[] page = this.rows.getOrCreatePage(this.row);
+		int index = index(timeSlot);
+		long val;
+		long newVal;
+		do {
+			val = (long) DATA.getVolatile(page, index);
+			int cnt = count(val);
+			double sum = traveltime(val) * cnt + traveltime;
+			cnt++;
+			newVal = encode(cnt, sum / cnt);
+		} while (!DATA.compareAndSet(page, index, val, newVal));
+	}
+
+	@Override
+	double getTravelTime(final int timeSlot, final double now) {
+		long[] page = this.rows.getPage(this.row);
+		int index = index(timeSlot);
+		long val = page == null ? EMPTY : (long) DATA.getVolatile(page, index);
+		double ttime = traveltime(val);
+		if (ttime >= 0.0) return ttime; // negative values are invalid.
+
+		if (this.link == null) {
+			this.link = this.network.getLinks().get(this.linkId);
+		}
+		double freespeed = this.link.getLength() / this.link.getFreespeed(now);
+		if (page != null) {
+			// do not overwrite a travel time that was added in the meantime
+			DATA.compareAndSet(page, index, val, encode(0, freespeed));
+		}
+		return freespeed;
+	}
+
+	@Override
+	void setNeedsConsolidation(final boolean flag) {
+		this.rows.setNeedsConsolidation(this.row, flag);
+	}
+
+	@Override
+	boolean isNeedingConsolidation() {
+		return this.rows.isNeedingConsolidation(this.row);
+	}
+
+	/* package-private for testing */ int getCount(final int timeSlot) {
+		long[] page = this.rows.getPage(this.row);
+		return page == null ? 0 : count((long) DATA.getVolatile(page, index(timeSlot)));
+	}
+
+}
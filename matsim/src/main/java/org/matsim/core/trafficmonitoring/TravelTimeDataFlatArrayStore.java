@@ -0,0 +1,199 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.trafficmonitoring;
+
+import static org.matsim.core.trafficmonitoring.TravelTimeDataArray.encode;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+
+/**
+ * Stores the time bins of all links in a few large arrays, without any object per link. The row of a link is the
+ * index of its id, the rows are allocated in pages of {@value #ROWS_PER_PAGE} rows when data is first added to them.
+ * <p>
+ * Link-to-link travel times use a second set of pages. The rows of the turns from a link to the out-links of its to-node
+ * are computed from the network once, so a turn is found by scanning the few out-links instead of looking up a map.
+ * Only pairs of links which are not connected in the network get their rows from a map.
+ * <p>
+ * {@link #getLinkData(Id)} and {@link #getLinkToLinkData(Id, Id)} return short-lived views on a row, see
+ * {@link TravelTimeDataFlatArray}.
+ */
+final class TravelTimeDataFlatArrayStore {
+
+	static final int ROWS_PER_PAGE = 1024;
+
+	static final long EMPTY = encode(0, -1.0);
+
+	private final Network network;
+	private final Rows linkRows;
+	private final Rows turnRows;
+
+	// turnOffsets[i] .. turnOffsets[i + 1] are the turn rows of the link with id index i, turnTargets[row] the to-link index
+	private final int[] turnOffsets;
+	private final int[] turnTargets;
+	private final ConcurrentMap<Long, Integer> otherTurns = new ConcurrentHashMap<>();
+	private final AtomicInteger nextOtherTurn;
+
+	TravelTimeDataFlatArrayStore(final Network network, final int numSlots, final boolean calculateLinkToLinkTravelTimes) {
+		this.network = network;
+		this.linkRows = new Rows(numSlots);
+		this.turnRows = new Rows(numSlots);
+		if (calculateLinkToLinkTravelTimes) {
+			int maxIndex = -1;
+			for (Link link : network.getLinks().values()) {
+				maxIndex = Math.max(maxIndex, link.getId().index());
+			}
+			this.turnOffsets = new int[maxIndex + 2];
+			for (Link link : network.getLinks().values()) {
+				this.turnOffsets[link.getId().index() + 1] = link.getToNode().getOutLinks().size();
+			}
+			for (int i = 1; i < this.turnOffsets.length; i++) {
+				this.turnOffsets[i] += this.turnOffsets[i - 1];
+			}
+			this.turnTargets = new int[this.turnOffsets[this.turnOffsets.length - 1]];
+			for (Link link : network.getLinks().values()) {
+				int row = this.turnOffsets[link.getId().index()];
+				for (Link toLink : link.getToNode().getOutLinks().values()) {
+					this.turnTargets[row++] = toLink.getId().index();
+				}
+			}
+		} else {
+			this.turnOffsets = new int[1];
+			this.turnTargets = new int[0];
+		}
+		this.nextOtherTurn = new AtomicInteger(this.turnTargets.length);
+	}
+
+	TravelTimeData getLinkData(final Id<Link> linkId) {
+		return new TravelTimeDataFlatArray(this.linkRows, linkId.index(), linkId, null, this.network);
+	}
+
+	TravelTimeData getLinkData(final Link link) {
+		return new TravelTimeDataFlatArray(this.linkRows, link.getId().index(), link.getId(), link, this.network);
+	}
+
+	TravelTimeData getLinkToLinkData(final Id<Link> fromLinkId, final Id<Link> toLinkId) {
+		return new TravelTimeDataFlatArray(this.turnRows, getTurnRow(fromLinkId.index(), toLinkId.index()), fromLinkId, null, this.network);
+	}
+
+	private int getTurnRow(final int fromIndex, final int toIndex) {
+		if (fromIndex + 1 < this.turnOffsets.length) {
+			for (int row = this.turnOffsets[fromIndex]; row < this.turnOffsets[fromIndex + 1]; row++) {
+				if (this.turnTargets[row] == toIndex) {
+					return row;
+				}
+			}
+		}
+		long key = ((long) fromIndex << 32) | (toIndex & 0xFFFFFFFFL);
+		return this.otherTurns.computeIfAbsent(key, k -> this.nextOtherTurn.getAndIncrement());
+	}
+
+	void reset() {
+		this.linkRows.reset();
+		this.turnRows.reset();
+	}
+
+	/**
+	 * Rows of <code>numSlots</code> longs, allocated in pages, plus one consolidation flag per row.
+	 */
+	static final class Rows {
+		final int numSlots;
+		private volatile long[][] pages = new long[0][];
+		private volatile boolean[][] consolidation = new boolean[0][];
+
+		Rows(final int numSlots) {
+			this.numSlots = numSlots;
+		}
+
+		/**
+		 * @return the page containing the row, or <code>null</code> if no data was added to any row of the page yet.
+		 */
+		long[] getPage(final int row) {
+			long[][] pages = this.pages;
+			int pageIndex = row / ROWS_PER_PAGE;
+			return pageIndex < pages.length ? pages[pageIndex] : null;
+		}
+
+		long[] getOrCreatePage(final int row) {
+			long[] page = getPage(row);
+			return page != null ? page : createPage(row / ROWS_PER_PAGE);
+		}
+
+		static int getOffset(final int row, final int numSlots) {
+			return (row % ROWS_PER_PAGE) * numSlots;
+		}
+
+		boolean isNeedingConsolidation(final int row) {
+			boolean[][] consolidation = this.consolidation;
+			int pageIndex = row / ROWS_PER_PAGE;
+			return pageIndex < consolidation.length && consolidation[pageIndex] != null && consolidation[pageIndex][row % ROWS_PER_PAGE];
+		}
+
+		void setNeedsConsolidation(final int row, final boolean flag) {
+			if (flag) {
+				getOrCreatePage(row);
+			} else if (getPage(row) == null) {
+				return;
+			}
+			this.consolidation[row / ROWS_PER_PAGE][row % ROWS_PER_PAGE] = flag;
+		}
+
+		private synchronized long[] createPage(final int pageIndex) {
+			long[][] pages = this.pages;
+			boolean[][] consolidation = this.consolidation;
+			if (pageIndex >= pages.length) {
+				int length = Math.max(pageIndex + 1, pages.length * 2);
+				pages = Arrays.copyOf(pages, length);
+				consolidation = Arrays.copyOf(consolidation, length);
+			}
+			if (pages[pageIndex] == null) {
+				long[] page = new long[ROWS_PER_PAGE * this.numSlots];
+				Arrays.fill(page, EMPTY);
+				pages[pageIndex] = page;
+				consolidation[pageIndex] = new boolean[ROWS_PER_PAGE];
+			}
+			// publish the flags before the page, readers only access the flags of existing pages
+			this.consolidation = consolidation;
+			this.pages = pages;
+			return pages[pageIndex];
+		}
+
+		synchronized void reset() {
+			for (long[] page : this.pages) {
+				if (page != null) {
+					Arrays.fill(page, EMPTY);
+				}
+			}
+			for (boolean[] flags : this.consolidation) {
+				if (flags != null) {
+					Arrays.fill(flags, false);
+				}
+			}
+		}
+	}
+
+}
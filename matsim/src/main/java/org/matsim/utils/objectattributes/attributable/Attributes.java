@@ -25,6 +25,10 @@ import java.util.*;
 
 /**
  * This class is optimized for memory footprint and query time, at the expense of insertion time.
+ * <p>
+ * The keys are not stored per instance, but in an interned shape that is shared by all instances
+ * with the same keys. Values of type Double, Integer, Long and Boolean are stored unboxed, so they are boxed again
+ * when they are queried.
  *
  * @author thibautd
  */
@@ -33,85 +37,146 @@ public final class Attributes {
 	// to minimize memory footprint, values are stored in arrays, kept as short as possible.
 	// This makes insertion costly, but query can be kept efficient even when the number of mappings
 	// increases, using binary search. This should be fine, as the typical usage is to set once and
-	// access often. Replacing a value is also efficient.
+	// access often. Replacing a value by one of the same type is also efficient.
+	//
+	// Millions of persons or activities typically repeat the same few keys, so the sorted keys live in a shared shape
+	// and each instance only holds the values, in slots given by the shape.
 	//
 	// In addition, as lots of classes implement Attributable, there might be a large number of empty attributes,
 	// which would result in unnecessary memory overhead if each attribute would use new instances of empty arrays
 	// (Which are essentially immutable objects), hence the two "empty" constants (idea from Marcel Rieser, see MATSIM-811)
-	private static final String[] EMPTY_KEYS = new String[0];
+	private static final long[] EMPTY_PRIMITIVES = new long[0];
 	private static final Object[] EMPTY_VALUES = new Object[0];
 
-	private String[] keys = EMPTY_KEYS;
+	private AttributesShape shape = AttributesShape.EMPTY;
+	private long[] primitives = EMPTY_PRIMITIVES;
 	private Object[] values = EMPTY_VALUES;
 
 	@Override
 	public String toString() {
 		StringBuilder stb = new StringBuilder() ;
-		for ( int i=0; i < keys.length; i++ ) {
-			String subkey = keys[ i ];
+		for ( int i=0; i < shape.size(); i++ ) {
+			String subkey = shape.getKey( i );
 			stb.append("{ key=").append(subkey);
-			stb.append("; object=").append( values[ i ].toString());
+			stb.append("; object=").append( getValue( i ) );
 			stb.append( " }" );
 		}
 		return stb.toString() ;
 	}
 
 	public Object putAttribute( final String attribute, final Object value) {
-		final int insertion = Arrays.binarySearch( keys , attribute );
+		final byte kind = AttributesShape.kindOf( value );
+		final int index = shape.indexOf( attribute );
 
-		if ( insertion >= 0 ) {
-			final Object prev = values[ insertion ];
-			values[ insertion ] = value;
+		if ( index >= 0 && shape.getKind( index ) == kind ) {
+			final Object prev = getValue( index );
+			setValue( index, value );
 			return prev;
 		}
 
-		final int newIndex = -insertion - 1;
-
-		keys = Arrays.copyOf( keys , keys.length + 1 );
-		values = Arrays.copyOf( values , values.length + 1 );
-
-		for ( int i=keys.length - 2; i >= newIndex; i-- ) {
-			keys[ i + 1 ] = keys[ i ];
-			values[ i + 1 ] = values[ i ];
-		}
-
-		keys[newIndex] = attribute;
-		values[newIndex] = value;
+		final Object prev = index >= 0 ? getValue( index ) : null;
+		final AttributesShape newShape = shape.withKey( attribute, kind );
+		changeShape( newShape );
+		setValue( newShape.indexOf( attribute ), value );
 
-		return null;
+		return prev;
 	}
 
 	public Object getAttribute( final String attribute) {
-		final int insertion = Arrays.binarySearch( keys , attribute );
+		final int index = shape.indexOf( attribute );
 
-		if ( insertion < 0 ) return null;
+		if ( index < 0 ) return null;
 
-		return values[ insertion ];
+		return getValue( index );
 	}
 
 	public Object removeAttribute( final String attribute ) {
-		final int insertion = Arrays.binarySearch( keys , attribute );
+		final int index = shape.indexOf( attribute );
 
-		if ( insertion < 0 ) return null;
+		if ( index < 0 ) return null;
 
-		final Object prev = values[ insertion ];
-
-		for ( int i=insertion; i < keys.length - 1; i++ ) {
-			keys[ i ] = keys[ i + 1 ];
-			values[ i ] = values[ i + 1 ];
-		}
-
-		keys = Arrays.copyOf( keys , keys.length - 1 );
-		values = Arrays.copyOf( values , values.length - 1 );
+		final Object prev = getValue( index );
+		changeShape( shape.withoutKey( attribute ) );
 
 		return prev;
 	}
 
 	public void clear() {
-		keys = EMPTY_KEYS;
+		shape = AttributesShape.EMPTY;
+		primitives = EMPTY_PRIMITIVES;
 		values = EMPTY_VALUES;
 	}
 
+	private Object getValue( final int index ) {
+		final int slot = shape.getSlot( index );
+		switch ( shape.getKind( index ) ) {
+			case AttributesShape.DOUBLE: return Double.longBitsToDouble( primitives[ slot ] );
+			case AttributesShape.INTEGER: return (int) primitives[ slot ];
+			case AttributesShape.LONG: return primitives[ slot ];
+			case AttributesShape.BOOLEAN: return primitives[ slot ] != 0;
+			default: return values[ slot ];
+		}
+	}
+
+	private void setValue( final int index, final Object value ) {
+		final int slot = shape.getSlot( index );
+		switch ( shape.getKind( index ) ) {
+			case AttributesShape.DOUBLE: primitives[ slot ] = Double.doubleToRawLongBits( (Double) value ); break;
+			case AttributesShape.INTEGER: primitives[ slot ] = (Integer) value; break;
+			case AttributesShape.LONG: primitives[ slot ] = (Long) value; break;
+			case AttributesShape.BOOLEAN: primitives[ slot ] = (Boolean) value ? 1 : 0; break;
+			default: values[ slot ] = value;
+		}
+	}
+
+	/**
+	 * Adds the estimated memory used by the value of each key to the given map, in bytes. Primitive slots count 8 bytes,
+	 * object slots 4 bytes (compressed references) plus the size of the referenced object for Strings. Other referenced
+	 * objects are not counted, as they are often shared between instances.
+	 */
+	void addMemoryUsagePerKey( final Map<String, Long> usage ) {
+		for ( int i=0; i < shape.size(); i++ ) {
+			long bytes;
+			if ( shape.getKind( i ) == AttributesShape.OBJECT ) {
+				final Object value = values[ shape.getSlot( i ) ];
+				bytes = 4;
+				if ( value instanceof String ) {
+					// String object plus byte array, both aligned to 8 bytes, assuming compact strings
+					bytes += 24 + ( ( 16 + ( (String) value ).length() + 7 ) & ~7 );
+				}
+			}
+			else {
+				bytes = 8;
+			}
+			usage.merge( shape.getKey( i ), bytes, Long::sum );
+		}
+	}
+
+	/**
+	 * Moves the values to the slots of the new shape. Keys that are not in the new shape, or that have another
+	 * kind there, are dropped.
+	 */
+	private void changeShape( final AttributesShape newShape ) {
+		final long[] newPrimitives = newShape.getPrimitiveCount() == 0 ? EMPTY_PRIMITIVES : new long[ newShape.getPrimitiveCount() ];
+		final Object[] newValues = newShape.getObjectCount() == 0 ? EMPTY_VALUES : new Object[ newShape.getObjectCount() ];
+
+		for ( int i=0; i < newShape.size(); i++ ) {
+			final int oldIndex = shape.indexOf( newShape.getKey( i ) );
+			if ( oldIndex < 0 || shape.getKind( oldIndex ) != newShape.getKind( i ) ) continue;
+			final int oldSlot = shape.getSlot( oldIndex );
+			if ( newShape.getKind( i ) == AttributesShape.OBJECT ) {
+				newValues[ newShape.getSlot( i ) ] = values[ oldSlot ];
+			}
+			else {
+				newPrimitives[ newShape.getSlot( i ) ] = primitives[ oldSlot ];
+			}
+		}
+
+		shape = newShape;
+		primitives = newPrimitives;
+		values = newValues;
+	}
+
 	/**
 	 * Returns a view of the mappings stored by this object as an immutable Map. Behavior is undefined if the mappings
 	 * are modified after this method was called.
@@ -132,7 +197,7 @@ public final class Attributes {
 
 					@Override
 					public int size() {
-						return keys.length;
+						return shape.size();
 					}
 				};
 			}
@@ -140,7 +205,7 @@ public final class Attributes {
 	}
 
 	public int size() {
-		return keys.length;
+		return shape.size();
 	}
 
 	public boolean isEmpty() {
@@ -152,15 +217,15 @@ public final class Attributes {
 
 		@Override
 		public boolean hasNext() {
-			return index < keys.length;
+			return index < shape.size();
 		}
 
 		@Override
 		public Map.Entry<String, Object> next() {
-			if (index >= keys.length) {
+			if (index >= shape.size()) {
 				throw new NoSuchElementException();
 			}
-			Map.Entry<String, Object> entry = new AbstractMap.SimpleEntry<>(keys[index], values[index]) ;
+			Map.Entry<String, Object> entry = new AbstractMap.SimpleEntry<>(shape.getKey(index), getValue(index)) ;
 			index++;
 			return entry;
 		}
@@ -0,0 +1,212 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * AttributesShape.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.utils.objectattributes.attributable;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The key layout of an {@link Attributes} instance: the sorted keys, the kind of value stored for each key, and the
+ * slot where the value is stored. Shapes are immutable and interned, so all instances with the same keys and value
+ * kinds share one shape, and only the values are stored per instance. Values of type Double, Integer, Long and
+ * Boolean are stored unboxed in a <code>long[]</code>, all other values in an <code>Object[]</code>.
+ * <p>
+ * Slots are assigned in key order per kind, so the layout only depends on the key set and not on the order in which
+ * the attributes were added.
+ * <p>
+ * The intern table and the cached transitions between shapes only hold weak references to shapes, so a shape which
+ * is no longer used by any instance can be garbage collected, e.g. the intermediate shapes created while the
+ * attributes of an instance are added one by one.
+ */
+final class AttributesShape {
+
+	static final byte OBJECT = 0;
+	static final byte DOUBLE = 1;
+	static final byte INTEGER = 2;
+	static final byte LONG = 3;
+	static final byte BOOLEAN = 4;
+	private static final int KINDS = 5;
+
+	// only accessed while holding its lock. Key and value are the same shape, the value is referenced weakly as well.
+	private static final Map<AttributesShape, WeakReference<AttributesShape>> shapes = new WeakHashMap<>();
+
+	static final AttributesShape EMPTY = intern(new AttributesShape(new String[0], new byte[0]));
+
+	private final String[] keys;
+	private final byte[] kinds;
+	private final int[] slots;
+	private final int primitiveCount;
+	private final int objectCount;
+	private final int hash;
+
+	// transitions are cached, as the same keys are typically added in the same order to many instances. The maps only
+	// grow with the number of distinct keys added to or removed from this shape.
+	// Concurrent writes to the arrays are benign: all threads end up with the same interned shape.
+	private final ConcurrentMap<String, WeakReference<AttributesShape>[]> additions = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, WeakReference<AttributesShape>> removals = new ConcurrentHashMap<>();
+
+	private AttributesShape(final String[] keys, final byte[] kinds) {
+		this.keys = keys;
+		this.kinds = kinds;
+		this.slots = new int[keys.length];
+		int primitives = 0;
+		int objects = 0;
+		for (int i = 0; i < keys.length; i++) {
+			this.slots[i] = kinds[i] == OBJECT ? objects++ : primitives++;
+		}
+		this.primitiveCount = primitives;
+		this.objectCount = objects;
+		this.hash = 31 * Arrays.hashCode(keys) + Arrays.hashCode(kinds);
+	}
+
+	private static AttributesShape intern(final AttributesShape shape) {
+		synchronized (shapes) {
+			AttributesShape existing = get(shapes.get(shape));
+			if (existing != null) {
+				return existing;
+			}
+			shapes.put(shape, new WeakReference<>(shape));
+			return shape;
+		}
+	}
+
+	private static AttributesShape get(final WeakReference<AttributesShape> reference) {
+		return reference == null ? null : reference.get();
+	}
+
+	static byte kindOf(final Object value) {
+		if (value == null) return OBJECT;
+		Class<?> c = value.getClass();
+		if (c == Double.class) return DOUBLE;
+		if (c == Integer.class) return INTEGER;
+		if (c == Long.class) return LONG;
+		if (c == Boolean.class) return BOOLEAN;
+		return OBJECT;
+	}
+
+	int size() {
+		return this.keys.length;
+	}
+
+	int indexOf(final String key) {
+		return Arrays.binarySearch(this.keys, key);
+	}
+
+	String getKey(final int index) {
+		return this.keys[index];
+	}
+
+	byte getKind(final int index) {
+		return this.kinds[index];
+	}
+
+	int getSlot(final int index) {
+		return this.slots[index];
+	}
+
+	int getPrimitiveCount() {
+		return this.primitiveCount;
+	}
+
+	int getObjectCount() {
+		return this.objectCount;
+	}
+
+	/**
+	 * @return the shape containing the keys of this shape plus the given key with the given kind. If the key is
+	 * already contained with another kind, its kind is replaced.
+	 */
+	AttributesShape withKey(final String key, final byte kind) {
+		@SuppressWarnings("unchecked")
+		WeakReference<AttributesShape>[] cached = this.additions.computeIfAbsent(key, k -> new WeakReference[KINDS]);
+		AttributesShape shape = get(cached[kind]);
+		if (shape == null) {
+			shape = createWithKey(key, kind);
+			cached[kind] = new WeakReference<>(shape);
+		}
+		return shape;
+	}
+
+	private AttributesShape createWithKey(final String key, final byte kind) {
+		int index = indexOf(key);
+		if (index >= 0) {
+			if (this.kinds[index] == kind) {
+				return this;
+			}
+			byte[] newKinds = this.kinds.clone();
+			newKinds[index] = kind;
+			return intern(new AttributesShape(this.keys, newKinds));
+		}
+		int insertion = -index - 1;
+		String[] newKeys = new String[this.keys.length + 1];
+		byte[] newKinds = new byte[this.kinds.length + 1];
+		System.arraycopy(this.keys, 0, newKeys, 0, insertion);
+		System.arraycopy(this.kinds, 0, newKinds, 0, insertion);
+		newKeys[insertion] = key;
+		newKinds[insertion] = kind;
+		System.arraycopy(this.keys, insertion, newKeys, insertion + 1, this.keys.length - insertion);
+		System.arraycopy(this.kinds, insertion, newKinds, insertion + 1, this.kinds.length - insertion);
+		return intern(new AttributesShape(newKeys, newKinds));
+	}
+
+	/**
+	 * @return the shape containing the keys of this shape without the given key.
+	 */
+	AttributesShape withoutKey(final String key) {
+		AttributesShape shape = get(this.removals.get(key));
+		if (shape == null) {
+			shape = createWithoutKey(key);
+			this.removals.put(key, new WeakReference<>(shape));
+		}
+		return shape;
+	}
+
+	private AttributesShape createWithoutKey(final String key) {
+		int index = indexOf(key);
+		if (index < 0) {
+			return this;
+		}
+		String[] newKeys = new String[this.keys.length - 1];
+		byte[] newKinds = new byte[this.kinds.length - 1];
+		System.arraycopy(this.keys, 0, newKeys, 0, index);
+		System.arraycopy(this.kinds, 0, newKinds, 0, index);
+		System.arraycopy(this.keys, index + 1, newKeys, index, newKeys.length - index);
+		System.arraycopy(this.kinds, index + 1, newKinds, index, newKinds.length - index);
+		return intern(new AttributesShape(newKeys, newKinds));
+	}
+
+	@Override
+	public boolean equals(final Object o) {
+		if (this == o) return true;
+		if (!(o instanceof AttributesShape)) return false;
+		AttributesShape other = (AttributesShape) o;
+		return this.hash == other.hash && Arrays.equals(this.keys, other.keys) && Arrays.equals(this.kinds, other.kinds);
+	}
+
+	@Override
+	public int hashCode() {
+		return this.hash;
+	}
+}
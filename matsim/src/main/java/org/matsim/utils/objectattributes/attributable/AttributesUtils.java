@@ -21,6 +21,9 @@
 
  package org.matsim.utils.objectattributes.attributable;
 
+import java.util.Map;
+import java.util.TreeMap;
+
 /**
  * @author thibautd
  */
@@ -46,6 +49,21 @@ public class AttributesUtils {
 		copyTo( from.getAttributes() , to.getAttributes() );
 	}
 
+	/**
+	 * Estimates how much memory the values of each attribute key use over all given objects, e.g. to find out which
+	 * person attributes are worth dropping for large populations. The keys themselves are shared between all objects
+	 * with the same key set and are not counted, neither are objects other than Strings that are referenced by values.
+	 *
+	 * @return the estimated number of bytes per key, sorted by key
+	 */
+	public static Map<String, Long> getMemoryUsagePerKey( Iterable<? extends Attributable> attributables ) {
+		Map<String, Long> usage = new TreeMap<>();
+		for ( Attributable attributable : attributables ) {
+			attributable.getAttributes().addMemoryUsagePerKey( usage );
+		}
+		return usage;
+	}
+
 	/**
 	 * @param attributes collection of attributes
 	 * @return <code>true</code> if the attributes collection does not contain any attribute
@@ -0,0 +1,120 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.vis.snapshotwriters;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Reads the frames written by {@link PositionFramesWriter} and passes them frame by frame to a {@link Handler}.
+ */
+public final class PositionFramesReader {
+
+	private final Handler handler;
+
+	public PositionFramesReader(final Handler handler) {
+		this.handler = handler;
+	}
+
+	public void parse(final String filename) throws UncheckedIOException {
+		parse(IOUtils.getInputStream(IOUtils.getFileUrl(filename)));
+	}
+
+	public void parse(final InputStream stream) throws UncheckedIOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 1 << 16))) {
+			if (in.readLong() != PositionFramesWriter.MAGIC) {
+				throw new IllegalArgumentException("not a position frames file");
+			}
+			int version = in.readInt();
+			if (version != PositionFramesWriter.VERSION) {
+				throw new IllegalArgumentException("unsupported version of position frames file: " + version);
+			}
+
+			// the indices in the file are those of the writing process, map them to ids of this process
+			List<Id<Link>> links = new ArrayList<>();
+			List<Id<Vehicle>> vehicles = new ArrayList<>();
+			byte tag;
+			while ((tag = in.readByte()) == PositionFramesWriter.TAG_FRAME) {
+				double time = in.readDouble();
+				readIds(in, links, Link.class);
+				readIds(in, vehicles, Vehicle.class);
+				int count = readVarInt(in);
+				this.handler.beginFrame(time);
+				for (int i = 0; i < count; i++) {
+					Id<Vehicle> vehicleId = vehicles.get(readVarInt(in));
+					Id<Link> linkId = links.get(readVarInt(in));
+					this.handler.handlePosition(vehicleId, linkId, in.readFloat());
+				}
+				this.handler.endFrame();
+			}
+			if (tag != PositionFramesWriter.TAG_END) {
+				throw new IllegalArgumentException("unexpected tag in position frames file: " + tag);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static <T> void readIds(DataInputStream in, List<Id<T>> ids, Class<T> type) throws IOException {
+		int count = readVarInt(in);
+		for (int i = 0; i < count; i++) {
+			int index = readVarInt(in);
+			while (ids.size() <= index) {
+				ids.add(null);
+			}
+			ids.set(index, Id.create(in.readUTF(), type));
+		}
+	}
+
+	private static int readVarInt(DataInputStream in) throws IOException {
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = in.readByte();
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
+		return value;
+	}
+
+	public interface Handler {
+
+		void beginFrame(double time);
+
+		/**
+		 * @param offset the estimated distance from the start of the link, in meters
+		 */
+		void handlePosition(Id<Vehicle> vehicleId, Id<Link> linkId, double offset);
+
+		default void endFrame() {
+		}
+	}
+}
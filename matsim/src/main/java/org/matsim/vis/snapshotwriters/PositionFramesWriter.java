@@ -0,0 +1,262 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.vis.snapshotwriters;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Writes the positions of all vehicles on the network as compact binary frames. In contrast to the
+ * {@link SnapshotWriter}s, the positions are not built from {@link AgentSnapshotInfo}s, but collected directly by the
+ * threads of the QNetsimEngine, and encoded and written on a background thread. A frame only consists of
+ * (vehicle, link, offset) records, where the offset is the estimated distance from the start of the link in meters.
+ * Coordinates can be computed from that when the file is visualized, see {@link PositionFramesReader}.
+ * <p>
+ * Vehicles and links are written as their {@link Id#index()}. The id of a vehicle or link is written once, in the
+ * frame where it appears for the first time. The file layout is:
+ * <pre>
+ * long magic, int version
+ * per frame: byte 1, double time,
+ *            varint number of new links, (varint index, utf id)*,
+ *            varint number of new vehicles, (varint index, utf id)*,
+ *            varint number of records, (varint vehicle index, varint link index, float offset)*
+ * byte 0
+ * </pre>
+ */
+public final class PositionFramesWriter {
+
+	private final static Logger log = Logger.getLogger(PositionFramesWriter.class);
+
+	public static final long MAGIC = 0x4d415453494d5046L; // "MATSIMPF"
+	public static final int VERSION = 1;
+	static final byte TAG_END = 0;
+	static final byte TAG_FRAME = 1;
+
+	private static final int QUEUE_SIZE = 4;
+	private static final Frame END = new Frame(0);
+
+	private final DataOutputStream out;
+	private final BlockingQueue<Frame> pending = new ArrayBlockingQueue<>(QUEUE_SIZE);
+	private final BlockingQueue<Frame> free = new ArrayBlockingQueue<>(QUEUE_SIZE + 2);
+	private final Thread thread;
+	private volatile Throwable error = null;
+
+	private final BitSet writtenLinks = new BitSet();
+	private final BitSet writtenVehicles = new BitSet();
+	private final List<Id<?>> newLinks = new ArrayList<>();
+	private final List<Id<?>> newVehicles = new ArrayList<>();
+
+	public PositionFramesWriter(final String filename) {
+		this(IOUtils.getOutputStream(IOUtils.getFileUrl(filename), false));
+	}
+
+	public PositionFramesWriter(final OutputStream stream) {
+		this.out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+		try {
+			this.out.writeLong(MAGIC);
+			this.out.writeInt(VERSION);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		this.thread = new Thread(this::run, "PositionFramesWriter");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * Returns an empty frame with the given number of parts. Each part may be filled by a different thread. Frames
+	 * are recycled after they were written, so the frame must not be used after {@link #endFrame(Frame)}.
+	 */
+	public Frame beginFrame(final double time, final int numberOfParts) {
+		checkError();
+		Frame frame = this.free.poll();
+		if (frame == null || frame.parts.length != numberOfParts) {
+			frame = new Frame(numberOfParts);
+		}
+		frame.time = time;
+		return frame;
+	}
+
+	/**
+	 * Hands the frame over to the background thread. Blocks if the background thread is several frames behind.
+	 */
+	public void endFrame(final Frame frame) {
+		checkError();
+		try {
+			this.pending.put(frame);
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Writes the remaining frames and closes the file.
+	 */
+	public void finish() {
+		try {
+			this.pending.put(END);
+			this.thread.join();
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+		checkError();
+	}
+
+	private void checkError() {
+		if (this.error != null) {
+			throw new RuntimeException("problem writing position frames", this.error);
+		}
+	}
+
+	private void run() {
+		try {
+			Frame frame;
+			while ((frame = this.pending.take()) != END) {
+				writeFrame(frame);
+				for (Part part : frame.parts) {
+					part.size = 0;
+				}
+				this.free.offer(frame);
+			}
+			this.out.writeByte(TAG_END);
+			this.out.close();
+		} catch (Throwable e) {
+			log.error("problem writing position frames", e);
+			this.error = e;
+			// keep on consuming frames so the simulation does not block, they are lost anyway
+			try {
+				while (this.pending.take() != END) {
+				}
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private void writeFrame(Frame frame) throws IOException {
+		this.newLinks.clear();
+		this.newVehicles.clear();
+		int count = 0;
+		for (Part part : frame.parts) {
+			for (int i = 0; i < part.size; i++) {
+				addIfNew(part.links[i], this.writtenLinks, this.newLinks);
+				addIfNew(part.vehicles[i], this.writtenVehicles, this.newVehicles);
+			}
+			count += part.size;
+		}
+
+		this.out.writeByte(TAG_FRAME);
+		this.out.writeDouble(frame.time);
+		writeIds(this.newLinks);
+		writeIds(this.newVehicles);
+		writeVarInt(count);
+		for (Part part : frame.parts) {
+			for (int i = 0; i < part.size; i++) {
+				writeVarInt(part.vehicles[i].index());
+				writeVarInt(part.links[i].index());
+				this.out.writeFloat(part.offsets[i]);
+			}
+		}
+	}
+
+	private static void addIfNew(Id<?> id, BitSet written, List<Id<?>> newIds) {
+		if (!written.get(id.index())) {
+			written.set(id.index());
+			newIds.add(id);
+		}
+	}
+
+	private void writeIds(List<Id<?>> ids) throws IOException {
+		writeVarInt(ids.size());
+		for (Id<?> id : ids) {
+			writeVarInt(id.index());
+			this.out.writeUTF(id.toString());
+		}
+	}
+
+	private void writeVarInt(int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			this.out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		this.out.writeByte(value);
+	}
+
+	/**
+	 * The positions of all vehicles at one point in time, split into parts which can be filled concurrently.
+	 */
+	public static final class Frame {
+		private double time;
+		private final Part[] parts;
+
+		private Frame(int numberOfParts) {
+			this.parts = new Part[numberOfParts];
+			for (int i = 0; i < numberOfParts; i++) {
+				this.parts[i] = new Part();
+			}
+		}
+
+		public double getTime() {
+			return this.time;
+		}
+
+		public Part getPart(int index) {
+			return this.parts[index];
+		}
+	}
+
+	public static final class Part {
+		private int size = 0;
+		private Id<?>[] vehicles = new Id<?>[256];
+		private Id<?>[] links = new Id<?>[256];
+		private float[] offsets = new float[256];
+
+		private Part() {
+		}
+
+		public void addPosition(Id<Vehicle> vehicleId, Id<Link> linkId, double offset) {
+			if (this.size == this.vehicles.length) {
+				int capacity = this.size * 2;
+				this.vehicles = Arrays.copyOf(this.vehicles, capacity);
+				this.links = Arrays.copyOf(this.links, capacity);
+				this.offsets = Arrays.copyOf(this.offsets, capacity);
+			}
+			this.vehicles[this.size] = vehicleId;
+			this.links[this.size] = linkId;
+			this.offsets[this.size] = (float) offset;
+			this.size++;
+		}
+	}
+}
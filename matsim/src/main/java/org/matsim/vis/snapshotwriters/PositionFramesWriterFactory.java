@@ -0,0 +1,33 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.vis.snapshotwriters;
+
+/**
+ * Creates the {@link PositionFramesWriter} the QNetsimEngine writes its position frames to. The frames are written
+ * every <code>qsim.snapshotperiod</code> seconds of simulated time.
+ */
+public interface PositionFramesWriterFactory {
+
+	/**
+	 * @return the writer for the current mobsim run, or <code>null</code> if no frames should be written in this run.
+	 */
+	PositionFramesWriter createWriter();
+
+}
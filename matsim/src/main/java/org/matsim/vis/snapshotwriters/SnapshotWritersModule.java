@@ -25,6 +25,7 @@ package org.matsim.vis.snapshotwriters;
 import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.controler.AbstractModule;
+import org.matsim.core.controler.OutputDirectoryHierarchy;
 import org.matsim.core.mobsim.framework.listeners.MobsimListener;
 import org.matsim.core.replanning.ReplanningContext;
 
@@ -51,6 +52,33 @@ public class SnapshotWritersModule extends AbstractModule {
 		}
 		if (getConfig().controler().getWriteSnapshotsInterval() != 0) {
 			addMobsimListenerBinding().toProvider(SnapshotWriterManagerProvider.class);
+			if (getConfig().controler().getSnapshotFormat().contains(SnapshotFormat.positionframes)) {
+				bind(PositionFramesWriterFactory.class).to(DefaultPositionFramesWriterFactory.class);
+			}
+		}
+	}
+
+	private static class DefaultPositionFramesWriterFactory implements PositionFramesWriterFactory {
+
+		private final OutputDirectoryHierarchy controlerIO;
+		private final ControlerConfigGroup controlerConfigGroup;
+		private final ReplanningContext iterationContext;
+
+		@Inject
+		private DefaultPositionFramesWriterFactory(OutputDirectoryHierarchy controlerIO, ControlerConfigGroup controlerConfigGroup,
+												   ReplanningContext iterationContext) {
+			this.controlerIO = controlerIO;
+			this.controlerConfigGroup = controlerConfigGroup;
+			this.iterationContext = iterationContext;
+		}
+
+		@Override
+		public PositionFramesWriter createWriter() {
+			int iteration = iterationContext.getIteration();
+			if (iteration % controlerConfigGroup.getWriteSnapshotsInterval() != 0) {
+				return null;
+			}
+			return new PositionFramesWriter(controlerIO.getIterationFilename(iteration, "positionframes.bin.gz"));
 		}
 	}
 
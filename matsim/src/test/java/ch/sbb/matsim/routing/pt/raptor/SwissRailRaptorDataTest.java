@@ -5,15 +5,26 @@
 package ch.sbb.matsim.routing.pt.raptor;
 
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
 import org.matsim.api.core.v01.Id;
 import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.testcases.MatsimTestUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
 
 /**
  * @author mrieser / SBB
  */
 public class SwissRailRaptorDataTest {
 
+    @Rule
+    public MatsimTestUtils utils = new MatsimTestUtils();
+
     @Test
     public void testTransfersFromSchedule() {
         Fixture f = new Fixture();
@@ -82,4 +93,57 @@ public class SwissRailRaptorDataTest {
         Assert.assertEquals("number of transfers should have stayed the same.", data2.transfers.length, data4.transfers.length);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testDataCacheFile() throws IOException {
+        Fixture f = new Fixture();
+        f.init();
+
+        RaptorStaticConfig raptorConfig = RaptorUtils.createStaticConfig(f.config);
+        File file = new File(this.utils.getOutputDirectory(), "raptorData.bin");
+        SwissRailRaptorData data = SwissRailRaptorDataIO.loadOrCreate(file, f.schedule, null, raptorConfig, f.network, null);
+        Assert.assertTrue("data cache file was not written.", file.exists());
+
+        SwissRailRaptorData loaded = SwissRailRaptorDataIO.read(file, f.schedule, null, raptorConfig, null);
+        Assert.assertNotNull(loaded);
+        Assert.assertEquals(data.countStops, loaded.countStops);
+        Assert.assertArrayEquals(data.departures, loaded.departures);
+        Assert.assertArrayEquals(data.departureIds, loaded.departureIds);
+        Assert.assertEquals(data.routeStops.length, loaded.routeStops.length);
+        for (int i = 0; i < data.routeStops.length; i++) {
+            Assert.assertSame(data.routeStops[i].routeStop, loaded.routeStops[i].routeStop);
+            Assert.assertEquals(data.routeStops[i].stopFacilityIndex, loaded.routeStops[i].stopFacilityIndex);
+            Assert.assertEquals(data.routeStops[i].distanceAlongRoute, loaded.routeStops[i].distanceAlongRoute, 0.0);
+            Assert.assertEquals(data.routeStops[i].indexFirstTransfer, loaded.routeStops[i].indexFirstTransfer);
+            Assert.assertEquals(data.routeStops[i].countTransfers, loaded.routeStops[i].countTransfers);
+        }
+        Assert.assertEquals(data.transfers.length, loaded.transfers.length);
+        for (int i = 0; i < data.transfers.length; i++) {
+            Assert.assertEquals(data.transfers[i].toRouteStop, loaded.transfers[i].toRouteStop);
+            Assert.assertEquals(data.transfers[i].transferTime, loaded.transfers[i].transferTime);
+        }
+
+        // the loaded data must route the same way
+        RaptorParameters parameters = RaptorUtils.createParameters(f.config);
+        TransitStopFacility fromStop = f.schedule.getFacilities().get(Id.create(0, TransitStopFacility.class));
+        Map<Id<TransitStopFacility>, SwissRailRaptorCore.TravelInfo> tree = new SwissRailRaptor.Builder(data, f.config).build().calcTree(fromStop, 7*3600, parameters, null);
+        Map<Id<TransitStopFacility>, SwissRailRaptorCore.TravelInfo> loadedTree = new SwissRailRaptor.Builder(loaded, f.config).build().calcTree(fromStop, 7*3600, parameters, null);
+        Assert.assertEquals(tree.keySet(), loadedTree.keySet());
+        for (Map.Entry<Id<TransitStopFacility>, SwissRailRaptorCore.TravelInfo> e : tree.entrySet()) {
+            Assert.assertEquals(e.getValue().ptArrivalTime, loadedTree.get(e.getKey()).ptArrivalTime, 0.0);
+            Assert.assertEquals(e.getValue().travelCost, loadedTree.get(e.getKey()).travelCost, 1e-7);
+        }
+
+        // a truncated file must be treated like a missing one
+        byte[] content = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), Arrays.copyOf(content, content.length - 10));
+        Assert.assertNull(SwissRailRaptorDataIO.read(file, f.schedule, null, raptorConfig, null));
+        SwissRailRaptorDataIO.loadOrCreate(file, f.schedule, null, raptorConfig, f.network, null);
+        Assert.assertEquals(content.length, file.length());
+        Assert.assertEquals("no temporary files may be left over.", 1, new File(this.utils.getOutputDirectory()).listFiles().length);
+
+        // a changed schedule must not use the stored data
+        f.schedule.getMinimalTransferTimes().set(Id.create(19, TransitStopFacility.class), Id.create(9, TransitStopFacility.class), 345);
+        Assert.assertNull(SwissRailRaptorDataIO.read(file, f.schedule, null, raptorConfig, null));
+    }
+
+}
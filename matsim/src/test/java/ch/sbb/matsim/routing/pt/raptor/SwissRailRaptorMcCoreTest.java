@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) Schweizerische Bundesbahnen SBB, 2018.
+ */
+
+package ch.sbb.matsim.routing.pt.raptor;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests for the multi-criteria variant of SwissRailRaptor.
+ */
+public class SwissRailRaptorMcCoreTest {
+
+    @Test
+    public void testContainsLeastCostRoute() {
+        Fixture f = new Fixture();
+        f.init();
+
+        SwissRailRaptorData data = SwissRailRaptorData.create(f.scenario.getTransitSchedule(), null, RaptorUtils.createStaticConfig(f.config), f.scenario.getNetwork(), null);
+        RaptorParameters raptorParams = RaptorUtils.createParameters(f.config);
+        SwissRailRaptorCore core = new SwissRailRaptorCore(data, new DefaultRaptorInVehicleCostCalculator(), new DefaultRaptorTransferCostCalculator());
+        SwissRailRaptorMcCore mcCore = new SwissRailRaptorMcCore(data, new DefaultRaptorInVehicleCostCalculator(), new DefaultRaptorTransferCostCalculator());
+
+        double depTime = 7*3600 + 40*60;
+        int routesFound = 0;
+        for (TransitStopFacility fromStop : f.schedule.getFacilities().values()) {
+            for (TransitStopFacility toStop : f.schedule.getFacilities().values()) {
+                if (fromStop == toStop) {
+                    continue;
+                }
+                FakeFacility fromFacility = new FakeFacility(fromStop.getCoord());
+                FakeFacility toFacility = new FakeFacility(toStop.getCoord());
+                List<InitialStop> accessStops = Collections.singletonList(new InitialStop(fromStop, 0, 0, 0, null));
+                List<InitialStop> egressStops = Collections.singletonList(new InitialStop(toStop, 0, 0, 0, null));
+
+                RaptorRoute leastCostRoute = core.calcLeastCostRoute(depTime, fromFacility, toFacility, accessStops, egressStops, raptorParams, null);
+                List<RaptorRoute> paretoRoutes = mcCore.calcParetoRoutes(depTime, fromFacility, toFacility, accessStops, egressStops, raptorParams, null, 20, 100);
+
+                if (leastCostRoute == null || leastCostRoute.getTotalCosts() == Double.POSITIVE_INFINITY) {
+                    continue;
+                }
+                routesFound++;
+                Assert.assertFalse("no route from " + fromStop.getId() + " to " + toStop.getId(), paretoRoutes.isEmpty());
+                double minCost = Double.POSITIVE_INFINITY;
+                for (RaptorRoute route : paretoRoutes) {
+                    minCost = Math.min(minCost, route.getTotalCosts());
+                }
+                // the single-criterion search keeps only one label per route stop, so it might even miss the cheapest route
+                Assert.assertTrue("from " + fromStop.getId() + " to " + toStop.getId(), minCost <= leastCostRoute.getTotalCosts() + 1e-7);
+                assertNoDominatedRoutes(paretoRoutes);
+            }
+        }
+        Assert.assertTrue(routesFound > 100);
+    }
+
+    @Test
+    public void testParetoRoutesViaFacilities() {
+        Fixture f = new Fixture();
+        f.init();
+
+        SwissRailRaptorData data = SwissRailRaptorData.create(f.scenario.getTransitSchedule(), null, RaptorUtils.createStaticConfig(f.config), f.scenario.getNetwork(), null);
+        SwissRailRaptor raptor = new SwissRailRaptor.Builder(data, f.config).build();
+
+        Coord fromCoord = new Coord(3800, 5100);
+        Coord toCoord = new Coord(28100, 4950);
+        List<RaptorRoute> routes = raptor.calcParetoRoutes(new FakeFacility(fromCoord), new FakeFacility(toCoord), 5.0*3600 + 40*60, null, null, 8, 10);
+        Assert.assertFalse(routes.isEmpty());
+        for (int i = 1; i < routes.size(); i++) {
+            Assert.assertTrue("routes are not sorted by cost", routes.get(i - 1).getTotalCosts() <= routes.get(i).getTotalCosts());
+        }
+        assertNoDominatedRoutes(routes);
+
+        RaptorRoute leastCost = new LogitRaptorRouteSelector(1000).selectOne(routes, 5.0*3600 + 40*60);
+        Assert.assertSame(routes.get(0), leastCost);
+        Assert.assertNull(new LogitRaptorRouteSelector().selectOne(new ArrayList<>(), 0));
+    }
+
+    private static void assertNoDominatedRoutes(List<RaptorRoute> routes) {
+        for (RaptorRoute r1 : routes) {
+            for (RaptorRoute r2 : routes) {
+                if (r1 != r2) {
+                    boolean dominated = getArrivalTime(r1) <= getArrivalTime(r2) && r1.getNumberOfTransfers() <= r2.getNumberOfTransfers() && r1.getTotalCosts() <= r2.getTotalCosts();
+                    Assert.assertFalse("dominated route in result", dominated);
+                }
+            }
+        }
+    }
+
+    private static double getArrivalTime(RaptorRoute route) {
+        return route.getDepartureTime() + route.getTravelTime();
+    }
+}
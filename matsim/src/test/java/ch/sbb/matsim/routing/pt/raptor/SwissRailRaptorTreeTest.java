@@ -13,6 +13,7 @@ import org.matsim.core.utils.misc.Time;
 import org.matsim.pt.transitSchedule.api.TransitStopFacility;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -385,6 +386,71 @@ public class SwissRailRaptorTreeTest {
         Assert.assertNull(stage5.line); // egress_walk
     }
 
+    @Test
+    public void testSingleStop_profiles_optimized() {
+        Fixture f = new Fixture();
+        f.init();
+
+        RaptorStaticConfig config = RaptorUtils.createStaticConfig(f.config);
+        config.setOptimization(RaptorStaticConfig.RaptorOptimization.OneToAllRouting);
+        SwissRailRaptorData data = SwissRailRaptorData.create(f.scenario.getTransitSchedule(), null, config, f.scenario.getNetwork(), null);
+        SwissRailRaptor raptor = new SwissRailRaptor.Builder(data, f.scenario.getConfig()).build();
+
+        RaptorParameters raptorParams = RaptorUtils.createParameters(f.config);
+
+        // start with a stop on the green line
+        TransitStopFacility fromStop = f.schedule.getFacilities().get(Id.create(23, TransitStopFacility.class));
+        double earliestDepTime = 7*3600;
+        double latestDepTime = 8*3600;
+        Map<Id<TransitStopFacility>, List<TravelInfo>> profiles = raptor.calcProfiles(Collections.singletonList(fromStop), earliestDepTime, latestDepTime, raptorParams, null);
+
+        Assert.assertNull("the start stop should only be reached by walking", profiles.get(fromStop.getId()));
+
+        // the green line runs every 10 minutes and reaches stop 18 directly
+        List<TravelInfo> profile18 = profiles.get(Id.create(18, TransitStopFacility.class));
+        Assert.assertNotNull(profile18);
+        Assert.assertEquals(6, profile18.size());
+        for (TravelInfo info : profile18) {
+            Assert.assertEquals(0, info.transferCount);
+            Assert.assertEquals(540, info.ptTravelTime, 1e-7);
+            Assert.assertTrue(info.ptDepartureTime >= earliestDepTime && info.ptDepartureTime <= latestDepTime);
+        }
+
+        for (List<TravelInfo> profile : profiles.values()) {
+            for (int i = 1; i < profile.size(); i++) {
+                TravelInfo prev = profile.get(i - 1);
+                TravelInfo info = profile.get(i);
+                Assert.assertTrue("profile not ordered by departure time", info.ptDepartureTime >= prev.ptDepartureTime);
+                for (int j = 0; j < i; j++) {
+                    TravelInfo earlier = profile.get(j);
+                    boolean dominated = info.ptArrivalTime <= earlier.ptArrivalTime && info.transferCount <= earlier.transferCount;
+                    Assert.assertFalse("dominated connection in profile", dominated);
+                }
+            }
+        }
+
+        // a tree for any departure time in the window must not find connections the profile misses
+        for (double depTime = earliestDepTime; depTime <= latestDepTime; depTime += 300) {
+            Map<Id<TransitStopFacility>, TravelInfo> tree = raptor.calcTree(fromStop, depTime, raptorParams, null);
+            for (Map.Entry<Id<TransitStopFacility>, TravelInfo> e : tree.entrySet()) {
+                TravelInfo treeInfo = e.getValue();
+                if (treeInfo.isWalkOnly() || treeInfo.ptDepartureTime > latestDepTime) {
+                    continue;
+                }
+                List<TravelInfo> profile = profiles.get(e.getKey());
+                Assert.assertNotNull("stop " + e.getKey() + " missing in profiles", profile);
+                boolean found = false;
+                for (TravelInfo info : profile) {
+                    if (info.ptDepartureTime >= depTime && info.ptArrivalTime <= treeInfo.ptArrivalTime) {
+                        found = true;
+                        break;
+                    }
+                }
+                Assert.assertTrue("no connection to stop " + e.getKey() + " at " + Time.writeTime(depTime), found);
+            }
+        }
+    }
+
     private void assertTravelInfo(Map<Id<TransitStopFacility>, TravelInfo> map, int stopId, String expectedDepartureStop, int expectedTransfers, String expectedDepartureTime, String expectedArrivalTime) {
         TravelInfo info = map.get(Id.create(stopId, TransitStopFacility.class));
         Assert.assertNotNull("Stop " + stopId + " is not reachable.", info);
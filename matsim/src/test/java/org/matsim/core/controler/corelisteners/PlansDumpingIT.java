@@ -23,10 +23,16 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.matsim.core.config.Config;
 import org.matsim.core.controler.Controler;
+import org.matsim.core.utils.io.IOUtils;
 import org.matsim.testcases.MatsimTestUtils;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -108,4 +114,46 @@ public class PlansDumpingIT {
 		assertTrue(new File(c.getControlerIO().getIterationFilename(9, "plans.xml.gz")).exists());
 		assertTrue(new File(c.getControlerIO().getIterationFilename(10, "plans.xml.gz")).exists());
 	}
+
+	@Test
+	public void testPlansDump_Background() throws IOException {
+		Controler c = runEquil(true, "background/");
+		Controler reference = runEquil(false, "reference/");
+
+		assertTrue(new File(c.getControlerIO().getIterationFilename(0, "plans.xml.gz")).exists());
+		assertTrue(new File(c.getControlerIO().getIterationFilename(1, "plans.xml.gz")).exists());
+		assertTrue(new File(c.getControlerIO().getIterationFilename(2, "plans.xml.gz")).exists());
+		assertFalse(new File(c.getControlerIO().getIterationFilename(3, "plans.xml.gz")).exists());
+		assertTrue(new File(c.getControlerIO().getIterationFilename(4, "plans.xml.gz")).exists()); // last iteration, written until shutdown
+		assertTrue(new File(c.getControlerIO().getOutputFilename("output_plans.xml.gz")).exists());
+		assertTrue(new File(c.getControlerIO().getOutputFilename("output_events.xml.gz")).exists());
+
+		// the mobsim must not change the plans written while it runs
+		for (int iteration : new int[] {0, 1, 2, 4}) {
+			assertEquals("plans of iteration " + iteration,
+					readLines(reference.getControlerIO().getIterationFilename(iteration, "plans.xml.gz")),
+					readLines(c.getControlerIO().getIterationFilename(iteration, "plans.xml.gz")));
+		}
+		assertEquals(readLines(reference.getControlerIO().getOutputFilename("output_plans.xml.gz")),
+				readLines(c.getControlerIO().getOutputFilename("output_plans.xml.gz")));
+	}
+
+	private Controler runEquil(boolean writePlansInBackground, String outputDirectory) {
+		Config config = this.util.loadConfig("test/scenarios/equil/config_plans1.xml");
+		config.controler().setOutputDirectory(this.util.getOutputDirectory() + outputDirectory);
+		config.controler().setLastIteration(4);
+		config.controler().setWritePlansInterval(2);
+		config.controler().setWritePlansInBackground(writePlansInBackground);
+		config.controler().setWriteEventsInterval(4);
+		config.controler().setCreateGraphs(false);
+		Controler c = new Controler(config);
+		c.run();
+		return c;
+	}
+
+	private static List<String> readLines(String filename) throws IOException {
+		try (BufferedReader reader = IOUtils.getBufferedReader(filename)) {
+			return reader.lines().collect(Collectors.toList());
+		}
+	}
 }
@@ -19,12 +19,20 @@
 
 package org.matsim.core.events;
 
+import java.lang.reflect.Method;
+import java.util.function.BiConsumer;
+
 import org.apache.log4j.Logger;
 import org.junit.Assert;
 import org.junit.Test;
+import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.network.Link;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.events.handler.EventHandler;
+import org.matsim.vehicles.Vehicle;
 
 /**
  * @author mrieser
@@ -64,10 +72,61 @@ public class EventsManagerImplTest {
 			log.info("Catched expected exception.", e);
 
 			Assert.assertEquals(1, handler.counter);
-			Assert.assertTrue(e.getCause() instanceof ArithmeticException);
+			Assert.assertTrue(e instanceof ArithmeticException);
+		}
+	}
+
+	@Test
+	public void testProcessEvent_AnonymousAndLambdaEventHandlers() {
+		EventsManager manager = EventsUtils.createEventsManager();
+		int[] counters = new int[3];
+		manager.addHandler(new MyEventHandler() {
+			@Override
+			public void handleEvent(final MyEvent e) {
+				counters[0]++;
+			}
+		});
+		manager.addHandler((MyEventHandler) e -> counters[1]++);
+		manager.addHandler((LinkEnterEventHandler) e -> counters[2]++);
+		manager.initProcessing();
+		manager.processEvent(new MyEvent(1.0));
+		manager.processEvent(new MyEvent(2.0));
+		manager.processEvent(new LinkEnterEvent(3.0, Id.create("v", Vehicle.class), Id.create("l", Link.class)));
+		manager.finishProcessing();
+		Assert.assertArrayEquals(new int[] { 2, 2, 1 }, counters);
+	}
+
+	@Test
+	public void testProcessEvent_ExceptionInCoreEventHandler() {
+		EventsManager manager = EventsUtils.createEventsManager();
+		manager.addHandler((LinkEnterEventHandler) e -> {
+			throw new IllegalStateException();
+		});
+		manager.initProcessing();
+		try {
+			manager.processEvent(new LinkEnterEvent(3.0, Id.create("v", Vehicle.class), Id.create("l", Link.class)));
+			Assert.fail("expected exception, but got none.");
+		} catch (final RuntimeException e) {
+			Assert.assertTrue(e instanceof IllegalStateException);
 		}
 	}
 
+	@Test
+	public void testInvokersAreSharedBetweenHandlersOfSameClass() throws NoSuchMethodException {
+		Method method = MyEventHandler.class.getMethod("handleEvent", MyEvent.class);
+		EventHandlerInvokers invokers = new EventHandlerInvokers();
+		BiConsumer<EventHandler, Event> invoker = invokers.get(CountingMyEventHandler.class, method);
+		Assert.assertSame(invoker, invokers.get(CountingMyEventHandler.class, method));
+
+		CountingMyEventHandler handler1 = new CountingMyEventHandler();
+		CountingMyEventHandler handler2 = new CountingMyEventHandler();
+		invoker.accept(handler1, new MyEvent(1.0));
+		invoker.accept(handler2, new MyEvent(1.0));
+		invoker.accept(handler2, new MyEvent(2.0));
+		Assert.assertEquals(1, handler1.counter);
+		Assert.assertEquals(2, handler2.counter);
+	}
+
 	/*package*/ static class MyEvent extends Event {
 		public MyEvent(final double time) {
 			super(time);
@@ -0,0 +1,161 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.analysis.VolumesAnalyzer;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.algorithms.EventWriterXML;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.vehicles.Vehicle;
+
+public class ParallelEventsReplayTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testVolumesByPerson() {
+		String filename = writeEvents();
+
+		VolumesAnalyzer expected = new VolumesAnalyzer(900, 30 * 3600, null);
+		EventsManager events = EventsUtils.createEventsManager();
+		events.addHandler(expected);
+		EventsUtils.readEvents(events, filename);
+
+		VolumesAnalyzer actual = new VolumesAnalyzer(900, 30 * 3600, null);
+		ParallelEventsReplay replay = new ParallelEventsReplay(3, ParallelEventsReplay.byPerson());
+		replay.addHandler(actual);
+		replay.readFile(filename);
+
+		Assert.assertEquals(expected.getLinkIds(), actual.getLinkIds());
+		Assert.assertEquals(expected.getModes(), actual.getModes());
+		for (Id<Link> linkId : expected.getLinkIds()) {
+			Assert.assertArrayEquals(expected.getVolumesForLink(linkId), actual.getVolumesForLink(linkId));
+			for (String mode : expected.getModes()) {
+				Assert.assertArrayEquals(expected.getVolumesForLink(linkId, mode), actual.getVolumesForLink(linkId, mode));
+			}
+		}
+	}
+
+	@Test
+	public void testVolumesByLink() {
+		String filename = writeEvents();
+
+		VolumesAnalyzer expected = new VolumesAnalyzer(3600, 30 * 3600, null, false);
+		EventsManager events = EventsUtils.createEventsManager();
+		events.addHandler(expected);
+		EventsUtils.readEvents(events, filename);
+
+		VolumesAnalyzer actual = new VolumesAnalyzer(3600, 30 * 3600, null, false);
+		ParallelEventsReplay replay = new ParallelEventsReplay(4, ParallelEventsReplay.byLink());
+		replay.addHandler(actual);
+		replay.readFile(filename);
+
+		Assert.assertEquals(expected.getLinkIds(), actual.getLinkIds());
+		for (Id<Link> linkId : expected.getLinkIds()) {
+			Assert.assertArrayEquals(expected.getVolumesForLink(linkId), actual.getVolumesForLink(linkId));
+		}
+	}
+
+	@Test(expected = RuntimeException.class)
+	public void testExceptionInHandler() {
+		String filename = writeEvents();
+		ParallelEventsReplay replay = new ParallelEventsReplay(2, ParallelEventsReplay.byLink());
+		replay.addHandler(new FailingVolumesAnalyzer());
+		replay.readFile(filename);
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testSubclassWithoutNewInstance() {
+		new VolumesAnalyzer(3600, 30 * 3600, null, false) {
+		}.newInstance();
+	}
+
+	@Test
+	public void testSubclassWithStandardConstructor() {
+		VolumesAnalyzer copy = new ModeVolumesAnalyzer(3600, 30 * 3600, null, true).newInstance();
+		Assert.assertEquals(ModeVolumesAnalyzer.class, copy.getClass());
+	}
+
+	private static class ModeVolumesAnalyzer extends VolumesAnalyzer {
+		ModeVolumesAnalyzer(int timeBinSize, int maxTime, Network network, boolean observeModes) {
+			super(timeBinSize, maxTime, network, observeModes);
+		}
+	}
+
+	private static class FailingVolumesAnalyzer extends VolumesAnalyzer {
+		FailingVolumesAnalyzer() {
+			super(3600, 30 * 3600, null, false);
+		}
+
+		@Override
+		public VolumesAnalyzer newInstance() {
+			return new FailingVolumesAnalyzer();
+		}
+
+		@Override
+		public void handleEvent(LinkLeaveEvent event) {
+			throw new IllegalStateException();
+		}
+	}
+
+	/**
+	 * Persons driving cars and bikes along a few links, and a bus with passengers.
+	 */
+	private String writeEvents() {
+		String filename = this.utils.getOutputDirectory() + "events.xml.gz";
+		EventWriterXML writer = new EventWriterXML(filename);
+		Id<Vehicle> busId = Id.create("bus", Vehicle.class);
+		writer.handleEvent(new VehicleEntersTrafficEvent(5 * 3600, Id.createPersonId("busDriver"), Id.createLinkId(0), busId, "bus", 1.0));
+		for (int i = 0; i < 500; i++) {
+			double time = 6 * 3600 + i * 7;
+			Id<Person> personId = Id.createPersonId(i);
+			Id<Vehicle> vehicleId = Id.create(i, Vehicle.class);
+			String mode = i % 3 == 0 ? "bike" : "car";
+			writer.handleEvent(new PersonDepartureEvent(time, personId, Id.createLinkId(i % 10), mode, mode));
+			writer.handleEvent(new PersonEntersVehicleEvent(time, personId, vehicleId));
+			writer.handleEvent(new VehicleEntersTrafficEvent(time, personId, Id.createLinkId(i % 10), vehicleId, mode, 1.0));
+			for (int l = 1; l <= 5; l++) {
+				writer.handleEvent(new LinkLeaveEvent(time + l * 60, vehicleId, Id.createLinkId((i + l - 1) % 10)));
+				writer.handleEvent(new LinkEnterEvent(time + l * 60, vehicleId, Id.createLinkId((i + l) % 10)));
+			}
+			writer.handleEvent(new VehicleLeavesTrafficEvent(time + 400, personId, Id.createLinkId((i + 5) % 10), vehicleId, mode, 1.0));
+			if (i % 50 == 0) {
+				writer.handleEvent(new PersonEntersVehicleEvent(time, Id.createPersonId("passenger" + i), busId));
+				writer.handleEvent(new LinkLeaveEvent(time + 1, busId, Id.createLinkId(i % 7)));
+			}
+		}
+		writer.closeFile();
+		return filename;
+	}
+}
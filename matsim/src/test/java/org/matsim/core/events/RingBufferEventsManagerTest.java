@@ -0,0 +1,143 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup.RingBufferWaitStrategy;
+
+public class RingBufferEventsManagerTest {
+
+	@Test
+	public void forgetInit() {
+		EventsManager m = new RingBufferEventsManager(false, 16, RingBufferWaitStrategy.park);
+		EventsManagerImplTest.CountingMyEventHandler handler = new EventsManagerImplTest.CountingMyEventHandler();
+		m.addHandler(handler);
+
+		assertThrows(IllegalStateException.class, () -> m.processEvent(new EventsManagerImplTest.MyEvent(5)));
+
+		m.initProcessing();
+		m.processEvent(new EventsManagerImplTest.MyEvent(5));
+		m.finishProcessing();
+
+		assertEquals(1, handler.counter);
+	}
+
+	@Test
+	public void lateHandler() {
+		EventsManager m = new RingBufferEventsManager(false, 16, RingBufferWaitStrategy.park);
+		m.initProcessing();
+
+		assertThrows(IllegalStateException.class, () -> m.addHandler(new EventsManagerImplTest.CountingMyEventHandler()));
+	}
+
+	/**
+	 * The buffer is much smaller than the number of events, so producers have to wait for the handlers
+	 * and the buffer wraps around many times. Every handler must still see every event in order.
+	 */
+	@Test
+	public void eventsArriveInOrder() {
+		for (RingBufferWaitStrategy strategy : RingBufferWaitStrategy.values()) {
+			EventsManager m = new RingBufferEventsManager(false, 64, strategy);
+			OrderCheckingHandler handler1 = new OrderCheckingHandler();
+			OrderCheckingHandler handler2 = new OrderCheckingHandler();
+			m.addHandler(handler1);
+			m.addHandler(handler2);
+
+			for (int iteration = 0; iteration < 2; iteration++) {
+				m.initProcessing();
+				EventArray array = new EventArray();
+				for (int i = 0; i < 10000; i++) {
+					m.processEvent(new EventsManagerImplTest.MyEvent(2 * i));
+					array.add(new EventsManagerImplTest.MyEvent(2 * i + 1));
+				}
+				m.processEvents(array);
+				m.finishProcessing();
+
+				for (OrderCheckingHandler handler : List.of(handler1, handler2)) {
+					assertEquals(20000, handler.times.size());
+					for (int i = 0; i < 10000; i++) {
+						assertEquals(2 * i, handler.times.get(i), 0.0);
+						assertEquals(2 * i + 1, handler.times.get(10000 + i), 0.0);
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void slotsAreClearedAfterDispatch() {
+		EventRingBuffer buffer = new EventRingBuffer(4, 2, RingBufferWaitStrategy.park);
+		Event event = new EventsManagerImplTest.MyEvent(5);
+		long sequence = buffer.claim(1);
+		buffer.publish(sequence, event);
+
+		assertSame(event, buffer.take(sequence));
+		assertSame("the slot must only be cleared after all consumers took the event", event, buffer.get(sequence));
+		assertSame(event, buffer.take(sequence));
+		assertNull(buffer.get(sequence));
+
+		EventRingBuffer withoutConsumers = new EventRingBuffer(4, 0, RingBufferWaitStrategy.park);
+		sequence = withoutConsumers.claim(1);
+		withoutConsumers.publish(sequence, event);
+		assertNull(withoutConsumers.get(sequence));
+	}
+
+	@Test
+	public void exceptionInEventHandler() {
+		EventsManager m = new RingBufferEventsManager(false, 16, RingBufferWaitStrategy.park);
+		EventsManagerImplTest.CrashingMyEventHandler handler = new EventsManagerImplTest.CrashingMyEventHandler();
+		m.addHandler(handler);
+		m.initProcessing();
+		for (int i = 0; i < 100; i++) {
+			m.processEvent(new EventsManagerImplTest.MyEvent(i));
+		}
+		RuntimeException e = assertThrows(RuntimeException.class, m::finishProcessing);
+		Throwable cause = e;
+		while (cause.getCause() != null) {
+			cause = cause.getCause();
+		}
+		assertTrue(cause instanceof ArithmeticException);
+	}
+
+	private static class OrderCheckingHandler implements EventsManagerImplTest.MyEventHandler {
+		private final List<Double> times = new ArrayList<>();
+
+		@Override
+		public void reset(int iteration) {
+			this.times.clear();
+		}
+
+		@Override
+		public void handleEvent(EventsManagerImplTest.MyEvent e) {
+			this.times.add(e.getTime());
+		}
+	}
+}
@@ -0,0 +1,179 @@
+package org.matsim.core.events.algorithms;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.GenericEvent;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.groups.ControlerConfigGroup;
+import org.matsim.core.events.EventsReaderBinary;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.testcases.utils.EventsCollector;
+import org.matsim.vehicles.Vehicle;
+
+public class EventWriterBinaryTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	/**
+	 * Writes more events than fit into one block, with varying times and optional attributes, and makes sure
+	 * every event is read back unchanged and in the same order.
+	 */
+	@Test
+	public void testRoundTripMultipleBlocks() {
+		List<Event> events = createEvents(10000);
+
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		EventWriterBinary writer = new EventWriterBinary(baos, 777);
+		events.forEach(writer::handleEvent);
+		writer.closeFile();
+
+		for (int threads : new int[] { 1, 3 }) {
+			EventsManager manager = EventsUtils.createEventsManager();
+			EventsCollector collector = new EventsCollector();
+			manager.addHandler(collector);
+			manager.initProcessing();
+			EventsReaderBinary reader = new EventsReaderBinary(manager);
+			reader.setNumberOfThreads(threads);
+			reader.parse(new ByteArrayInputStream(baos.toByteArray()));
+			manager.finishProcessing();
+
+			assertSameEvents(events, collector.getEvents());
+		}
+	}
+
+	@Test
+	public void testNullAttributeAndSpecialCharacters() {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		EventWriterBinary writer = new EventWriterBinary(baos);
+
+		GenericEvent event = new GenericEvent("TEST", 3600.0);
+		event.getAttributes().put("dummy", null);
+		event.getAttributes().put("text", "äöü <\"'> 1.5");
+		writer.handleEvent(event);
+		writer.handleEvent(new LinkLeaveEvent(3601.0, Id.create("vehicle>3", Vehicle.class), Id.create("link<2", Link.class)));
+		writer.closeFile();
+
+		EventsManager manager = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		manager.addHandler(collector);
+		manager.initProcessing();
+		new MatsimEventsReader(manager).readStream(new ByteArrayInputStream(baos.toByteArray()), ControlerConfigGroup.EventsFileFormat.binary);
+		manager.finishProcessing();
+
+		Assert.assertEquals(2, collector.getEvents().size());
+		GenericEvent event1 = (GenericEvent) collector.getEvents().get(0);
+		Assert.assertTrue(event1.getAttributes().containsKey("dummy"));
+		Assert.assertNull(event1.getAttributes().get("dummy"));
+		Assert.assertEquals("äöü <\"'> 1.5", event1.getAttributes().get("text"));
+		LinkLeaveEvent event2 = (LinkLeaveEvent) collector.getEvents().get(1);
+		Assert.assertEquals("link<2", event2.getLinkId().toString());
+		Assert.assertEquals("vehicle>3", event2.getVehicleId().toString());
+	}
+
+	/**
+	 * Integer values are stored inline, but must be read back with exactly the same text as written.
+	 */
+	@Test
+	public void testIntegerValues() {
+		String[] values = { "0", "-0", "7", "-7", "007", "+7", "123456789012345678", "-123456789012345678",
+				"1234567890123456789", "99999999999999999999", "1e3", "-", "" };
+		List<Event> events = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			GenericEvent event = new GenericEvent("count", i);
+			event.getAttributes().put("count", Integer.toString(i * 7919 - 500000));
+			event.getAttributes().put("value", values[i % values.length]);
+			events.add(event);
+		}
+
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		EventWriterBinary writer = new EventWriterBinary(baos, 100);
+		events.forEach(writer::handleEvent);
+		writer.closeFile();
+
+		EventsManager manager = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		manager.addHandler(collector);
+		manager.initProcessing();
+		new EventsReaderBinary(manager).parse(new ByteArrayInputStream(baos.toByteArray()));
+		manager.finishProcessing();
+
+		assertSameEvents(events, collector.getEvents());
+	}
+
+	/**
+	 * The binary format is recognized by its file ending and, for other file names, by the start of the file.
+	 */
+	@Test
+	public void testAutoDetection() {
+		List<Event> events = createEvents(100);
+		for (String filename : new String[] { "events.bin", "events.dat" }) {
+			String path = this.utils.getOutputDirectory() + filename;
+			EventWriterBinary writer = new EventWriterBinary(path);
+			events.forEach(writer::handleEvent);
+			writer.closeFile();
+
+			EventsManager manager = EventsUtils.createEventsManager();
+			EventsCollector collector = new EventsCollector();
+			manager.addHandler(collector);
+			manager.initProcessing();
+			EventsUtils.readEvents(manager, path);
+			manager.finishProcessing();
+
+			assertSameEvents(events, collector.getEvents());
+		}
+	}
+
+	private static List<Event> createEvents(int n) {
+		List<Event> events = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			double time = 6 * 3600 + i / 3;
+			Id<Vehicle> vehicleId = Id.create("veh_" + (i % 101), Vehicle.class);
+			Id<Link> linkId = Id.create(i % 53, Link.class);
+			Id<Person> personId = Id.create("p" + (i % 101), Person.class);
+			switch (i % 5) {
+				case 0:
+					events.add(new LinkEnterEvent(time, vehicleId, linkId));
+					break;
+				case 1:
+					events.add(new LinkLeaveEvent(time + 0.25, vehicleId, linkId));
+					break;
+				case 2:
+					events.add(new ActivityEndEvent(time, personId, linkId, null, "work", new Coord(i * 1.5, -i)));
+					break;
+				case 3:
+					events.add(new ActivityEndEvent(time, personId, linkId, Id.create(i, ActivityFacility.class), "home", null));
+					break;
+				default:
+					events.add(new PersonMoneyEvent(time, personId, -i / 7.0, "toll", null));
+			}
+		}
+		return events;
+	}
+
+	private static void assertSameEvents(List<Event> expected, List<Event> actual) {
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			Assert.assertEquals(expected.get(i).getClass(), actual.get(i).getClass());
+			Assert.assertEquals(expected.get(i).getAttributes(), actual.get(i).getAttributes());
+		}
+	}
+}
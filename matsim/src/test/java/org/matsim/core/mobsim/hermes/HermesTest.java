@@ -23,6 +23,8 @@ package org.matsim.core.mobsim.hermes;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -59,8 +61,14 @@ import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup.RingBufferWaitStrategy;
 import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventArray;
 import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.FlushableEventsManager;
+import org.matsim.core.events.ParallelEventsManager;
+import org.matsim.core.events.RingBufferEventsManager;
+import org.matsim.core.events.handler.EventHandler;
 import org.matsim.core.events.handler.BasicEventHandler;
 import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.population.PersonUtils;
@@ -237,6 +245,195 @@ public class HermesTest {
 		Assert.assertEquals("wrong time in second event.", 7.0*3600 + 11, collector.events.get(3).getTime(), MatsimTestCase.EPSILON);
 	}
 
+	/**
+	 * Each link of the fixture is simulated in its own realm, so the agent is handed over twice.
+	 * The result must not differ from the single realm case.
+	 */
+	@Test
+	public void testSingleAgentMultipleRealms() {
+		Fixture f = new Fixture();
+		f.config.hermes().setNumberOfRealms(3);
+
+		Person person = PopulationUtils.getFactory().createPerson(Id.create(0, Person.class));
+		Plan plan = PersonUtils.createAndAddPlan(person, true);
+		Activity a1 = PopulationUtils.createAndAddActivityFromLinkId(plan, "h", f.link1.getId());
+		a1.setEndTime(6*3600);
+		Leg leg = PopulationUtils.createAndAddLeg( plan, TransportMode.car );
+		TripStructureUtils.setRoutingMode( leg, TransportMode.car );
+		NetworkRoute route = f.scenario.getPopulation().getFactory().getRouteFactories().createRoute(NetworkRoute.class, f.link1.getId(), f.link3.getId());
+		route.setLinkIds(f.link1.getId(), f.linkIds2, f.link3.getId());
+		leg.setRoute(route);
+		PopulationUtils.createAndAddActivityFromLinkId(plan, "w", f.link3.getId());
+		f.plans.addPerson(person);
+
+		EventsManager events = EventsUtils.createEventsManager();
+		LinkEnterEventCollector collector = new LinkEnterEventCollector();
+		events.addHandler(collector);
+
+		Hermes sim = createHermes(f, events);
+		sim.run();
+
+		Assert.assertEquals("wrong number of link enter events.", 2, collector.events.size());
+		Assert.assertEquals("wrong time in first event.", 6.0*3600, collector.events.get(0).getTime(), MatsimTestCase.EPSILON);
+		Assert.assertEquals("wrong time in second event.", 6.0*3600 + 11, collector.events.get(1).getTime(), MatsimTestCase.EPSILON);
+	}
+
+	/**
+	 * Many agents congest the partition boundaries. Two runs with the same number of realms must produce the
+	 * same events in the same order.
+	 */
+	@Test
+	public void testMultipleRealmsAreDeterministic() {
+		List<String> firstRun = runCongestedFixture(3, EventsUtils.createEventsManager());
+		ScenarioImporter.flush();
+		List<String> secondRun = runCongestedFixture(3, EventsUtils.createEventsManager());
+
+		Assert.assertEquals(firstRun, secondRun);
+		Assert.assertEquals("wrong number of arrivals.", 200, firstRun.stream().filter(e -> e.contains("type=\"arrival\"")).count());
+	}
+
+	/**
+	 * The partitioning into realms must not change the simulation: one realm and several realms must produce the
+	 * same events in the same order.
+	 */
+	@Test
+	public void testMultipleRealmsEqualSingleRealm() {
+		List<String> singleRealm = runCongestedFixture(1, EventsUtils.createEventsManager());
+		for (int realms = 2; realms <= 3; realms++) {
+			ScenarioImporter.flush();
+			List<String> multipleRealms = runCongestedFixture(realms, EventsUtils.createEventsManager());
+			Assert.assertEquals("different events with " + realms + " realms.", singleRealm, multipleRealms);
+		}
+	}
+
+	/**
+	 * Passing events to a parallel events manager every simulated second must not change the events.
+	 */
+	@Test
+	public void testStreamingEventsWithBoundedBuffer() {
+		List<String> expected = runCongestedFixture(1, EventsUtils.createEventsManager());
+		ScenarioImporter.flush();
+
+		ParallelEventsManager events = new ParallelEventsManager(false);
+		List<String> streamed = runCongestedFixture(1, events, config -> {
+			config.hermes().setEventsFlushInterval(1);
+			config.hermes().setBoundedEventsBuffer(true);
+		});
+
+		Assert.assertEquals(expected, streamed);
+	}
+
+	/**
+	 * The bounded buffer must work with any events manager which supports flushing, not only with the parallel one.
+	 */
+	@Test
+	public void testStreamingEventsWithBoundedRingBuffer() {
+		List<String> expected = runCongestedFixture(1, EventsUtils.createEventsManager());
+		ScenarioImporter.flush();
+
+		AtomicInteger flushes = new AtomicInteger();
+		EventsManager events = new FlushCountingEventsManager(new RingBufferEventsManager(false, 1024, RingBufferWaitStrategy.park), flushes);
+		List<String> streamed = runCongestedFixture(1, events, config -> {
+			config.hermes().setEventsFlushInterval(1);
+			config.hermes().setBoundedEventsBuffer(true);
+		});
+
+		Assert.assertEquals(expected, streamed);
+		Assert.assertTrue("the events manager was never flushed.", flushes.get() > 0);
+	}
+
+	private static class FlushCountingEventsManager implements FlushableEventsManager {
+
+		private final FlushableEventsManager delegate;
+		private final AtomicInteger flushes;
+
+		FlushCountingEventsManager(FlushableEventsManager delegate, AtomicInteger flushes) {
+			this.delegate = delegate;
+			this.flushes = flushes;
+		}
+
+		@Override
+		public void processEvent(Event event) {
+			this.delegate.processEvent(event);
+		}
+
+		@Override
+		public void processEvents(EventArray events) {
+			this.delegate.processEvents(events);
+		}
+
+		@Override
+		public void addHandler(EventHandler handler) {
+			this.delegate.addHandler(handler);
+		}
+
+		@Override
+		public void removeHandler(EventHandler handler) {
+			this.delegate.removeHandler(handler);
+		}
+
+		@Override
+		public void resetHandlers(int iteration) {
+			this.delegate.resetHandlers(iteration);
+		}
+
+		@Override
+		public void initProcessing() {
+			this.delegate.initProcessing();
+		}
+
+		@Override
+		public void afterSimStep(double time) {
+			this.delegate.afterSimStep(time);
+		}
+
+		@Override
+		public void flush() {
+			this.flushes.incrementAndGet();
+			this.delegate.flush();
+		}
+
+		@Override
+		public void finishProcessing() {
+			this.delegate.finishProcessing();
+		}
+	}
+
+	private static List<String> runCongestedFixture(int numberOfRealms, EventsManager events) {
+		return runCongestedFixture(numberOfRealms, events, config -> {});
+	}
+
+	private static List<String> runCongestedFixture(int numberOfRealms, EventsManager events, Consumer<Config> configurator) {
+		Fixture f = new Fixture();
+		f.config.hermes().setNumberOfRealms(numberOfRealms);
+		configurator.accept(f.config);
+		for (int i = 0; i < 200; i++) {
+			Person person = PopulationUtils.getFactory().createPerson(Id.create(i, Person.class));
+			Plan plan = PersonUtils.createAndAddPlan(person, true);
+			Activity a1 = PopulationUtils.createAndAddActivityFromLinkId(plan, "h", f.link1.getId());
+			a1.setEndTime(6*3600 + i % 10);
+			Leg leg = PopulationUtils.createAndAddLeg( plan, TransportMode.car );
+			TripStructureUtils.setRoutingMode( leg, TransportMode.car );
+			NetworkRoute route = f.scenario.getPopulation().getFactory().getRouteFactories().createRoute(NetworkRoute.class, f.link1.getId(), f.link3.getId());
+			route.setLinkIds(f.link1.getId(), f.linkIds2, f.link3.getId());
+			leg.setRoute(route);
+			PopulationUtils.createAndAddActivityFromLinkId(plan, "w", f.link3.getId());
+			f.plans.addPerson(person);
+		}
+
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+
+		Hermes sim = createHermes(f, events);
+		sim.run();
+
+		List<String> result = new ArrayList<>();
+		for (Event event : collector.getEvents()) {
+			result.add(event.toString());
+		}
+		return result;
+	}
+
 	/**
 	 * A single agent is simulated that uses teleportation for its one and only leg.
 	 *
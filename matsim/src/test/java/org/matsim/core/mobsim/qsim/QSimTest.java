@@ -20,11 +20,15 @@
 
 package org.matsim.core.mobsim.qsim;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.LogManager;
@@ -67,10 +71,13 @@ import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.config.groups.QSimConfigGroup.TrafficDynamics;
+import org.matsim.core.controler.AbstractModule;
 import org.matsim.core.controler.PrepareForSimUtils;
 import org.matsim.core.events.EventsUtils;
 import org.matsim.core.events.ParallelEventsManager;
+import org.matsim.core.events.ReusableEvent;
 import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.events.handler.NonRetainingEventHandler;
 import org.matsim.core.mobsim.qsim.agents.PersonDriverAgentImpl;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
 import org.matsim.core.mobsim.qsim.interfaces.NetsimLink;
@@ -92,6 +99,9 @@ import org.matsim.testcases.MatsimTestCase;
 import org.matsim.testcases.utils.EventsCollector;
 import org.matsim.testcases.utils.LogCounter;
 import org.matsim.vehicles.Vehicle;
+import org.matsim.vis.snapshotwriters.PositionFramesReader;
+import org.matsim.vis.snapshotwriters.PositionFramesWriter;
+import org.matsim.vis.snapshotwriters.PositionFramesWriterFactory;
 import org.matsim.vehicles.VehicleType;
 import org.matsim.vehicles.VehicleUtils;
 
@@ -285,6 +295,153 @@ public class QSimTest {
 		Assert.assertEquals("wrong time in second event.", 7.0*3600 + 12, collector.events.get(3).getTime(), MatsimTestCase.EPSILON);
 	}
 
+	/**
+	 * Reusing the instances of link events must neither change the events seen by handlers that keep them nor by
+	 * handlers that do not.
+	 */
+	@Test
+	public void testPooledLinkEvents() {
+		List<String> expectedRetained = null;
+		List<String> expectedHandled = null;
+		for (boolean pooled : new boolean[] { false, true }) {
+			Fixture f = new Fixture(isUsingFastCapacityUpdate, numberOfThreads);
+			f.config.qsim().setUsingPooledLinkEvents(pooled);
+			for (int i = 0; i < 50; i++) {
+				Person person = PopulationUtils.getFactory().createPerson(Id.create(i, Person.class));
+				Plan plan = PersonUtils.createAndAddPlan(person, true);
+				Activity a1 = PopulationUtils.createAndAddActivityFromLinkId(plan, "h", f.link1.getId());
+				a1.setEndTime(6 * 3600 + i * 5);
+				Leg leg = PopulationUtils.createAndAddLeg( plan, TransportMode.car );
+				TripStructureUtils.setRoutingMode( leg, TransportMode.car );
+				NetworkRoute route = f.scenario.getPopulation().getFactory().getRouteFactories().createRoute(NetworkRoute.class, f.link1.getId(), f.link3.getId());
+				route.setLinkIds(f.link1.getId(), f.linkIds2, f.link3.getId());
+				leg.setRoute(route);
+				PopulationUtils.createAndAddActivityFromLinkId(plan, "w", f.link3.getId());
+				f.plans.addPerson(person);
+			}
+
+			EventsManager events = EventsUtils.createEventsManager();
+			EventsCollector collector = new EventsCollector();
+			NonRetainingCollector nonRetainingCollector = new NonRetainingCollector();
+			events.addHandler(collector);
+			events.addHandler(nonRetainingCollector);
+
+			createQSim(f, events).run();
+
+			List<String> retained = new ArrayList<>();
+			for (Event event : collector.getEvents()) {
+				Assert.assertFalse(event instanceof ReusableEvent);
+				retained.add(event.getAttributes().toString());
+			}
+			Collections.sort(retained);
+			Collections.sort(nonRetainingCollector.attributes);
+			if (pooled) {
+				Assert.assertTrue(nonRetainingCollector.reusedEvents > 0);
+				Assert.assertEquals(expectedRetained, retained);
+				Assert.assertEquals(expectedHandled, nonRetainingCollector.attributes);
+			} else {
+				Assert.assertEquals(0, nonRetainingCollector.reusedEvents);
+				Assert.assertEquals(retained, nonRetainingCollector.attributes);
+				expectedRetained = retained;
+				expectedHandled = nonRetainingCollector.attributes;
+			}
+		}
+	}
+
+	/**
+	 * The position frames written by the runners must contain exactly the vehicles in traffic according to the
+	 * events, each on the link it entered last.
+	 */
+	@Test
+	public void testPositionFrames() {
+		Fixture f = new Fixture(isUsingFastCapacityUpdate, numberOfThreads);
+		f.config.qsim().setSnapshotPeriod(10);
+		for (int i = 0; i < 50; i++) {
+			Person person = PopulationUtils.getFactory().createPerson(Id.create(i, Person.class));
+			Plan plan = PersonUtils.createAndAddPlan(person, true);
+			Activity a1 = PopulationUtils.createAndAddActivityFromLinkId(plan, "h", f.link1.getId());
+			a1.setEndTime(6 * 3600 + i * 7);
+			Leg leg = PopulationUtils.createAndAddLeg( plan, TransportMode.car );
+			TripStructureUtils.setRoutingMode( leg, TransportMode.car );
+			NetworkRoute route = f.scenario.getPopulation().getFactory().getRouteFactories().createRoute(NetworkRoute.class, f.link1.getId(), f.link3.getId());
+			route.setLinkIds(f.link1.getId(), f.linkIds2, f.link3.getId());
+			leg.setRoute(route);
+			PopulationUtils.createAndAddActivityFromLinkId(plan, "w", f.link3.getId());
+			f.plans.addPerson(person);
+		}
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		PrepareForSimUtils.createDefaultPrepareForSim(f.scenario).run();
+		new QSimBuilder(f.scenario.getConfig()) //
+			.useDefaults() //
+			.addOverridingModule(new AbstractModule() {
+				@Override
+				public void install() {
+					bind(PositionFramesWriterFactory.class).toInstance(() -> new PositionFramesWriter(out));
+				}
+			}) //
+			.build(f.scenario, events) //
+			.run();
+
+		List<Double> frameTimes = new ArrayList<>();
+		int[] positions = { 0 };
+		new PositionFramesReader(new PositionFramesReader.Handler() {
+			private final Map<Id<Vehicle>, Id<Link>> expected = new HashMap<>();
+
+			@Override
+			public void beginFrame(double time) {
+				frameTimes.add(time);
+				this.expected.clear();
+				for (Event event : collector.getEvents()) {
+					if (event.getTime() > time) {
+						break;
+					}
+					if (event instanceof VehicleEntersTrafficEvent) {
+						this.expected.put(((VehicleEntersTrafficEvent) event).getVehicleId(), ((VehicleEntersTrafficEvent) event).getLinkId());
+					} else if (event instanceof LinkEnterEvent) {
+						this.expected.put(((LinkEnterEvent) event).getVehicleId(), ((LinkEnterEvent) event).getLinkId());
+					} else if (event instanceof VehicleLeavesTrafficEvent) {
+						this.expected.remove(((VehicleLeavesTrafficEvent) event).getVehicleId());
+					}
+				}
+			}
+
+			@Override
+			public void handlePosition(Id<Vehicle> vehicleId, Id<Link> linkId, double offset) {
+				Assert.assertEquals(this.expected.remove(vehicleId), linkId);
+				Assert.assertTrue(offset >= 0 && offset <= f.network.getLinks().get(linkId).getLength());
+				positions[0]++;
+			}
+
+			@Override
+			public void endFrame() {
+				Assert.assertEquals(Collections.emptyMap(), this.expected);
+			}
+		}).parse(new ByteArrayInputStream(out.toByteArray()));
+
+		Assert.assertTrue(positions[0] > 0);
+		for (int i = 1; i < frameTimes.size(); i++) {
+			Assert.assertEquals(10.0, frameTimes.get(i) - frameTimes.get(i - 1), 0.0);
+		}
+	}
+
+	private static final class NonRetainingCollector implements BasicEventHandler, NonRetainingEventHandler {
+		final List<String> attributes = new ArrayList<>();
+		int reusedEvents = 0;
+
+		@Override
+		public void handleEvent(Event event) {
+			this.attributes.add(event.getAttributes().toString());
+			if (event instanceof ReusableEvent) {
+				this.reusedEvents++;
+			}
+		}
+	}
+
 	/**
 	 * A single agent is simulated that uses teleportation for its one and only leg.
 	 *
@@ -35,10 +35,27 @@ import org.matsim.api.core.v01.population.Activity;
 import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
 import org.matsim.api.core.v01.population.Route;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.api.core.v01.population.PopulationWriter;
+import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.routes.GenericRouteImpl;
 import org.matsim.core.population.routes.NetworkRoute;
 import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.router.TripStructureUtils;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.vehicles.Vehicle;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
 
 public class PlanImplTest {
 
@@ -375,4 +392,221 @@ public class PlanImplTest {
 		Assert.assertTrue(p.getPlanElements().get(3) instanceof Activity);
 	}
 
+	@Test
+	public void testCompactUnselectedPlans() {
+		Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+		PopulationFactory pf = population.getFactory();
+		for (int i = 0; i < 10; i++) {
+			Person person = pf.createPerson(Id.create(i, Person.class));
+			for (int p = 0; p < 3; p++) {
+				Plan plan = pf.createPlan();
+				plan.setScore(p == 0 ? null : i + 0.25 * p);
+				Activity home = pf.createActivityFromCoord("home", new Coord(i, p, 12.5));
+				home.setFacilityId(Id.create("f" + i, ActivityFacility.class));
+				home.setEndTime(7 * 3600 + 0.5 * i);
+				home.getAttributes().putAttribute("flag", i % 2 == 0);
+				plan.addActivity(home);
+				Leg car = pf.createLeg(TransportMode.car);
+				car.setDepartureTime(7 * 3600 + i);
+				car.setTravelTime(600.25);
+				car.getAttributes().putAttribute("routingMode", TransportMode.car);
+				car.getAttributes().putAttribute("count", i);
+				car.getAttributes().putAttribute("big", 1L << 40);
+				NetworkRoute route = RouteUtils.createLinkNetworkRouteImpl(Id.create("a", Link.class),
+						Arrays.asList(Id.create("b" + p, Link.class), Id.create("c", Link.class)), Id.create("d", Link.class));
+				route.setVehicleId(Id.create(i, Vehicle.class));
+				route.setDistance(1234.5);
+				route.setTravelTime(600);
+				route.setTravelCost(3.5);
+				car.setRoute(route);
+				plan.addLeg(car);
+				Activity work = pf.createActivityFromLinkId("work", Id.create("d", Link.class));
+				work.setStartTime(8 * 3600);
+				work.setMaximumDuration(-1.5);
+				plan.addActivity(work);
+				Leg walk = pf.createLeg(TransportMode.walk);
+				walk.getAttributes().putAttribute("share", 0.5);
+				GenericRouteImpl walkRoute = new GenericRouteImpl(Id.create("d", Link.class), Id.create("a", Link.class));
+				walkRoute.setRouteDescription("over the bridge " + i);
+				walkRoute.setDistance(800);
+				walk.setRoute(walkRoute);
+				plan.addLeg(walk);
+				plan.addActivity(pf.createActivityFromLinkId("home", Id.create("a", Link.class)));
+				person.addPlan(plan);
+			}
+			person.setSelectedPlan(person.getPlans().get(i % 3));
+			population.addPerson(person);
+		}
+
+		ByteArrayOutputStream before = new ByteArrayOutputStream();
+		new PopulationWriter(population).write(before);
+
+		Assert.assertEquals(20, PopulationUtils.compactUnselectedPlans(population, 2));
+		for (Person person : population.getPersons().values()) {
+			for (Plan plan : person.getPlans()) {
+				Assert.assertEquals(plan != person.getSelectedPlan(), ((PlanImpl) plan).isCompact());
+			}
+		}
+
+		ByteArrayOutputStream after = new ByteArrayOutputStream();
+		new PopulationWriter(population).write(after);
+		Assert.assertEquals(before.toString(), after.toString());
+
+		Plan plan = population.getPersons().get(Id.create(0, Person.class)).getPlans().get(1);
+		Assert.assertFalse("accessing the plan elements must decode the plan", ((PlanImpl) plan).isCompact());
+		Assert.assertEquals(600.25, ((Leg) plan.getPlanElements().get(1)).getTravelTime().seconds(), 0.0);
+		Assert.assertEquals(3.5, ((NetworkRoute) ((Leg) plan.getPlanElements().get(1)).getRoute()).getTravelCost(), 0.0);
+		Assert.assertEquals(1L << 40, ((Leg) plan.getPlanElements().get(1)).getAttributes().getAttribute("big"));
+	}
+
+	/**
+	 * Unselected plans are compacted, but may still be read by several threads at the same time, e.g. in analysis.
+	 */
+	@Test
+	public void testCompactUnselectedPlans_concurrentDecode() throws InterruptedException {
+		Person person = PopulationUtils.getFactory().createPerson(Id.create(1, Person.class));
+		PersonUtils.createAndAddPlan(person, true);
+		Plan plan = PersonUtils.createAndAddPlan(person, false);
+		PopulationUtils.createAndAddActivityFromCoord(plan, "h", new Coord(0, 0));
+		PopulationUtils.createAndAddLeg(plan, TransportMode.walk);
+		PopulationUtils.createAndAddActivityFromCoord(plan, "w", new Coord(100, 0));
+
+		final int threadCount = 4;
+		for (int round = 0; round < 100; round++) {
+			Assert.assertEquals(1, PersonUtils.compactUnselectedPlans(person, PopulationUtils.createPopulation(ConfigUtils.createConfig())));
+			CyclicBarrier barrier = new CyclicBarrier(threadCount);
+			List<List<PlanElement>> results = Collections.synchronizedList(new ArrayList<>());
+			Thread[] threads = new Thread[threadCount];
+			for (int t = 0; t < threadCount; t++) {
+				threads[t] = new Thread(() -> {
+					try {
+						barrier.await();
+					} catch (InterruptedException | BrokenBarrierException e) {
+						throw new RuntimeException(e);
+					}
+					results.add(plan.getPlanElements());
+				});
+				threads[t].start();
+			}
+			for (Thread thread : threads) {
+				thread.join();
+			}
+			Assert.assertEquals(threadCount, results.size());
+			for (List<PlanElement> planElements : results) {
+				Assert.assertSame("all threads must see the same decoded plan elements", results.get(0), planElements);
+				Assert.assertEquals(3, planElements.size());
+			}
+		}
+	}
+
+	@Test
+	public void testCompactUnselectedPlans_unsupportedAttribute() {
+		Person person = PopulationUtils.getFactory().createPerson(Id.create(1, Person.class));
+		Plan selected = PersonUtils.createAndAddPlan(person, true);
+		PopulationUtils.createAndAddActivityFromCoord(selected, "h", new Coord(0, 0));
+		Plan plain = PersonUtils.createAndAddPlan(person, false);
+		PopulationUtils.createAndAddActivityFromCoord(plain, "h", new Coord(0, 0));
+		Plan special = PersonUtils.createAndAddPlan(person, false);
+		Activity act = PopulationUtils.createAndAddActivityFromCoord(special, "h", new Coord(0, 0));
+		act.getAttributes().putAttribute("coord", new Coord(1, 2));
+
+		Assert.assertEquals(1, PersonUtils.compactUnselectedPlans(person, PopulationUtils.createPopulation(ConfigUtils.createConfig())));
+		Assert.assertTrue(((PlanImpl) plain).isCompact());
+		Assert.assertFalse(((PlanImpl) special).isCompact());
+		Assert.assertFalse(((PlanImpl) selected).isCompact());
+	}
+
+	/**
+	 * Decoding creates new plan elements, and each population has its own dictionary.
+	 */
+	@Test
+	public void testCompactUnselectedPlans_decodedElementsAreNew() {
+		Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+		Person person = population.getFactory().createPerson(Id.create(1, Person.class));
+		PersonUtils.createAndAddPlan(person, true);
+		Plan plan = PersonUtils.createAndAddPlan(person, false);
+		Activity home = PopulationUtils.createAndAddActivityFromCoord(plan, "h", new Coord(0, 0));
+		population.addPerson(person);
+
+		Assert.assertEquals(1, PopulationUtils.compactUnselectedPlans(population, 1));
+		Activity decoded = (Activity) plan.getPlanElements().get(0);
+		Assert.assertNotSame(home, decoded);
+		Assert.assertEquals(home.getType(), decoded.getType());
+
+		Population other = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+		Assert.assertSame(CompactPlanElements.getDictionary(population), CompactPlanElements.getDictionary(population));
+		Assert.assertNotSame(CompactPlanElements.getDictionary(population), CompactPlanElements.getDictionary(other));
+	}
+
+	/**
+	 * Measures the heap used by the unselected plans before and after compacting them, for plans with 4 activities and
+	 * 3 car legs with routes of 20 links each. The plan elements are expected to need 3 to 5 times the memory of their
+	 * encoding.
+	 */
+	@Test
+	public void testCompactUnselectedPlans_footprint() {
+		Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+		PopulationFactory pf = population.getFactory();
+		String[] types = { "home", "work", "shop", "home" };
+		for (int i = 0; i < 2000; i++) {
+			Person person = pf.createPerson(Id.create(i, Person.class));
+			for (int p = 0; p < 5; p++) {
+				Plan plan = pf.createPlan();
+				plan.setScore(100.0 + p);
+				for (int a = 0; a < types.length; a++) {
+					if (a > 0) {
+						Leg leg = pf.createLeg(TransportMode.car);
+						leg.setDepartureTime(7 * 3600 + a * 3600 + i);
+						leg.setTravelTime(900);
+						TripStructureUtils.setRoutingMode(leg, TransportMode.car);
+						List<Id<Link>> linkIds = new ArrayList<>();
+						for (int l = 0; l < 20; l++) {
+							linkIds.add(Id.create((i * 7 + p * 13 + a * 31 + l) % 5000, Link.class));
+						}
+						NetworkRoute route = RouteUtils.createLinkNetworkRouteImpl(Id.create("s" + a, Link.class), linkIds, Id.create("e" + a, Link.class));
+						route.setDistance(5000 + i);
+						route.setTravelTime(900);
+						route.setVehicleId(Id.create(i, Vehicle.class));
+						leg.setRoute(route);
+						plan.addLeg(leg);
+					}
+					Activity act = pf.createActivityFromCoord(types[a], new Coord(i * 10 + a, p * 10 + a));
+					act.setLinkId(Id.create("e" + a, Link.class));
+					if (a < types.length - 1) {
+						act.setEndTime(8 * 3600 + a * 3600 + i);
+					}
+					plan.addActivity(act);
+				}
+				person.addPlan(plan);
+			}
+			person.setSelectedPlan(person.getPlans().get(0));
+			population.addPerson(person);
+		}
+
+		long before = usedHeap();
+		Assert.assertEquals(2000 * 4, PopulationUtils.compactUnselectedPlans(population, 1));
+		long after = usedHeap();
+
+		long encodedBytes = 0;
+		for (Person person : population.getPersons().values()) {
+			for (Plan plan : person.getPlans()) {
+				// the byte array and the CompactPlanElements object add another 40 bytes
+				encodedBytes += ((PlanImpl) plan).isCompact() ? ((PlanImpl) plan).getCompactSize() + 40 : 0;
+			}
+		}
+		long objectBytes = before - after + encodedBytes;
+		double ratio = (double) objectBytes / encodedBytes;
+		log.info("plan elements: " + objectBytes + " bytes, encoded: " + encodedBytes + " bytes, ratio " + ratio);
+		Assert.assertTrue("the encoded plan elements should need at most a third of the memory, ratio is " + ratio, ratio >= 3);
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		long used = Long.MAX_VALUE;
+		for (int i = 0; i < 5; i++) {
+			System.gc();
+			used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+		}
+		return used;
+	}
 }
@@ -0,0 +1,155 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.GenericRouteImpl;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.vehicles.Vehicle;
+
+import java.util.List;
+
+public class BinaryPopulationIOTest {
+
+	@Rule
+	public final MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testWriteAndRead() {
+		Population population = createPopulation();
+		String filename = this.utils.getOutputDirectory() + "population.bin";
+		new BinaryPopulationWriter(population).write(filename);
+
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new BinaryPopulationReader(scenario).readFile(filename);
+
+		Assert.assertEquals("binary", scenario.getPopulation().getAttributes().getAttribute("name"));
+		Assert.assertEquals(population.getPersons().size(), scenario.getPopulation().getPersons().size());
+		Assert.assertTrue(PopulationUtils.equalPopulation(population, scenario.getPopulation()));
+
+		Person person = scenario.getPopulation().getPersons().get(Id.create("6", Person.class));
+		Assert.assertEquals(6, person.getAttributes().getAttribute("index"));
+		Activity home = (Activity) person.getSelectedPlan().getPlanElements().get(0);
+		Assert.assertEquals(100.0, home.getCoord().getZ(), 0.0);
+		Assert.assertEquals(Id.create("f6", ActivityFacility.class), home.getFacilityId());
+		Assert.assertTrue(home.getStartTime().isUndefined());
+		NetworkRoute route = (NetworkRoute) ((Leg) person.getSelectedPlan().getPlanElements().get(1)).getRoute();
+		Assert.assertEquals(Id.create("v6", Vehicle.class), route.getVehicleId());
+		Assert.assertEquals(3, route.getLinkIds().size());
+	}
+
+	@Test
+	public void testLazyAccess() {
+		Population population = createPopulation();
+		String filename = this.utils.getOutputDirectory() + "population.bin";
+		new BinaryPopulationWriter(population).write(filename);
+
+		BinaryPopulationFile file = BinaryPopulationFile.open(filename);
+		Assert.assertEquals(population.getPersons().size(), file.getPersonCount());
+		Assert.assertEquals(-1, file.getPersonIndex(Id.create("unknown", Person.class)));
+
+		for (Person person : population.getPersons().values()) {
+			int index = file.getPersonIndex(person.getId());
+			Assert.assertEquals(person.getId(), file.getPersonId(index));
+			Assert.assertEquals(person.getPlans().size(), file.getPlanCount(index));
+			Assert.assertEquals(person.getAttributes().getAttribute("index"), file.getPersonAttribute(index, "index"));
+
+			// column access to the selected plan, without creating the person
+			int selectedPlan = file.getSelectedPlan(index);
+			Double score = person.getSelectedPlan().getScore();
+			Assert.assertEquals(score == null ? Double.NaN : score, file.getPlanScore(selectedPlan), 0.0);
+			List<Leg> legs = PopulationUtils.getLegs(person.getSelectedPlan());
+			int firstElement = file.getFirstPlanElement(selectedPlan);
+			Assert.assertEquals(person.getSelectedPlan().getPlanElements().size(), file.getPlanElementCount(selectedPlan));
+			Assert.assertTrue(file.isActivity(firstElement));
+			Assert.assertEquals("home", file.getActivityType(firstElement));
+			Assert.assertTrue(file.isLeg(firstElement + 1));
+			Assert.assertEquals(legs.get(0).getMode(), file.getLegMode(firstElement + 1));
+			Assert.assertEquals(legs.get(0).getRoute().getDistance(), file.getLegDistance(firstElement + 1), 0.0);
+
+			Person materialized = file.getPerson(index, population.getFactory());
+			Assert.assertEquals(person.getPlans().indexOf(person.getSelectedPlan()), materialized.getPlans().indexOf(materialized.getSelectedPlan()));
+		}
+	}
+
+	private static Population createPopulation() {
+		Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+		PopulationFactory pf = population.getFactory();
+		population.getAttributes().putAttribute("name", "binary");
+		for (int i = 0; i < 50; i++) {
+			Person person = pf.createPerson(Id.create(i, Person.class));
+			person.getAttributes().putAttribute("index", i);
+			for (int p = 0; p < 1 + i % 3; p++) {
+				Plan plan = pf.createPlan();
+				if (p > 0) {
+					plan.setScore(i + 0.5 * p);
+				}
+				plan.setType(p == 0 ? null : "type" + p);
+				Activity home = pf.createActivityFromCoord("home", new Coord(i, p, 100));
+				home.setFacilityId(Id.create("f" + i, ActivityFacility.class));
+				home.setEndTime(8 * 3600 + i);
+				plan.addActivity(home);
+				Leg leg = pf.createLeg(p == 0 ? "car" : "walk");
+				leg.setDepartureTime(8 * 3600 + i);
+				leg.getAttributes().putAttribute("p", p);
+				if (p == 0) {
+					NetworkRoute route = RouteUtils.createLinkNetworkRouteImpl(Id.create("a", Link.class),
+							List.of(Id.create("b", Link.class), Id.create("c", Link.class), Id.create("d" + i, Link.class)), Id.create("e", Link.class));
+					route.setVehicleId(Id.create("v" + i, Vehicle.class));
+					route.setDistance(1000 + i);
+					route.setTravelTime(300);
+					leg.setRoute(route);
+				} else {
+					GenericRouteImpl route = new GenericRouteImpl(Id.create("a" + i, Link.class), Id.create("b" + p, Link.class));
+					route.setRouteDescription("route " + i);
+					route.setDistance(500);
+					leg.setRoute(route);
+				}
+				plan.addLeg(leg);
+				Activity work = pf.createActivityFromLinkId("work", Id.create("b" + p, Link.class));
+				work.setStartTime(9 * 3600);
+				work.setMaximumDuration(8 * 3600);
+				plan.addActivity(work);
+				person.addPlan(plan);
+			}
+			person.setSelectedPlan(person.getPlans().get(person.getPlans().size() - 1));
+			population.addPerson(person);
+		}
+		return population;
+	}
+}
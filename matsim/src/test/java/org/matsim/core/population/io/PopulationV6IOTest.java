@@ -321,4 +321,46 @@ public class PopulationV6IOTest {
 
 		Assert.assertEquals(route.getRouteDescription(), ((Leg) scenario.getPopulation().getPersons().get(person1.getId()).getSelectedPlan().getPlanElements().get(1)).getRoute().getRouteDescription());
 	}
+
+	@Test
+	public void testParallelReading() {
+		Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+		PopulationFactory pf = population.getFactory();
+		population.getAttributes().putAttribute("name", "parallel");
+		for (int i = 0; i < 1234; i++) {
+			Person person = pf.createPerson(Id.create(1234 - i, Person.class));
+			person.getAttributes().putAttribute("index", i);
+			for (int p = 0; p < 1 + i % 3; p++) {
+				Plan plan = pf.createPlan();
+				plan.setScore((double) p);
+				Activity home = pf.createActivityFromCoord("home", new Coord(i, p));
+				home.setEndTime(8 * 3600 + i);
+				plan.addActivity(home);
+				Leg leg = pf.createLeg("walk");
+				leg.getAttributes().putAttribute("p", p);
+				GenericRouteImpl route = new GenericRouteImpl(Id.create("a" + i, Link.class), Id.create("b" + p, Link.class));
+				route.setRouteDescription("route " + i);
+				leg.setRoute(route);
+				plan.addLeg(leg);
+				plan.addActivity(pf.createActivityFromLinkId("work", Id.create("b" + p, Link.class)));
+				person.addPlan(plan);
+			}
+			population.addPerson(person);
+		}
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new PopulationWriter(population).write(out);
+
+		Scenario sequential = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		sequential.getConfig().global().setNumberOfThreads(1);
+		new PopulationReader(sequential).parse(new ByteArrayInputStream(out.toByteArray()));
+
+		Scenario parallel = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		parallel.getConfig().global().setNumberOfThreads(4);
+		new PopulationReader(parallel).parse(new ByteArrayInputStream(out.toByteArray()));
+
+		Assert.assertEquals("parallel", parallel.getPopulation().getAttributes().getAttribute("name"));
+		Assert.assertArrayEquals("order of persons changed.", sequential.getPopulation().getPersons().keySet().toArray(), parallel.getPopulation().getPersons().keySet().toArray());
+		Assert.assertTrue(PopulationUtils.equalPopulation(population, parallel.getPopulation()));
+	}
 }
@@ -23,11 +23,21 @@ package org.matsim.core.replanning.modules;
 import org.apache.log4j.Logger;
 import org.junit.Assert;
 import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PopulationFactory;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.config.groups.GlobalConfigGroup.PlanScheduling;
+import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 /**
  * @author mrieser
  */
@@ -60,6 +70,56 @@ public class AbstractMultithreadedModuleTest {
 
 	}
 
+	@Test
+	public void testDynamicSchedulingIsReproducible() {
+		List<Plan> plans1 = createPlans(100);
+		List<Plan> plans4 = createPlans(100);
+		runRandomScoring(1, plans1);
+		runRandomScoring(4, plans4);
+		for (int i = 0; i < plans1.size(); i++) {
+			Assert.assertNotNull(plans1.get(i).getScore());
+			Assert.assertEquals(plans1.get(i).getScore(), plans4.get(i).getScore());
+		}
+		Assert.assertNotEquals(plans1.get(0).getScore(), plans1.get(1).getScore());
+	}
+
+	@Test
+	public void testDynamicSchedulingSeedsUseWholeId() {
+		// "Aa" and "BB" have the same String.hashCode()
+		PopulationFactory factory = PopulationUtils.getFactory();
+		List<Plan> plans = new ArrayList<>();
+		for (String id : new String[] {"Aa", "BB"}) {
+			Person person = factory.createPerson(Id.create(id, Person.class));
+			Plan plan = factory.createPlan();
+			person.addPlan(plan);
+			plans.add(plan);
+		}
+		runRandomScoring(2, plans);
+		Assert.assertNotEquals(plans.get(0).getScore(), plans.get(1).getScore());
+	}
+
+	private static List<Plan> createPlans(int count) {
+		PopulationFactory factory = PopulationUtils.getFactory();
+		List<Plan> plans = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			Person person = factory.createPerson(Id.create(i, Person.class));
+			Plan plan = factory.createPlan();
+			person.addPlan(plan);
+			plans.add(plan);
+		}
+		return plans;
+	}
+
+	private static void runRandomScoring(int nOfThreads, List<Plan> plans) {
+		MatsimRandom.reset();
+		RandomScoringModule testee = new RandomScoringModule(nOfThreads);
+		testee.prepareReplanning(null);
+		for (Plan plan : plans) {
+			testee.handlePlan(plan);
+		}
+		testee.finishReplanning();
+	}
+
 	private static class DummyAbstractMultithreadedModule extends AbstractMultithreadedModule {
 		public DummyAbstractMultithreadedModule(GlobalConfigGroup globalConfigGroup) {
 			super(globalConfigGroup);
@@ -80,6 +140,17 @@ public class AbstractMultithreadedModuleTest {
 		}
 	}
 
+	private static class RandomScoringModule extends AbstractMultithreadedModule {
+		public RandomScoringModule(final int nOfThreads) {
+			super(nOfThreads, PlanScheduling.dynamic);
+		}
+		@Override
+		public PlanAlgorithm getPlanAlgoInstance() {
+			Random random = MatsimRandom.getLocalInstance();
+			return plan -> plan.setScore(random.nextDouble());
+		}
+	}
+
 	private static class CrashingPlanAlgo implements PlanAlgorithm {
 		@Override
 		public void run(Plan plan) {
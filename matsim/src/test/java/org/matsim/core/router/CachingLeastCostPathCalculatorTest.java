@@ -0,0 +1,111 @@
+package org.matsim.core.router;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutility;
+import org.matsim.core.router.speedy.SpeedyDijkstra;
+import org.matsim.core.router.speedy.SpeedyGraph;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class CachingLeastCostPathCalculatorTest {
+
+	@Test
+	public void testHitsAndInvalidation() {
+		// two routes from 1 to 4: via 2 (links a, b) and via 3 (links c, d)
+		Network network = NetworkUtils.createNetwork();
+		Node n1 = NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord(0, 0));
+		Node n2 = NetworkUtils.createAndAddNode(network, Id.create("2", Node.class), new Coord(100, 100));
+		Node n3 = NetworkUtils.createAndAddNode(network, Id.create("3", Node.class), new Coord(100, -100));
+		Node n4 = NetworkUtils.createAndAddNode(network, Id.create("4", Node.class), new Coord(200, 0));
+		Link a = NetworkUtils.createAndAddLink(network, Id.create("a", Link.class), n1, n2, 100, 10, 1000, 1);
+		Link b = NetworkUtils.createAndAddLink(network, Id.create("b", Link.class), n2, n4, 100, 10, 1000, 1);
+		NetworkUtils.createAndAddLink(network, Id.create("c", Link.class), n1, n3, 100, 10, 1000, 1);
+		NetworkUtils.createAndAddLink(network, Id.create("d", Link.class), n3, n4, 100, 10, 1000, 1);
+
+		Map<Link, Double> travelTimes = new HashMap<>();
+		for (Link link : network.getLinks().values()) {
+			travelTimes.put(link, 100.0);
+		}
+		travelTimes.put(a, 50.0);
+		TravelTime tt = (link, time, person, vehicle) -> travelTimes.get(link);
+		TravelDisutility td = new OnlyTimeDependentTravelDisutility(tt);
+		SpeedyDijkstra dijkstra = new SpeedyDijkstra(new SpeedyGraph(network), tt, td);
+		int[] calls = { 0 };
+		LeastCostPathCalculator counting = (fromNode, toNode, starttime, person, vehicle) -> {
+			calls[0]++;
+			return dijkstra.calcLeastCostPath(fromNode, toNode, starttime, person, vehicle);
+		};
+
+		RouteCache cache = new RouteCache(10, 0.1);
+		CachingLeastCostPathCalculator router = new CachingLeastCostPathCalculator(counting, cache, "car", tt, td, 900);
+
+		Path path = router.calcLeastCostPath(n1, n4, 8 * 3600, null, null);
+		Assert.assertEquals(a, path.links.get(0));
+		Assert.assertEquals(1, calls[0]);
+
+		// same time bin: re-used
+		path = router.calcLeastCostPath(n1, n4, 8 * 3600 + 100, null, null);
+		Assert.assertEquals(a, path.links.get(0));
+		Assert.assertEquals(150.0, path.travelTime, 1e-8);
+		Assert.assertEquals(1, calls[0]);
+
+		// other time bin: calculated
+		router.calcLeastCostPath(n1, n4, 9 * 3600, null, null);
+		Assert.assertEquals(2, calls[0]);
+
+		// small change: re-used, but with the new travel time
+		travelTimes.put(b, 110.0);
+		path = router.calcLeastCostPath(n1, n4, 8 * 3600, null, null);
+		Assert.assertEquals(160.0, path.travelTime, 1e-8);
+		Assert.assertEquals(2, calls[0]);
+
+		// large change: calculated again
+		travelTimes.put(a, 150.0);
+		path = router.calcLeastCostPath(n1, n4, 8 * 3600, null, null);
+		Assert.assertEquals(3, calls[0]);
+		Assert.assertEquals("c", path.links.get(0).getId().toString());
+
+		long[] stats = cache.getAndResetStats();
+		Assert.assertEquals(2, stats[0]); // hits
+		Assert.assertEquals(3, stats[1]); // misses
+		Assert.assertEquals(1, stats[2]); // invalidations
+		Assert.assertEquals(2, cache.size());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedIsDropped() {
+		Network network = NetworkUtils.createNetwork();
+		Node n1 = NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord(0, 0));
+		Node n2 = NetworkUtils.createAndAddNode(network, Id.create("2", Node.class), new Coord(100, 0));
+		NetworkUtils.createAndAddLink(network, Id.create("a", Link.class), n1, n2, 100, 10, 1000, 1);
+		NetworkUtils.createAndAddLink(network, Id.create("b", Link.class), n2, n1, 100, 10, 1000, 1);
+		TravelTime tt = (link, time, person, vehicle) -> 10.0;
+		TravelDisutility td = new OnlyTimeDependentTravelDisutility(tt);
+		RouteCache cache = new RouteCache(2, 0.1);
+		CachingLeastCostPathCalculator router = new CachingLeastCostPathCalculator(new SpeedyDijkstra(new SpeedyGraph(network), tt, td), cache, "car", tt, td, 900);
+
+		router.calcLeastCostPath(n1, n2, 0, null, null);
+		router.calcLeastCostPath(n2, n1, 0, null, null);
+		router.calcLeastCostPath(n1, n2, 0, null, null); // hit, n2->n1 is now the least recently used
+		router.calcLeastCostPath(n1, n2, 3600, null, null);
+		Assert.assertEquals(2, cache.size());
+		router.calcLeastCostPath(n1, n2, 0, null, null);
+		router.calcLeastCostPath(n2, n1, 0, null, null);
+
+		long[] stats = cache.getAndResetStats();
+		Assert.assertEquals(2, stats[0]);
+		Assert.assertEquals(4, stats[1]);
+	}
+}
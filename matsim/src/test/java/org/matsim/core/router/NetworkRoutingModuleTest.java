@@ -19,6 +19,7 @@
 
 package org.matsim.core.router;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.junit.Assert;
@@ -40,6 +41,8 @@ import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.routes.NetworkRoute;
 import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
 import org.matsim.core.router.costcalculators.RandomizingTimeDistanceTravelDisutilityFactory;
+import org.matsim.core.router.speedy.ManyToManyPathCalculator;
+import org.matsim.core.router.speedy.SpeedyGraph;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.core.router.util.TravelDisutility;
 import org.matsim.core.router.util.TravelTime;
@@ -76,6 +79,44 @@ public class NetworkRoutingModuleTest {
 		Assert.assertTrue(leg.getRoute() instanceof NetworkRoute);
 	}
 
+	@Test
+	public void testCalcRoutes() {
+		Fixture f = new Fixture();
+		FreespeedTravelTimeAndDisutility freespeed = new FreespeedTravelTimeAndDisutility(-6.0/3600, +6.0/3600, 0.0);
+		LeastCostPathCalculator routeAlgo = new Dijkstra(f.s.getNetwork(), freespeed, freespeed);
+		ManyToManyPathCalculator batchRouteAlgo = new ManyToManyPathCalculator(new SpeedyGraph(f.s.getNetwork()), freespeed, freespeed, 900);
+
+		final NetworkRoutingModule routingModule = new NetworkRoutingModule(
+				TransportMode.car,
+				f.s.getPopulation().getFactory(),
+				f.s.getNetwork(),
+				routeAlgo,
+				batchRouteAlgo);
+
+		List<RoutingRequest> requests = new ArrayList<>();
+		String[][] odLinks = { {"1", "3"}, {"1", "3"}, {"1", "1"}, {"1", "2"} };
+		for (int i = 0; i < odLinks.length; i++) {
+			Person person = PopulationUtils.getFactory().createPerson(Id.create(i, Person.class));
+			Activity fromAct = PopulationUtils.createActivityFromCoord("h", new Coord(0, 0));
+			fromAct.setLinkId(Id.create(odLinks[i][0], Link.class));
+			Activity toAct = PopulationUtils.createActivityFromCoord("h", new Coord(0, 3000));
+			toAct.setLinkId(Id.create(odLinks[i][1], Link.class));
+			requests.add(DefaultRoutingRequest.withoutAttributes(FacilitiesUtils.toFacility(fromAct, f.s.getActivityFacilities()),
+					FacilitiesUtils.toFacility(toAct, f.s.getActivityFacilities()), 7.0*3600 + i * 60, person));
+		}
+
+		List<List<? extends PlanElement>> results = routingModule.calcRoutes(requests);
+		Assert.assertEquals(requests.size(), results.size());
+		for (int i = 0; i < requests.size(); i++) {
+			Leg expected = (Leg) routingModule.calcRoute(requests.get(i)).get(0);
+			Assert.assertEquals(1, results.get(i).size());
+			Leg leg = (Leg) results.get(i).get(0);
+			Assert.assertEquals(expected.getDepartureTime().seconds(), leg.getDepartureTime().seconds(), 1e-8);
+			Assert.assertEquals(expected.getTravelTime().seconds(), leg.getTravelTime().seconds(), 1e-8);
+			Assert.assertEquals(((NetworkRoute) expected.getRoute()).getLinkIds(), ((NetworkRoute) leg.getRoute()).getLinkIds());
+		}
+	}
+
 	@Test
 	public void testRouteLegWithDistance() {
 		Fixture f = new Fixture();
@@ -27,18 +27,23 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.PlanElement;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.config.groups.PlansCalcRouteConfigGroup;
+import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.controler.AbstractModule;
 import org.matsim.core.controler.Injector;
+import org.matsim.core.controler.OutputDirectoryHierarchy;
 import org.matsim.core.population.routes.NetworkRoute;
 import org.matsim.core.router.*;
 import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
 import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutilityFactory;
+import org.matsim.core.router.costcalculators.RandomizingTimeDistanceTravelDisutilityFactory;
+import org.matsim.core.router.util.TravelTime;
 import org.matsim.core.scenario.ScenarioByInstanceModule;
 import org.matsim.core.scenario.ScenarioUtils;
 import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
@@ -50,8 +55,11 @@ import org.matsim.facilities.Facility;
 import org.matsim.testcases.MatsimTestUtils;
 import org.matsim.vehicles.Vehicle;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 public class PlanRouterTest {
 
@@ -147,4 +155,80 @@ public class PlanRouterTest {
 
     }
 
-}
\ No newline at end of file
+
+    @Test
+    public void batchedRoutingSharesTrees() {
+        // the default routing config, only without randomness, as then the travel disutility would differ per person
+        List<Plan> sequential = new ArrayList<>();
+        AtomicInteger sequentialCalls = new AtomicInteger();
+        routeEquil(config -> config.plansCalcRoute().setRoutingRandomness(0), sequential, sequentialCalls);
+        List<Plan> batched = new ArrayList<>();
+        AtomicInteger batchedCalls = new AtomicInteger();
+        routeEquil(config -> {
+            config.plansCalcRoute().setRoutingRandomness(0);
+            config.plansCalcRoute().setBatchedRoutingTimeBinSize(900);
+        }, batched, batchedCalls);
+
+        // all persons leave home at almost the same time, so their first trips share a tree
+        Assert.assertTrue("batched: " + batchedCalls + ", sequential: " + sequentialCalls, batchedCalls.get() * 2 < sequentialCalls.get());
+        Assert.assertEquals(sequential.size(), batched.size());
+        for (int i = 0; i < sequential.size(); i++) {
+            List<Leg> expected = TripStructureUtils.getLegs(sequential.get(i));
+            List<Leg> actual = TripStructureUtils.getLegs(batched.get(i));
+            Assert.assertEquals(expected.size(), actual.size());
+            for (int l = 0; l < expected.size(); l++) {
+                // the equil network has several least cost paths, so only compare the costs
+                Assert.assertEquals(((NetworkRoute) expected.get(l).getRoute()).getTravelCost(), ((NetworkRoute) actual.get(l).getRoute()).getTravelCost(), 1e-8);
+                Assert.assertEquals(expected.get(l).getDepartureTime().seconds(), actual.get(l).getDepartureTime().seconds(), 1e-8);
+            }
+        }
+    }
+
+    @Test
+    public void routeCacheIsNotUsedWithRandomness() {
+        com.google.inject.Injector withRandomness = routeEquil(config -> config.plansCalcRoute().setRouteCacheSize(1000),
+                new ArrayList<>(), new AtomicInteger());
+        Assert.assertEquals(0, withRandomness.getInstance(RouteCache.class).size());
+
+        com.google.inject.Injector withoutRandomness = routeEquil(config -> {
+            config.plansCalcRoute().setRouteCacheSize(1000);
+            config.plansCalcRoute().setRoutingRandomness(0);
+        }, new ArrayList<>(), new AtomicInteger());
+        Assert.assertTrue(withoutRandomness.getInstance(RouteCache.class).size() > 0);
+    }
+
+    /**
+     * Routes the selected plans of the equil scenario and counts the travel time requests needed for that.
+     */
+    private com.google.inject.Injector routeEquil(Consumer<Config> configure, List<Plan> plans, AtomicInteger calls) {
+        final Config config = ConfigUtils.loadConfig(IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("equil"), "config.xml"));
+        config.plans().setInputFile("plans100.xml");
+        configure.accept(config);
+        final Scenario scenario = ScenarioUtils.loadScenario(config);
+        FreeSpeedTravelTime freespeed = new FreeSpeedTravelTime();
+        TravelTime countingTravelTime = (link, time, person, vehicle) -> {
+            calls.incrementAndGet();
+            return freespeed.getLinkTravelTime(link, time, person, vehicle);
+        };
+        com.google.inject.Injector injector = Injector.createInjector(scenario.getConfig(), new AbstractModule() {
+            @Override
+            public void install() {
+                install(new TripRouterModule());
+                install(new ScenarioByInstanceModule(scenario));
+                install(new TimeInterpretationModule());
+                addTravelTimeBinding("car").toInstance(countingTravelTime);
+                addTravelDisutilityFactoryBinding("car").toInstance(new RandomizingTimeDistanceTravelDisutilityFactory("car", config));
+                // for the statistics of the route cache
+                bind(OutputDirectoryHierarchy.class).toInstance(new OutputDirectoryHierarchy(utils.getOutputDirectory(),
+                        OutputDirectoryHierarchy.OverwriteFileSetting.overwriteExistingFiles, ControlerConfigGroup.CompressionType.none));
+            }
+        });
+        PlanRouter testee = new PlanRouter(injector.getInstance(TripRouter.class), TimeInterpretation.create(config));
+        for (Person person : scenario.getPopulation().getPersons().values()) {
+            plans.add(person.getSelectedPlan());
+        }
+        calls.set(0);
+        testee.run(plans);
+        return injector;
+    }
+}
@@ -0,0 +1,102 @@
+package org.matsim.core.router.speedy;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+
+import java.util.Random;
+
+public class LeastCostPathTreeTest {
+
+	@Test
+	public void testCalculateToTargets() {
+		Network network = NetworkUtils.createNetwork();
+		int size = 12;
+		Node[][] nodes = new Node[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.create(x + "_" + y, Node.class), new Coord(x * 100, y * 100));
+			}
+		}
+		Random random = new Random(42);
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if (x + 1 < size) {
+					addLinks(network, nodes[x][y], nodes[x + 1][y], random);
+				}
+				if (y + 1 < size) {
+					addLinks(network, nodes[x][y], nodes[x][y + 1], random);
+				}
+			}
+		}
+		FreespeedTravelTimeAndDisutility tc = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		SpeedyGraph graph = new SpeedyGraph(network);
+		SpeedyALTData altData = new SpeedyALTData(graph, 4, tc);
+		LeastCostPathTree fullTree = new LeastCostPathTree(graph, tc, tc);
+		LeastCostPathTree targetTree = new LeastCostPathTree(graph, tc, tc);
+		LeastCostPathTree altTree = new LeastCostPathTree(graph, tc, tc);
+
+		Node[] allNodes = network.getNodes().values().toArray(new Node[0]);
+		for (int i = 0; i < 100; i++) {
+			int start = allNodes[random.nextInt(allNodes.length)].getId().index();
+			int[] targets = new int[1 + random.nextInt(3)];
+			for (int t = 0; t < targets.length; t++) {
+				targets[t] = allNodes[random.nextInt(allNodes.length)].getId().index();
+			}
+			boolean forward = i % 2 == 0;
+			if (forward) {
+				fullTree.calculate(start, 8 * 3600, null, null);
+				targetTree.calculateToTargets(start, 8 * 3600, null, null, targets, null, null);
+				altTree.calculateToTargets(start, 8 * 3600, null, null, targets, altData, null);
+			} else {
+				fullTree.calculateBackwards(start, 8 * 3600, null, null);
+				targetTree.calculateBackwardsToTargets(start, 8 * 3600, null, null, targets, null, null);
+				altTree.calculateBackwardsToTargets(start, 8 * 3600, null, null, targets, altData, null);
+			}
+			for (int target : targets) {
+				Assert.assertEquals(fullTree.getCost(target), targetTree.getCost(target), 1e-6);
+				Assert.assertEquals(fullTree.getCost(target), altTree.getCost(target), 1e-6);
+				Assert.assertEquals(fullTree.getTime(target).seconds(), altTree.getTime(target).seconds(), 1e-6);
+				Assert.assertEquals(fullTree.getDistance(target), altTree.getDistance(target), 1e-6);
+			}
+		}
+	}
+
+	@Test
+	public void testCalculateToTargets_stopsAtTargets() {
+		Network network = NetworkUtils.createNetwork();
+		Node[] nodes = new Node[10];
+		for (int i = 0; i < nodes.length; i++) {
+			nodes[i] = NetworkUtils.createAndAddNode(network, Id.create(i, Node.class), new Coord(i * 100, 0));
+			if (i > 0) {
+				addLinks(network, nodes[i - 1], nodes[i], new Random(i));
+			}
+		}
+		FreespeedTravelTimeAndDisutility tc = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		SpeedyGraph graph = new SpeedyGraph(network);
+		LeastCostPathTree tree = new LeastCostPathTree(graph, tc, tc);
+
+		int start = nodes[0].getId().index();
+		tree.calculateToTargets(start, 0, null, null, new int[] { nodes[3].getId().index() }, null, null);
+		Assert.assertTrue(tree.getTime(nodes[3].getId().index()).isDefined());
+		Assert.assertTrue("node 3 was expanded", tree.getTime(nodes[4].getId().index()).isUndefined());
+
+		// the targets must be forgotten for the next calculation
+		tree.calculateToTargets(start, 0, null, null, new int[] { nodes[6].getId().index() }, null, null);
+		Assert.assertTrue(tree.getTime(nodes[6].getId().index()).isDefined());
+		Assert.assertTrue(tree.getTime(nodes[7].getId().index()).isUndefined());
+	}
+
+	private static void addLinks(Network network, Node a, Node b, Random random) {
+		double freespeed = 5 + random.nextInt(20);
+		NetworkUtils.createAndAddLink(network, Id.create(a.getId() + "-" + b.getId(), Link.class), a, b, 100, freespeed, 1000, 1);
+		NetworkUtils.createAndAddLink(network, Id.create(b.getId() + "-" + a.getId(), Link.class), b, a, 100, freespeed, 1000, 1);
+	}
+}
@@ -0,0 +1,135 @@
+package org.matsim.core.router.speedy;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.costcalculators.RandomizingTimeDistanceTravelDisutilityFactory;
+import org.matsim.core.router.speedy.ManyToManyPathCalculator.PathRequest;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class ManyToManyPathCalculatorTest {
+
+	@Test
+	public void testSameCostsAsDijkstra() {
+		Network network = NetworkUtils.createNetwork();
+		int size = 10;
+		Node[][] nodes = new Node[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.create(x + "_" + y, Node.class), new Coord(x * 100, y * 100));
+			}
+		}
+		Random random = new Random(42);
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if (x + 1 < size) {
+					addLinks(network, nodes[x][y], nodes[x + 1][y], random);
+				}
+				if (y + 1 < size) {
+					addLinks(network, nodes[x][y], nodes[x][y + 1], random);
+				}
+			}
+		}
+		FreespeedTravelTimeAndDisutility tc = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		SpeedyGraph graph = new SpeedyGraph(network);
+		SpeedyDijkstra dijkstra = new SpeedyDijkstra(graph, tc, tc);
+		ManyToManyPathCalculator calculator = new ManyToManyPathCalculator(graph, tc, tc, 900);
+
+		// few origins and departure times, so most requests share a tree
+		Node[] allNodes = network.getNodes().values().toArray(new Node[0]);
+		List<PathRequest> requests = new ArrayList<>();
+		List<Path> expected = new ArrayList<>();
+		for (int i = 0; i < 300; i++) {
+			Node from = allNodes[random.nextInt(5)];
+			Node to = allNodes[random.nextInt(allNodes.length)];
+			double departure = 7 * 3600 + random.nextInt(2 * 3600);
+			requests.add(new PathRequest(from, to, departure, null, null));
+			expected.add(dijkstra.calcLeastCostPath(from, to, departure, null, null));
+		}
+
+		List<Path> actual = calculator.calcLeastCostPaths(requests);
+		Assert.assertEquals(requests.size(), actual.size());
+		for (int i = 0; i < requests.size(); i++) {
+			Path path = actual.get(i);
+			Assert.assertEquals(expected.get(i).getFromNode(), path.getFromNode());
+			Assert.assertEquals(expected.get(i).getToNode(), path.getToNode());
+			for (int l = 0; l < path.links.size(); l++) {
+				Assert.assertEquals(path.nodes.get(l), path.links.get(l).getFromNode());
+				Assert.assertEquals(path.nodes.get(l + 1), path.links.get(l).getToNode());
+			}
+			Assert.assertEquals(expected.get(i).travelCost, path.travelCost, 1e-6);
+			Assert.assertEquals(expected.get(i).travelTime, path.travelTime, 1e-6);
+		}
+	}
+
+	@Test
+	public void testRandomizedDisutility() {
+		Network network = NetworkUtils.createNetwork();
+		int size = 10;
+		Node[][] nodes = new Node[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.create(x + "_" + y, Node.class), new Coord(x * 100, y * 100));
+			}
+		}
+		Random random = new Random(42);
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if (x + 1 < size) {
+					addLinks(network, nodes[x][y], nodes[x + 1][y], random);
+				}
+				if (y + 1 < size) {
+					addLinks(network, nodes[x][y], nodes[x][y + 1], random);
+				}
+			}
+		}
+		// routingRandomness is 3 by default, so the disutility requires a person
+		Config config = ConfigUtils.createConfig();
+		FreeSpeedTravelTime tt = new FreeSpeedTravelTime();
+		TravelDisutility td = new RandomizingTimeDistanceTravelDisutilityFactory(TransportMode.car, config).createTravelDisutility(tt);
+		ManyToManyPathCalculator calculator = new ManyToManyPathCalculator(new SpeedyGraph(network), tt, td, 900, true);
+
+		Node[] allNodes = network.getNodes().values().toArray(new Node[0]);
+		List<PathRequest> requests = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			Person person = PopulationUtils.getFactory().createPerson(Id.create(i % 10, Person.class));
+			Node from = allNodes[random.nextInt(3)];
+			Node to = allNodes[random.nextInt(allNodes.length)];
+			requests.add(new PathRequest(from, to, 7 * 3600, person, null));
+		}
+
+		List<Path> actual = calculator.calcLeastCostPaths(requests);
+		for (int i = 0; i < requests.size(); i++) {
+			Path path = actual.get(i);
+			Assert.assertEquals(path.nodes.get(path.nodes.size() - 1), path.getToNode());
+			for (int l = 0; l < path.links.size(); l++) {
+				Assert.assertEquals(path.nodes.get(l), path.links.get(l).getFromNode());
+				Assert.assertEquals(path.nodes.get(l + 1), path.links.get(l).getToNode());
+			}
+		}
+	}
+
+	private static void addLinks(Network network, Node a, Node b, Random random) {
+		double freespeed = 5 + random.nextInt(20);
+		NetworkUtils.createAndAddLink(network, Id.create(a.getId() + "-" + b.getId(), Link.class), a, b, 100, freespeed, 1000, 1);
+		NetworkUtils.createAndAddLink(network, Id.create(b.getId() + "-" + a.getId(), Link.class), b, a, 100, freespeed, 1000, 1);
+	}
+}
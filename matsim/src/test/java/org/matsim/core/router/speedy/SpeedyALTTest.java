@@ -20,12 +20,22 @@
 
 package org.matsim.core.router.speedy;
 
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
 import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.router.AbstractLeastCostPathCalculatorTest;
 import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
 /**
  * @author mrieser
  */
@@ -38,5 +48,63 @@ public class SpeedyALTTest extends AbstractLeastCostPathCalculatorTest {
 		SpeedyALTData altData = new SpeedyALTData(g, 16, travelTimeCostCalculator);
 		return new SpeedyALT(altData, travelTimeCostCalculator, travelTimeCostCalculator);
 	}
-	
+
+	public void testLandmarksFile() throws IOException {
+		Network network = NetworkUtils.createNetwork();
+		Node[][] nodes = new Node[8][8];
+		for (int x = 0; x < 8; x++) {
+			for (int y = 0; y < 8; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.create(x + "_" + y, Node.class), new Coord(x * 100, y * 100));
+				if (x > 0) {
+					addLinks(network, nodes[x - 1][y], nodes[x][y], 5 + x + y);
+				}
+				if (y > 0) {
+					addLinks(network, nodes[x][y - 1], nodes[x][y], 10 + x);
+				}
+			}
+		}
+		FreespeedTravelTimeAndDisutility travelCosts = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		SpeedyGraph graph = new SpeedyGraph(network);
+		File directory = new File(getOutputDirectory());
+
+		SpeedyALTData created = SpeedyALTData.loadOrCreate(graph, network, 4, travelCosts, 2, directory);
+		File[] files = directory.listFiles((dir, name) -> name.startsWith("speedyALT-"));
+		assertEquals(1, files.length);
+		SpeedyALTData read = SpeedyALTData.loadOrCreate(graph, network, 4, travelCosts, 2, directory);
+		for (Node node : network.getNodes().values()) {
+			int nodeIdx = node.getId().index();
+			for (int l = 0; l < 4; l++) {
+				assertEquals(created.getTravelCostFromLandmark(nodeIdx, l), read.getTravelCostFromLandmark(nodeIdx, l), 0.0);
+				assertEquals(created.getTravelCostToLandmark(nodeIdx, l), read.getTravelCostToLandmark(nodeIdx, l), 0.0);
+			}
+		}
+		assertEquals(created.getMinTravelCostPerLength(), read.getMinTravelCostPerLength(), 0.0);
+
+		// the landmarks must not depend on the number of threads
+		SpeedyALTData singleThreaded = new SpeedyALTData(graph, 4, travelCosts, 1);
+		for (Node node : network.getNodes().values()) {
+			assertEquals(singleThreaded.getTravelCostToLandmark(node.getId().index(), 3), created.getTravelCostToLandmark(node.getId().index(), 3), 0.0);
+		}
+
+		// a different number of landmarks must use another file
+		SpeedyALTData.loadOrCreate(graph, network, 2, travelCosts, 2, directory);
+		assertEquals(2, directory.listFiles((dir, name) -> name.startsWith("speedyALT-")).length);
+
+		// a truncated file must be calculated and written again
+		File file = files[0];
+		long length = file.length();
+		byte[] content = Files.readAllBytes(file.toPath());
+		Files.write(file.toPath(), Arrays.copyOf(content, content.length / 2));
+		SpeedyALTData recreated = SpeedyALTData.loadOrCreate(graph, network, 4, travelCosts, 2, directory);
+		assertEquals(created.getTravelCostToLandmark(nodes[3][3].getId().index(), 1), recreated.getTravelCostToLandmark(nodes[3][3].getId().index(), 1), 0.0);
+		assertEquals(length, file.length());
+		// no temporary files may be left over
+		assertEquals(2, directory.listFiles().length);
+	}
+
+	private static void addLinks(Network network, Node a, Node b, double freespeed) {
+		NetworkUtils.createAndAddLink(network, Id.create(a.getId() + "-" + b.getId(), Link.class), a, b, 100, freespeed, 1000, 1);
+		NetworkUtils.createAndAddLink(network, Id.create(b.getId() + "-" + a.getId(), Link.class), b, a, 100, freespeed, 1000, 1);
+	}
+
 }
@@ -0,0 +1,151 @@
+package org.matsim.core.router.speedy;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.AbstractLeastCostPathCalculatorTest;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+import java.util.Random;
+
+public class SpeedyCHTest extends AbstractLeastCostPathCalculatorTest {
+
+	@Override
+	protected LeastCostPathCalculator getLeastCostPathCalculator(final Network network) {
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		SpeedyGraph g = new SpeedyGraph(network);
+		SpeedyCHData chData = new SpeedyCHData(g, travelTimeCostCalculator, travelTimeCostCalculator, 900, 30 * 3600);
+		return new SpeedyCH(chData, travelTimeCostCalculator, travelTimeCostCalculator);
+	}
+
+	/**
+	 * On a grid with travel times that only change at the bin boundaries, the contraction hierarchy must find
+	 * paths as cheap as a time-dependent Dijkstra.
+	 */
+	public void testSameCostsAsDijkstra() {
+		Network network = NetworkUtils.createNetwork();
+		int size = 15;
+		Node[][] nodes = new Node[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.create(x + "_" + y, Node.class), new Coord(x * 100, y * 100));
+			}
+		}
+		Random random = new Random(42);
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if (x + 1 < size) {
+					addLinks(network, nodes[x][y], nodes[x + 1][y], random);
+				}
+				if (y + 1 < size) {
+					addLinks(network, nodes[x][y], nodes[x][y + 1], random);
+				}
+			}
+		}
+
+		// travel times change only at the bin boundaries and are multiples of the bin size, so the profiles are exact.
+		// they differ by at most one bin, so the fifo property holds
+		double binSize = 60;
+		TravelTime travelTime = (link, time, person, vehicle) -> {
+			int bin = (int) (time / binSize);
+			int hash = link.getId().index() * 31 + Math.min(bin, 20) * (int) link.getFreespeed();
+			return binSize * (1 + hash % 2);
+		};
+		TravelDisutility travelDisutility = new OnlyTimeDependentTravelDisutility(travelTime);
+
+		SpeedyGraph graph = new SpeedyGraph(network);
+		SpeedyCHData chData = new SpeedyCHData(graph, travelTime, travelDisutility, binSize, 21 * binSize);
+		SpeedyCH ch = new SpeedyCH(chData, travelTime, travelDisutility);
+		SpeedyDijkstra dijkstra = new SpeedyDijkstra(graph, travelTime, travelDisutility);
+
+		Node[] allNodes = network.getNodes().values().toArray(new Node[0]);
+		for (int i = 0; i < 200; i++) {
+			Node from = allNodes[random.nextInt(allNodes.length)];
+			Node to = allNodes[random.nextInt(allNodes.length)];
+			double departure = random.nextInt(20) * binSize;
+			Path expected = dijkstra.calcLeastCostPath(from, to, departure, null, null);
+			Path actual = ch.calcLeastCostPath(from, to, departure, null, null);
+
+			assertEquals(from, actual.nodes.get(0));
+			assertEquals(to, actual.nodes.get(actual.nodes.size() - 1));
+			for (int l = 0; l < actual.links.size(); l++) {
+				assertEquals(actual.nodes.get(l), actual.links.get(l).getFromNode());
+				assertEquals(actual.nodes.get(l + 1), actual.links.get(l).getToNode());
+			}
+			assertEquals(expected.travelCost, actual.travelCost, 1e-6);
+			assertEquals(expected.travelTime, actual.travelTime, 1e-6);
+		}
+	}
+
+	/**
+	 * If the travel times are not multiples of the bin size, the profiles of the shortcuts are only approximations.
+	 * The found paths must still be valid and their costs must be close to the ones of a time-dependent Dijkstra.
+	 */
+	public void testNonAlignedTravelTimes() {
+		Network network = NetworkUtils.createNetwork();
+		int size = 15;
+		Node[][] nodes = new Node[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.create(x + "_" + y, Node.class), new Coord(x * 100, y * 100));
+			}
+		}
+		Random random = new Random(42);
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if (x + 1 < size) {
+					addLinks(network, nodes[x][y], nodes[x + 1][y], random);
+				}
+				if (y + 1 < size) {
+					addLinks(network, nodes[x][y], nodes[x][y + 1], random);
+				}
+			}
+		}
+
+		// the travel times grow with every bin, so the fifo property holds
+		double binSize = 60;
+		TravelTime travelTime = (link, time, person, vehicle) -> {
+			int bin = Math.min((int) (time / binSize), 20);
+			return link.getLength() / link.getFreespeed() * (1 + 0.01 * bin * (link.getId().index() % 3));
+		};
+		TravelDisutility travelDisutility = new OnlyTimeDependentTravelDisutility(travelTime);
+
+		SpeedyGraph graph = new SpeedyGraph(network);
+		SpeedyCHData chData = new SpeedyCHData(graph, travelTime, travelDisutility, binSize, 21 * binSize);
+		SpeedyCH ch = new SpeedyCH(chData, travelTime, travelDisutility);
+		SpeedyDijkstra dijkstra = new SpeedyDijkstra(graph, travelTime, travelDisutility);
+
+		Node[] allNodes = network.getNodes().values().toArray(new Node[0]);
+		for (int i = 0; i < 200; i++) {
+			Node from = allNodes[random.nextInt(allNodes.length)];
+			Node to = allNodes[random.nextInt(allNodes.length)];
+			double departure = random.nextInt(20 * (int) binSize);
+			Path expected = dijkstra.calcLeastCostPath(from, to, departure, null, null);
+			Path actual = ch.calcLeastCostPath(from, to, departure, null, null);
+
+			assertEquals(from, actual.nodes.get(0));
+			assertEquals(to, actual.nodes.get(actual.nodes.size() - 1));
+			for (int l = 0; l < actual.links.size(); l++) {
+				assertEquals(actual.nodes.get(l), actual.links.get(l).getFromNode());
+				assertEquals(actual.nodes.get(l + 1), actual.links.get(l).getToNode());
+			}
+			assertTrue(actual.travelCost >= expected.travelCost - 1e-6);
+			assertEquals(expected.travelCost, actual.travelCost, 0.05 * expected.travelCost + 1e-6);
+		}
+	}
+
+	private static void addLinks(Network network, Node a, Node b, Random random) {
+		double freespeed = 5 + random.nextInt(20);
+		NetworkUtils.createAndAddLink(network, Id.create(a.getId() + "-" + b.getId(), Link.class), a, b, 100, freespeed, 1000, 1);
+		NetworkUtils.createAndAddLink(network, Id.create(b.getId() + "-" + a.getId(), Link.class), b, a, 100, freespeed, 1000, 1);
+	}
+}
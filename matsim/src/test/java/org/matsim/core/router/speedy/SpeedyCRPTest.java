@@ -0,0 +1,140 @@
+package org.matsim.core.router.speedy;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.AbstractLeastCostPathCalculatorTest;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+public class SpeedyCRPTest extends AbstractLeastCostPathCalculatorTest {
+
+	@Override
+	protected LeastCostPathCalculator getLeastCostPathCalculator(final Network network) {
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		SpeedyGraph g = new SpeedyGraph(network);
+		SpeedyPartition partition = new SpeedyPartition(g, 4, 1);
+		SpeedyCRPData crpData = new SpeedyCRPData(g, partition, travelTimeCostCalculator, travelTimeCostCalculator, 900, 30 * 3600, 1);
+		return new SpeedyCRP(crpData, travelTimeCostCalculator, travelTimeCostCalculator);
+	}
+
+	/**
+	 * On a grid with travel times that only change at the bin boundaries, the overlay must find paths as cheap as a
+	 * time-dependent Dijkstra.
+	 */
+	public void testSameCostsAsDijkstra() {
+		Network network = createGrid(15, new Random(42));
+		Random random = new Random(42);
+
+		// travel times change only at the bin boundaries and are multiples of the bin size, so the profiles are exact.
+		// they differ by at most one bin, so the fifo property holds
+		double binSize = 60;
+		TravelTime travelTime = (link, time, person, vehicle) -> {
+			int bin = (int) (time / binSize);
+			int hash = link.getId().index() * 31 + Math.min(bin, 20) * (int) link.getFreespeed();
+			return binSize * (1 + hash % 2);
+		};
+		TravelDisutility travelDisutility = new OnlyTimeDependentTravelDisutility(travelTime);
+
+		SpeedyGraph graph = new SpeedyGraph(network);
+		SpeedyPartition partition = new SpeedyPartition(graph, 8, 2);
+		assertEquals(3, partition.getLevelsCount());
+		SpeedyCRPData crpData = new SpeedyCRPData(graph, partition, travelTime, travelDisutility, binSize, 21 * binSize, 2);
+		SpeedyCRP crp = new SpeedyCRP(crpData, travelTime, travelDisutility);
+		SpeedyDijkstra dijkstra = new SpeedyDijkstra(graph, travelTime, travelDisutility);
+
+		Node[] allNodes = network.getNodes().values().toArray(new Node[0]);
+		for (int i = 0; i < 200; i++) {
+			Node from = allNodes[random.nextInt(allNodes.length)];
+			Node to = allNodes[random.nextInt(allNodes.length)];
+			double departure = random.nextInt(20) * binSize;
+			Path expected = dijkstra.calcLeastCostPath(from, to, departure, null, null);
+			Path actual = crp.calcLeastCostPath(from, to, departure, null, null);
+
+			assertEquals(from, actual.nodes.get(0));
+			assertEquals(to, actual.nodes.get(actual.nodes.size() - 1));
+			for (int l = 0; l < actual.links.size(); l++) {
+				assertEquals(actual.nodes.get(l), actual.links.get(l).getFromNode());
+				assertEquals(actual.nodes.get(l + 1), actual.links.get(l).getToNode());
+			}
+			assertEquals(expected.travelCost, actual.travelCost, 1e-6);
+			assertEquals(expected.travelTime, actual.travelTime, 1e-6);
+		}
+	}
+
+	public void testPartitionFile() throws IOException {
+		Network network = createGrid(10, new Random(42));
+		SpeedyGraph graph = new SpeedyGraph(network);
+		File directory = new File(getOutputDirectory() + "cache");
+		FreespeedTravelTimeAndDisutility travelCosts = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+
+		SpeedyPartition created = SpeedyPartition.loadOrCreate(graph, network, 8, 2, travelCosts, directory);
+		File[] files = directory.listFiles();
+		assertEquals(1, files.length);
+		SpeedyPartition read = SpeedyPartition.loadOrCreate(graph, network, 8, 2, travelCosts, directory);
+		assertEquals(created.getLevelsCount(), read.getLevelsCount());
+		for (Node node : network.getNodes().values()) {
+			for (int level = 0; level < created.getLevelsCount(); level++) {
+				assertEquals(created.getCell(node.getId().index(), level), read.getCell(node.getId().index(), level));
+			}
+		}
+
+		// different parameters must not re-use or overwrite the file
+		SpeedyPartition other = SpeedyPartition.loadOrCreate(graph, network, 60, 2, travelCosts, directory);
+		assertEquals(1, other.getLevelsCount());
+		assertEquals(2, directory.listFiles().length);
+
+		// so must different travel disutilities
+		TravelDisutility otherCosts = new OnlyTimeDependentTravelDisutility(travelCosts);
+		SpeedyPartition.loadOrCreate(graph, network, 8, 2, otherCosts, directory);
+		assertEquals(3, directory.listFiles().length);
+
+		// a truncated file is calculated again
+		byte[] content = Files.readAllBytes(files[0].toPath());
+		Files.write(files[0].toPath(), Arrays.copyOf(content, content.length / 2));
+		SpeedyPartition recreated = SpeedyPartition.loadOrCreate(graph, network, 8, 2, travelCosts, directory);
+		assertEquals(created.getLevelsCount(), recreated.getLevelsCount());
+		assertEquals(content.length, files[0].length());
+	}
+
+	private static Network createGrid(int size, Random random) {
+		Network network = NetworkUtils.createNetwork();
+		Node[][] nodes = new Node[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.create(x + "_" + y, Node.class), new Coord(x * 100, y * 100));
+			}
+		}
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if (x + 1 < size) {
+					addLinks(network, nodes[x][y], nodes[x + 1][y], random);
+				}
+				if (y + 1 < size) {
+					addLinks(network, nodes[x][y], nodes[x][y + 1], random);
+				}
+			}
+		}
+		return network;
+	}
+
+	private static void addLinks(Network network, Node a, Node b, Random random) {
+		double freespeed = 5 + random.nextInt(20);
+		NetworkUtils.createAndAddLink(network, Id.create(a.getId() + "-" + b.getId(), Link.class), a, b, 100, freespeed, 1000, 1);
+		NetworkUtils.createAndAddLink(network, Id.create(b.getId() + "-" + a.getId(), Link.class), b, a, 100, freespeed, 1000, 1);
+	}
+}
@@ -96,6 +96,34 @@ public class TravelTimeCalculatorTest extends MatsimTestCase {
 				aggregator, binSize, endTime, compareFile, false, this.getClassInputDirectory(), travelTimeGetter );
 	}
 
+	public final void testTravelTimeCalculator_FlatArray_Optimistic() throws IOException {
+
+		int endTime = 30*3600;
+		int binSize = 15*60;
+		int numSlots = (endTime / binSize) + 1;
+
+		String compareFile = getClassInputDirectory() + "link10_ttimes.txt";
+		MutableScenario scenario = (MutableScenario) ScenarioUtils.createScenario( ConfigUtils.createConfig() );
+		TimeSlotComputation travelTimeAggregator = new TimeSlotComputation( numSlots, binSize );
+		TravelTimeGetter travelTimeGetter = new AveragingTravelTimeGetter( travelTimeAggregator ) ;
+		doTravelTimeCalculatorTest(scenario, null,
+				travelTimeAggregator, binSize, endTime, compareFile, false, this.getClassInputDirectory(), travelTimeGetter );
+	}
+
+	public final void testTravelTimeCalculator_FlatArray_Optimistic_LinearInterpolation() throws IOException {
+
+		int endTime = 30*3600;
+		int binSize = 15*60;
+		int numSlots = (endTime / binSize) + 1;
+
+		String compareFile = getClassInputDirectory() + "link10_ttimes_linearinterpolation.txt";
+		MutableScenario scenario = (MutableScenario) ScenarioUtils.createScenario( ConfigUtils.createConfig() );
+		TimeSlotComputation aggregator = new TimeSlotComputation( numSlots, binSize );
+		TravelTimeGetter travelTimeGetter = new LinearInterpolatingTravelTimeGetter( numSlots, binSize, aggregator );
+		doTravelTimeCalculatorTest(scenario, null,
+				aggregator, binSize, endTime, compareFile, false, this.getClassInputDirectory(), travelTimeGetter );
+	}
+
 	public final void testTravelTimeCalculator_HashMap_Optimistic() throws IOException {
 
 		int endTime = 30*3600;
@@ -187,7 +215,11 @@ public class TravelTimeCalculatorTest extends MatsimTestCase {
 		TravelTimeCalculator ttcalc = new TravelTimeCalculator(network, timeBinSize, endTime, scenario.getConfig().travelTimeCalculator());
 		ttcalc.travelTimeGetter = travelTimeGetter ;
 		ttcalc.aggregator = aggregator ;
-		ttcalc.setTtDataFactory( ttDataFactory );
+		if ( ttDataFactory != null ) { // null to use the flat arrays
+			ttcalc.setTtDataFactory( ttDataFactory );
+		} else {
+			ttcalc.useFlatArrays( network );
+		}
 		events2.addHandler(ttcalc);
 		events2.initProcessing();
 		for (Event e : collector.getEvents()) {
@@ -0,0 +1,123 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.trafficmonitoring;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+
+public class TravelTimeDataFlatArrayTest {
+
+	/**
+	 * Links are rows of shared pages and must not influence each other, also across page boundaries.
+	 */
+	@Test
+	public void testRowsAreIndependent() {
+		Network network = NetworkUtils.createNetwork();
+		Node from = NetworkUtils.createAndAddNode(network, Id.createNodeId("1"), new Coord(0, 0));
+		Node to = NetworkUtils.createAndAddNode(network, Id.createNodeId("2"), new Coord(10, 0));
+		final int numLinks = TravelTimeDataFlatArrayStore.ROWS_PER_PAGE + 10;
+		for (int i = 0; i < numLinks; i++) {
+			NetworkUtils.createAndAddLink(network, Id.createLinkId("flat" + i), from, to, 10, 10, 10, 1);
+		}
+		final int numSlots = 24;
+		TravelTimeDataFlatArrayStore store = new TravelTimeDataFlatArrayStore(network, numSlots, false);
+
+		for (int i = 0; i < numLinks; i++) {
+			store.getLinkData(Id.createLinkId("flat" + i)).addTravelTime(i % numSlots, i + 2);
+		}
+		for (int i = 0; i < numLinks; i++) {
+			TravelTimeData data = store.getLinkData(network.getLinks().get(Id.createLinkId("flat" + i)));
+			Assert.assertEquals(i + 2, data.getTravelTime(i % numSlots, 0), 1e-3);
+			// free speed travel time in the other slots
+			Assert.assertEquals(1.0, data.getTravelTime((i + 1) % numSlots, 0), 1e-3);
+		}
+
+		store.getLinkData(Id.createLinkId("flat3")).resetTravelTimes();
+		Assert.assertEquals(1.0, store.getLinkData(Id.createLinkId("flat3")).getTravelTime(3, 0), 1e-3);
+		Assert.assertEquals(6, store.getLinkData(Id.createLinkId("flat4")).getTravelTime(4, 0), 1e-3);
+
+		store.getLinkData(Id.createLinkId("flat5")).setNeedsConsolidation(true);
+		Assert.assertTrue(store.getLinkData(Id.createLinkId("flat5")).isNeedingConsolidation());
+		Assert.assertFalse(store.getLinkData(Id.createLinkId("flat6")).isNeedingConsolidation());
+
+		store.reset();
+		Assert.assertFalse(store.getLinkData(Id.createLinkId("flat5")).isNeedingConsolidation());
+		Assert.assertEquals(1.0, store.getLinkData(Id.createLinkId("flat4")).getTravelTime(4, 0), 1e-3);
+	}
+
+	@Test
+	public void testLinkToLinkRows() {
+		Network network = NetworkUtils.createNetwork();
+		Node n1 = NetworkUtils.createAndAddNode(network, Id.createNodeId("1"), new Coord(0, 0));
+		Node n2 = NetworkUtils.createAndAddNode(network, Id.createNodeId("2"), new Coord(10, 0));
+		Node n3 = NetworkUtils.createAndAddNode(network, Id.createNodeId("3"), new Coord(20, 0));
+		NetworkUtils.createAndAddLink(network, Id.createLinkId("1-2"), n1, n2, 10, 10, 10, 1);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId("2-3"), n2, n3, 10, 10, 10, 1);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId("2-1"), n2, n1, 10, 10, 10, 1);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId("3-2"), n3, n2, 10, 10, 10, 1);
+		TravelTimeDataFlatArrayStore store = new TravelTimeDataFlatArrayStore(network, 4, true);
+
+		store.getLinkToLinkData(Id.createLinkId("1-2"), Id.createLinkId("2-3")).addTravelTime(1, 5);
+		store.getLinkToLinkData(Id.createLinkId("1-2"), Id.createLinkId("2-1")).addTravelTime(1, 7);
+		// not connected in the network
+		store.getLinkToLinkData(Id.createLinkId("1-2"), Id.createLinkId("3-2")).addTravelTime(1, 9);
+		store.getLinkData(Id.createLinkId("1-2")).addTravelTime(1, 11);
+
+		Assert.assertEquals(5, store.getLinkToLinkData(Id.createLinkId("1-2"), Id.createLinkId("2-3")).getTravelTime(1, 0), 1e-3);
+		Assert.assertEquals(7, store.getLinkToLinkData(Id.createLinkId("1-2"), Id.createLinkId("2-1")).getTravelTime(1, 0), 1e-3);
+		Assert.assertEquals(9, store.getLinkToLinkData(Id.createLinkId("1-2"), Id.createLinkId("3-2")).getTravelTime(1, 0), 1e-3);
+		Assert.assertEquals(11, store.getLinkData(Id.createLinkId("1-2")).getTravelTime(1, 0), 1e-3);
+		// free speed travel time of the from link
+		Assert.assertEquals(1.0, store.getLinkToLinkData(Id.createLinkId("2-3"), Id.createLinkId("3-2")).getTravelTime(1, 0), 1e-3);
+	}
+
+	@Test
+	public void testConcurrentAdd() throws InterruptedException {
+		Network network = NetworkUtils.createNetwork();
+		Node from = NetworkUtils.createAndAddNode(network, Id.createNodeId("1"), new Coord(0, 0));
+		Node to = NetworkUtils.createAndAddNode(network, Id.createNodeId("2"), new Coord(10, 0));
+		NetworkUtils.createAndAddLink(network, Id.createLinkId("1-2"), from, to, 10, 10, 10, 1);
+		TravelTimeDataFlatArrayStore store = new TravelTimeDataFlatArrayStore(network, 4, false);
+
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread(() -> {
+				for (int i = 0; i < 10000; i++) {
+					store.getLinkData(Id.createLinkId("1-2")).addTravelTime(1, 25.0);
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		// no update may get lost
+		TravelTimeDataFlatArray data = (TravelTimeDataFlatArray) store.getLinkData(Id.createLinkId("1-2"));
+		Assert.assertEquals(40000, data.getCount(1));
+		Assert.assertEquals(25.0, data.getTravelTime(1, 0), 1e-3);
+	}
+}
@@ -24,7 +24,10 @@
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 
@@ -153,4 +156,93 @@ public class AttributesTest {
 			Assert.fail("Expected NoSuchElementException, but caught a different one.");
 		}
 	}
+
+	@Test
+	public void testSharedShapeAndPrimitiveValues() {
+		final Attributes first = new Attributes();
+		first.putAttribute( "income" , 3500.5 );
+		first.putAttribute( "age" , 42 );
+		first.putAttribute( "carAvail" , true );
+		first.putAttribute( "id" , 1234567890123L );
+		first.putAttribute( "name" , "first" );
+
+		// same keys in another order, ends up in the same shape
+		final Attributes second = new Attributes();
+		second.putAttribute( "name" , "second" );
+		second.putAttribute( "id" , 1L );
+		second.putAttribute( "carAvail" , false );
+		second.putAttribute( "age" , -3 );
+		second.putAttribute( "income" , Double.NaN );
+
+		Assert.assertEquals( 3500.5 , first.getAttribute( "income" ) );
+		Assert.assertEquals( 42 , first.getAttribute( "age" ) );
+		Assert.assertEquals( true , first.getAttribute( "carAvail" ) );
+		Assert.assertEquals( 1234567890123L , first.getAttribute( "id" ) );
+		Assert.assertEquals( "first" , first.getAttribute( "name" ) );
+		Assert.assertEquals( Double.NaN , second.getAttribute( "income" ) );
+		Assert.assertEquals( -3 , second.getAttribute( "age" ) );
+		Assert.assertEquals( false , second.getAttribute( "carAvail" ) );
+		Assert.assertEquals( "second" , second.getAttribute( "name" ) );
+
+		final Attributes third = new Attributes();
+		AttributesUtils.copyTo( first , third );
+		Assert.assertEquals( first.getAsMap() , third.getAsMap() );
+
+		// the shape only depends on the keys and kinds, not on the order in which they were added
+		final AttributesShape shape = AttributesShape.EMPTY.withKey( "name" , AttributesShape.OBJECT ).withKey( "age" , AttributesShape.INTEGER );
+		Assert.assertSame( "key set should be shared" , shape , AttributesShape.EMPTY.withKey( "age" , AttributesShape.INTEGER ).withKey( "name" , AttributesShape.OBJECT ) );
+	}
+
+	@Test
+	public void testUnusedShapesAreCollected() throws InterruptedException {
+		WeakReference<AttributesShape> shape = new WeakReference<>( AttributesShape.EMPTY.withKey( "unusedShape" , AttributesShape.OBJECT ) );
+		for ( int i = 0 ; i < 50 && shape.get() != null ; i++ ) {
+			System.gc();
+			Thread.sleep( 10 );
+		}
+		Assert.assertNull( "neither the intern table nor the transitions may keep unused shapes alive" , shape.get() );
+
+		final Attributes attributes = new Attributes();
+		attributes.putAttribute( "unusedShape" , "value" );
+		Assert.assertEquals( "value" , attributes.getAttribute( "unusedShape" ) );
+	}
+
+	@Test
+	public void testChangeValueType() {
+		final Attributes attributes = new Attributes();
+		attributes.putAttribute( "a" , 1 );
+		attributes.putAttribute( "b" , 2.0 );
+		attributes.putAttribute( "c" , "three" );
+
+		Assert.assertEquals( 1 , attributes.putAttribute( "a" , "one" ) );
+		Assert.assertEquals( 2.0 , attributes.putAttribute( "b" , 2L ) );
+		Assert.assertEquals( "three" , attributes.putAttribute( "c" , null ) );
+
+		Assert.assertEquals( 3 , attributes.size() );
+		Assert.assertEquals( "one" , attributes.getAttribute( "a" ) );
+		Assert.assertEquals( 2L , attributes.getAttribute( "b" ) );
+		Assert.assertNull( attributes.getAttribute( "c" ) );
+
+		Assert.assertEquals( 2L , attributes.removeAttribute( "b" ) );
+		Assert.assertEquals( "one" , attributes.getAttribute( "a" ) );
+		Assert.assertEquals( 2 , attributes.size() );
+	}
+
+	@Test
+	public void testMemoryUsagePerKey() {
+		List<Attributable> attributables = new ArrayList<>();
+		for ( int i = 0; i < 10; i++ ) {
+			final Attributes attributes = new Attributes();
+			attributes.putAttribute( "age" , i );
+			if ( i % 2 == 0 ) {
+				attributes.putAttribute( "name" , "abc" );
+			}
+			attributables.add( () -> attributes );
+		}
+
+		Map<String, Long> usage = AttributesUtils.getMemoryUsagePerKey( attributables );
+		Assert.assertEquals( 2 , usage.size() );
+		Assert.assertEquals( 80L , (long) usage.get( "age" ) );
+		Assert.assertEquals( 5 * ( 4 + 24 + 24 ) , (long) usage.get( "name" ) );
+	}
 }